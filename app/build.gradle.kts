@@ -29,6 +29,22 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        unitTests.all {
+            // The data layer benchmarks only run with -Pbenchmark; see DataLayerBenchmarkTest.
+            val benchmark = project.hasProperty("benchmark")
+            it.systemProperty("benchmark", benchmark)
+            it.systemProperty("benchmark.scales", project.findProperty("benchmark.scales") ?: "10000,100000")
+            it.systemProperty("benchmark.baseline", file("benchmarks/baseline.json").absolutePath)
+            it.systemProperty("benchmark.results", layout.buildDirectory.file("benchmarks/results.json").get().asFile.absolutePath)
+            it.systemProperty("benchmark.updateBaseline", project.hasProperty("benchmark.updateBaseline"))
+            it.systemProperty("benchmark.failOnRegression", project.hasProperty("benchmark.failOnRegression"))
+            if (benchmark) {
+                it.maxHeapSize = "4g"
+                it.outputs.upToDateWhen { false }
+            }
+        }
+    }
 }
 
 dependencies {
@@ -38,6 +54,7 @@ dependencies {
     implementation(libs.activity)
     implementation(libs.constraintlayout)
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
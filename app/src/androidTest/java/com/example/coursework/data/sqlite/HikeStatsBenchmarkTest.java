@@ -0,0 +1,158 @@
+package com.example.coursework.data.sqlite;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the trigger-maintained statistics match statistics computed from scratch after a mix of writes, and
+ * compares reading them with aggregating the hikes directly and with rebuilding them. Results are written to the log.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HikeStatsBenchmarkTest {
+
+    private static final String TAG = "HikeStatsBenchmark";
+    // Number of hikes written; every other hike gets observations.
+    private static final int HIKE_COUNT = 50_000;
+    // Times each read is repeated.
+    private static final int READS = 20;
+
+    private File file;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        file = context.getDatabasePath("stats-benchmark.db");
+        SQLiteDatabase.deleteDatabase(file);
+        file.getParentFile().mkdirs();
+        db = SQLiteDatabase.openOrCreateDatabase(file, null);
+        db.setForeignKeyConstraintsEnabled(true);
+        DatabaseHelper.getInstance(context).onCreate(db);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        SQLiteDatabase.deleteDatabase(file);
+    }
+
+    @Test
+    public void triggersMatchRebuild() {
+        long writes = time(this::writeHikes);
+        Map<String, String> maintained = readStats();
+
+        long aggregate = time(() -> {
+            for (int i = 0; i < READS; i++) {
+                Cursor cursor = db.rawQuery("SELECT " + DatabaseHelper.KEY_HIKE_DIFFICULTY + ", count(*), total(" +
+                        DatabaseHelper.KEY_HIKE_LENGTH + ") FROM " + DatabaseHelper.TABLE_HIKES + " GROUP BY 1", null);
+                while (cursor.moveToNext()) {
+                    cursor.getLong(1);
+                }
+                cursor.close();
+            }
+        });
+        long summary = time(() -> {
+            for (int i = 0; i < READS; i++) {
+                readStats();
+            }
+        });
+        long rebuild = time(() -> HikeStatsDAO.rebuild(db));
+
+        assertEquals(readStats(), maintained);
+        Log.i(TAG, String.format("%d hikes written with triggers in %d ms", HIKE_COUNT, writes / 1_000_000));
+        Log.i(TAG, String.format("difficulty totals: %.2f ms aggregating hikes, %.2f ms reading all statistics",
+                aggregate / 1e6 / READS, summary / 1e6 / READS));
+        Log.i(TAG, String.format("rebuild: %d ms", rebuild / 1_000_000));
+    }
+
+    /**
+     * Inserts hikes and observations, then updates and deletes some of each, all through the triggers.
+     */
+    private void writeHikes() {
+        String[] difficulties = {"Easy", "Moderate", "Difficult"};
+        Random random = new Random(42);
+        SQLiteStatement insertHike = db.compileStatement(HikeDAO.INSERT_HIKE);
+        SQLiteStatement insertObservation = db.compileStatement(ObservationDAO.INSERT_OBSERVATION);
+        for (int i = 0; i < HIKE_COUNT; i++) {
+            insertHike.bindString(1, "Hike " + i);
+            insertHike.bindString(2, "Location " + i % 100);
+            insertHike.bindLong(3, 18000 + random.nextInt(2000));
+            insertHike.bindString(4, random.nextBoolean() ? "Yes" : "No");
+            insertHike.bindDouble(5, 1 + random.nextInt(300) / 10.0);
+            insertHike.bindString(6, difficulties[random.nextInt(difficulties.length)]);
+            long hikeId = insertHike.executeInsert();
+            for (int j = 0; i % 2 == 0 && j < 3; j++) {
+                insertObservation.bindLong(1, hikeId);
+                insertObservation.bindString(2, "Observation " + j);
+                insertObservation.bindString(3, "12:00");
+                insertObservation.executeInsert();
+            }
+        }
+        insertHike.close();
+        insertObservation.close();
+
+        db.execSQL("UPDATE " + DatabaseHelper.TABLE_HIKES + " SET " + DatabaseHelper.KEY_HIKE_DIFFICULTY + " = 'Easy', " +
+                DatabaseHelper.KEY_HIKE_DATE + " = " + DatabaseHelper.KEY_HIKE_DATE + " + 40 WHERE " +
+                DatabaseHelper.KEY_HIKE_ID + " % 7 = 0");
+        db.execSQL("UPDATE " + DatabaseHelper.TABLE_OBSERVATIONS + " SET " + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK +
+                " = " + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK + " - 1 WHERE " + DatabaseHelper.KEY_OBSERVATION_ID + " % 11 = 0 AND " +
+                DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK + " > 1");
+        db.execSQL("DELETE FROM " + DatabaseHelper.TABLE_OBSERVATIONS + " WHERE " + DatabaseHelper.KEY_OBSERVATION_ID + " % 13 = 0");
+        db.execSQL("DELETE FROM " + DatabaseHelper.TABLE_HIKES + " WHERE " + DatabaseHelper.KEY_HIKE_ID + " % 5 = 0");
+    }
+
+    /**
+     * Reads every non-empty bucket, with lengths rounded so that rounding differences between the running totals
+     * and a fresh sum do not count.
+     * @return The totals, keyed by dimension and bucket.
+     */
+    private Map<String, String> readStats() {
+        Map<String, String> stats = new HashMap<>();
+        Cursor cursor = db.rawQuery("SELECT " + DatabaseHelper.KEY_STATS_DIMENSION + ", " + DatabaseHelper.KEY_STATS_BUCKET + ", " +
+                DatabaseHelper.KEY_STATS_HIKE_COUNT + ", round(" + DatabaseHelper.KEY_STATS_TOTAL_LENGTH + ", 3), " +
+                DatabaseHelper.KEY_STATS_OBSERVATION_COUNT + " FROM " + DatabaseHelper.TABLE_HIKE_STATS + " WHERE " +
+                DatabaseHelper.KEY_STATS_HIKE_COUNT + " > 0", null);
+        while (cursor.moveToNext()) {
+            stats.put(cursor.getString(0) + "/" + cursor.getString(1),
+                    cursor.getLong(2) + " " + cursor.getString(3) + " " + cursor.getLong(4));
+        }
+        cursor.close();
+        return stats;
+    }
+
+    /**
+     * Runs the work in a single transaction and returns how long it took.
+     * @param work The work to time.
+     * @return The elapsed time in nanoseconds.
+     */
+    private long time(Runnable work) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        db.beginTransaction();
+        try {
+            work.run();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.coursework.data.sqlite;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the schema migrations against a synthetic version 1 database.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MigrationRunnerTest {
+
+    private static final String TAG = "MigrationRunnerTest";
+    // Number of hikes in the large database; every third hike has an observation.
+    private static final int LARGE_HIKE_COUNT = 300_000;
+    // Upper bound for migrating the large database, generous enough for slow emulators.
+    private static final long MAX_MIGRATION_MILLIS = 120_000;
+    // The date of hike 3, which is not in the d/M/yyyy form the date picker wrote.
+    private static final String UNPARSED_DATE = "sometime in May";
+
+    private File file;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        file = context.getDatabasePath("migration-test.db");
+        SQLiteDatabase.deleteDatabase(file);
+        file.getParentFile().mkdirs();
+        db = SQLiteDatabase.openOrCreateDatabase(file, null);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        SQLiteDatabase.deleteDatabase(file);
+    }
+
+    @Test
+    public void migratesLargeDatabase() {
+        long[] expectedDates = createVersion1(LARGE_HIKE_COUNT);
+
+        long start = SystemClock.elapsedRealtime();
+        int version = new MigrationRunner(DatabaseHelper.MIGRATIONS, null).migrate(db);
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        Log.i(TAG, "Migrated " + LARGE_HIKE_COUNT + " hikes in " + elapsed + " ms");
+
+        assertEquals(DatabaseHelper.MIGRATIONS[DatabaseHelper.MIGRATIONS.length - 1].getVersion(), version);
+        assertMigrated(expectedDates);
+        assertTrue("Migration took " + elapsed + " ms", elapsed < MAX_MIGRATION_MILLIS);
+    }
+
+    @Test
+    public void resumesAfterInterruption() {
+        long[] expectedDates = createVersion1(20_000);
+
+        // Stop the date migration after its second batch, as if the process had been killed.
+        try {
+            new MigrationRunner(DatabaseHelper.MIGRATIONS, (version, done, total) -> {
+                if (version == 3 && done >= 2 * Migration.BATCH_SIZE) {
+                    throw new IllegalStateException("Interrupted");
+                }
+            }).migrate(db);
+            fail("Migration was not interrupted");
+        } catch (IllegalStateException expected) {
+            // The committed batches and the completed version 2 step remain.
+        }
+        assertEquals(2, db.getVersion());
+        assertEquals(2 * Migration.BATCH_SIZE, Migration.count(db, "SELECT count(*) FROM hikes_v3", null));
+
+        int version = new MigrationRunner(DatabaseHelper.MIGRATIONS, null).migrate(db);
+
+        assertEquals(DatabaseHelper.MIGRATIONS[DatabaseHelper.MIGRATIONS.length - 1].getVersion(), version);
+        assertMigrated(expectedDates);
+    }
+
+    /**
+     * Checks that every hike survived with its date converted, that the search index covers every hike, and that only
+     * the orphaned observations were dropped.
+     * @param expectedDates The expected epoch day of each hike, indexed by hike ID - 1.
+     */
+    private void assertMigrated(long[] expectedDates) {
+        assertFalse(Migration.tableExists(db, "hikes_v3"));
+        assertEquals(expectedDates.length, Migration.count(db, "SELECT count(*) FROM " + DatabaseHelper.TABLE_HIKES, null));
+        assertEquals(expectedDates.length, Migration.count(db, "SELECT count(*) FROM " + DatabaseHelper.TABLE_HIKE_SEARCH, null));
+
+        Cursor cursor = db.rawQuery("SELECT id, date FROM hikes ORDER BY id", null);
+        while (cursor.moveToNext()) {
+            assertEquals(expectedDates[(int) cursor.getLong(0) - 1], cursor.getLong(1));
+        }
+        cursor.close();
+
+        // The date that could not be converted is kept as it was typed.
+        Cursor unparsed = db.rawQuery("SELECT hike_id, date_text FROM " + EpochDayDateMigration.TABLE_UNPARSED_DATES, null);
+        assertEquals(1, unparsed.getCount());
+        assertTrue(unparsed.moveToFirst());
+        assertEquals(3, unparsed.getLong(0));
+        assertEquals(UNPARSED_DATE, unparsed.getString(1));
+        unparsed.close();
+
+        // Every third hike has an observation; the two orphans are gone.
+        assertFalse(Migration.tableExists(db, "observations_v5"));
+        int expectedObservations = (expectedDates.length + 2) / 3;
+        assertEquals(expectedObservations, Migration.count(db, "SELECT count(*) FROM " + DatabaseHelper.TABLE_OBSERVATIONS, null));
+        Cursor violations = db.rawQuery("PRAGMA foreign_key_check", null);
+        assertEquals(0, violations.getCount());
+        violations.close();
+
+        // The statistics were computed for the existing hikes.
+        assertEquals(expectedDates.length, Migration.count(db, "SELECT " + DatabaseHelper.KEY_STATS_HIKE_COUNT + " FROM " +
+                DatabaseHelper.TABLE_HIKE_STATS + " WHERE " + DatabaseHelper.KEY_STATS_DIMENSION + " = ?",
+                new String[]{DatabaseHelper.STATS_TOTAL}));
+
+        // Each hike carries its observation count; the first hike has one observation.
+        assertEquals(1, Migration.count(db, "SELECT " + DatabaseHelper.KEY_HIKE_OBSERVATION_COUNT + " FROM " +
+                DatabaseHelper.TABLE_HIKES + " WHERE " + DatabaseHelper.KEY_HIKE_ID + " = 1", null));
+        assertEquals(expectedObservations, Migration.count(db, "SELECT sum(" + DatabaseHelper.KEY_HIKE_OBSERVATION_COUNT +
+                ") FROM " + DatabaseHelper.TABLE_HIKES, null));
+
+        // Moving a hike to the trash takes it out of the statistics and the search index.
+        db.execSQL("UPDATE " + DatabaseHelper.TABLE_HIKES + " SET " + DatabaseHelper.KEY_HIKE_DELETED_AT + " = 1 WHERE id = 2");
+        assertEquals(expectedDates.length - 1, Migration.count(db, "SELECT " + DatabaseHelper.KEY_STATS_HIKE_COUNT + " FROM " +
+                DatabaseHelper.TABLE_HIKE_STATS + " WHERE " + DatabaseHelper.KEY_STATS_DIMENSION + " = ?",
+                new String[]{DatabaseHelper.STATS_TOTAL}));
+        assertEquals(expectedDates.length - 1, Migration.count(db, "SELECT count(*) FROM " + DatabaseHelper.TABLE_HIKE_SEARCH, null));
+
+        // Deleting a hike now deletes its observations.
+        db.setForeignKeyConstraintsEnabled(true);
+        db.delete(DatabaseHelper.TABLE_HIKES, "id = 1", null);
+        assertEquals(expectedObservations - 1, Migration.count(db, "SELECT count(*) FROM " + DatabaseHelper.TABLE_OBSERVATIONS, null));
+    }
+
+    /**
+     * Fills the database with the version 1 schema and deterministic synthetic data.
+     * @param hikeCount The number of hikes to create.
+     * @return The epoch day of each hike's date, indexed by hike ID - 1.
+     */
+    private long[] createVersion1(int hikeCount) {
+        db.execSQL("CREATE TABLE hikes(id INTEGER PRIMARY KEY AUTOINCREMENT,name TEXT NOT NULL,location TEXT NOT NULL," +
+                "date TEXT NOT NULL,parking_available TEXT NOT NULL,length REAL NOT NULL,difficulty TEXT NOT NULL," +
+                "description TEXT,weather TEXT,recommended_gear TEXT)");
+        db.execSQL("CREATE TABLE observations(id INTEGER PRIMARY KEY AUTOINCREMENT,hike_id INTEGER,observation TEXT NOT NULL," +
+                "time TEXT NOT NULL,comments TEXT,FOREIGN KEY(hike_id) REFERENCES hikes(id))");
+
+        String[] difficulties = {"Easy", "Moderate", "Difficult"};
+        String[] words = {"ridge", "forest", "lake", "summit", "valley", "waterfall", "meadow", "coast"};
+        Random random = new Random(42);
+        long[] expectedDates = new long[hikeCount];
+
+        SQLiteStatement insertHike = db.compileStatement("INSERT INTO hikes(name, location, date, parking_available, length, " +
+                "difficulty, description, weather, recommended_gear) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        SQLiteStatement insertObservation = db.compileStatement("INSERT INTO observations(hike_id, observation, time, comments) " +
+                "VALUES (?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < hikeCount; i++) {
+                LocalDate date = LocalDate.of(2015 + random.nextInt(10), 1 + random.nextInt(12), 1 + random.nextInt(28));
+                expectedDates[i] = date.toEpochDay();
+                insertHike.bindString(1, "Hike " + i);
+                insertHike.bindString(2, words[random.nextInt(words.length)] + " " + i % 500);
+                insertHike.bindString(3, date.getDayOfMonth() + "/" + date.getMonthValue() + "/" + date.getYear());
+                insertHike.bindString(4, random.nextBoolean() ? "Yes" : "No");
+                insertHike.bindDouble(5, 1 + random.nextInt(300) / 10.0);
+                insertHike.bindString(6, difficulties[random.nextInt(difficulties.length)]);
+                insertHike.bindString(7, "A walk past the " + words[random.nextInt(words.length)]);
+                insertHike.bindString(8, "Sunny");
+                insertHike.bindString(9, "Boots");
+                long hikeId = insertHike.executeInsert();
+
+                if (i % 3 == 0) {
+                    insertObservation.bindLong(1, hikeId);
+                    insertObservation.bindString(2, "Saw a " + words[random.nextInt(words.length)]);
+                    insertObservation.bindString(3, "12:00");
+                    insertObservation.bindString(4, "Observation " + i);
+                    insertObservation.executeInsert();
+                }
+            }
+
+            // A date typed by hand, which the date migration cannot convert.
+            db.execSQL("UPDATE hikes SET date = ? WHERE id = 3", new Object[]{UNPARSED_DATE});
+            expectedDates[2] = 0;
+
+            // Observations left behind by deletes before version 5, one for a deleted hike and one without a hike.
+            db.execSQL("INSERT INTO observations(hike_id, observation, time) VALUES (?, 'Orphan', '12:00')",
+                    new Object[]{hikeCount + 1L});
+            db.execSQL("INSERT INTO observations(hike_id, observation, time) VALUES (NULL, 'Orphan', '12:00')");
+            db.setVersion(1);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        insertHike.close();
+        insertObservation.close();
+        return expectedDates;
+    }
+}
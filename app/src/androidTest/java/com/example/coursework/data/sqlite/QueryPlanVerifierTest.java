@@ -0,0 +1,97 @@
+package com.example.coursework.data.sqlite;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Fails if any hike page query shape, the observation lookups or the trash queries fall back to a full table scan.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanVerifierTest {
+
+    private File file;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        file = context.getDatabasePath("query-plan-test.db");
+        SQLiteDatabase.deleteDatabase(file);
+        file.getParentFile().mkdirs();
+        db = SQLiteDatabase.openOrCreateDatabase(file, null);
+        DatabaseHelper.getInstance(context).onCreate(db);
+        populate(5000);
+        DatabaseHelper.refreshStatistics(db);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        SQLiteDatabase.deleteDatabase(file);
+    }
+
+    @Test
+    public void noFilterShapeScansWholeTable() {
+        List<String> failures = QueryPlanVerifier.findFullScans(db);
+        assertTrue("Queries falling back to a full scan:\n" + String.join("\n", failures), failures.isEmpty());
+    }
+
+    /**
+     * Fills the database with deterministic hikes, each with two observations. Every 50th hike is in the trash.
+     * @param hikeCount The number of hikes to create.
+     */
+    private void populate(int hikeCount) {
+        String[] difficulties = {"Easy", "Moderate", "Difficult"};
+        String[] words = {"ridge", "forest", "lake", "summit", "valley", "waterfall", "meadow", "coast"};
+        Random random = new Random(7);
+
+        SQLiteStatement insertHike = db.compileStatement("INSERT INTO hikes(name, location, date, parking_available, length, " +
+                "difficulty, description, weather, recommended_gear) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        SQLiteStatement insertObservation = db.compileStatement("INSERT INTO observations(hike_id, observation, time, comments) " +
+                "VALUES (?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < hikeCount; i++) {
+                insertHike.bindString(1, words[random.nextInt(words.length)] + " trail " + i);
+                insertHike.bindString(2, words[random.nextInt(words.length)] + " " + i % 200);
+                insertHike.bindLong(3, 17000 + random.nextInt(4000));
+                insertHike.bindString(4, random.nextBoolean() ? "Yes" : "No");
+                insertHike.bindDouble(5, 1 + random.nextInt(300) / 10.0);
+                insertHike.bindString(6, difficulties[random.nextInt(difficulties.length)]);
+                insertHike.bindString(7, "A walk past the " + words[random.nextInt(words.length)]);
+                insertHike.bindString(8, "Sunny");
+                insertHike.bindString(9, "Boots");
+                long hikeId = insertHike.executeInsert();
+
+                for (int j = 0; j < 2; j++) {
+                    insertObservation.bindLong(1, hikeId);
+                    insertObservation.bindString(2, "Saw a " + words[random.nextInt(words.length)]);
+                    insertObservation.bindString(3, String.format("%02d:%02d", random.nextInt(24), random.nextInt(60)));
+                    insertObservation.bindString(4, "Observation " + j);
+                    insertObservation.executeInsert();
+                }
+            }
+            db.execSQL("UPDATE hikes SET deleted_at = 1700000000000 + id WHERE id % 50 = 0");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        insertHike.close();
+        insertObservation.close();
+    }
+}
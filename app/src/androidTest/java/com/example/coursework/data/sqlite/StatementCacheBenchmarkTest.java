@@ -0,0 +1,157 @@
+package com.example.coursework.data.sqlite;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.coursework.data.models.Hike;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the throughput of the generic ContentValues insert/update/query paths the DAOs used to take with the
+ * compiled statements and constant lookup SQL they use now. Results are written to the log.
+ * Each run is wrapped in one transaction, so the numbers measure statement overhead rather than commits.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StatementCacheBenchmarkTest {
+
+    private static final String TAG = "StatementCacheBenchmark";
+    // Operations per measured run.
+    private static final int OPERATIONS = 5000;
+
+    private File file;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        file = context.getDatabasePath("statement-benchmark.db");
+        SQLiteDatabase.deleteDatabase(file);
+        file.getParentFile().mkdirs();
+        db = SQLiteDatabase.openOrCreateDatabase(file, null);
+        DatabaseHelper.getInstance(context).onCreate(db);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        SQLiteDatabase.deleteDatabase(file);
+    }
+
+    @Test
+    public void compiledStatementsAgainstContentValues() {
+        long contentValuesInsert = time(() -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                db.insert(DatabaseHelper.TABLE_HIKES, null, toContentValues(sampleHike(i)));
+            }
+        });
+        SQLiteStatement insert = db.compileStatement(HikeDAO.INSERT_HIKE);
+        long compiledInsert = time(() -> {
+            for (int i = 0; i < OPERATIONS; i++) {
+                HikeDAO.bindHike(insert, sampleHike(i));
+                insert.executeInsert();
+                insert.clearBindings();
+            }
+        });
+        insert.close();
+        assertEquals(2 * OPERATIONS, Migration.count(db, "SELECT count(*) FROM " + DatabaseHelper.TABLE_HIKES, null));
+
+        long contentValuesUpdate = time(() -> {
+            for (int i = 1; i <= OPERATIONS; i++) {
+                db.update(DatabaseHelper.TABLE_HIKES, toContentValues(sampleHike(i)), DatabaseHelper.KEY_HIKE_ID + " = ?",
+                        new String[]{String.valueOf(i)});
+            }
+        });
+        SQLiteStatement update = db.compileStatement(HikeDAO.UPDATE_HIKE);
+        long compiledUpdate = time(() -> {
+            for (int i = 1; i <= OPERATIONS; i++) {
+                HikeDAO.bindHike(update, sampleHike(i));
+                update.bindLong(10, i);
+                update.executeUpdateDelete();
+                update.clearBindings();
+            }
+        });
+        update.close();
+
+        long builtLookup = time(() -> {
+            for (int i = 1; i <= OPERATIONS; i++) {
+                Cursor cursor = db.query(DatabaseHelper.TABLE_HIKES, null, DatabaseHelper.KEY_HIKE_ID + " = ?",
+                        new String[]{String.valueOf(i)}, null, null, null);
+                assertTrue(cursor.moveToFirst());
+                cursor.close();
+            }
+        });
+        long constantLookup = time(() -> {
+            for (int i = 1; i <= OPERATIONS; i++) {
+                Cursor cursor = db.rawQuery(HikeDAO.SELECT_HIKE_BY_ID, new String[]{String.valueOf(i)});
+                assertTrue(cursor.moveToFirst());
+                cursor.close();
+            }
+        });
+
+        report("insert", contentValuesInsert, compiledInsert);
+        report("update", contentValuesUpdate, compiledUpdate);
+        report("lookup", builtLookup, constantLookup);
+    }
+
+    /**
+     * Runs the work in a single transaction and returns how long it took.
+     * @param work The work to time.
+     * @return The elapsed time in nanoseconds.
+     */
+    private long time(Runnable work) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        db.beginTransaction();
+        try {
+            work.run();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+
+    private static void report(String operation, long beforeNanos, long afterNanos) {
+        Log.i(TAG, String.format("%s: %.0f ops/s before, %.0f ops/s after", operation,
+                OPERATIONS * 1e9 / beforeNanos, OPERATIONS * 1e9 / afterNanos));
+    }
+
+    private static Hike sampleHike(int i) {
+        return new Hike("Hike " + i, "Location " + i % 100, 19000 + i % 1000, "Yes", 1 + i % 30, "Easy",
+                "Description " + i, "Sunny", "Boots");
+    }
+
+    /**
+     * Builds the ContentValues the DAOs used to build for every insert and update.
+     * @param hike The hike.
+     * @return The values.
+     */
+    private static ContentValues toContentValues(Hike hike) {
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.KEY_HIKE_NAME, hike.getName());
+        values.put(DatabaseHelper.KEY_HIKE_LOCATION, hike.getLocation());
+        values.put(DatabaseHelper.KEY_HIKE_DATE, hike.getDate());
+        values.put(DatabaseHelper.KEY_HIKE_PARKING, hike.getParkingAvailable());
+        values.put(DatabaseHelper.KEY_HIKE_LENGTH, hike.getLength());
+        values.put(DatabaseHelper.KEY_HIKE_DIFFICULTY, hike.getDifficulty());
+        values.put(DatabaseHelper.KEY_HIKE_DESCRIPTION, hike.getDescription());
+        values.put(DatabaseHelper.KEY_HIKE_WEATHER, hike.getWeather());
+        values.put(DatabaseHelper.KEY_HIKE_RECOMMENDED_GEAR, hike.getRecommendedGear());
+        return values;
+    }
+}
@@ -19,7 +19,9 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.coursework.R;
 import com.example.coursework.data.models.Hike;
-import com.example.coursework.data.sqlite.HikeDAO;
+import com.example.coursework.data.models.HikeDates;
+import com.example.coursework.data.repository.HikeRepository;
+import com.example.coursework.data.repository.RepositoryCallback;
 
 import java.util.Calendar;
 
@@ -36,17 +38,18 @@ public class AddHikeActivity extends AppCompatActivity {
     private Spinner hikeDifficulty;
     private Button saveButton;
 
-    // Database access object
-    private HikeDAO hikeDAO;
+    // Repository used to save the hike
+    private HikeRepository hikeRepository;
+    // Date picked for the hike, as an epoch day, or null until one is picked
+    private Long selectedDate;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_add_hike);
 
-        // Initialize the database access object and open the database.
-        hikeDAO = new HikeDAO(this);
-        hikeDAO.open();
+        // Initialize the repository.
+        hikeRepository = HikeRepository.getInstance(this);
 
         // Initialize UI components by finding them in the layout.
         hikeName = findViewById(R.id.hike_name);
@@ -97,7 +100,8 @@ public class AddHikeActivity extends AppCompatActivity {
                     @Override
                     public void onDateSet(DatePicker view, int year, int monthOfYear, int dayOfMonth) {
                         // Set the selected date on the hikeDate TextView.
-                        hikeDate.setText(dayOfMonth + "/" + (monthOfYear + 1) + "/" + year);
+                        selectedDate = HikeDates.fromPicker(year, monthOfYear, dayOfMonth);
+                        hikeDate.setText(HikeDates.format(selectedDate));
                     }
                 }, year, month, day);
         datePickerDialog.show();
@@ -110,7 +114,6 @@ public class AddHikeActivity extends AppCompatActivity {
         // Get the hike details from the input fields.
         String name = hikeName.getText().toString().trim();
         String location = hikeLocation.getText().toString().trim();
-        String date = hikeDate.getText().toString().trim();
         String lengthStr = hikeLength.getText().toString().trim();
         String description = hikeDescription.getText().toString().trim();
         String weather = hikeWeather.getText().toString().trim();
@@ -119,7 +122,7 @@ public class AddHikeActivity extends AppCompatActivity {
         int selectedParkingId = parkingGroup.getCheckedRadioButtonId();
 
         // Validate that all required fields are filled.
-        if (name.isEmpty() || location.isEmpty() || date.isEmpty() || lengthStr.isEmpty() || selectedParkingId == -1 || date.equals("Select date")) {
+        if (name.isEmpty() || location.isEmpty() || selectedDate == null || lengthStr.isEmpty() || selectedParkingId == -1) {
             Toast.makeText(this, "Please fill in all required fields", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -133,7 +136,7 @@ public class AddHikeActivity extends AppCompatActivity {
         String confirmationMessage = "Please confirm the details of the hike:\n\n" +
                 "Name: " + name + "\n" +
                 "Location: " + location + "\n" +
-                "Date: " + date + "\n" +
+                "Date: " + HikeDates.format(selectedDate) + "\n" +
                 "Length: " + length + " (km)\n" +
                 "Difficulty: " + difficulty + "\n" +
                 "Parking Available: " + parking + "\n" +
@@ -148,16 +151,17 @@ public class AddHikeActivity extends AppCompatActivity {
                 .setPositiveButton("Confirm", new DialogInterface.OnClickListener() {
                     public void onClick(DialogInterface dialog, int which) {
                         // If confirmed, create a new Hike object and add it to the database.
-                        Hike newHike = new Hike(name, location, date, parking, length, difficulty, description, weather, recommendedGear);
-                        long result = hikeDAO.addHike(newHike);
-
-                        if (result != -1) {
-                            Toast.makeText(AddHikeActivity.this, "Hike saved successfully", Toast.LENGTH_SHORT).show();
-                            setResult(RESULT_OK);
-                            finish(); // Close the activity and return to the main activity.
-                        } else {
-                            Toast.makeText(AddHikeActivity.this, "Error saving hike", Toast.LENGTH_SHORT).show();
-                        }
+                        Hike newHike = new Hike(name, location, selectedDate, parking, length, difficulty, description, weather, recommendedGear);
+                        saveButton.setEnabled(false);
+                        hikeRepository.addHike(newHike, RepositoryCallback.of(result -> {
+                            if (result != -1) {
+                                Toast.makeText(AddHikeActivity.this, "Hike saved successfully", Toast.LENGTH_SHORT).show();
+                                setResult(RESULT_OK);
+                                finish(); // Close the activity and return to the main activity.
+                            } else {
+                                onSaveFailed();
+                            }
+                        }, error -> onSaveFailed()));
                     }
                 })
                 .setNegativeButton("Cancel", null) // If canceled, do nothing.
@@ -165,11 +169,10 @@ public class AddHikeActivity extends AppCompatActivity {
     }
 
     /**
-     * Closes the database connection when the activity is destroyed.
+     * Lets the user try saving again after the hike could not be written.
      */
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        hikeDAO.close();
+    private void onSaveFailed() {
+        saveButton.setEnabled(true);
+        Toast.makeText(this, "Error saving hike", Toast.LENGTH_SHORT).show();
     }
 }
@@ -10,7 +10,8 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.coursework.R;
 import com.example.coursework.data.models.Observation;
-import com.example.coursework.data.sqlite.ObservationDAO;
+import com.example.coursework.data.repository.ObservationRepository;
+import com.example.coursework.data.repository.RepositoryCallback;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -26,8 +27,8 @@ public class AddObservationActivity extends AppCompatActivity {
     private EditText observationText, observationTime, observationComments;
     private Button saveObservationButton;
 
-    // Database access object and the ID of the hike this observation belongs to
-    private ObservationDAO observationDAO;
+    // Repository and the ID of the hike this observation belongs to
+    private ObservationRepository observationRepository;
     private long hikeId;
 
     @Override
@@ -35,9 +36,8 @@ public class AddObservationActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_add_observation);
 
-        // Initialize the database access object and open the database.
-        observationDAO = new ObservationDAO(this);
-        observationDAO.open();
+        // Initialize the repository.
+        observationRepository = ObservationRepository.getInstance(this);
 
         // Initialize UI components by finding them in the layout.
         observationText = findViewById(R.id.observation_text);
@@ -79,23 +79,23 @@ public class AddObservationActivity extends AppCompatActivity {
 
         // Create a new Observation object and add it to the database.
         Observation newObservation = new Observation(hikeId, observation, time, comments);
-        long result = observationDAO.addObservation(newObservation);
-
-        if (result != -1) {
-            Toast.makeText(this, "Observation saved successfully", Toast.LENGTH_SHORT).show();
-            setResult(RESULT_OK);
-            finish(); // Close the activity and return to the detail activity.
-        } else {
-            Toast.makeText(this, "Error saving observation", Toast.LENGTH_SHORT).show();
-        }
+        saveObservationButton.setEnabled(false);
+        observationRepository.addObservation(newObservation, RepositoryCallback.of(result -> {
+            if (result != -1) {
+                Toast.makeText(this, "Observation saved successfully", Toast.LENGTH_SHORT).show();
+                setResult(RESULT_OK);
+                finish(); // Close the activity and return to the detail activity.
+            } else {
+                onSaveFailed();
+            }
+        }, error -> onSaveFailed()));
     }
 
     /**
-     * Closes the database connection when the activity is destroyed.
+     * Lets the user try saving again after the observation could not be written.
      */
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        observationDAO.close();
+    private void onSaveFailed() {
+        saveObservationButton.setEnabled(true);
+        Toast.makeText(this, "Error saving observation", Toast.LENGTH_SHORT).show();
     }
 }
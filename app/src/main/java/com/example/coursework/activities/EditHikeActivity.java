@@ -18,7 +18,9 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.coursework.R;
 import com.example.coursework.data.models.Hike;
-import com.example.coursework.data.sqlite.HikeDAO;
+import com.example.coursework.data.models.HikeDates;
+import com.example.coursework.data.repository.HikeRepository;
+import com.example.coursework.data.repository.RepositoryCallback;
 
 import java.util.Calendar;
 
@@ -36,18 +38,20 @@ public class EditHikeActivity extends AppCompatActivity {
     private Spinner hikeDifficulty;
     private Button updateButton;
 
-    // Database access object and the hike being edited
-    private HikeDAO hikeDAO;
+    // Repository and the hike being edited
+    private HikeRepository hikeRepository;
+    private ArrayAdapter<CharSequence> difficultyAdapter;
     private Hike hike;
+    // Date picked for the hike, as an epoch day
+    private Long selectedDate;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_edit_hike);
 
-        // Initialize the database access object and open the database.
-        hikeDAO = new HikeDAO(this);
-        hikeDAO.open();
+        // Initialize the repository.
+        hikeRepository = HikeRepository.getInstance(this);
 
         // Initialize UI components by finding them in the layout.
         hikeName = findViewById(R.id.hike_name_edit);
@@ -64,25 +68,53 @@ public class EditHikeActivity extends AppCompatActivity {
         updateButton = findViewById(R.id.update_button);
 
         // Set up the spinner for hike difficulty levels.
-        ArrayAdapter<CharSequence> adapter = ArrayAdapter.createFromResource(this,
+        difficultyAdapter = ArrayAdapter.createFromResource(this,
                 R.array.difficulty_levels, android.R.layout.simple_spinner_item);
-        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-        hikeDifficulty.setAdapter(adapter);
+        difficultyAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        hikeDifficulty.setAdapter(difficultyAdapter);
 
         // Get the hike ID from the intent.
         Intent intent = getIntent();
         long hikeId = intent.getLongExtra("hike_id", -1);
 
+        // The update button stays disabled until the hike has been loaded.
+        updateButton.setEnabled(false);
         if (hikeId != -1) {
             // Retrieve the hike from the database.
-            hike = hikeDAO.getHikeById(hikeId);
+            hikeRepository.getHikeById(hikeId, RepositoryCallback.of(this::showHike, error -> showHike(null)));
+        } else {
+            showHike(null);
         }
 
+        // Set a click listener for the hike date TextView to show a date picker dialog.
+        hikeDate.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                showDatePickerDialog();
+            }
+        });
+
+        // Set a click listener for the update button to save the changes.
+        updateButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                updateHike();
+            }
+        });
+    }
+
+    /**
+     * Populates the form with the loaded hike, or finishes the activity if it was not found.
+     * @param loadedHike The hike to edit, or null if it does not exist.
+     */
+    private void showHike(Hike loadedHike) {
+        hike = loadedHike;
         if (hike != null) {
             // Populate the input fields with the hike's current details.
             hikeName.setText(hike.getName());
             hikeLocation.setText(hike.getLocation());
-            hikeDate.setText(hike.getDate());
+            selectedDate = hike.getDate();
+            hikeDate.setText(HikeDates.format(selectedDate));
             hikeLength.setText(String.valueOf(hike.getLength()));
             hikeDescription.setText(hike.getDescription());
             hikeWeather.setText(hike.getWeather());
@@ -97,30 +129,15 @@ public class EditHikeActivity extends AppCompatActivity {
 
             String difficulty = hike.getDifficulty();
             if (difficulty != null) {
-                int spinnerPosition = adapter.getPosition(difficulty);
+                int spinnerPosition = difficultyAdapter.getPosition(difficulty);
                 hikeDifficulty.setSelection(spinnerPosition);
             }
+            updateButton.setEnabled(true);
         } else {
             // If the hike is not found, show an error message and finish the activity.
             Toast.makeText(this, "Hike not found", Toast.LENGTH_SHORT).show();
             finish();
         }
-
-        // Set a click listener for the hike date TextView to show a date picker dialog.
-        hikeDate.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                showDatePickerDialog();
-            }
-        });
-
-        // Set a click listener for the update button to save the changes.
-        updateButton.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                updateHike();
-            }
-        });
     }
 
     /**
@@ -137,7 +154,8 @@ public class EditHikeActivity extends AppCompatActivity {
                     @Override
                     public void onDateSet(DatePicker view, int year, int monthOfYear, int dayOfMonth) {
                         // Set the selected date on the hikeDate TextView.
-                        hikeDate.setText(dayOfMonth + "/" + (monthOfYear + 1) + "/" + year);
+                        selectedDate = HikeDates.fromPicker(year, monthOfYear, dayOfMonth);
+                        hikeDate.setText(HikeDates.format(selectedDate));
                     }
                 }, year, month, day);
         datePickerDialog.show();
@@ -150,7 +168,6 @@ public class EditHikeActivity extends AppCompatActivity {
         // Get the updated hike details from the input fields.
         String name = hikeName.getText().toString().trim();
         String location = hikeLocation.getText().toString().trim();
-        String date = hikeDate.getText().toString().trim();
         String lengthStr = hikeLength.getText().toString().trim();
         String description = hikeDescription.getText().toString().trim();
         String weather = hikeWeather.getText().toString().trim();
@@ -159,7 +176,7 @@ public class EditHikeActivity extends AppCompatActivity {
         int selectedParkingId = parkingGroup.getCheckedRadioButtonId();
 
         // Validate that all required fields are filled.
-        if (name.isEmpty() || location.isEmpty() || date.isEmpty() || lengthStr.isEmpty() || selectedParkingId == -1 || date.equals("Select date")) {
+        if (name.isEmpty() || location.isEmpty() || selectedDate == null || lengthStr.isEmpty() || selectedParkingId == -1) {
             Toast.makeText(this, "Please fill in all required fields", Toast.LENGTH_SHORT).show();
             return;
         }
@@ -172,7 +189,7 @@ public class EditHikeActivity extends AppCompatActivity {
         // Update the Hike object with the new details.
         hike.setName(name);
         hike.setLocation(location);
-        hike.setDate(date);
+        hike.setDate(selectedDate);
         hike.setParkingAvailable(parking);
         hike.setLength(length);
         hike.setDifficulty(difficulty);
@@ -181,23 +198,23 @@ public class EditHikeActivity extends AppCompatActivity {
         hike.setRecommendedGear(recommendedGear);
 
         // Update the hike in the database.
-        int result = hikeDAO.updateHike(hike);
-
-        if (result > 0) {
-            Toast.makeText(this, "Hike updated successfully", Toast.LENGTH_SHORT).show();
-            setResult(RESULT_OK);
-            finish(); // Close the activity and return to the main activity.
-        } else {
-            Toast.makeText(this, "Error updating hike", Toast.LENGTH_SHORT).show();
-        }
+        updateButton.setEnabled(false);
+        hikeRepository.updateHike(hike, RepositoryCallback.of(result -> {
+            if (result > 0) {
+                Toast.makeText(this, "Hike updated successfully", Toast.LENGTH_SHORT).show();
+                setResult(RESULT_OK);
+                finish(); // Close the activity and return to the main activity.
+            } else {
+                onUpdateFailed();
+            }
+        }, error -> onUpdateFailed()));
     }
 
     /**
-     * Closes the database connection when the activity is destroyed.
+     * Lets the user try saving again after the hike could not be written.
      */
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        hikeDAO.close();
+    private void onUpdateFailed() {
+        updateButton.setEnabled(true);
+        Toast.makeText(this, "Error updating hike", Toast.LENGTH_SHORT).show();
     }
 }
@@ -10,7 +10,8 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.coursework.R;
 import com.example.coursework.data.models.Observation;
-import com.example.coursework.data.sqlite.ObservationDAO;
+import com.example.coursework.data.repository.ObservationRepository;
+import com.example.coursework.data.repository.RepositoryCallback;
 
 /**
  * This activity allows the user to edit an existing observation.
@@ -22,8 +23,8 @@ public class EditObservationActivity extends AppCompatActivity {
     private EditText observationText, observationTime, observationComments;
     private Button updateObservationButton;
 
-    // Database access object and the observation being edited
-    private ObservationDAO observationDAO;
+    // Repository and the observation being edited
+    private ObservationRepository observationRepository;
     private Observation observation;
 
     @Override
@@ -31,9 +32,8 @@ public class EditObservationActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_edit_observation);
 
-        // Initialize the database access object and open the database.
-        observationDAO = new ObservationDAO(this);
-        observationDAO.open();
+        // Initialize the repository.
+        observationRepository = ObservationRepository.getInstance(this);
 
         // Initialize UI components by finding them in the layout.
         observationText = findViewById(R.id.edit_observation_text);
@@ -45,13 +45,23 @@ public class EditObservationActivity extends AppCompatActivity {
         Intent intent = getIntent();
         long observationId = intent.getLongExtra("observation_id", -1);
 
-        // Retrieve the observation from the database.
-        observation = observationDAO.getObservationById(observationId);
-
-        // Populate the input fields with the observation's current details.
-        observationText.setText(observation.getObservation());
-        observationTime.setText(observation.getTime());
-        observationComments.setText(observation.getComments());
+        // Retrieve the observation from the database and populate the input fields once it arrives.
+        updateObservationButton.setEnabled(false);
+        observationRepository.getObservationById(observationId, RepositoryCallback.of(result -> {
+            if (result == null) {
+                Toast.makeText(this, "Observation not found", Toast.LENGTH_SHORT).show();
+                finish();
+                return;
+            }
+            observation = result;
+            observationText.setText(observation.getObservation());
+            observationTime.setText(observation.getTime());
+            observationComments.setText(observation.getComments());
+            updateObservationButton.setEnabled(true);
+        }, error -> {
+            Toast.makeText(this, "Observation not found", Toast.LENGTH_SHORT).show();
+            finish();
+        }));
 
         // Set a click listener for the update button to save the changes.
         updateObservationButton.setOnClickListener(v -> {
@@ -71,21 +81,15 @@ public class EditObservationActivity extends AppCompatActivity {
             }
 
 
-            // Update the observation in the database.
-            observationDAO.updateObservation(observation);
-
-            // Set the result to OK and finish the activity.
-            setResult(RESULT_OK);
-            finish();
+            // Update the observation in the database, then set the result to OK and finish the activity.
+            updateObservationButton.setEnabled(false);
+            observationRepository.updateObservation(observation, RepositoryCallback.of(result -> {
+                setResult(RESULT_OK);
+                finish();
+            }, error -> {
+                updateObservationButton.setEnabled(true);
+                Toast.makeText(this, "Error updating observation", Toast.LENGTH_SHORT).show();
+            }));
         });
     }
-
-    /**
-     * Closes the database connection when the activity is destroyed.
-     */
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        observationDAO.close();
-    }
 }
@@ -6,7 +6,7 @@ import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
 
-import androidx.annotation.Nullable;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -14,11 +14,16 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.coursework.R;
 import com.example.coursework.adapters.ObservationAdapter;
 import com.example.coursework.data.models.Hike;
+import com.example.coursework.data.models.HikeDates;
 import com.example.coursework.data.models.Observation;
-import com.example.coursework.data.sqlite.HikeDAO;
-import com.example.coursework.data.sqlite.ObservationDAO;
+import com.example.coursework.data.repository.DeleteQueue;
+import com.example.coursework.data.repository.HikeRepository;
+import com.example.coursework.data.repository.LiveQuery;
+import com.example.coursework.data.repository.ObservationPager;
+import com.example.coursework.data.repository.ObservationRepository;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -33,34 +38,43 @@ public class HikeDetailActivity extends AppCompatActivity {
     private Button addObservationButton;
     private FloatingActionButton editHikeFab;
 
-    // Database access objects and data
-    private HikeDAO hikeDAO;
-    private ObservationDAO observationDAO;
+    // Repositories and data
+    private HikeRepository hikeRepository;
+    private ObservationRepository observationRepository;
     private ObservationAdapter observationAdapter;
-    private List<Observation> observations;
     private long hikeId;
 
-    // Request codes for starting activities for result
-    private static final int ADD_OBSERVATION_REQUEST = 1;
-    private static final int EDIT_OBSERVATION_REQUEST = 2;
-    private static final int EDIT_HIKE_REQUEST = 3;
+    // The hike and its observations. Each runs again only when its table is written, so returning from a cancelled
+    // edit or from a screen that changed nothing costs no queries. The observations are loaded a page at a time as
+    // the list is scrolled; the hike is a separate query, so its details show without waiting for them.
+    private LiveQuery<Hike> hikeQuery;
+    private ObservationPager observationPager;
+    // The observations the pager holds, including any waiting to be deleted, which the adapter leaves out.
+    private List<Observation> observations = new ArrayList<>();
+
+    // Deletes from the list, and the listener that hides or shows their rows as they are queued or undone.
+    private DeleteQueue deleteQueue;
+    private final DeleteQueue.Listener deleteQueueListener = () -> observationAdapter.submitObservations(observations);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_hike_detail);
 
-        // Initialize DAOs and open database connections
-        hikeDAO = new HikeDAO(this);
-        hikeDAO.open();
-        observationDAO = new ObservationDAO(this);
-        observationDAO.open();
+        // Initialize the repositories
+        hikeRepository = HikeRepository.getInstance(this);
+        observationRepository = ObservationRepository.getInstance(this);
 
         // Initialize UI components
         initializeViews();
 
         // Set up the RecyclerView for observations
-        observationsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        observationsRecyclerView.setLayoutManager(layoutManager);
+        deleteQueue = hikeRepository.getDeleteQueue();
+        deleteQueue.addListener(deleteQueueListener);
+        observationAdapter = new ObservationAdapter(this, deleteQueue);
+        observationsRecyclerView.setAdapter(observationAdapter);
 
         // Get the hike ID from the intent
         Intent intent = getIntent();
@@ -68,14 +82,45 @@ public class HikeDetailActivity extends AppCompatActivity {
 
         // Set up the click listeners
         setupClickListeners();
+
+        if (hikeId != -1) {
+            hikeQuery = hikeRepository.observeHike(hikeId);
+            hikeQuery.observe(this::showHikeDetails);
+            observationPager = observationRepository.pageObservationsForHike(hikeId);
+            observationPager.observe(loaded -> {
+                observations = loaded;
+                observationAdapter.submitObservations(loaded);
+            });
+
+            // Fetch the next page as the user scrolls close to the end of the held observations, or the previous one
+            // as they scroll back up to observations the pager has dropped.
+            observationsRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+                @Override
+                public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                    observationPager.onItemsVisible(layoutManager.findFirstVisibleItemPosition(),
+                            layoutManager.findLastVisibleItemPosition());
+                }
+            });
+        }
     }
 
     @Override
-    protected void onResume() {
-        super.onResume();
-        if (hikeId != -1) {
-            loadHikeDetails();
-            loadObservations();
+    protected void onStart() {
+        super.onStart();
+        if (hikeQuery != null) {
+            hikeQuery.start();
+            observationPager.start();
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Deletes still waiting for their undo window are written now, since the undo bar goes with the screen.
+        deleteQueue.flush();
+        if (hikeQuery != null) {
+            hikeQuery.stop();
+            observationPager.stop();
         }
     }
 
@@ -98,22 +143,21 @@ public class HikeDetailActivity extends AppCompatActivity {
         addObservationButton.setOnClickListener(v -> {
             Intent addObservationIntent = new Intent(HikeDetailActivity.this, AddObservationActivity.class);
             addObservationIntent.putExtra("hike_id", hikeId);
-            startActivityForResult(addObservationIntent, ADD_OBSERVATION_REQUEST);
+            startActivity(addObservationIntent);
         });
 
         editHikeFab.setOnClickListener(v -> {
             Intent editHikeIntent = new Intent(HikeDetailActivity.this, EditHikeActivity.class);
             editHikeIntent.putExtra("hike_id", hikeId);
-            startActivityForResult(editHikeIntent, EDIT_HIKE_REQUEST);
+            startActivity(editHikeIntent);
         });
     }
 
-    private void loadHikeDetails() {
-        Hike hike = hikeDAO.getHikeById(hikeId);
+    private void showHikeDetails(Hike hike) {
         if (hike != null) {
             hikeName.setText(hike.getName());
             hikeLocation.setText(hike.getLocation());
-            hikeDate.setText(hike.getDate());
+            hikeDate.setText(HikeDates.format(hike.getDate()));
             hikeParking.setText(hike.getParkingAvailable());
             hikeLength.setText(hike.getLength() + " km");
             hikeDifficulty.setText(hike.getDifficulty());
@@ -124,29 +168,13 @@ public class HikeDetailActivity extends AppCompatActivity {
         }
     }
 
-    private void loadObservations() {
-        observations = observationDAO.getObservationsForHike(hikeId);
-        observationAdapter = new ObservationAdapter(this, observations, observationDAO);
-        observationsRecyclerView.setAdapter(observationAdapter);
-    }
-
-    @Override
-    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
-        super.onActivityResult(requestCode, resultCode, data);
-        if (resultCode == RESULT_OK) {
-            if (requestCode == ADD_OBSERVATION_REQUEST || requestCode == EDIT_OBSERVATION_REQUEST) {
-                loadObservations();
-            } else if (requestCode == EDIT_HIKE_REQUEST) {
-                loadHikeDetails();
-                loadObservations();
-            }
-        }
-    }
-
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        hikeDAO.close();
-        observationDAO.close();
+        deleteQueue.removeListener(deleteQueueListener);
+        if (hikeQuery != null) {
+            hikeQuery.close();
+            observationPager.close();
+        }
     }
 }
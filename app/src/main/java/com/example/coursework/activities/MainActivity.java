@@ -3,7 +3,10 @@ package com.example.coursework.activities;
 import android.app.DatePickerDialog;
 import android.content.DialogInterface;
 import android.content.Intent;
+import android.database.Cursor;
+import android.net.Uri;
 import android.os.Bundle;
+import android.provider.OpenableColumns;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.ArrayAdapter;
@@ -12,10 +15,13 @@ import android.widget.DatePicker;
 import android.widget.EditText;
 import android.widget.Spinner;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.widget.SearchView;
 
+import androidx.activity.OnBackPressedCallback;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
@@ -23,11 +29,23 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.coursework.R;
 import com.example.coursework.adapters.HikeAdapter;
-import com.example.coursework.data.models.Hike;
-import com.example.coursework.data.sqlite.HikeDAO;
-import com.example.coursework.data.sqlite.ObservationDAO;
+import com.example.coursework.data.models.ExportResult;
+import com.example.coursework.data.models.HikeDates;
+import com.example.coursework.data.models.HikeFilter;
+import com.example.coursework.data.models.HikeSearchResult;
+import com.example.coursework.data.models.HikeSummary;
+import com.example.coursework.data.models.ImportResult;
+import com.example.coursework.data.repository.DeleteQueue;
+import com.example.coursework.data.repository.FileTransfer;
+import com.example.coursework.data.repository.HikePager;
+import com.example.coursework.data.repository.HikeRepository;
+import com.example.coursework.data.repository.HikeSearchPipeline;
+import com.example.coursework.data.sqlite.InvalidationTracker;
+import com.example.coursework.data.transfer.TransferFormat;
+import com.google.android.material.snackbar.Snackbar;
 import com.google.android.material.textfield.TextInputEditText;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 
@@ -39,64 +57,191 @@ public class MainActivity extends AppCompatActivity implements HikeAdapter.OnHik
 
     // UI Components
     private RecyclerView hikesRecyclerView;
-    private Button addHikeButton, resetButton, filtersButton;
+    private Button addHikeButton, statsButton, filesButton, trashButton, resetButton, filtersButton;
     private SearchView searchView;
     private TextView emptyTextView; // TextView for empty state
+    // Shown in the app bar while hikes are selected for deletion.
+    private View selectionBar;
+    private TextView selectionCountText;
+
+    // Back clears the selection while hikes are selected.
+    private final OnBackPressedCallback clearSelectionCallback = new OnBackPressedCallback(false) {
+        @Override
+        public void handleOnBackPressed() {
+            clearSelection();
+        }
+    };
 
     // Data and Adapter
     private HikeAdapter hikeAdapter;
-    private HikeDAO hikeDAO;
+    private HikeRepository hikeRepository;
+
+    // Loads the hike list one page at a time for the current filter.
+    private HikePager hikePager;
+
+    // Text in the search box, and the pipeline that debounces and runs the full-text search for it.
+    private String searchQuery = "";
+    private HikeSearchPipeline searchPipeline;
+
+    // Maximum number of ranked results shown for a search.
+    private static final int SEARCH_LIMIT = 100;
+
+    // Refresh the list or the search results when a table they are read from is written. Writes made while the
+    // activity is stopped are caught up once when it starts again; if nothing was written, no query runs.
+    private final InvalidationTracker.Observer hikeListObserver = tables -> {
+        if (searchQuery.isEmpty()) {
+            onHikesChanged();
+        }
+    };
+    private final InvalidationTracker.Observer searchObserver = tables -> {
+        if (!searchQuery.isEmpty()) {
+            onHikesChanged();
+        }
+    };
+    private boolean started;
+    private boolean hikesStale;
+
+    // The hikes or search results last delivered, including any waiting to be deleted, which are left out when shown.
+    private List<HikeSummary> hikes = new ArrayList<>();
+    private boolean hikesLoading = true;
+    private List<HikeSearchResult> searchResults = new ArrayList<>();
+
+    // Deletes from the list, and the listener that hides or shows their rows as they are queued or undone.
+    private DeleteQueue deleteQueue;
+    private final DeleteQueue.Listener deleteQueueListener = () -> {
+        if (searchQuery.isEmpty()) {
+            showCurrentHikes();
+        } else {
+            showSearchResults(searchResults);
+        }
+    };
 
+    // True while the list shows the hikes saved by the last run, until the first page from the database replaces them.
+    private boolean showingSnapshot;
+    // True while no filter has been applied; only the unfiltered list is saved for the next cold start.
+    private boolean listUnfiltered = true;
 
-    private ObservationDAO observationDAO;
-    private List<Hike> hikes;
+    // Times this launch to its first frame and its first page of hikes.
+    private StartupProbe startupProbe;
 
     // Request codes for starting activities for result.
-    private static final int ADD_HIKE_REQUEST = 1;
-    private static final int EDIT_HIKE_REQUEST = 2;
+    private static final int IMPORT_FILE_REQUEST = 3;
+    private static final int EXPORT_FILE_REQUEST = 4;
+
+    // The import or export the user started, which carries on when this screen is recreated, and the dialog showing
+    // its progress while it runs.
+    private FileTransfer fileTransfer;
+    private AlertDialog transferDialog;
+    private final FileTransfer.Listener transferListener = new FileTransfer.Listener() {
+        @Override
+        public void onTransferProgress(FileTransfer transfer) {
+            showTransferProgress(transfer);
+        }
+
+        @Override
+        public void onImportFinished(ImportResult result) {
+            dismissTransferDialog();
+            showImportResult(result);
+        }
+
+        @Override
+        public void onExportFinished(ExportResult result) {
+            dismissTransferDialog();
+            showExportResult(result);
+        }
+    };
+    // Format chosen for the export whose destination file is being picked.
+    private TransferFormat pendingExportFormat;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_main);
-
-        // Initialize the database access object.
-        hikeDAO = new HikeDAO(this);
-        hikeDAO.open();
 
-        observationDAO = new ObservationDAO(this);
-        observationDAO.open();
+        // Initialize the repository. All database work happens off the main thread, and the database starts opening
+        // now, while the layout inflates, rather than when the first page is requested.
+        hikeRepository = HikeRepository.getInstance(this);
+        // The saved first screenful is read before the database starts opening, so the two never compete for the disk.
+        List<HikeSummary> snapshot = hikeRepository.readListSnapshot();
+        hikeRepository.openDatabase();
 
+        setContentView(R.layout.activity_main);
+        startupProbe = new StartupProbe(this);
 
         // Initialize UI components by finding them in the layout
         hikesRecyclerView = findViewById(R.id.hikes_recycler_view);
         addHikeButton = findViewById(R.id.add_hike_button);
+        statsButton = findViewById(R.id.stats_button);
+        filesButton = findViewById(R.id.files_button);
+        trashButton = findViewById(R.id.trash_button);
         resetButton = findViewById(R.id.reset_button);
         filtersButton = findViewById(R.id.filters_button);
         searchView = findViewById(R.id.search_view);
         emptyTextView = findViewById(R.id.empty_text);
+        selectionBar = findViewById(R.id.selection_bar);
+        selectionCountText = findViewById(R.id.selection_count_text);
 
         // Set up the RecyclerView.
-        hikesRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        hikesRecyclerView.setLayoutManager(layoutManager);
+        hikeAdapter = new HikeAdapter(new ArrayList<>(), this);
+        hikesRecyclerView.setAdapter(hikeAdapter);
+        deleteQueue = hikeRepository.getDeleteQueue();
+        deleteQueue.addListener(deleteQueueListener);
+        if (snapshot != null) {
+            // Shown straight away; the first page has the same IDs, so it replaces these rows without redrawing them.
+            hikes = snapshot;
+            hikesLoading = false;
+            showCurrentHikes();
+            showingSnapshot = true;
+        }
+        hikePager = new HikePager(hikeRepository, this::showHikes);
+        searchPipeline = new HikeSearchPipeline(hikeRepository, SEARCH_LIMIT, this::showSearchResults);
+
+        // Fetch the next page as the user scrolls close to the end of the loaded hikes, or the previous one as they
+        // scroll back up to hikes the pager has dropped.
+        hikesRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (searchQuery.isEmpty()) { // Search results are not paged.
+                    hikePager.onItemsVisible(layoutManager.findFirstVisibleItemPosition(),
+                            layoutManager.findLastVisibleItemPosition());
+                }
+            }
+        });
 
-        // Load the list of hikes from the database.
+        // Load the list of hikes from the database, and again whenever it changes.
         loadHikes();
+        InvalidationTracker invalidationTracker = hikeRepository.getInvalidationTracker();
+        invalidationTracker.addObserver(hikeListObserver, HikePager.TABLES);
+        invalidationTracker.addObserver(searchObserver, HikeSearchPipeline.TABLES);
+
+        // Show the import or export still running from before the screen was recreated, or the result it missed.
+        fileTransfer = hikeRepository.getFileTransfer();
+        fileTransfer.setListener(transferListener);
 
         // Set up the click listener for the "Add Hike" button to start AddHikeActivity.
         addHikeButton.setOnClickListener(v -> {
             Intent intent = new Intent(MainActivity.this, AddHikeActivity.class);
-            startActivityForResult(intent, ADD_HIKE_REQUEST);
+            startActivity(intent);
         });
 
+        // Set up the click listener for the "Stats" button to start StatsActivity.
+        statsButton.setOnClickListener(v -> startActivity(new Intent(MainActivity.this, StatsActivity.class)));
+
+        // Set up the click listener for the "Files" button, which imports or exports hikes.
+        filesButton.setOnClickListener(v -> showFilesDialog());
+
+        // Set up the click listener for the "Trash" button to start TrashActivity.
+        trashButton.setOnClickListener(v -> startActivity(new Intent(MainActivity.this, TrashActivity.class)));
+
         // Set up the click listener for the "Reset" button.
         resetButton.setOnClickListener(v -> {
             new AlertDialog.Builder(MainActivity.this)
                     .setTitle(getString(R.string.confirm_reset_title))
                     .setMessage(getString(R.string.confirm_reset_message))
                     .setPositiveButton(getString(R.string.yes), (dialog, which) -> {
-                        hikeDAO.deleteAllHikes();
-                        observationDAO.deleteAllObservations();
-                        loadHikes(); // Reload to show empty state
+                        clearSelection();
+                        hikeRepository.trashAllHikes(null); // Observations go with their hikes
                     })
                     .setNegativeButton(getString(R.string.no), null)
                     .show();
@@ -105,7 +250,12 @@ public class MainActivity extends AppCompatActivity implements HikeAdapter.OnHik
         // Set up the click listener for the "Filters" button.
         filtersButton.setOnClickListener(v -> showFilterDialog());
 
-        // Set up the search view for filtering hikes by name.
+        // Set up the selection bar, which deletes every selected hike at once.
+        findViewById(R.id.delete_selected_button).setOnClickListener(v -> deleteSelectedHikes());
+        findViewById(R.id.cancel_selection_button).setOnClickListener(v -> clearSelection());
+        getOnBackPressedDispatcher().addCallback(this, clearSelectionCallback);
+
+        // Set up the search view for full-text search over hikes and their observations.
         searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
             @Override
             public boolean onQueryTextSubmit(String query) {
@@ -114,10 +264,16 @@ public class MainActivity extends AppCompatActivity implements HikeAdapter.OnHik
 
             @Override
             public boolean onQueryTextChange(String newText) {
-                // Filter hikes based on the search query
-                List<Hike> filteredHikes = hikeDAO.filterHikes(newText, null,null, null, null, null);
-                hikeAdapter.filterList(filteredHikes);
-                checkEmptyView(); // Check if the list is empty after filtering
+                // Search hikes based on the query, or go back to the paged list when it is cleared
+                searchQuery = newText.trim();
+                if (searchQuery.isEmpty()) {
+                    searchPipeline.cancel();
+                    listUnfiltered = true;
+                    hikePager.setFilter(new HikeFilter());
+                } else {
+                    hikePager.cancel();
+                    searchPipeline.setQuery(searchQuery);
+                }
                 return true;
             }
         });
@@ -135,13 +291,15 @@ public class MainActivity extends AppCompatActivity implements HikeAdapter.OnHik
         // Initialize input fields from the dialog layout
         final TextInputEditText nameInput = dialogView.findViewById(R.id.filter_hike_name);
         final TextInputEditText locationInput = dialogView.findViewById(R.id.filter_location);
-        final TextView dateInput = dialogView.findViewById(R.id.filter_date);
+        final TextView dateFromInput = dialogView.findViewById(R.id.filter_date_from);
+        final TextView dateToInput = dialogView.findViewById(R.id.filter_date_to);
         final Spinner difficultySpinner = dialogView.findViewById(R.id.filter_difficulty);
         final EditText minLengthInput = dialogView.findViewById(R.id.filter_min_length);
         final EditText maxLengthInput = dialogView.findViewById(R.id.filter_max_length);
 
-        // Set up date picker for the date field
-        dateInput.setOnClickListener(v -> showDatePickerDialog(dateInput));
+        // Set up date pickers for the date range fields
+        dateFromInput.setOnClickListener(v -> showDatePickerDialog(dateFromInput));
+        dateToInput.setOnClickListener(v -> showDatePickerDialog(dateToInput));
 
         // Set up the spinner for difficulty levels
         ArrayAdapter<CharSequence> adapter = ArrayAdapter.createFromResource(this,
@@ -154,7 +312,9 @@ public class MainActivity extends AppCompatActivity implements HikeAdapter.OnHik
                     // Get filter values from the input fields
                     String name = nameInput.getText().toString();
                     String location = locationInput.getText().toString();
-                    String date = dateInput.getText().toString().equals("Select date") ? null : dateInput.getText().toString();
+                    // The picked dates are kept as epoch days in the views' tags; unset fields have no tag.
+                    Long dateFrom = (Long) dateFromInput.getTag();
+                    Long dateTo = (Long) dateToInput.getTag();
                     String difficulty = difficultySpinner.getSelectedItem().toString();
                     Double minLength = !minLengthInput.getText().toString().isEmpty()
                             ? Double.parseDouble(minLengthInput.getText().toString())
@@ -164,10 +324,11 @@ public class MainActivity extends AppCompatActivity implements HikeAdapter.OnHik
                             : null;
 
                     // Apply filters and update the adapter
-                    List<Hike> filteredHikes = hikeDAO.filterHikes(name, location, date, difficulty, minLength,
-                            maxLength);
-                    hikeAdapter.filterList(filteredHikes);
-                    checkEmptyView(); // Check if list is empty after filtering
+                    searchQuery = "";
+                    searchPipeline.cancel();
+                    showingSnapshot = false;
+                    listUnfiltered = false;
+                    hikePager.setFilter(new HikeFilter(name, location, dateFrom, dateTo, difficulty, minLength, maxLength));
                 })
                 .setNegativeButton(getString(R.string.cancel), (dialog, id) -> dialog.cancel());
 
@@ -177,6 +338,7 @@ public class MainActivity extends AppCompatActivity implements HikeAdapter.OnHik
 
     /**
      * Shows a DatePickerDialog to allow the user to select a date.
+     * The selected date is shown in the view and stored as an epoch day in its tag.
      * @param dateView The TextView to update with the selected date.
      */
     private void showDatePickerDialog(TextView dateView) {
@@ -187,19 +349,108 @@ public class MainActivity extends AppCompatActivity implements HikeAdapter.OnHik
 
         // Create and show the dialog
         DatePickerDialog datePickerDialog = new DatePickerDialog(this,
-                (view, year1, monthOfYear, dayOfMonth) -> dateView.setText(dayOfMonth + "/" + (monthOfYear + 1) + "/" + year1), year, month, day);
+                (view, year1, monthOfYear, dayOfMonth) -> {
+                    long epochDay = HikeDates.fromPicker(year1, monthOfYear, dayOfMonth);
+                    dateView.setTag(epochDay);
+                    dateView.setText(HikeDates.format(epochDay));
+                }, year, month, day);
         datePickerDialog.show();
     }
 
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        started = true;
+        if (hikesStale) {
+            hikesStale = false;
+            loadHikes();
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        started = false;
+        // Deletes still waiting for their undo window are written now, since the undo bar goes with the screen.
+        deleteQueue.flush();
+    }
+
+    /**
+     * Called when a table the shown hikes are read from was written.
+     */
+    private void onHikesChanged() {
+        if (started) {
+            loadHikes();
+        } else {
+            hikesStale = true;
+        }
+    }
+
     /**
-     * Loads the list of hikes from the database and updates the RecyclerView.
+     * Reads the list of hikes again, keeping the current filter or search and the scroll position.
      */
     private void loadHikes() {
-        hikes = hikeDAO.getAllHikes();
-        hikeAdapter = new HikeAdapter(hikes, this);
-        hikesRecyclerView.setAdapter(hikeAdapter);
-        checkEmptyView(); // Check if the list is empty after loading
+        if (searchQuery.isEmpty()) {
+            hikePager.refresh();
+        } else {
+            searchPipeline.refresh();
+        }
+    }
+
+    /**
+     * Displays the ranked results of the latest search.
+     * @param results The search results, most relevant first.
+     */
+    private void showSearchResults(List<HikeSearchResult> results) {
+        showingSnapshot = false;
+        searchResults = results;
+        List<HikeSearchResult> shown = new ArrayList<>(results.size());
+        for (HikeSearchResult result : results) {
+            if (!deleteQueue.isHikePending(result.getHike().getId())) {
+                shown.add(result);
+            }
+        }
+        hikeAdapter.submitSearchResults(shown, this::checkEmptyView); // Check if the list is empty once applied
+    }
+
+    /**
+     * Displays the hikes held by the pager.
+     * @param result The hikes to show.
+     * @param fromStart True when the hikes start with the first hike of the list.
+     * @param loading True while another page is being fetched.
+     */
+    private void showHikes(List<HikeSummary> result, boolean fromStart, boolean loading) {
+        if (showingSnapshot) {
+            if (loading && result.isEmpty()) {
+                return; // Keep the saved hikes rather than flashing placeholders before the first page
+            }
+            showingSnapshot = false;
+        }
+        hikes = result;
+        hikesLoading = loading;
+        List<HikeSummary> shown = showCurrentHikes();
+        if (!loading) {
+            startupProbe.onFirstData();
+            if (listUnfiltered && fromStart) {
+                hikeRepository.saveListSnapshot(shown); // Written only if the first screenful changed
+            }
+        }
+    }
+
+    /**
+     * Displays the hikes last delivered, leaving out those waiting to be deleted.
+     * @return The hikes shown.
+     */
+    private List<HikeSummary> showCurrentHikes() {
+        List<HikeSummary> shown = new ArrayList<>(hikes.size());
+        for (HikeSummary hike : hikes) {
+            if (!deleteQueue.isHikePending(hike.getId())) {
+                shown.add(hike);
+            }
+        }
+        hikeAdapter.submitHikes(shown, hikesLoading, this::checkEmptyView); // Check if the list is empty once applied
+        return shown;
     }
 
     /**
@@ -217,14 +468,147 @@ public class MainActivity extends AppCompatActivity implements HikeAdapter.OnHik
     }
 
     /**
-     * Handles the result from the AddHikeActivity and EditHikeActivity.
+     * Handles the file picked for an import or export.
      */
     @Override
     protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
-        if ((requestCode == ADD_HIKE_REQUEST || requestCode == EDIT_HIKE_REQUEST)
-                && (resultCode == RESULT_OK || resultCode == RESULT_CANCELED)) {
-            loadHikes(); // Reload the hikes to reflect any changes.
+        if (requestCode == IMPORT_FILE_REQUEST && resultCode == RESULT_OK && data != null && data.getData() != null) {
+            importFile(data.getData());
+        } else if (requestCode == EXPORT_FILE_REQUEST && resultCode == RESULT_OK && data != null && data.getData() != null
+                && pendingExportFormat != null) {
+            exportFile(data.getData(), pendingExportFormat);
+        }
+    }
+
+    /**
+     * Displays the import and export choices, then asks the system file picker for the file.
+     */
+    private void showFilesDialog() {
+        new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.files_title))
+                .setItems(R.array.file_actions, (dialog, which) -> {
+                    if (which == 0) {
+                        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+                        intent.addCategory(Intent.CATEGORY_OPENABLE);
+                        intent.setType("*/*");
+                        intent.putExtra(Intent.EXTRA_MIME_TYPES, new String[]{"text/*", "application/json",
+                                "application/x-ndjson", "application/octet-stream"});
+                        startActivityForResult(intent, IMPORT_FILE_REQUEST);
+                        return;
+                    }
+                    // The export items follow the import item, in the order of the formats.
+                    pendingExportFormat = TransferFormat.values()[which - 1];
+                    Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+                    intent.addCategory(Intent.CATEGORY_OPENABLE);
+                    intent.setType(pendingExportFormat.getMimeType());
+                    intent.putExtra(Intent.EXTRA_TITLE, "hikes." + pendingExportFormat.getExtension());
+                    startActivityForResult(intent, EXPORT_FILE_REQUEST);
+                })
+                .show();
+    }
+
+    /**
+     * Shows the progress of the running import or export in a dialog whose Cancel button cancels it, opening the
+     * dialog if this screen is not showing it yet.
+     * @param transfer The running transfer.
+     */
+    private void showTransferProgress(FileTransfer transfer) {
+        long progress = transfer.getProgress();
+        String message;
+        if (transfer.isImporting()) {
+            message = progress < 0 ? getString(R.string.import_starting)
+                    : getString(R.string.import_progress, progress, transfer.getRowsPerSecond());
+        } else {
+            message = progress < 0 ? getString(R.string.export_starting)
+                    : getString(R.string.export_progress, progress, transfer.getTotalRecords());
+        }
+        if (transferDialog != null) {
+            transferDialog.setMessage(message);
+            return;
+        }
+        transferDialog = new AlertDialog.Builder(this)
+                .setTitle(getString(transfer.isImporting() ? R.string.import_title : R.string.export_title))
+                .setMessage(message)
+                .setCancelable(false)
+                .setNegativeButton(getString(R.string.cancel), (dialog, which) -> {
+                    // Batches an import committed before cancelling are kept; the list has already picked them up.
+                    transferDialog = null;
+                    fileTransfer.cancel();
+                })
+                .show();
+    }
+
+    /**
+     * Closes the transfer dialog, if this screen is showing it.
+     */
+    private void dismissTransferDialog() {
+        if (transferDialog != null) {
+            transferDialog.dismiss();
+            transferDialog = null;
+        }
+    }
+
+    /**
+     * Exports every hike to a file picked by the user. The export's progress is shown in a dialog that can cancel it.
+     * @param uri The picked file.
+     * @param format The format to write.
+     */
+    private void exportFile(Uri uri, TransferFormat format) {
+        fileTransfer.startExport(uri, format);
+    }
+
+    /**
+     * Tells the user how an export went.
+     * @param result The export summary, or null if the file could not be written.
+     */
+    private void showExportResult(ExportResult result) {
+        if (result == null) {
+            Toast.makeText(this, getString(R.string.export_failed), Toast.LENGTH_LONG).show();
+            return;
+        }
+        String message = getString(R.string.export_finished, result.getHikes(), result.getObservations());
+        if (result.getSkippedHikes() > 0) {
+            message += "\n" + getString(R.string.export_skipped, result.getSkippedHikes());
+        }
+        Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+    }
+
+    /**
+     * Imports a file picked by the user. The import's progress is shown in a dialog that can cancel it.
+     * @param uri The picked file.
+     */
+    private void importFile(Uri uri) {
+        TransferFormat format = TransferFormat.forFile(getDisplayName(uri), getContentResolver().getType(uri));
+        fileTransfer.startImport(uri, format);
+    }
+
+    /**
+     * Tells the user how an import went.
+     * @param result The import summary, or null if the file could not be read.
+     */
+    private void showImportResult(ImportResult result) {
+        if (result == null) {
+            Toast.makeText(this, getString(R.string.import_failed), Toast.LENGTH_LONG).show();
+            return;
+        }
+        String message = getString(R.string.import_finished, result.getHikes(), result.getObservations(),
+                result.getElapsedMillis() / 1000.0);
+        if (result.getSkippedRecords() > 0) {
+            message += "\n" + getString(R.string.import_skipped, result.getSkippedRecords());
+        }
+        Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+    }
+
+    /**
+     * Looks up the file name of a picked document, used to tell its format.
+     * @param uri The document.
+     * @return The file name, or null if the provider does not report one.
+     */
+    @Nullable
+    private String getDisplayName(Uri uri) {
+        try (Cursor cursor = getContentResolver().query(uri, new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+            return cursor != null && cursor.moveToFirst() ? cursor.getString(0) : null;
         }
     }
 
@@ -233,47 +617,116 @@ public class MainActivity extends AppCompatActivity implements HikeAdapter.OnHik
      */
     @Override
     public void onEditClick(int position) {
-        Hike hikeToEdit = hikes.get(position);
+        HikeSummary hikeToEdit = hikeAdapter.getHike(position);
+        if (hikeToEdit == null) {
+            return;
+        }
         Intent intent = new Intent(this, EditHikeActivity.class);
         intent.putExtra("hike_id", hikeToEdit.getId());
-        startActivityForResult(intent, EDIT_HIKE_REQUEST);
+        startActivity(intent);
     }
 
     /**
-     * Handles the delete click on a hike item.
+     * Handles the delete click on a hike item. The hike disappears at once and can be brought back from the undo bar
+     * until the delete is written.
      */
     @Override
     public void onDeleteClick(int position) {
-        Hike hikeToDelete = hikes.get(position);
-        new AlertDialog.Builder(MainActivity.this)
-                .setTitle(getString(R.string.confirm_delete_title))
-                .setMessage(getString(R.string.confirm_delete_message))
-                .setPositiveButton(getString(R.string.yes), (dialog, which) -> {
-                    hikeDAO.deleteHike(hikeToDelete.getId());
-                    loadHikes(); // Reload the hikes to reflect the deletion.
-                })
-                .setNegativeButton(getString(R.string.no), null)
-                .show();
+        HikeSummary hikeToDelete = hikeAdapter.getHike(position);
+        if (hikeToDelete == null) {
+            return;
+        }
+        List<Long> hikeIds = new ArrayList<>();
+        hikeIds.add(hikeToDelete.getId());
+        showUndoBar(deleteQueue.deleteHikes(hikeIds), getString(R.string.hike_deleted));
     }
 
     /**
-     * Handles the click on a hike item to view its details.
+     * Handles the click on a hike item: toggles its selection while selecting, otherwise shows its details.
      */
     @Override
     public void onItemClick(int position) {
-        Hike hikeToShow = hikes.get(position);
+        if (hikeAdapter.isSelecting()) {
+            hikeAdapter.toggleSelection(position);
+            updateSelectionBar();
+            return;
+        }
+        HikeSummary hikeToShow = hikeAdapter.getHike(position);
+        if (hikeToShow == null) {
+            return;
+        }
         Intent intent = new Intent(this, HikeDetailActivity.class);
         intent.putExtra("hike_id", hikeToShow.getId());
         startActivity(intent);
     }
 
     /**
-     * Closes the database connection when the activity is destroyed.
+     * Handles a long press on a hike item by selecting it, or deselecting it if it is already selected.
+     */
+    @Override
+    public void onItemLongClick(int position) {
+        hikeAdapter.toggleSelection(position);
+        updateSelectionBar();
+    }
+
+    /**
+     * Deletes the selected hikes and their observations, with an undo bar that brings them all back.
+     */
+    private void deleteSelectedHikes() {
+        List<Long> hikeIds = hikeAdapter.getSelectedIds();
+        if (hikeIds.isEmpty()) {
+            return;
+        }
+        clearSelection();
+        showUndoBar(deleteQueue.deleteHikes(hikeIds), getString(R.string.hikes_deleted, hikeIds.size()));
+    }
+
+    /**
+     * Shows a bar offering to undo a queued delete for as long as it can be undone.
+     * @param delete The queued delete.
+     * @param message The text of the bar.
+     */
+    private void showUndoBar(DeleteQueue.PendingDelete delete, String message) {
+        Snackbar.make(hikesRecyclerView, message, DeleteQueue.UNDO_WINDOW_MILLIS)
+                .setAction(R.string.undo, v -> delete.undo())
+                .setAnchorView(addHikeButton)
+                .show();
+    }
+
+    /**
+     * Deselects every hike.
+     */
+    private void clearSelection() {
+        hikeAdapter.clearSelection();
+        updateSelectionBar();
+    }
+
+    /**
+     * Shows the selection bar with the number of selected hikes, or hides it when none are selected.
+     */
+    private void updateSelectionBar() {
+        boolean selecting = hikeAdapter.isSelecting();
+        selectionBar.setVisibility(selecting ? View.VISIBLE : View.GONE);
+        if (selecting) {
+            selectionCountText.setText(getString(R.string.selection_count, hikeAdapter.getSelectedCount()));
+        }
+        clearSelectionCallback.setEnabled(selecting);
+    }
+
+    /**
+     * Cancels any outstanding page load when the activity is destroyed. A running import or export carries on; the
+     * next instance of the screen shows it again.
      */
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        hikeDAO.close();
-        observationDAO.close();
+        deleteQueue.removeListener(deleteQueueListener);
+        InvalidationTracker invalidationTracker = hikeRepository.getInvalidationTracker();
+        invalidationTracker.removeObserver(hikeListObserver);
+        invalidationTracker.removeObserver(searchObserver);
+        hikePager.cancel();
+        searchPipeline.cancel();
+        fileTransfer.setListener(null);
+        dismissTransferDialog();
     }
 }
@@ -0,0 +1,170 @@
+package com.example.coursework.activities;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.coursework.R;
+import com.example.coursework.data.repository.HikeRepository;
+import com.example.coursework.data.repository.RepositoryCallback;
+import com.example.coursework.data.sqlite.QueryMetrics;
+
+import java.util.List;
+
+/**
+ * A debug screen showing the startup times of recent launches, how long each database operation has taken since the
+ * app started, the calls slower than the threshold, and the hike cache counts. The query figures can be reset, and
+ * exported to a JSON file.
+ */
+public class QueryMetricsActivity extends AppCompatActivity {
+
+    // Request code for picking the file the metrics are exported to.
+    private static final int EXPORT_METRICS_REQUEST = 1;
+
+    // UI elements
+    private EditText thresholdInput;
+    private TextView hikeCacheText;
+    private LinearLayout launchesLayout, operationsLayout, slowQueriesLayout;
+
+    // Repository and the metrics it exposes
+    private HikeRepository hikeRepository;
+    private QueryMetrics queryMetrics;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_query_metrics);
+
+        // Initialize the repository
+        hikeRepository = HikeRepository.getInstance(this);
+        queryMetrics = hikeRepository.getQueryMetrics();
+
+        // Initialize UI components
+        thresholdInput = findViewById(R.id.slow_query_threshold_input);
+        hikeCacheText = findViewById(R.id.hike_cache_text);
+        launchesLayout = findViewById(R.id.startup_launches);
+        operationsLayout = findViewById(R.id.query_operations);
+        slowQueriesLayout = findViewById(R.id.slow_queries);
+
+        thresholdInput.setText(String.valueOf(queryMetrics.getSlowQueryThresholdMillis()));
+        findViewById(R.id.apply_threshold_button).setOnClickListener(v -> applyThreshold());
+        findViewById(R.id.refresh_metrics_button).setOnClickListener(v -> showMetrics());
+        findViewById(R.id.reset_metrics_button).setOnClickListener(v -> {
+            queryMetrics.reset();
+            showMetrics();
+        });
+        findViewById(R.id.export_metrics_button).setOnClickListener(v -> {
+            Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+            intent.addCategory(Intent.CATEGORY_OPENABLE);
+            intent.setType("application/json");
+            intent.putExtra(Intent.EXTRA_TITLE, "query-metrics.json");
+            startActivityForResult(intent, EXPORT_METRICS_REQUEST);
+        });
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        showMetrics();
+    }
+
+    /**
+     * Exports the metrics to the file picked by the user.
+     */
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == EXPORT_METRICS_REQUEST && resultCode == RESULT_OK && data != null && data.getData() != null) {
+            hikeRepository.exportQueryMetrics(data.getData(), RepositoryCallback.of(this::showExported,
+                    error -> showExported(false)));
+        }
+    }
+
+    private void showExported(boolean written) {
+        Toast.makeText(this, getString(written ? R.string.metrics_exported : R.string.metrics_export_failed),
+                Toast.LENGTH_SHORT).show();
+    }
+
+    private void applyThreshold() {
+        long millis;
+        try {
+            millis = Long.parseLong(thresholdInput.getText().toString());
+        } catch (NumberFormatException e) {
+            thresholdInput.setError(getString(R.string.slow_query_threshold));
+            return;
+        }
+        queryMetrics.setSlowQueryThresholdMillis(millis);
+        Toast.makeText(this, getString(R.string.slow_query_threshold_set, millis), Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * Reads the metrics as they are now and replaces everything shown. The query metrics are kept in memory and the
+     * launch history is a short preference, so this is cheap enough for the main thread.
+     */
+    private void showMetrics() {
+        hikeCacheText.setText(getString(R.string.hike_cache_stats, hikeRepository.getHikeCache()));
+
+        launchesLayout.removeAllViews();
+        List<StartupProbe.Launch> launches = StartupProbe.getHistory(this);
+        if (launches.isEmpty()) {
+            addRow(launchesLayout, getString(R.string.no_queries_recorded), null);
+        }
+        for (StartupProbe.Launch launch : launches) {
+            addRow(launchesLayout, getString(launch.cold ? R.string.startup_cold_launch : R.string.startup_warm_launch,
+                    launch.timeMillis), getString(R.string.startup_launch_detail, launch.firstFrameMillis, launch.firstDataMillis));
+        }
+
+        operationsLayout.removeAllViews();
+        List<QueryMetrics.Operation> operations = queryMetrics.getOperations();
+        if (operations.isEmpty()) {
+            addRow(operationsLayout, getString(R.string.no_queries_recorded), null);
+        }
+        for (QueryMetrics.Operation operation : operations) {
+            addRow(operationsLayout, operation.getName(), getString(R.string.query_operation_detail, operation.getCount(),
+                    millis(operation.getPercentileNanos(50)), millis(operation.getPercentileNanos(90)),
+                    millis(operation.getPercentileNanos(99)), millis(operation.getMaxNanos()), operation.getRows(),
+                    operation.getBytes() / 1024));
+        }
+
+        slowQueriesLayout.removeAllViews();
+        List<QueryMetrics.SlowQuery> slowQueries = queryMetrics.getSlowQueries();
+        if (slowQueries.isEmpty()) {
+            addRow(slowQueriesLayout, getString(R.string.no_queries_recorded), null);
+        }
+        for (QueryMetrics.SlowQuery slowQuery : slowQueries) {
+            addRow(slowQueriesLayout, getString(R.string.slow_query_title, slowQuery.getOperation(),
+                    millis(slowQuery.getDurationNanos()), slowQuery.getRows(), slowQuery.getTimeMillis()),
+                    getString(R.string.slow_query_detail, slowQuery.getSql(), slowQuery.getBindShape()));
+        }
+    }
+
+    /**
+     * Adds a row to a section.
+     * @param layout The section's layout.
+     * @param title The row's title.
+     * @param detail The text under the title, or null for none.
+     */
+    private void addRow(LinearLayout layout, String title, String detail) {
+        View row = LayoutInflater.from(this).inflate(R.layout.query_metric_row, layout, false);
+        ((TextView) row.findViewById(R.id.metric_row_title)).setText(title);
+        TextView detailText = row.findViewById(R.id.metric_row_detail);
+        if (detail == null) {
+            detailText.setVisibility(View.GONE);
+        } else {
+            detailText.setText(detail);
+        }
+        layout.addView(row);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
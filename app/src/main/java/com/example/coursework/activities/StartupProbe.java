@@ -0,0 +1,130 @@
+package com.example.coursework.activities;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures how long a launch of the hike list takes to draw its first frame and to show its first hikes.
+ * <p>
+ * A cold launch, the first in its process, is measured from when the process was requested, so it includes
+ * starting the process and the application. Later launches in the same process are measured from the activity's
+ * creation. Every launch is written to the log and to a short history kept across launches, which the query
+ * metrics screen shows, so a slower startup can be spotted by comparing recent launches.
+ */
+final class StartupProbe {
+
+    private static final String TAG = "StartupProbe";
+    private static final String PREFERENCES = "startup_probe";
+    private static final String KEY_LAUNCHES = "launches";
+    // Number of launches kept in the history.
+    static final int HISTORY_SIZE = 20;
+
+    // True once a launch has been measured in this process; later launches are warm. Only touched on the main thread.
+    private static boolean processLaunched;
+
+    /**
+     * One measured launch.
+     */
+    static final class Launch {
+        // When the launch was recorded, in milliseconds since the epoch.
+        final long timeMillis;
+        final boolean cold;
+        final long firstFrameMillis;
+        final long firstDataMillis;
+
+        Launch(long timeMillis, boolean cold, long firstFrameMillis, long firstDataMillis) {
+            this.timeMillis = timeMillis;
+            this.cold = cold;
+            this.firstFrameMillis = firstFrameMillis;
+            this.firstDataMillis = firstDataMillis;
+        }
+    }
+
+    private final Activity activity;
+    private final boolean cold;
+    // Uptime the launch is measured from.
+    private final long startUptimeMillis;
+    // Time to the first frame and to the first hikes, or -1 until they happen.
+    private long firstFrameMillis = -1;
+    private long firstDataMillis = -1;
+
+    /**
+     * Starts measuring a launch. Must be called from onCreate, after the content view is set.
+     * @param activity The activity being launched.
+     */
+    StartupProbe(Activity activity) {
+        this.activity = activity;
+        cold = !processLaunched;
+        processLaunched = true;
+        startUptimeMillis = cold ? Process.getStartRequestedUptimeMillis() : SystemClock.uptimeMillis();
+        activity.getWindow().getDecorView().getViewTreeObserver().registerFrameCommitCallback(() -> {
+            long elapsed = SystemClock.uptimeMillis() - startUptimeMillis;
+            // The platform does not promise which thread commit callbacks run on.
+            activity.runOnUiThread(() -> {
+                firstFrameMillis = elapsed;
+                finishIfComplete();
+            });
+        });
+    }
+
+    /**
+     * Called when the first page of hikes is shown. Only the first call counts.
+     */
+    void onFirstData() {
+        if (firstDataMillis != -1) {
+            return;
+        }
+        firstDataMillis = SystemClock.uptimeMillis() - startUptimeMillis;
+        // Lets the system report the launch as fully drawn too, as seen in its own startup metrics.
+        activity.reportFullyDrawn();
+        finishIfComplete();
+    }
+
+    private void finishIfComplete() {
+        if (firstFrameMillis == -1 || firstDataMillis == -1) {
+            return;
+        }
+        Log.i(TAG, (cold ? "Cold" : "Warm") + " launch: first frame " + firstFrameMillis + " ms, first hikes " +
+                firstDataMillis + " ms");
+
+        List<Launch> launches = getHistory(activity);
+        launches.add(0, new Launch(System.currentTimeMillis(), cold, firstFrameMillis, firstDataMillis));
+        StringBuilder history = new StringBuilder();
+        for (int i = 0; i < Math.min(launches.size(), HISTORY_SIZE); i++) {
+            Launch launch = launches.get(i);
+            history.append(launch.timeMillis).append(',').append(launch.cold ? 'C' : 'W').append(',')
+                    .append(launch.firstFrameMillis).append(',').append(launch.firstDataMillis).append('\n');
+        }
+        // Written in the background; the history is only read again by a later launch or the metrics screen.
+        preferences(activity).edit().putString(KEY_LAUNCHES, history.toString()).apply();
+    }
+
+    /**
+     * Reads the recorded launches.
+     * @param context Any context.
+     * @return The launches, most recent first.
+     */
+    static List<Launch> getHistory(Context context) {
+        List<Launch> launches = new ArrayList<>();
+        String history = preferences(context).getString(KEY_LAUNCHES, "");
+        for (String line : history.split("\n")) {
+            String[] fields = line.split(",");
+            if (fields.length == 4) {
+                launches.add(new Launch(Long.parseLong(fields[0]), fields[1].equals("C"), Long.parseLong(fields[2]),
+                        Long.parseLong(fields[3])));
+            }
+        }
+        return launches;
+    }
+
+    private static SharedPreferences preferences(Context context) {
+        return context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.coursework.activities;
+
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.Button;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.coursework.R;
+import com.example.coursework.data.models.HikeStats;
+import com.example.coursework.data.repository.HikeRepository;
+import com.example.coursework.data.repository.LiveQuery;
+import com.example.coursework.data.repository.RepositoryCallback;
+
+import java.util.List;
+
+/**
+ * This activity shows statistics over every hike: total distance, hikes per month, and how hikes divide by
+ * difficulty and parking availability, each with the number of observations per hike.
+ * The figures are read from running totals, so the screen opens just as fast with many hikes as with few.
+ */
+public class StatsActivity extends AppCompatActivity {
+
+    // UI elements
+    private TextView hikeCountText, totalLengthText, observationCountText, observationsPerHikeText;
+    private LinearLayout byMonthLayout, byDifficultyLayout, byParkingLayout;
+    private Button rebuildButton;
+
+    // Repository
+    private HikeRepository hikeRepository;
+
+    // The statistics. They run again whenever a hike or observation is written.
+    private LiveQuery<HikeStats> statsQuery;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_stats);
+
+        // Initialize the repository
+        hikeRepository = HikeRepository.getInstance(this);
+
+        // Initialize UI components
+        hikeCountText = findViewById(R.id.stats_hike_count);
+        totalLengthText = findViewById(R.id.stats_total_length);
+        observationCountText = findViewById(R.id.stats_observation_count);
+        observationsPerHikeText = findViewById(R.id.stats_observations_per_hike);
+        byMonthLayout = findViewById(R.id.stats_by_month);
+        byDifficultyLayout = findViewById(R.id.stats_by_difficulty);
+        byParkingLayout = findViewById(R.id.stats_by_parking);
+        rebuildButton = findViewById(R.id.rebuild_stats_button);
+
+        // Set up the click listener for the "Rebuild" button, which recomputes the totals from every hike.
+        rebuildButton.setOnClickListener(v -> rebuildStats());
+
+        // Debuggable builds can open the query metrics screen from here.
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            Button queryMetricsButton = findViewById(R.id.query_metrics_button);
+            queryMetricsButton.setVisibility(View.VISIBLE);
+            queryMetricsButton.setOnClickListener(v -> startActivity(new Intent(this, QueryMetricsActivity.class)));
+        }
+
+        statsQuery = hikeRepository.observeStats();
+        statsQuery.observe(this::showStats);
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        statsQuery.start();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        statsQuery.stop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        statsQuery.close();
+    }
+
+    private void showStats(HikeStats stats) {
+        HikeStats.Bucket total = stats.getTotal();
+        hikeCountText.setText(String.valueOf(total.getHikeCount()));
+        totalLengthText.setText(getString(R.string.length_format, total.getTotalLength()));
+        observationCountText.setText(String.valueOf(total.getObservationCount()));
+        observationsPerHikeText.setText(String.format("%.1f", total.getObservationsPerHike()));
+
+        showBuckets(byMonthLayout, stats.getByMonth());
+        showBuckets(byDifficultyLayout, stats.getByDifficulty());
+        showBuckets(byParkingLayout, stats.getByParking());
+    }
+
+    /**
+     * Replaces the rows of a section with one row per bucket.
+     * @param layout The section's layout.
+     * @param buckets The buckets to show.
+     */
+    private void showBuckets(LinearLayout layout, List<HikeStats.Bucket> buckets) {
+        layout.removeAllViews();
+        LayoutInflater inflater = LayoutInflater.from(this);
+        if (buckets.isEmpty()) {
+            View row = inflater.inflate(R.layout.stats_row, layout, false);
+            ((TextView) row.findViewById(R.id.stats_row_label)).setText(R.string.stats_no_hikes);
+            layout.addView(row);
+            return;
+        }
+        for (HikeStats.Bucket bucket : buckets) {
+            View row = inflater.inflate(R.layout.stats_row, layout, false);
+            ((TextView) row.findViewById(R.id.stats_row_label)).setText(bucket.getKey());
+            ((TextView) row.findViewById(R.id.stats_row_value)).setText(getString(R.string.stats_bucket,
+                    bucket.getHikeCount(), bucket.getTotalLength(), bucket.getObservationsPerHike()));
+            layout.addView(row);
+        }
+    }
+
+    private void rebuildStats() {
+        rebuildButton.setEnabled(false);
+        long start = SystemClock.elapsedRealtime();
+        hikeRepository.rebuildStats(RepositoryCallback.of(buckets -> {
+            rebuildButton.setEnabled(true);
+            long elapsed = SystemClock.elapsedRealtime() - start;
+            Toast.makeText(this, getString(R.string.stats_rebuilt, buckets, elapsed), Toast.LENGTH_SHORT).show();
+        }, error -> {
+            rebuildButton.setEnabled(true);
+            Toast.makeText(this, getString(R.string.stats_rebuild_failed), Toast.LENGTH_SHORT).show();
+        }));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.coursework.activities;
+
+import android.os.Bundle;
+import android.view.View;
+import android.widget.Button;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.coursework.R;
+import com.example.coursework.adapters.TrashAdapter;
+import com.example.coursework.data.models.HikeSummary;
+import com.example.coursework.data.repository.HikeRepository;
+import com.example.coursework.data.repository.LiveQuery;
+
+import java.util.List;
+
+/**
+ * This activity lists the hikes in the trash, most recently deleted first. Each can be restored, with its
+ * observations, until it has been in the trash for {@link HikeRepository#TRASH_RETENTION_DAYS} days, when it is
+ * deleted for good in the background. The trash can also be emptied at once.
+ */
+public class TrashActivity extends AppCompatActivity {
+
+    // UI elements
+    private TextView emptyText;
+    private Button emptyTrashButton;
+    private TrashAdapter trashAdapter;
+
+    // Repository
+    private HikeRepository hikeRepository;
+
+    // The hikes in the trash. They load again whenever a hike is trashed, restored or purged.
+    private LiveQuery<List<HikeSummary>> trashQuery;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_trash);
+
+        // Initialize the repository
+        hikeRepository = HikeRepository.getInstance(this);
+
+        // Initialize UI components
+        TextView retentionText = findViewById(R.id.trash_retention_text);
+        retentionText.setText(getString(R.string.trash_retention, HikeRepository.TRASH_RETENTION_DAYS));
+        emptyText = findViewById(R.id.trash_empty_text);
+        emptyTrashButton = findViewById(R.id.empty_trash_button);
+
+        RecyclerView recyclerView = findViewById(R.id.trash_recycler_view);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        trashAdapter = new TrashAdapter(hikeRepository);
+        recyclerView.setAdapter(trashAdapter);
+
+        // Set up the click listener for the "Empty trash" button, which deletes every hike in the trash for good.
+        emptyTrashButton.setOnClickListener(v -> new AlertDialog.Builder(this)
+                .setTitle(getString(R.string.confirm_empty_trash_title))
+                .setMessage(getString(R.string.confirm_empty_trash_message))
+                .setPositiveButton(getString(R.string.yes), (dialog, which) -> hikeRepository.emptyTrash())
+                .setNegativeButton(getString(R.string.no), null)
+                .show());
+
+        trashQuery = hikeRepository.observeTrash();
+        trashQuery.observe(this::showTrash);
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        trashQuery.start();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        trashQuery.stop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        trashQuery.close();
+    }
+
+    private void showTrash(List<HikeSummary> hikes) {
+        trashAdapter.submitHikes(hikes);
+        emptyText.setVisibility(hikes.isEmpty() ? View.VISIBLE : View.GONE);
+        emptyTrashButton.setEnabled(!hikes.isEmpty());
+    }
+}
@@ -1,5 +1,10 @@
 package com.example.coursework.adapters;
 
+import android.content.Context;
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -7,21 +12,59 @@ import android.widget.Button;
 import android.widget.ImageButton;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.cardview.widget.CardView;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.coursework.R;
-import com.example.coursework.data.models.Hike;
+import com.example.coursework.data.models.HikeDates;
+import com.example.coursework.data.models.HikeSearchResult;
+import com.example.coursework.data.models.HikeSummary;
+import com.example.coursework.data.sqlite.HikeSearchDAO;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Adapter for the RecyclerView that displays a list of hikes.
  * This class binds the hike data to the views in the hike_item layout.
+ * While the next page of hikes is loading, a few placeholder rows are shown after the loaded hikes.
+ * <p>
+ * New lists are diffed against the current one on a background thread, and only the rows that changed are
+ * dispatched. Rows whose content changed are rebound with a payload naming the fields that differ.
+ * <p>
+ * Hikes can also be selected, for deleting several at once. The selection is kept by hike ID, so it survives the
+ * list being reloaded.
  */
-public class HikeAdapter extends RecyclerView.Adapter<HikeAdapter.HikeViewHolder> {
+public class HikeAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
-    private List<Hike> hikes;
+    // View types for loaded hikes and loading placeholders.
+    private static final int VIEW_TYPE_HIKE = 0;
+    private static final int VIEW_TYPE_PLACEHOLDER = 1;
+    // Number of placeholder rows shown while a page is loading.
+    private static final int PLACEHOLDER_COUNT = 3;
+
+    // Change payload flags, one per group of bound views.
+    private static final int PAYLOAD_NAME = 1;
+    private static final int PAYLOAD_LOCATION = 1 << 1;
+    private static final int PAYLOAD_DATE = 1 << 2;
+    private static final int PAYLOAD_LENGTH = 1 << 3;
+    private static final int PAYLOAD_PARKING = 1 << 4;
+    private static final int PAYLOAD_DIFFICULTY = 1 << 5;
+    private static final int PAYLOAD_SNIPPET = 1 << 6;
+    private static final int PAYLOAD_SELECTION = 1 << 7;
+    private static final int PAYLOAD_OBSERVATIONS = 1 << 8;
+    private static final int PAYLOAD_ALL = ~0;
+
+    private final AsyncListDiffer<Row> differ = new AsyncListDiffer<>(this, new RowDiffCallback());
     private OnHikeListener onHikeListener;
+    // IDs of the selected hikes, in the order they were selected.
+    private final Set<Long> selectedIds = new LinkedHashSet<>();
 
     /**
      * Interface for handling clicks on items in the RecyclerView.
@@ -30,6 +73,7 @@ public class HikeAdapter extends RecyclerView.Adapter<HikeAdapter.HikeViewHolder
         void onEditClick(int position);
         void onDeleteClick(int position);
         void onItemClick(int position);
+        void onItemLongClick(int position);
     }
 
     /**
@@ -37,38 +81,168 @@ public class HikeAdapter extends RecyclerView.Adapter<HikeAdapter.HikeViewHolder
      * @param hikes The list of hikes to display.
      * @param onHikeListener The listener for item clicks.
      */
-    public HikeAdapter(List<Hike> hikes, OnHikeListener onHikeListener) {
-        this.hikes = hikes;
+    public HikeAdapter(List<HikeSummary> hikes, OnHikeListener onHikeListener) {
         this.onHikeListener = onHikeListener;
+        setHasStableIds(true);
+        submitHikes(hikes, false, null);
     }
 
     /**
      * Called when RecyclerView needs a new ViewHolder of the given type to represent an item.
      * @param parent The ViewGroup into which the new View will be added after it is bound to an adapter position.
      * @param viewType The view type of the new View.
-     * @return A new HikeViewHolder that holds a View of the given view type.
+     * @return A new ViewHolder that holds a View of the given view type.
      */
     @NonNull
     @Override
-    public HikeViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.hike_item, parent, false);
+    public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        if (viewType == VIEW_TYPE_PLACEHOLDER) {
+            return new PlaceholderViewHolder(inflater.inflate(R.layout.hike_item_placeholder, parent, false));
+        }
+        View view = inflater.inflate(R.layout.hike_item, parent, false);
         return new HikeViewHolder(view, onHikeListener);
     }
 
+    /**
+     * Returns the view type of the item at the given position.
+     * @param position The position of the item.
+     * @return VIEW_TYPE_HIKE for loaded hikes, VIEW_TYPE_PLACEHOLDER for loading rows.
+     */
+    @Override
+    public int getItemViewType(int position) {
+        return differ.getCurrentList().get(position).hike != null ? VIEW_TYPE_HIKE : VIEW_TYPE_PLACEHOLDER;
+    }
+
+    /**
+     * Returns the stable ID of the item at the given position: the hike ID, or a negative ID for placeholders.
+     * @param position The position of the item.
+     * @return The stable item ID.
+     */
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).getId();
+    }
+
     /**
      * Called by RecyclerView to display the data at the specified position.
      * @param holder The ViewHolder which should be updated to represent the contents of the item at the given position in the data set.
      * @param position The position of the item within the adapter's data set.
      */
     @Override
-    public void onBindViewHolder(@NonNull HikeViewHolder holder, int position) {
-        Hike hike = hikes.get(position);
-        holder.hikeName.setText(hike.getName());
-        holder.hikeLocation.setText(hike.getLocation());
-        holder.hikeDate.setText(hike.getDate());
-        holder.hikeLength.setText(holder.itemView.getContext().getString(R.string.length_format, hike.getLength()));
-        holder.hikeParking.setText(hike.getParkingAvailable());
-        holder.hikeDifficulty.setText(hike.getDifficulty());
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+        bind(holder, position, PAYLOAD_ALL);
+    }
+
+    /**
+     * Called by RecyclerView to display the data at the specified position, rebinding only the changed fields
+     * when change payloads are available.
+     * @param holder The ViewHolder to update.
+     * @param position The position of the item within the adapter's data set.
+     * @param payloads The change payloads, or an empty list for a full bind.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            bind(holder, position, PAYLOAD_ALL);
+            return;
+        }
+        int changes = 0;
+        for (Object payload : payloads) {
+            changes |= (Integer) payload;
+        }
+        bind(holder, position, changes);
+    }
+
+    private void bind(RecyclerView.ViewHolder viewHolder, int position, int changes) {
+        if (!(viewHolder instanceof HikeViewHolder)) {
+            return; // Placeholders have nothing to bind.
+        }
+        HikeViewHolder holder = (HikeViewHolder) viewHolder;
+        Row row = differ.getCurrentList().get(position);
+        HikeSummary hike = row.hike;
+        if ((changes & PAYLOAD_NAME) != 0) {
+            holder.hikeName.setText(hike.getName());
+        }
+        if ((changes & PAYLOAD_LOCATION) != 0) {
+            holder.hikeLocation.setText(hike.getLocation());
+        }
+        if ((changes & PAYLOAD_DATE) != 0) {
+            holder.hikeDate.setText(HikeDates.format(hike.getDate()));
+        }
+        if ((changes & PAYLOAD_LENGTH) != 0) {
+            holder.hikeLength.setText(holder.itemView.getContext().getString(R.string.length_format, hike.getLength()));
+        }
+        if ((changes & PAYLOAD_PARKING) != 0) {
+            holder.hikeParking.setText(hike.getParkingAvailable());
+        }
+        if ((changes & PAYLOAD_DIFFICULTY) != 0) {
+            holder.hikeDifficulty.setText(hike.getDifficulty());
+        }
+        if ((changes & PAYLOAD_OBSERVATIONS) != 0) {
+            bindObservations(holder, hike);
+        }
+        if ((changes & PAYLOAD_SELECTION) != 0) {
+            boolean selected = selectedIds.contains(hike.getId());
+            holder.itemView.setActivated(selected);
+            ((CardView) holder.itemView).setCardBackgroundColor(ContextCompat.getColor(holder.itemView.getContext(),
+                    selected ? R.color.selected_green : R.color.surface_white));
+        }
+        if ((changes & PAYLOAD_SNIPPET) != 0) {
+            if (row.snippet != null && !row.snippet.isEmpty()) {
+                holder.hikeSnippet.setText(highlightSnippet(row.snippet));
+                holder.hikeSnippet.setVisibility(View.VISIBLE);
+            } else {
+                holder.hikeSnippet.setVisibility(View.GONE);
+            }
+        }
+    }
+
+    /**
+     * Shows the hike's observation count and latest observation, both read with the hike itself.
+     * @param holder The row's ViewHolder.
+     * @param hike The hike.
+     */
+    private static void bindObservations(HikeViewHolder holder, HikeSummary hike) {
+        int count = hike.getObservationCount();
+        if (count == 0) {
+            holder.hikeObservations.setVisibility(View.GONE);
+            return;
+        }
+        Context context = holder.itemView.getContext();
+        String countText = context.getResources().getQuantityString(R.plurals.hike_observation_count, count, count);
+        String latest = hike.getLatestObservation();
+        holder.hikeObservations.setText(latest != null
+                ? context.getString(R.string.hike_latest_observation, countText, latest)
+                : countText);
+        holder.hikeObservations.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * Turns the match markers in a search snippet into bold text.
+     * @param snippet The snippet returned by the search.
+     * @return The styled snippet.
+     */
+    private static CharSequence highlightSnippet(String snippet) {
+        SpannableStringBuilder builder = new SpannableStringBuilder();
+        int position = 0;
+        while (position < snippet.length()) {
+            int start = snippet.indexOf(HikeSearchDAO.SNIPPET_START, position);
+            if (start < 0) {
+                builder.append(snippet.substring(position));
+                break;
+            }
+            int end = snippet.indexOf(HikeSearchDAO.SNIPPET_END, start);
+            if (end < 0) {
+                end = snippet.length();
+            }
+            builder.append(snippet.substring(position, start));
+            int spanStart = builder.length();
+            builder.append(snippet.substring(start + 1, end));
+            builder.setSpan(new StyleSpan(Typeface.BOLD), spanStart, builder.length(), Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            position = end + 1;
+        }
+        return builder;
     }
 
     /**
@@ -77,16 +251,180 @@ public class HikeAdapter extends RecyclerView.Adapter<HikeAdapter.HikeViewHolder
      */
     @Override
     public int getItemCount() {
-        return hikes.size();
+        return differ.getCurrentList().size();
+    }
+
+    /**
+     * Returns the hike at the given position.
+     * @param position The adapter position.
+     * @return The hike, or null if the position is a placeholder or out of range.
+     */
+    public HikeSummary getHike(int position) {
+        List<Row> rows = differ.getCurrentList();
+        return position >= 0 && position < rows.size() ? rows.get(position).hike : null;
+    }
+
+    /**
+     * @return True while at least one hike is selected.
+     */
+    public boolean isSelecting() {
+        return !selectedIds.isEmpty();
+    }
+
+    /**
+     * @return The number of selected hikes.
+     */
+    public int getSelectedCount() {
+        return selectedIds.size();
+    }
+
+    /**
+     * @return The IDs of the selected hikes, in the order they were selected.
+     */
+    public List<Long> getSelectedIds() {
+        return new ArrayList<>(selectedIds);
+    }
+
+    /**
+     * Selects the hike at the given position, or deselects it if it is already selected.
+     * @param position The adapter position.
+     */
+    public void toggleSelection(int position) {
+        HikeSummary hike = getHike(position);
+        if (hike == null) {
+            return;
+        }
+        if (!selectedIds.remove(hike.getId())) {
+            selectedIds.add(hike.getId());
+        }
+        notifyItemChanged(position, PAYLOAD_SELECTION);
+    }
+
+    /**
+     * Deselects every hike.
+     */
+    public void clearSelection() {
+        if (selectedIds.isEmpty()) {
+            return;
+        }
+        selectedIds.clear();
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+    }
+
+    /**
+     * Updates the list of hikes and whether placeholder rows should be shown for a page that is still loading.
+     * The list is diffed in the background; the callback runs once the new list is displayed.
+     * @param newHikes The hikes loaded so far.
+     * @param isLoading True to show placeholder rows after the hikes.
+     * @param onCommitted Runs on the main thread once the list has been applied, may be null.
+     */
+    public void submitHikes(List<HikeSummary> newHikes, boolean isLoading, Runnable onCommitted) {
+        List<Row> rows = new ArrayList<>(newHikes.size() + PLACEHOLDER_COUNT);
+        for (HikeSummary hike : newHikes) {
+            rows.add(new Row(hike, null, 0));
+        }
+        if (isLoading) {
+            for (int i = 0; i < PLACEHOLDER_COUNT; i++) {
+                rows.add(new Row(null, null, i));
+            }
+        }
+        differ.submitList(rows, onCommitted);
     }
 
     /**
-     * Updates the list of hikes with a filtered list and notifies the adapter.
-     * @param filteredList The filtered list of hikes.
+     * Shows ranked search results, with their highlighted snippets, in place of the hike list.
+     * @param results The search results, most relevant first.
+     * @param onCommitted Runs on the main thread once the list has been applied, may be null.
      */
-    public void filterList(List<Hike> filteredList) {
-        hikes = filteredList;
-        notifyDataSetChanged();
+    public void submitSearchResults(List<HikeSearchResult> results, Runnable onCommitted) {
+        List<Row> rows = new ArrayList<>(results.size());
+        for (HikeSearchResult result : results) {
+            rows.add(new Row(result.getHike(), result.getSnippet(), 0));
+        }
+        differ.submitList(rows, onCommitted);
+    }
+
+    /**
+     * One row of the list: a hike with its optional search snippet, or a loading placeholder when hike is null.
+     */
+    private static final class Row {
+        final HikeSummary hike;
+        final String snippet;
+        final int placeholderIndex;
+
+        Row(HikeSummary hike, String snippet, int placeholderIndex) {
+            this.hike = hike;
+            this.snippet = snippet;
+            this.placeholderIndex = placeholderIndex;
+        }
+
+        long getId() {
+            return hike != null ? hike.getId() : -1 - placeholderIndex;
+        }
+    }
+
+    /**
+     * Compares rows by stable ID and reports which displayed fields changed.
+     */
+    private static final class RowDiffCallback extends DiffUtil.ItemCallback<Row> {
+        @Override
+        public boolean areItemsTheSame(@NonNull Row oldRow, @NonNull Row newRow) {
+            return oldRow.getId() == newRow.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Row oldRow, @NonNull Row newRow) {
+            return changedFields(oldRow, newRow) == 0;
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull Row oldRow, @NonNull Row newRow) {
+            return changedFields(oldRow, newRow);
+        }
+
+        private static int changedFields(Row oldRow, Row newRow) {
+            if (oldRow.hike == null || newRow.hike == null) {
+                return oldRow.hike == newRow.hike ? 0 : PAYLOAD_ALL;
+            }
+            HikeSummary oldHike = oldRow.hike;
+            HikeSummary newHike = newRow.hike;
+            int changes = 0;
+            if (!Objects.equals(oldHike.getName(), newHike.getName())) {
+                changes |= PAYLOAD_NAME;
+            }
+            if (!Objects.equals(oldHike.getLocation(), newHike.getLocation())) {
+                changes |= PAYLOAD_LOCATION;
+            }
+            if (oldHike.getDate() != newHike.getDate()) {
+                changes |= PAYLOAD_DATE;
+            }
+            if (Double.compare(oldHike.getLength(), newHike.getLength()) != 0) {
+                changes |= PAYLOAD_LENGTH;
+            }
+            if (!Objects.equals(oldHike.getParkingAvailable(), newHike.getParkingAvailable())) {
+                changes |= PAYLOAD_PARKING;
+            }
+            if (!Objects.equals(oldHike.getDifficulty(), newHike.getDifficulty())) {
+                changes |= PAYLOAD_DIFFICULTY;
+            }
+            if (oldHike.getObservationCount() != newHike.getObservationCount()
+                    || !Objects.equals(oldHike.getLatestObservation(), newHike.getLatestObservation())) {
+                changes |= PAYLOAD_OBSERVATIONS;
+            }
+            if (!Objects.equals(oldRow.snippet, newRow.snippet)) {
+                changes |= PAYLOAD_SNIPPET;
+            }
+            return changes;
+        }
+    }
+
+    /**
+     * ViewHolder for a row that is still loading.
+     */
+    static class PlaceholderViewHolder extends RecyclerView.ViewHolder {
+        PlaceholderViewHolder(@NonNull View itemView) {
+            super(itemView);
+        }
     }
 
     /**
@@ -94,7 +432,7 @@ public class HikeAdapter extends RecyclerView.Adapter<HikeAdapter.HikeViewHolder
      * This class holds the views for a single item in the RecyclerView.
      */
     public static class HikeViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
-        TextView hikeName, hikeLocation, hikeDate, hikeLength, hikeParking, hikeDifficulty;
+        TextView hikeName, hikeLocation, hikeDate, hikeLength, hikeParking, hikeDifficulty, hikeObservations, hikeSnippet;
         Button viewDetailsButton;
         ImageButton deleteButton;
         OnHikeListener onHikeListener;
@@ -107,6 +445,8 @@ public class HikeAdapter extends RecyclerView.Adapter<HikeAdapter.HikeViewHolder
             hikeLength = itemView.findViewById(R.id.hike_length_text);
             hikeParking = itemView.findViewById(R.id.hike_parking_text);
             hikeDifficulty = itemView.findViewById(R.id.hike_difficulty_text);
+            hikeObservations = itemView.findViewById(R.id.hike_observations_text);
+            hikeSnippet = itemView.findViewById(R.id.hike_snippet_text);
             viewDetailsButton = itemView.findViewById(R.id.view_details_button);
             deleteButton = itemView.findViewById(R.id.delete_button);
             this.onHikeListener = onHikeListener;
@@ -115,6 +455,10 @@ public class HikeAdapter extends RecyclerView.Adapter<HikeAdapter.HikeViewHolder
             viewDetailsButton.setOnClickListener(this);
             deleteButton.setOnClickListener(this);
             itemView.setOnClickListener(this);
+            itemView.setOnLongClickListener(v -> {
+                onHikeListener.onItemLongClick(getAdapterPosition());
+                return true;
+            });
         }
 
         /**
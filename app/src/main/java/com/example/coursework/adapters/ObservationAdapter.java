@@ -1,6 +1,5 @@
 package com.example.coursework.adapters;
 
-import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
 import android.view.LayoutInflater;
@@ -9,35 +8,61 @@ import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.coursework.R;
 import com.example.coursework.activities.EditObservationActivity;
 import com.example.coursework.data.models.Observation;
-import com.example.coursework.data.sqlite.ObservationDAO;
+import com.example.coursework.data.repository.DeleteQueue;
+import com.google.android.material.snackbar.Snackbar;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Adapter for the RecyclerView that displays a list of observations for a hike.
  * This class binds the observation data to the views in the observation_item layout.
+ * New lists are diffed on a background thread and only the rows that changed are rebound.
  */
 public class ObservationAdapter extends RecyclerView.Adapter<ObservationAdapter.ObservationViewHolder> {
 
-    private List<Observation> observations;
-    private ObservationDAO observationDAO;
+    // Change payload flags, one per bound view.
+    private static final int PAYLOAD_TEXT = 1;
+    private static final int PAYLOAD_TIME = 1 << 1;
+    private static final int PAYLOAD_COMMENTS = 1 << 2;
+    private static final int PAYLOAD_ALL = ~0;
+
+    private final AsyncListDiffer<Observation> differ = new AsyncListDiffer<>(this, new ObservationDiffCallback());
+    private DeleteQueue deleteQueue;
     private Context context;
 
     /**
      * Constructor for ObservationAdapter.
      * @param context The application context.
-     * @param observations The list of observations to display.
-     * @param observationDAO The DAO for interacting with the observation data.
+     * @param deleteQueue The queue the delete button adds observations to.
      */
-    public ObservationAdapter(Context context, List<Observation> observations, ObservationDAO observationDAO) {
+    public ObservationAdapter(Context context, DeleteQueue deleteQueue) {
         this.context = context;
-        this.observations = observations;
-        this.observationDAO = observationDAO;
+        this.deleteQueue = deleteQueue;
+        setHasStableIds(true);
+    }
+
+    /**
+     * Replaces the displayed observations, leaving out those waiting to be deleted. The new list is diffed against
+     * the current one in the background.
+     * @param observations The observations to display.
+     */
+    public void submitObservations(List<Observation> observations) {
+        List<Observation> shown = new ArrayList<>(observations.size());
+        for (Observation observation : observations) {
+            if (!deleteQueue.isObservationPending(observation.getId())) {
+                shown.add(observation);
+            }
+        }
+        differ.submitList(shown);
     }
 
     /**
@@ -50,7 +75,32 @@ public class ObservationAdapter extends RecyclerView.Adapter<ObservationAdapter.
     @Override
     public ObservationViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.observation_item, parent, false);
-        return new ObservationViewHolder(view);
+        ObservationViewHolder holder = new ObservationViewHolder(view);
+
+        // Set a click listener for the edit button to open the EditObservationActivity.
+        holder.editButton.setOnClickListener(v -> {
+            Observation observation = getObservation(holder.getAdapterPosition());
+            if (observation == null) {
+                return;
+            }
+            Intent intent = new Intent(context, EditObservationActivity.class);
+            intent.putExtra("observation_id", observation.getId());
+            context.startActivity(intent); // The hike's screen picks up the change through its live query
+        });
+
+        // Set a click listener for the delete button to queue the observation for deletion. The row disappears at
+        // once, when the screen hears from the queue, and can be brought back until the delete is written.
+        holder.deleteButton.setOnClickListener(v -> {
+            Observation observation = getObservation(holder.getAdapterPosition());
+            if (observation == null) {
+                return;
+            }
+            DeleteQueue.PendingDelete delete = deleteQueue.deleteObservation(observation.getId());
+            Snackbar.make(v, R.string.observation_deleted, DeleteQueue.UNDO_WINDOW_MILLIS)
+                    .setAction(R.string.undo, undo -> delete.undo())
+                    .show();
+        });
+        return holder;
     }
 
     /**
@@ -60,25 +110,46 @@ public class ObservationAdapter extends RecyclerView.Adapter<ObservationAdapter.
      */
     @Override
     public void onBindViewHolder(@NonNull ObservationViewHolder holder, int position) {
-        Observation observation = observations.get(position);
-        holder.observationText.setText(observation.getObservation());
-        holder.observationTime.setText(observation.getTime());
-        holder.observationComments.setText(observation.getComments());
+        bind(holder, position, PAYLOAD_ALL);
+    }
 
-        // Set a click listener for the edit button to open the EditObservationActivity.
-        holder.editButton.setOnClickListener(v -> {
-            Intent intent = new Intent(context, EditObservationActivity.class);
-            intent.putExtra("observation_id", observation.getId());
-            ((Activity) context).startActivityForResult(intent, 2); // 2 is the request code for editing an observation
-        });
+    /**
+     * Called by RecyclerView to display the data at the specified position, rebinding only the changed fields
+     * when change payloads are available.
+     * @param holder The ViewHolder to update.
+     * @param position The position of the item within the adapter's data set.
+     * @param payloads The change payloads, or an empty list for a full bind.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull ObservationViewHolder holder, int position, @NonNull List<Object> payloads) {
+        int changes = payloads.isEmpty() ? PAYLOAD_ALL : 0;
+        for (Object payload : payloads) {
+            changes |= (Integer) payload;
+        }
+        bind(holder, position, changes);
+    }
 
-        // Set a click listener for the delete button to remove the observation.
-        holder.deleteButton.setOnClickListener(v -> {
-            observationDAO.deleteObservation(observation.getId());
-            observations.remove(position);
-            notifyItemRemoved(position);
-            notifyItemRangeChanged(position, observations.size());
-        });
+    private void bind(ObservationViewHolder holder, int position, int changes) {
+        Observation observation = differ.getCurrentList().get(position);
+        if ((changes & PAYLOAD_TEXT) != 0) {
+            holder.observationText.setText(observation.getObservation());
+        }
+        if ((changes & PAYLOAD_TIME) != 0) {
+            holder.observationTime.setText(observation.getTime());
+        }
+        if ((changes & PAYLOAD_COMMENTS) != 0) {
+            holder.observationComments.setText(observation.getComments());
+        }
+    }
+
+    /**
+     * Returns the stable ID of the item at the given position.
+     * @param position The position of the item.
+     * @return The observation ID.
+     */
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).getId();
     }
 
     /**
@@ -87,7 +158,46 @@ public class ObservationAdapter extends RecyclerView.Adapter<ObservationAdapter.
      */
     @Override
     public int getItemCount() {
-        return observations.size();
+        return differ.getCurrentList().size();
+    }
+
+    private Observation getObservation(int position) {
+        List<Observation> observations = differ.getCurrentList();
+        return position >= 0 && position < observations.size() ? observations.get(position) : null;
+    }
+
+    /**
+     * Compares observations by ID and reports which displayed fields changed.
+     */
+    private static final class ObservationDiffCallback extends DiffUtil.ItemCallback<Observation> {
+        @Override
+        public boolean areItemsTheSame(@NonNull Observation oldItem, @NonNull Observation newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Observation oldItem, @NonNull Observation newItem) {
+            return changedFields(oldItem, newItem) == 0;
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull Observation oldItem, @NonNull Observation newItem) {
+            return changedFields(oldItem, newItem);
+        }
+
+        private static int changedFields(Observation oldItem, Observation newItem) {
+            int changes = 0;
+            if (!Objects.equals(oldItem.getObservation(), newItem.getObservation())) {
+                changes |= PAYLOAD_TEXT;
+            }
+            if (!Objects.equals(oldItem.getTime(), newItem.getTime())) {
+                changes |= PAYLOAD_TIME;
+            }
+            if (!Objects.equals(oldItem.getComments(), newItem.getComments())) {
+                changes |= PAYLOAD_COMMENTS;
+            }
+            return changes;
+        }
     }
 
     /**
@@ -0,0 +1,141 @@
+package com.example.coursework.adapters;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.coursework.R;
+import com.example.coursework.data.models.HikeDates;
+import com.example.coursework.data.models.HikeSummary;
+import com.example.coursework.data.repository.HikeRepository;
+import com.google.android.material.snackbar.Snackbar;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Adapter for the RecyclerView that displays the hikes in the trash.
+ * This class binds each hike's name, location and date to the trash_item layout, with a button that restores it.
+ * New lists are diffed on a background thread and only the rows that changed are rebound.
+ */
+public class TrashAdapter extends RecyclerView.Adapter<TrashAdapter.TrashViewHolder> {
+
+    private final AsyncListDiffer<HikeSummary> differ = new AsyncListDiffer<>(this, new TrashDiffCallback());
+    private final HikeRepository hikeRepository;
+
+    /**
+     * Constructor for TrashAdapter.
+     * @param hikeRepository The repository the restore button writes to.
+     */
+    public TrashAdapter(HikeRepository hikeRepository) {
+        this.hikeRepository = hikeRepository;
+        setHasStableIds(true);
+    }
+
+    /**
+     * Replaces the displayed hikes. The new list is diffed against the current one in the background.
+     * @param hikes The hikes in the trash.
+     */
+    public void submitHikes(List<HikeSummary> hikes) {
+        differ.submitList(hikes);
+    }
+
+    /**
+     * Called when RecyclerView needs a new ViewHolder of the given type to represent an item.
+     * @param parent The ViewGroup into which the new View will be added after it is bound to an adapter position.
+     * @param viewType The view type of the new View.
+     * @return A new TrashViewHolder that holds a View of the given view type.
+     */
+    @NonNull
+    @Override
+    public TrashViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.trash_item, parent, false);
+        TrashViewHolder holder = new TrashViewHolder(view);
+
+        // Set a click listener for the restore button to take the hike out of the trash. The row disappears when
+        // the trash query runs again after the write.
+        holder.restoreButton.setOnClickListener(v -> {
+            int position = holder.getAdapterPosition();
+            List<HikeSummary> hikes = differ.getCurrentList();
+            if (position < 0 || position >= hikes.size()) {
+                return;
+            }
+            hikeRepository.restoreHikes(Collections.singletonList(hikes.get(position).getId()), null);
+            Snackbar.make(v, R.string.hike_restored, Snackbar.LENGTH_SHORT).show();
+        });
+        return holder;
+    }
+
+    /**
+     * Called by RecyclerView to display the data at the specified position.
+     * @param holder The ViewHolder which should be updated to represent the contents of the item at the given position in the data set.
+     * @param position The position of the item within the adapter's data set.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull TrashViewHolder holder, int position) {
+        HikeSummary hike = differ.getCurrentList().get(position);
+        holder.nameText.setText(hike.getName());
+        holder.locationText.setText(hike.getLocation());
+        holder.dateText.setText(HikeDates.format(hike.getDate()));
+    }
+
+    /**
+     * Returns the stable ID of the item at the given position.
+     * @param position The position of the item.
+     * @return The hike ID.
+     */
+    @Override
+    public long getItemId(int position) {
+        return differ.getCurrentList().get(position).getId();
+    }
+
+    /**
+     * Returns the total number of items in the data set held by the adapter.
+     * @return The total number of items in this adapter.
+     */
+    @Override
+    public int getItemCount() {
+        return differ.getCurrentList().size();
+    }
+
+    /**
+     * Compares hikes by ID and by the fields the trash shows.
+     */
+    private static final class TrashDiffCallback extends DiffUtil.ItemCallback<HikeSummary> {
+        @Override
+        public boolean areItemsTheSame(@NonNull HikeSummary oldItem, @NonNull HikeSummary newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull HikeSummary oldItem, @NonNull HikeSummary newItem) {
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getLocation(), newItem.getLocation())
+                    && oldItem.getDate() == newItem.getDate();
+        }
+    }
+
+    /**
+     * ViewHolder for the trash item.
+     * This class holds the views for a single item in the RecyclerView.
+     */
+    public static class TrashViewHolder extends RecyclerView.ViewHolder {
+        TextView nameText, locationText, dateText;
+        Button restoreButton;
+
+        public TrashViewHolder(@NonNull View itemView) {
+            super(itemView);
+            nameText = itemView.findViewById(R.id.trash_hike_name);
+            locationText = itemView.findViewById(R.id.trash_hike_location);
+            dateText = itemView.findViewById(R.id.trash_hike_date);
+            restoreButton = itemView.findViewById(R.id.restore_hike_button);
+        }
+    }
+}
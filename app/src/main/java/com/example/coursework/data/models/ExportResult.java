@@ -0,0 +1,46 @@
+package com.example.coursework.data.models;
+
+/**
+ * Summary of a finished export.
+ */
+public class ExportResult {
+    // Number of hikes written.
+    private final long hikes;
+    // Number of observations written.
+    private final long observations;
+    // Number of hikes the format could not represent and left out.
+    private final long skippedHikes;
+    // Wall-clock time the export took.
+    private final long elapsedMillis;
+
+    /**
+     * Constructor to create a new ExportResult object.
+     *
+     * @param hikes         The number of hikes written.
+     * @param observations  The number of observations written.
+     * @param skippedHikes  The number of hikes left out.
+     * @param elapsedMillis The time the export took, in milliseconds.
+     */
+    public ExportResult(long hikes, long observations, long skippedHikes, long elapsedMillis) {
+        this.hikes = hikes;
+        this.observations = observations;
+        this.skippedHikes = skippedHikes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getHikes() {
+        return hikes;
+    }
+
+    public long getObservations() {
+        return observations;
+    }
+
+    public long getSkippedHikes() {
+        return skippedHikes;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
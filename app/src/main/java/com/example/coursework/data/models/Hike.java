@@ -11,8 +11,8 @@ public class Hike {
     private String name;
     // Location of the hike.
     private String location;
-    // Date of the hike.
-    private String date;
+    // Date of the hike, in days since 1970-01-01. See HikeDates for formatting.
+    private long date;
     // Information about parking availability.
     private String parkingAvailable;
     // Length of the hike in kilometers.
@@ -37,7 +37,7 @@ public class Hike {
      *
      * @param name             Name of the hike.
      * @param location         Location of the hike.
-     * @param date             Date of the hike.
+     * @param date             Date of the hike, as an epoch day.
      * @param parkingAvailable "Yes" or "No" indicating parking availability.
      * @param length           Length of the hike in kilometers.
      * @param difficulty       Difficulty level of the hike.
@@ -45,7 +45,7 @@ public class Hike {
      * @param weather          Weather conditions for the hike.
      * @param recommendedGear  Recommended gear for the hike.
      */
-    public Hike(String name, String location, String date, String parkingAvailable, double length, String difficulty, String description, String weather, String recommendedGear) {
+    public Hike(String name, String location, long date, String parkingAvailable, double length, String difficulty, String description, String weather, String recommendedGear) {
         this.name = name;
         this.location = location;
         this.date = date;
@@ -57,6 +57,17 @@ public class Hike {
         this.recommendedGear = recommendedGear;
     }
 
+    /**
+     * Copy constructor.
+     *
+     * @param other The hike to copy, including its ID.
+     */
+    public Hike(Hike other) {
+        this(other.name, other.location, other.date, other.parkingAvailable, other.length, other.difficulty,
+                other.description, other.weather, other.recommendedGear);
+        this.id = other.id;
+    }
+
     // Getters and Setters for the hike properties.
 
     public long getId() {
@@ -83,11 +94,11 @@ public class Hike {
         this.location = location;
     }
 
-    public String getDate() {
+    public long getDate() {
         return date;
     }
 
-    public void setDate(String date) {
+    public void setDate(long date) {
         this.date = date;
     }
 
@@ -0,0 +1,55 @@
+package com.example.coursework.data.models;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Converts hike dates between their stored form and their displayed form.
+ * Dates are stored as epoch days (days since 1970-01-01), which sort and compare as plain integers.
+ * They are only turned into text when shown to the user.
+ */
+public final class HikeDates {
+
+    // Display format, and the format dates were stored in before they became epoch days.
+    private static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("d/M/yyyy");
+
+    private HikeDates() {
+    }
+
+    /**
+     * Returns the epoch day for a date picked in a DatePickerDialog.
+     * @param year The year.
+     * @param monthOfYear The month, from 0 (January) to 11, as reported by the date picker.
+     * @param dayOfMonth The day of the month.
+     * @return The epoch day.
+     */
+    public static long fromPicker(int year, int monthOfYear, int dayOfMonth) {
+        return LocalDate.of(year, monthOfYear + 1, dayOfMonth).toEpochDay();
+    }
+
+    /**
+     * Formats an epoch day for display.
+     * @param epochDay The epoch day.
+     * @return The date as d/M/yyyy.
+     */
+    public static String format(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).format(DISPLAY_FORMAT);
+    }
+
+    /**
+     * Parses a d/M/yyyy date.
+     * @param text The text to parse.
+     * @return The epoch day, or null if the text is not a valid date.
+     */
+    public static Long parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(text.trim(), DISPLAY_FORMAT).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.coursework.data.models;
+
+/**
+ * Holds the criteria used to filter the list of hikes.
+ * Any criterion that is null (or empty) is ignored.
+ */
+public class HikeFilter {
+    // Words of the hike name; each matches the start of a word in the name.
+    private String name;
+    // Words of the hike location; each matches the start of a word in the location.
+    private String location;
+    // Earliest date of the hike, inclusive, as an epoch day.
+    private Long dateFrom;
+    // Latest date of the hike, inclusive, as an epoch day.
+    private Long dateTo;
+    // Difficulty level, or "Any difficulty".
+    private String difficulty;
+    // Minimum length in kilometers.
+    private Double minLength;
+    // Maximum length in kilometers.
+    private Double maxLength;
+
+    /**
+     * Default constructor. Creates a filter that matches every hike.
+     */
+    public HikeFilter() {
+    }
+
+    /**
+     * Constructor to create a new HikeFilter object.
+     *
+     * @param name       The name of the hike (can be partial).
+     * @param location   The location of the hike (can be partial).
+     * @param dateFrom   The earliest date of the hike, as an epoch day.
+     * @param dateTo     The latest date of the hike, as an epoch day.
+     * @param difficulty The difficulty of the hike.
+     * @param minLength  The minimum length of the hike.
+     * @param maxLength  The maximum length of the hike.
+     */
+    public HikeFilter(String name, String location, Long dateFrom, Long dateTo, String difficulty, Double minLength, Double maxLength) {
+        this.name = name;
+        this.location = location;
+        this.dateFrom = dateFrom;
+        this.dateTo = dateTo;
+        this.difficulty = difficulty;
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+    }
+
+    // Getters and Setters for the filter criteria.
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public Long getDateFrom() {
+        return dateFrom;
+    }
+
+    public void setDateFrom(Long dateFrom) {
+        this.dateFrom = dateFrom;
+    }
+
+    public Long getDateTo() {
+        return dateTo;
+    }
+
+    public void setDateTo(Long dateTo) {
+        this.dateTo = dateTo;
+    }
+
+    public String getDifficulty() {
+        return difficulty;
+    }
+
+    public void setDifficulty(String difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    public Double getMinLength() {
+        return minLength;
+    }
+
+    public void setMinLength(Double minLength) {
+        this.minLength = minLength;
+    }
+
+    public Double getMaxLength() {
+        return maxLength;
+    }
+
+    public void setMaxLength(Double maxLength) {
+        this.maxLength = maxLength;
+    }
+}
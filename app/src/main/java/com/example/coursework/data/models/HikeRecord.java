@@ -0,0 +1,39 @@
+package com.example.coursework.data.models;
+
+/**
+ * One record of an import or export file: a hike, and optionally one of its observations.
+ * A hike with several observations spans several records that share the same hike key.
+ */
+public class HikeRecord {
+    // Identifies the hike within the file, so that records of the same hike can be grouped.
+    private final String hikeKey;
+    // The hike. Its ID is not used; imported hikes always get a new one.
+    private final Hike hike;
+    // The observation carried by this record, or null for a hike without observations.
+    private final Observation observation;
+
+    /**
+     * Constructor to create a new HikeRecord object.
+     *
+     * @param hikeKey     The key grouping records of the same hike.
+     * @param hike        The hike.
+     * @param observation The observation, or null.
+     */
+    public HikeRecord(String hikeKey, Hike hike, Observation observation) {
+        this.hikeKey = hikeKey;
+        this.hike = hike;
+        this.observation = observation;
+    }
+
+    public String getHikeKey() {
+        return hikeKey;
+    }
+
+    public Hike getHike() {
+        return hike;
+    }
+
+    public Observation getObservation() {
+        return observation;
+    }
+}
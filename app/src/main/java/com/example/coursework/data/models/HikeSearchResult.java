@@ -0,0 +1,70 @@
+package com.example.coursework.data.models;
+
+import java.util.List;
+
+/**
+ * A hike returned by a full-text search, together with its relevance score and a highlighted snippet.
+ */
+public class HikeSearchResult {
+    // The matching hike.
+    private final HikeSummary hike;
+    // Short extract of the matching text. Matched terms are wrapped in the markers defined by HikeSearchDAO.
+    private final String snippet;
+    // BM25 relevance score; higher is more relevant.
+    private final double score;
+    // The words of the hike's name, location and snippet, used to refine results in memory as the query grows.
+    // The rest of the indexed text is not kept, so a word missing from here may still be in the hike.
+    private final List<String> words;
+
+    /**
+     * Constructor to create a new HikeSearchResult object.
+     *
+     * @param hike    The matching hike.
+     * @param snippet The highlighted snippet.
+     * @param score   The relevance score.
+     * @param words   The words of the hike's name, location and snippet.
+     */
+    public HikeSearchResult(HikeSummary hike, String snippet, double score, List<String> words) {
+        this.hike = hike;
+        this.snippet = snippet;
+        this.score = score;
+        this.words = words;
+    }
+
+    /**
+     * Checks whether this result is known to still match a query, i.e. every query word is a prefix of a word of its
+     * name, location or snippet. False does not rule the hike out: the word may be elsewhere in its text.
+     *
+     * @param queryWords The tokenized query.
+     * @return True if every query word matches.
+     */
+    public boolean matches(List<String> queryWords) {
+        for (String queryWord : queryWords) {
+            boolean found = false;
+            for (String word : words) {
+                if (word.startsWith(queryWord)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Getters for the search result properties.
+
+    public HikeSummary getHike() {
+        return hike;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public double getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.coursework.data.models;
+
+import java.util.List;
+
+/**
+ * Aggregate statistics over every hike and observation, as shown on the statistics screen.
+ * The figures come from running totals kept by the database, so loading them does not read any hike.
+ */
+public class HikeStats {
+
+    /**
+     * The totals for one group of hikes, such as the hikes of one month or of one difficulty.
+     */
+    public static class Bucket {
+        // What the hikes in the bucket have in common: a yyyy-MM month, a difficulty or a parking answer.
+        private final String key;
+        // Number of hikes in the bucket.
+        private final long hikeCount;
+        // Combined length of the hikes, in kilometers.
+        private final double totalLength;
+        // Number of observations recorded on the hikes.
+        private final long observationCount;
+
+        /**
+         * Constructor to create a new Bucket object.
+         *
+         * @param key              The value shared by the hikes in the bucket.
+         * @param hikeCount        The number of hikes.
+         * @param totalLength      The combined length in kilometers.
+         * @param observationCount The number of observations.
+         */
+        public Bucket(String key, long hikeCount, double totalLength, long observationCount) {
+            this.key = key;
+            this.hikeCount = hikeCount;
+            this.totalLength = totalLength;
+            this.observationCount = observationCount;
+        }
+
+        // Getters for the bucket properties.
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getHikeCount() {
+            return hikeCount;
+        }
+
+        public double getTotalLength() {
+            return totalLength;
+        }
+
+        public long getObservationCount() {
+            return observationCount;
+        }
+
+        /**
+         * @return The average number of observations per hike, or 0 if the bucket has no hikes.
+         */
+        public double getObservationsPerHike() {
+            return hikeCount == 0 ? 0 : (double) observationCount / hikeCount;
+        }
+    }
+
+    // Totals over every hike.
+    private final Bucket total;
+    // One bucket per month with at least one hike, oldest first.
+    private final List<Bucket> byMonth;
+    // One bucket per difficulty level in use, in alphabetical order.
+    private final List<Bucket> byDifficulty;
+    // One bucket per parking answer in use, in alphabetical order.
+    private final List<Bucket> byParking;
+
+    /**
+     * Constructor to create a new HikeStats object.
+     *
+     * @param total        The totals over every hike.
+     * @param byMonth      The buckets by month.
+     * @param byDifficulty The buckets by difficulty.
+     * @param byParking    The buckets by parking availability.
+     */
+    public HikeStats(Bucket total, List<Bucket> byMonth, List<Bucket> byDifficulty, List<Bucket> byParking) {
+        this.total = total;
+        this.byMonth = byMonth;
+        this.byDifficulty = byDifficulty;
+        this.byParking = byParking;
+    }
+
+    // Getters for the statistics.
+
+    public Bucket getTotal() {
+        return total;
+    }
+
+    public List<Bucket> getByMonth() {
+        return byMonth;
+    }
+
+    public List<Bucket> getByDifficulty() {
+        return byDifficulty;
+    }
+
+    public List<Bucket> getByParking() {
+        return byParking;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.coursework.data.models;
+
+/**
+ * The fields of a hike shown in the hike list.
+ * Lists and search results load this instead of a full {@link Hike}, leaving out the description, weather and
+ * recommended gear; those are only read when a single hike is opened. The observation count and latest observation
+ * are stored on the hike row itself, so they come with the same query.
+ */
+public class HikeSummary {
+    // Unique identifier for the hike in the database.
+    private final long id;
+    // Name of the hike.
+    private final String name;
+    // Location of the hike.
+    private final String location;
+    // Date of the hike, in days since 1970-01-01. See HikeDates for formatting.
+    private final long date;
+    // Information about parking availability.
+    private final String parkingAvailable;
+    // Length of the hike in kilometers.
+    private final double length;
+    // Difficulty level of the hike.
+    private final String difficulty;
+    // Number of observations recorded on the hike.
+    private final int observationCount;
+    // Text of the hike's most recent observation, or null if it has none.
+    private final String latestObservation;
+
+    /**
+     * Constructor to create a new HikeSummary object.
+     *
+     * @param id                The hike's ID.
+     * @param name              Name of the hike.
+     * @param location          Location of the hike.
+     * @param date              Date of the hike, as an epoch day.
+     * @param parkingAvailable  "Yes" or "No" indicating parking availability.
+     * @param length            Length of the hike in kilometers.
+     * @param difficulty        Difficulty level of the hike.
+     * @param observationCount  Number of observations recorded on the hike.
+     * @param latestObservation Text of the most recent observation, or null.
+     */
+    public HikeSummary(long id, String name, String location, long date, String parkingAvailable, double length, String difficulty,
+                       int observationCount, String latestObservation) {
+        this.id = id;
+        this.name = name;
+        this.location = location;
+        this.date = date;
+        this.parkingAvailable = parkingAvailable;
+        this.length = length;
+        this.difficulty = difficulty;
+        this.observationCount = observationCount;
+        this.latestObservation = latestObservation;
+    }
+
+    // Getters for the summary properties.
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public long getDate() {
+        return date;
+    }
+
+    public String getParkingAvailable() {
+        return parkingAvailable;
+    }
+
+    public double getLength() {
+        return length;
+    }
+
+    public String getDifficulty() {
+        return difficulty;
+    }
+
+    public int getObservationCount() {
+        return observationCount;
+    }
+
+    public String getLatestObservation() {
+        return latestObservation;
+    }
+}
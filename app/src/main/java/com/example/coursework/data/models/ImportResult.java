@@ -0,0 +1,55 @@
+package com.example.coursework.data.models;
+
+/**
+ * Summary of a finished bulk import.
+ */
+public class ImportResult {
+    // Number of hikes created.
+    private final long hikes;
+    // Number of observations created.
+    private final long observations;
+    // Number of records that could not be parsed and were left out.
+    private final long skippedRecords;
+    // Wall-clock time the import took.
+    private final long elapsedMillis;
+
+    /**
+     * Constructor to create a new ImportResult object.
+     *
+     * @param hikes          The number of hikes created.
+     * @param observations   The number of observations created.
+     * @param skippedRecords The number of records left out.
+     * @param elapsedMillis  The time the import took, in milliseconds.
+     */
+    public ImportResult(long hikes, long observations, long skippedRecords, long elapsedMillis) {
+        this.hikes = hikes;
+        this.observations = observations;
+        this.skippedRecords = skippedRecords;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getHikes() {
+        return hikes;
+    }
+
+    public long getObservations() {
+        return observations;
+    }
+
+    public long getSkippedRecords() {
+        return skippedRecords;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Returns the import throughput, counting every hike and observation written.
+     *
+     * @return The number of rows written per second.
+     */
+    public double getRowsPerSecond() {
+        return elapsedMillis > 0 ? (hikes + observations) * 1000.0 / elapsedMillis : 0;
+    }
+}
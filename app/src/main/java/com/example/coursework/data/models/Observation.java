@@ -37,6 +37,16 @@ public class Observation {
         this.comments = comments;
     }
 
+    /**
+     * Copy constructor.
+     *
+     * @param other The observation to copy, including its ID.
+     */
+    public Observation(Observation other) {
+        this(other.hikeId, other.observation, other.time, other.comments);
+        this.id = other.id;
+    }
+
     // Getters and Setters for the observation properties.
 
     public long getId() {
@@ -0,0 +1,140 @@
+package com.example.coursework.data.repository;
+
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide executors used by the repositories.
+ * Database work runs on a small, bounded pool of background threads and results are posted back to the main looper.
+ */
+public final class AppExecutors {
+
+    private static final String TAG = "AppExecutors";
+
+    // Upper bound on the number of threads that may touch SQLite at the same time.
+    private static final int IO_THREAD_COUNT = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static final AppExecutors INSTANCE = new AppExecutors();
+
+    private final ExecutorService ioExecutor;
+    private final Handler mainHandler;
+
+    private AppExecutors() {
+        ioExecutor = Executors.newFixedThreadPool(IO_THREAD_COUNT, new IoThreadFactory());
+        mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Returns the shared executors instance.
+     * @return The process-wide AppExecutors.
+     */
+    public static AppExecutors getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the bounded executor used for database I/O.
+     * @return The I/O executor.
+     */
+    public ExecutorService io() {
+        return ioExecutor;
+    }
+
+    /**
+     * Returns a handler bound to the main looper.
+     * @return The main thread handler.
+     */
+    public Handler mainThread() {
+        return mainHandler;
+    }
+
+    /**
+     * Runs the given work on the I/O executor and delivers its result to the callback on the main thread. If the
+     * work throws, the failure is logged and delivered to {@link RepositoryCallback#onError} instead.
+     * The callback is not invoked if the returned task is cancelled before delivery.
+     * @param work The work to run in the background.
+     * @param callback The callback to receive the result, or null if the result is not needed.
+     * @param <T> The result type.
+     * @return A task that can be used to cancel the work.
+     */
+    public <T> RepositoryTask submit(Callable<T> work, RepositoryCallback<T> callback) {
+        return submitCancellable(signal -> work.call(), callback);
+    }
+
+    /**
+     * Like {@link #submit}, but the work receives the task's cancellation signal so that a running query can be
+     * aborted when the task is cancelled.
+     * @param work The work to run in the background.
+     * @param callback The callback to receive the result, or null if the result is not needed.
+     * @param <T> The result type.
+     * @return A task that can be used to cancel the work.
+     */
+    public <T> RepositoryTask submitCancellable(CancellableWork<T> work, RepositoryCallback<T> callback) {
+        RepositoryTask task = new RepositoryTask();
+        task.setFuture(ioExecutor.submit(() -> {
+            if (task.isCancelled()) {
+                return;
+            }
+            T result;
+            try {
+                result = work.call(task.getCancellationSignal());
+            } catch (OperationCanceledException e) {
+                return; // The task was cancelled while its query was running.
+            } catch (Exception e) {
+                Log.e(TAG, "Background database work failed", e);
+                deliver(task, callback, () -> callback.onError(e));
+                return;
+            }
+            deliver(task, callback, () -> callback.onResult(result));
+        }));
+        return task;
+    }
+
+    /**
+     * Posts a delivery to the main thread, unless there is no callback or the task has been cancelled by then.
+     */
+    private void deliver(RepositoryTask task, RepositoryCallback<?> callback, Runnable delivery) {
+        if (callback != null && !task.isCancelled()) {
+            mainHandler.post(() -> {
+                if (!task.isCancelled()) {
+                    delivery.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Background work that can observe cancellation of its task.
+     * @param <T> The result type.
+     */
+    public interface CancellableWork<T> {
+        T call(CancellationSignal signal) throws Exception;
+    }
+
+    /**
+     * Creates named, background-priority threads for the I/O pool.
+     */
+    private static class IoThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "db-io-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
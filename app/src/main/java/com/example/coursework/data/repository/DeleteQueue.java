@@ -0,0 +1,233 @@
+package com.example.coursework.data.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Holds deletes back for an undo window, then writes them in the background, several to a transaction.
+ * <p>
+ * A queued delete shows at once: screens hide every hike and observation the queue holds and redraw when it changes.
+ * The rows stay in the database until their undo window has passed, and stay hidden until the write has finished, so
+ * a reload in between never brings them back. Deletes whose windows end within {@link #GROUP_COMMIT_MILLIS} of each
+ * other are written in one transaction, so deleting a run of rows one after the other costs one commit rather than
+ * one each, and {@link #flush()} writes everything queued at once. All methods must be called on the main thread.
+ */
+public final class DeleteQueue {
+
+    /**
+     * Notified when rows are hidden or shown again.
+     */
+    public interface Listener {
+        /**
+         * Called on the main thread after a delete is queued or undone, or fails to be written.
+         */
+        void onPendingDeletesChanged();
+    }
+
+    /**
+     * Writes a group of deletes.
+     */
+    interface Writer {
+        /**
+         * Deletes the rows in one transaction, in the background.
+         * @param hikeIds The hikes to delete, with their observations.
+         * @param observationIds The observations to delete.
+         * @param callback Receives true on the main thread once the rows are deleted, or false or an error if the
+         *                 write failed.
+         */
+        void delete(List<Long> hikeIds, List<Long> observationIds, RepositoryCallback<Boolean> callback);
+    }
+
+    // How long a delete can be undone, and so how long the screens should offer to undo it.
+    public static final int UNDO_WINDOW_MILLIS = 4000;
+    // A group is written this long after the first undo window in it ends, taking every delete whose window has
+    // ended by then. Windows are only ever lengthened by grouping, never cut short.
+    static final long GROUP_COMMIT_MILLIS = 1000;
+
+    /**
+     * A queued delete, which can be undone until it is written.
+     */
+    public final class PendingDelete {
+        private final List<Long> hikeIds;
+        private final List<Long> observationIds;
+        // Uptime at which the undo window ends.
+        private final long deadline;
+        // True once written or undone.
+        private boolean finished;
+
+        private PendingDelete(List<Long> hikeIds, List<Long> observationIds) {
+            this.hikeIds = hikeIds;
+            this.observationIds = observationIds;
+            deadline = SystemClock.uptimeMillis() + UNDO_WINDOW_MILLIS;
+        }
+
+        /**
+         * Cancels the delete and shows the rows again, unless it has already been written.
+         * @return True if the delete was cancelled.
+         */
+        public boolean undo() {
+            if (finished) {
+                return false;
+            }
+            finished = true;
+            queued.remove(this);
+            hiddenHikes.removeAll(hikeIds);
+            hiddenObservations.removeAll(observationIds);
+            if (queued.isEmpty()) {
+                handler.removeCallbacks(commitDue);
+            }
+            notifyListeners();
+            return true;
+        }
+    }
+
+    private final Writer writer;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable commitDue = this::commitDue;
+    // Deletes waiting for their undo window to end, oldest first.
+    private final List<PendingDelete> queued = new ArrayList<>();
+    // Rows hidden from the screens: queued, or being written.
+    private final Set<Long> hiddenHikes = new HashSet<>();
+    private final Set<Long> hiddenObservations = new HashSet<>();
+    private final List<Listener> listeners = new ArrayList<>();
+
+    /**
+     * Constructor for DeleteQueue.
+     * @param writer Writes each group of deletes.
+     */
+    DeleteQueue(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Queues hikes, together with their observations, for deletion.
+     * @param hikeIds The IDs of the hikes.
+     * @return The queued delete, to undo it.
+     */
+    public PendingDelete deleteHikes(List<Long> hikeIds) {
+        return enqueue(new PendingDelete(new ArrayList<>(hikeIds), new ArrayList<>()));
+    }
+
+    /**
+     * Queues an observation for deletion.
+     * @param observationId The ID of the observation.
+     * @return The queued delete, to undo it.
+     */
+    public PendingDelete deleteObservation(long observationId) {
+        List<Long> observationIds = new ArrayList<>();
+        observationIds.add(observationId);
+        return enqueue(new PendingDelete(new ArrayList<>(), observationIds));
+    }
+
+    /**
+     * @param hikeId The ID of a hike.
+     * @return True if the hike is being deleted and should not be shown.
+     */
+    public boolean isHikePending(long hikeId) {
+        return hiddenHikes.contains(hikeId);
+    }
+
+    /**
+     * @param observationId The ID of an observation.
+     * @return True if the observation is being deleted and should not be shown.
+     */
+    public boolean isObservationPending(long observationId) {
+        return hiddenObservations.contains(observationId);
+    }
+
+    /**
+     * Writes every queued delete now, ending their undo windows. Called when the user leaves the screen they were
+     * deleted from, so that a delete is never lost with the process.
+     */
+    public void flush() {
+        handler.removeCallbacks(commitDue);
+        if (!queued.isEmpty()) {
+            commit(new ArrayList<>(queued));
+        }
+    }
+
+    /**
+     * Starts notifying a listener of changes to the hidden rows.
+     * @param listener The listener.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops notifying a listener.
+     * @param listener The listener.
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private PendingDelete enqueue(PendingDelete delete) {
+        queued.add(delete);
+        hiddenHikes.addAll(delete.hikeIds);
+        hiddenObservations.addAll(delete.observationIds);
+        if (queued.size() == 1) {
+            handler.postAtTime(commitDue, delete.deadline + GROUP_COMMIT_MILLIS);
+        }
+        notifyListeners();
+        return delete;
+    }
+
+    /**
+     * Writes every delete whose undo window has ended, then waits for the next one.
+     */
+    private void commitDue() {
+        long now = SystemClock.uptimeMillis();
+        List<PendingDelete> due = new ArrayList<>();
+        for (PendingDelete delete : queued) {
+            if (delete.deadline <= now) {
+                due.add(delete);
+            }
+        }
+        // Nothing is due if the delete this run was scheduled for has been undone.
+        if (!due.isEmpty()) {
+            commit(due);
+        }
+        if (!queued.isEmpty()) {
+            handler.postAtTime(commitDue, queued.get(0).deadline + GROUP_COMMIT_MILLIS);
+        }
+    }
+
+    private void commit(List<PendingDelete> group) {
+        List<Long> hikeIds = new ArrayList<>();
+        List<Long> observationIds = new ArrayList<>();
+        for (PendingDelete delete : group) {
+            delete.finished = true;
+            queued.remove(delete);
+            hikeIds.addAll(delete.hikeIds);
+            observationIds.addAll(delete.observationIds);
+        }
+        // The rows stay hidden until the write is done. By then the write's change notification has reached the
+        // screens and their reloads will not return the rows, so listeners are only told if it failed and the rows
+        // should come back.
+        writer.delete(hikeIds, observationIds, RepositoryCallback.of(
+                deleted -> finishCommit(hikeIds, observationIds, deleted),
+                error -> finishCommit(hikeIds, observationIds, false)));
+    }
+
+    private void finishCommit(List<Long> hikeIds, List<Long> observationIds, boolean deleted) {
+        hiddenHikes.removeAll(hikeIds);
+        hiddenObservations.removeAll(observationIds);
+        if (!deleted) {
+            notifyListeners();
+        }
+    }
+
+    private void notifyListeners() {
+        // Copy, so listeners can remove themselves while being notified.
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onPendingDeletesChanged();
+        }
+    }
+}
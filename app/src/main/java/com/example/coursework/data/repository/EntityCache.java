@@ -0,0 +1,186 @@
+package com.example.coursework.data.repository;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A bounded, least-recently-used cache of database rows keyed by ID.
+ * <p>
+ * The cache stores private copies: values are copied on the way in and on the way out, so a caller that edits what
+ * it was given never changes what the next caller sees. Every change to the cache advances a generation counter.
+ * A value loaded from the database is only stored if the generation has not moved since the load started, so a slow
+ * read can never overwrite the result of a write that finished while it was running.
+ * <p>
+ * All methods are thread-safe.
+ * @param <T> The type of the cached values.
+ */
+public final class EntityCache<T> {
+
+    private final int maxSize;
+    private final UnaryOperator<T> copier;
+    // Access-ordered, so the first entry is always the least recently used.
+    private final LinkedHashMap<Long, T> entries;
+
+    private long generation;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Constructor for EntityCache.
+     * @param maxSize The maximum number of entries to keep.
+     * @param copier Makes an independent copy of a value.
+     */
+    EntityCache(int maxSize, UnaryOperator<T> copier) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.maxSize = maxSize;
+        this.copier = copier;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns a copy of the cached value and marks it as recently used.
+     * @param id The row ID.
+     * @return The value, or null on a miss.
+     */
+    synchronized T get(long id) {
+        T value = entries.get(id);
+        if (value == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return copier.apply(value);
+    }
+
+    /**
+     * Returns the current generation, to be passed to {@link #putIfUnchanged} once a load completes.
+     * @return The generation.
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Stores a value loaded from the database, unless the cache changed since the load started.
+     * @param id The row ID.
+     * @param value The loaded value.
+     * @param loadGeneration The generation read before the load started.
+     */
+    synchronized void putIfUnchanged(long id, T value, long loadGeneration) {
+        // Another load finishing first does not change the generation, only writes and invalidations do.
+        if (generation == loadGeneration) {
+            store(id, value);
+        }
+    }
+
+    /**
+     * Stores a value that was just written to the database.
+     * @param id The row ID.
+     * @param value The value.
+     */
+    synchronized void put(long id, T value) {
+        generation++;
+        store(id, value);
+    }
+
+    private void store(long id, T value) {
+        entries.put(id, copier.apply(value));
+        Iterator<T> eldest = entries.values().iterator();
+        while (entries.size() > maxSize) {
+            eldest.next();
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Drops the value for a row that was deleted or changed in a way the cache cannot follow.
+     * @param id The row ID.
+     */
+    synchronized void remove(long id) {
+        generation++;
+        entries.remove(id);
+    }
+
+    /**
+     * Drops every value that matches a condition.
+     * @param condition Tested against the cached values; must not modify them.
+     */
+    synchronized void removeIf(Predicate<T> condition) {
+        generation++;
+        entries.values().removeIf(condition);
+    }
+
+    /**
+     * Drops every value.
+     */
+    synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    /**
+     * @return The number of lookups that found a value.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return The number of lookups that found nothing.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return The number of values dropped to make room for newer ones. Invalidations are not counted.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return The number of values currently cached.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The maximum number of values kept.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long lookups = hitCount + missCount;
+        int hitPercent = lookups == 0 ? 0 : (int) (100 * hitCount / lookups);
+        return "EntityCache[size=" + entries.size() + "/" + maxSize + ", hits=" + hitCount + ", misses=" + missCount +
+                ", evictions=" + evictionCount + ", hitRate=" + hitPercent + "%]";
+    }
+
+    /**
+     * Copies a list of values element by element.
+     * @param values The list to copy.
+     * @param copier Copies one element.
+     * @param <E> The element type.
+     * @return A new list holding copies of the elements.
+     */
+    static <E> List<E> copyList(List<E> values, UnaryOperator<E> copier) {
+        List<E> copy = new ArrayList<>(values.size());
+        for (E value : values) {
+            copy.add(copier.apply(value));
+        }
+        return copy;
+    }
+}
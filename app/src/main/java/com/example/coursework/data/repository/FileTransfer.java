@@ -0,0 +1,214 @@
+package com.example.coursework.data.repository;
+
+import android.net.Uri;
+
+import com.example.coursework.data.models.ExportResult;
+import com.example.coursework.data.models.ImportResult;
+import com.example.coursework.data.transfer.TransferFormat;
+
+/**
+ * Runs the import or export the user started, independently of the screen that started it.
+ * <p>
+ * There is one per process, held by {@link HikeRepository}, so a transfer carries on when the screen is recreated,
+ * for example on rotation. The transfer keeps its latest progress, and its result until a listener has seen it: a
+ * screen attaches a listener when it is created, is told at once about a running transfer or a result it missed, and
+ * detaches it when it is destroyed. Only {@link #cancel()} stops a running transfer. All methods must be called on the
+ * main thread.
+ */
+public final class FileTransfer {
+
+    /**
+     * Receives the transfer's progress and result on the main thread.
+     */
+    public interface Listener {
+        /**
+         * Called when a transfer starts, after each progress report, and on attaching while one is running.
+         * @param transfer The transfer, for its progress.
+         */
+        void onTransferProgress(FileTransfer transfer);
+
+        /**
+         * Called once an import finishes, or on attaching if it finished while no listener was attached.
+         * @param result The import summary, or null if the file could not be read.
+         */
+        void onImportFinished(ImportResult result);
+
+        /**
+         * Called once an export finishes, or on attaching if it finished while no listener was attached.
+         * @param result The export summary, or null if the file could not be written.
+         */
+        void onExportFinished(ExportResult result);
+    }
+
+    private final HikeRepository hikeRepository;
+    private Listener listener;
+
+    // The running transfer, or null.
+    private RepositoryTask task;
+    // Counts started transfers, so reports from a cancelled one are told apart from the current one's.
+    private int generation;
+    // True if the running or last transfer is an import, false if it is an export.
+    private boolean importing;
+    // The latest progress: rows or records done, or -1 before the first report.
+    private long progress = -1;
+    private double rowsPerSecond;
+    private long totalRecords;
+
+    // A finished transfer whose result no listener has seen yet.
+    private boolean resultPending;
+    private ImportResult importResult;
+    private ExportResult exportResult;
+
+    /**
+     * Constructor for FileTransfer.
+     * @param hikeRepository Runs the imports and exports.
+     */
+    FileTransfer(HikeRepository hikeRepository) {
+        this.hikeRepository = hikeRepository;
+    }
+
+    /**
+     * Attaches or detaches the listener. A new listener is told at once about the running transfer, or about the
+     * result of one that finished while none was attached.
+     * @param listener The listener, or null to detach.
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+        if (listener == null) {
+            return;
+        }
+        if (task != null) {
+            listener.onTransferProgress(this);
+        } else if (resultPending) {
+            deliverResult();
+        }
+    }
+
+    /**
+     * Starts importing a file, as described in {@link HikeRepository#importHikes}. Does nothing if a transfer is
+     * already running.
+     * @param uri The file to import.
+     * @param format The file's format.
+     */
+    public void startImport(Uri uri, TransferFormat format) {
+        if (task != null) {
+            return;
+        }
+        int started = start(true);
+        task = hikeRepository.importHikes(uri, format, (rows, rate) -> {
+            if (started == generation) {
+                progress = rows;
+                rowsPerSecond = rate;
+                notifyProgress();
+            }
+        }, RepositoryCallback.of((ImportResult result) -> finish(result, null),
+                // Batches committed before the failure are kept; the list has already picked them up.
+                error -> finish(null, null)));
+        notifyProgress();
+    }
+
+    /**
+     * Starts exporting every hike to a file, as described in {@link HikeRepository#exportHikes}. Does nothing if a
+     * transfer is already running.
+     * @param uri The document to write.
+     * @param format The format to write.
+     */
+    public void startExport(Uri uri, TransferFormat format) {
+        if (task != null) {
+            return;
+        }
+        int started = start(false);
+        task = hikeRepository.exportHikes(uri, format, (records, total) -> {
+            if (started == generation) {
+                progress = records;
+                totalRecords = total;
+                notifyProgress();
+            }
+        }, RepositoryCallback.of((ExportResult result) -> finish(null, result), error -> finish(null, null)));
+        notifyProgress();
+    }
+
+    /**
+     * Cancels the running transfer, if any; no result is delivered for it. Batches an import committed before
+     * cancelling are kept, and a cancelled export deletes its document.
+     */
+    public void cancel() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+            generation++;
+        }
+    }
+
+    /**
+     * @return True if the running or last transfer is an import, false if it is an export.
+     */
+    public boolean isImporting() {
+        return importing;
+    }
+
+    /**
+     * @return The hikes and observations imported, or the records exported, so far; -1 before the first report.
+     */
+    public long getProgress() {
+        return progress;
+    }
+
+    /**
+     * @return The import's average throughput so far, in rows per second.
+     */
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    /**
+     * @return The number of records the export writes.
+     */
+    public long getTotalRecords() {
+        return totalRecords;
+    }
+
+    /**
+     * Resets the progress for a new transfer, dropping any result no listener has seen.
+     * @param isImport True for an import.
+     * @return The new transfer's generation.
+     */
+    private int start(boolean isImport) {
+        importing = isImport;
+        progress = -1;
+        rowsPerSecond = 0;
+        totalRecords = 0;
+        resultPending = false;
+        importResult = null;
+        exportResult = null;
+        return ++generation;
+    }
+
+    private void finish(ImportResult imported, ExportResult exported) {
+        task = null;
+        generation++;
+        importResult = imported;
+        exportResult = exported;
+        resultPending = true;
+        if (listener != null) {
+            deliverResult();
+        }
+    }
+
+    private void deliverResult() {
+        resultPending = false;
+        if (importing) {
+            listener.onImportFinished(importResult);
+        } else {
+            listener.onExportFinished(exportResult);
+        }
+        importResult = null;
+        exportResult = null;
+    }
+
+    private void notifyProgress() {
+        if (listener != null) {
+            listener.onTransferProgress(this);
+        }
+    }
+}
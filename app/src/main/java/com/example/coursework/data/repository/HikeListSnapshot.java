@@ -0,0 +1,256 @@
+package com.example.coursework.data.repository;
+
+import android.util.Log;
+
+import com.example.coursework.data.models.HikeSummary;
+import com.example.coursework.data.sqlite.DatabaseHelper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * A copy of the first screenful of the unfiltered hike list, kept in a small binary file so that a cold start can
+ * show the list before the database has opened.
+ * <p>
+ * The file holds a header, the rows, and a CRC32 of everything before it:
+ * <pre>
+ * int    magic ("HKSN")
+ * short  format version
+ * short  database version the rows were read with
+ * long   when the snapshot was saved, in milliseconds since the epoch
+ * int    number of rows
+ * rows   id (long), name, location, date (long), parking, length (double), difficulty, observation count (int),
+ *        latest observation; text is a length in bytes (int, -1 for null) followed by UTF-8
+ * int    CRC32
+ * </pre>
+ * It is read through a memory map and written to a temporary file that is then renamed over it, so a reader sees
+ * either the old snapshot or the new one. A file from another format or database version, or one whose checksum does
+ * not match, is deleted and treated as missing. The snapshot is only a first guess at the list: it is replaced by the
+ * live first page as soon as that arrives, and saved again whenever that page changes.
+ */
+public final class HikeListSnapshot {
+
+    private static final String TAG = "HikeListSnapshot";
+
+    // Name of the snapshot file, in the no-backup files directory so that it is never restored next to a different
+    // database.
+    public static final String FILE_NAME = "hike_list.snapshot";
+    // Number of hikes saved; enough to fill the screen of a large phone.
+    public static final int MAX_ROWS = 20;
+
+    private static final int MAGIC = 0x484B534E;
+    // Bump when the layout of the file changes; older files are then ignored.
+    static final int FORMAT_VERSION = 1;
+    // Length of the header, and of the checksum after the rows.
+    private static final int HEADER_BYTES = 4 + 2 + 2 + 8 + 4;
+    private static final int CHECKSUM_BYTES = 4;
+    // Files larger than this are not mapped; a valid snapshot of MAX_ROWS hikes is a few kilobytes.
+    private static final int MAX_FILE_BYTES = 256 * 1024;
+
+    private final File file;
+    private final int databaseVersion;
+    // The rows last written or read, so that saving an unchanged first page does not rewrite the file. Guarded by this.
+    private List<HikeSummary> savedRows;
+
+    /**
+     * Constructor for HikeListSnapshot.
+     * @param file The snapshot file.
+     */
+    public HikeListSnapshot(File file) {
+        this(file, DatabaseHelper.DATABASE_VERSION);
+    }
+
+    HikeListSnapshot(File file, int databaseVersion) {
+        this.file = file;
+        this.databaseVersion = databaseVersion;
+    }
+
+    /**
+     * Reads the snapshot. Cheap enough for the main thread: the file is a few kilobytes and is mapped rather than
+     * read through a stream.
+     * @return The saved hikes, in display order, or null if there is no usable snapshot.
+     */
+    public synchronized List<HikeSummary> read() {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (RandomAccessFile input = new RandomAccessFile(file, "r"); FileChannel channel = input.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + CHECKSUM_BYTES || size > MAX_FILE_BYTES) {
+                return discard("unexpected size " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            ByteBuffer content = buffer.duplicate();
+            content.limit((int) size - CHECKSUM_BYTES);
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            if ((int) crc.getValue() != buffer.getInt((int) size - CHECKSUM_BYTES)) {
+                return discard("checksum mismatch");
+            }
+
+            buffer.limit((int) size - CHECKSUM_BYTES);
+            if (buffer.getInt() != MAGIC) {
+                return discard("not a snapshot");
+            }
+            int format = buffer.getShort();
+            int version = buffer.getShort();
+            if (format != FORMAT_VERSION || version != databaseVersion) {
+                return discard("format " + format + ", database version " + version);
+            }
+            buffer.getLong(); // Saved time, for inspecting the file.
+            int count = buffer.getInt();
+            if (count < 0 || count > MAX_ROWS) {
+                return discard("row count " + count);
+            }
+            List<HikeSummary> rows = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                rows.add(new HikeSummary(buffer.getLong(), getString(buffer), getString(buffer), buffer.getLong(),
+                        getString(buffer), buffer.getDouble(), getString(buffer), buffer.getInt(), getString(buffer)));
+            }
+            if (buffer.hasRemaining()) {
+                return discard("trailing bytes");
+            }
+            savedRows = rows;
+            return Collections.unmodifiableList(rows);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            // A checksum collision on a damaged file ends up here too.
+            Log.w(TAG, "Could not read " + file, e);
+            discard("unreadable");
+            return null;
+        }
+    }
+
+    /**
+     * Saves the first {@link #MAX_ROWS} hikes of a list, unless they are the same as the ones already saved. Writes to
+     * the disk, so must not be called on the main thread.
+     * @param hikes The unfiltered hike list, in display order.
+     * @return True if the snapshot is up to date.
+     */
+    public synchronized boolean write(List<HikeSummary> hikes) {
+        List<HikeSummary> rows = new ArrayList<>(hikes.subList(0, Math.min(hikes.size(), MAX_ROWS)));
+        if (savedRows != null && sameRows(savedRows, rows)) {
+            return true;
+        }
+
+        byte[] bytes = encode(rows);
+        File temporary = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temporary)) {
+            out.write(bytes);
+            // Flushed before the rename, so a crash cannot leave the new name pointing at unwritten data.
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write " + temporary, e);
+            temporary.delete();
+            return false;
+        }
+        if (!temporary.renameTo(file)) {
+            Log.w(TAG, "Could not replace " + file);
+            temporary.delete();
+            return false;
+        }
+        savedRows = rows;
+        return true;
+    }
+
+    private byte[] encode(List<HikeSummary> rows) {
+        List<byte[]> texts = new ArrayList<>(rows.size() * 5);
+        int size = HEADER_BYTES + CHECKSUM_BYTES;
+        for (HikeSummary hike : rows) {
+            String[] fields = {hike.getName(), hike.getLocation(), hike.getParkingAvailable(), hike.getDifficulty(),
+                    hike.getLatestObservation()};
+            for (String field : fields) {
+                byte[] text = field == null ? null : field.getBytes(StandardCharsets.UTF_8);
+                texts.add(text);
+                size += 4 + (text == null ? 0 : text.length);
+            }
+            size += 8 + 8 + 8 + 4;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putShort((short) FORMAT_VERSION);
+        buffer.putShort((short) databaseVersion);
+        buffer.putLong(System.currentTimeMillis());
+        buffer.putInt(rows.size());
+        int text = 0;
+        for (HikeSummary hike : rows) {
+            buffer.putLong(hike.getId());
+            putString(buffer, texts.get(text++));
+            putString(buffer, texts.get(text++));
+            buffer.putLong(hike.getDate());
+            putString(buffer, texts.get(text++));
+            buffer.putDouble(hike.getLength());
+            putString(buffer, texts.get(text++));
+            buffer.putInt(hike.getObservationCount());
+            putString(buffer, texts.get(text++));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] text) {
+        if (text == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(text.length);
+        buffer.put(text);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Text length " + length);
+        }
+        byte[] text = new byte[length];
+        buffer.get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    private List<HikeSummary> discard(String reason) {
+        Log.i(TAG, "Discarding " + file + ": " + reason);
+        savedRows = null;
+        file.delete();
+        return null;
+    }
+
+    /**
+     * @return True if both lists hold the same hikes with the same shown fields, in the same order.
+     */
+    private static boolean sameRows(List<HikeSummary> a, List<HikeSummary> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            HikeSummary x = a.get(i);
+            HikeSummary y = b.get(i);
+            if (x.getId() != y.getId() || x.getDate() != y.getDate() || Double.compare(x.getLength(), y.getLength()) != 0
+                    || x.getObservationCount() != y.getObservationCount()
+                    || !Objects.equals(x.getName(), y.getName()) || !Objects.equals(x.getLocation(), y.getLocation())
+                    || !Objects.equals(x.getParkingAvailable(), y.getParkingAvailable())
+                    || !Objects.equals(x.getDifficulty(), y.getDifficulty())
+                    || !Objects.equals(x.getLatestObservation(), y.getLatestObservation())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.coursework.data.repository;
+
+import com.example.coursework.data.models.HikeFilter;
+import com.example.coursework.data.models.HikeSummary;
+import com.example.coursework.data.sqlite.DatabaseHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loads the hike list one keyset page at a time.
+ * The pager holds a window of at most {@link #MAX_HELD} hikes around the rows on screen. It fetches the next page on
+ * demand, typically when the user scrolls close to the end of the window, and drops hikes from the top once the
+ * window is full. Scrolling back up to the top of the window reads the dropped hikes again by keyset, and drops hikes
+ * from the bottom in their place. Changing the filter discards the window and starts over.
+ * All methods must be called on the main thread.
+ */
+public class HikePager {
+
+    /**
+     * Receives the list each time a page arrives or loading starts.
+     */
+    public interface Listener {
+        /**
+         * @param hikes The hikes held, in display order.
+         * @param fromStart True when the hikes start with the first hike of the list, false when hikes above them
+         *                  were dropped.
+         * @param loading True while the next page is being fetched.
+         */
+        void onHikesChanged(List<HikeSummary> hikes, boolean fromStart, boolean loading);
+    }
+
+    // Tables the list is read from. The list needs a refresh when one of them is written; observation writes change
+    // the observation count and latest observation stored on each hike.
+    public static final String[] TABLES = {DatabaseHelper.TABLE_HIKES, DatabaseHelper.TABLE_OBSERVATIONS};
+
+    // Number of hikes fetched per query.
+    public static final int PAGE_SIZE = 30;
+    // Start fetching the next or previous page when the user is this many rows from the end of the window.
+    public static final int PREFETCH_DISTANCE = 10;
+    // Most hikes held at once: several screenfuls either side of the rows on screen.
+    public static final int MAX_HELD = 5 * PAGE_SIZE;
+
+    private final HikeRepository hikeRepository;
+    private final Listener listener;
+
+    private HikeFilter filter = new HikeFilter();
+    private final List<HikeSummary> hikes = new ArrayList<>();
+    // The last hike dropped from the top of the window, or null while the window starts at the first hike.
+    private HikeSummary droppedAbove;
+    private boolean endReached;
+    private RepositoryTask pendingTask;
+
+    /**
+     * Constructor for HikePager.
+     * @param hikeRepository The repository to load pages from.
+     * @param listener The listener notified when the list changes.
+     */
+    public HikePager(HikeRepository hikeRepository, Listener listener) {
+        this.hikeRepository = hikeRepository;
+        this.listener = listener;
+    }
+
+    /**
+     * Discards the loaded pages and starts loading the first page for a new filter.
+     * @param newFilter The filter criteria, or null to show every hike.
+     */
+    public void setFilter(HikeFilter newFilter) {
+        cancel();
+        filter = newFilter != null ? newFilter : new HikeFilter();
+        hikes.clear();
+        droppedAbove = null;
+        endReached = false;
+        loadNextPage();
+    }
+
+    /**
+     * Reads the held hikes again with the current filter, replacing whatever is being fetched. As many hikes as are
+     * held are read in one query, starting where the window starts, so the list keeps its scroll position.
+     */
+    public void refresh() {
+        cancel();
+        int count = Math.max(PAGE_SIZE, hikes.size());
+        pendingTask = hikeRepository.getHikesPage(filter, droppedAbove, count, RepositoryCallback.of(reloaded -> {
+            pendingTask = null;
+            if (reloaded.isEmpty() && droppedAbove != null) {
+                // Every hike from the window down is gone; start again from the top.
+                setFilter(filter);
+                return;
+            }
+            hikes.clear();
+            hikes.addAll(reloaded);
+            endReached = reloaded.size() < count;
+            notifyListener(false);
+        }, error -> onPageFailed()));
+        if (hikes.isEmpty()) {
+            notifyListener(true);
+        }
+    }
+
+    /**
+     * Called when the visible rows change. Fetches the next page once the user is within {@link #PREFETCH_DISTANCE}
+     * rows of the end of the window, or reads back the hikes dropped above it once the user is that close to its top.
+     * @param firstPosition The adapter position of the first visible row.
+     * @param lastPosition The adapter position of the last visible row.
+     */
+    public void onItemsVisible(int firstPosition, int lastPosition) {
+        if (droppedAbove != null && firstPosition < PREFETCH_DISTANCE) {
+            loadPreviousPage();
+        } else if (lastPosition >= hikes.size() - PREFETCH_DISTANCE) {
+            loadNextPage();
+        }
+    }
+
+    /**
+     * Cancels the page being fetched, if any.
+     */
+    public void cancel() {
+        if (pendingTask != null) {
+            pendingTask.cancel();
+            pendingTask = null;
+        }
+    }
+
+    private void loadNextPage() {
+        if (pendingTask != null || endReached) {
+            return;
+        }
+        HikeSummary after = hikes.isEmpty() ? droppedAbove : hikes.get(hikes.size() - 1);
+        pendingTask = hikeRepository.getHikesPage(filter, after, PAGE_SIZE,
+                RepositoryCallback.of(this::onPageLoaded, error -> onPageFailed()));
+        notifyListener(true);
+    }
+
+    private void onPageLoaded(List<HikeSummary> page) {
+        pendingTask = null;
+        hikes.addAll(page);
+        endReached = page.size() < PAGE_SIZE;
+        int excess = hikes.size() - MAX_HELD;
+        if (excess > 0) {
+            // Far above the rows on screen by now; remembered by the last one only, to read them again later.
+            droppedAbove = hikes.get(excess - 1);
+            hikes.subList(0, excess).clear();
+        }
+        notifyListener(false);
+    }
+
+    /**
+     * Reads back the page just above the window. One hike more than a page is asked for, so that the hike above the
+     * restored page is known as well, or it is known that the window now starts at the first hike.
+     */
+    private void loadPreviousPage() {
+        if (pendingTask != null || hikes.isEmpty()) {
+            return;
+        }
+        pendingTask = hikeRepository.getHikesPageBefore(filter, hikes.get(0), PAGE_SIZE + 1,
+                RepositoryCallback.of(this::onPreviousPageLoaded, error -> onPageFailed()));
+    }
+
+    private void onPreviousPageLoaded(List<HikeSummary> page) {
+        pendingTask = null;
+        if (page.size() > PAGE_SIZE) {
+            droppedAbove = page.get(0);
+            page = page.subList(1, page.size());
+        } else {
+            droppedAbove = null;
+        }
+        hikes.addAll(0, page);
+        int excess = hikes.size() - MAX_HELD;
+        if (excess > 0) {
+            // Far below the rows on screen now; fetched again as the next page when the user scrolls back down.
+            hikes.subList(hikes.size() - excess, hikes.size()).clear();
+            endReached = false;
+        }
+        notifyListener(false);
+    }
+
+    /**
+     * Stops showing the list as loading when a page could not be read. The page is asked for again the next time the
+     * user scrolls near that end of the window.
+     */
+    private void onPageFailed() {
+        pendingTask = null;
+        notifyListener(false);
+    }
+
+    private void notifyListener(boolean loading) {
+        listener.onHikesChanged(Collections.unmodifiableList(new ArrayList<>(hikes)), droppedAbove == null, loading);
+    }
+}
@@ -0,0 +1,524 @@
+package com.example.coursework.data.repository;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.DocumentsContract;
+import android.util.Log;
+
+import com.example.coursework.data.models.ExportResult;
+import com.example.coursework.data.models.Hike;
+import com.example.coursework.data.models.HikeFilter;
+import com.example.coursework.data.models.HikeSearchResult;
+import com.example.coursework.data.models.HikeStats;
+import com.example.coursework.data.models.HikeSummary;
+import com.example.coursework.data.models.ImportResult;
+import com.example.coursework.data.sqlite.DatabaseHelper;
+import com.example.coursework.data.sqlite.HikeDAO;
+import com.example.coursework.data.sqlite.HikeSearchDAO;
+import com.example.coursework.data.sqlite.HikeStatsDAO;
+import com.example.coursework.data.sqlite.InvalidationTracker;
+import com.example.coursework.data.sqlite.QueryMetrics;
+import com.example.coursework.data.transfer.HikeExporter;
+import com.example.coursework.data.transfer.HikeImporter;
+import com.example.coursework.data.transfer.TransferFormat;
+
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Repository for hikes.
+ * Wraps {@link HikeDAO} so that every database call runs on the I/O executor and results are delivered on the main thread.
+ */
+public class HikeRepository {
+
+    private static final String TAG = "HikeRepository";
+
+    // Number of full hikes kept in memory for the detail and edit screens.
+    private static final int HIKE_CACHE_SIZE = 64;
+
+    // Days a hike stays in the trash before it is deleted for good.
+    public static final int TRASH_RETENTION_DAYS = 30;
+
+    private static volatile HikeRepository instance;
+
+    private final HikeDAO hikeDAO;
+    private final HikeSearchDAO hikeSearchDAO;
+    private final HikeStatsDAO hikeStatsDAO;
+    private final HikeImporter hikeImporter;
+    private final HikeExporter hikeExporter;
+    private final ContentResolver contentResolver;
+    private final AppExecutors executors;
+    private final DatabaseHelper databaseHelper;
+    private final InvalidationTracker invalidationTracker;
+    private final QueryMetrics queryMetrics;
+    private final ObservationRepository observationRepository;
+    // Full hikes, keyed by ID.
+    private final EntityCache<Hike> hikeCache;
+    // Held across each write and the cache update that follows it. See submitWrite.
+    private final Object writeLock = new Object();
+    // Deletes made from the lists, held back for an undo window and then written in groups.
+    private final DeleteQueue deleteQueue;
+    // Deletes hikes that have been in the trash too long, and shrinks the file afterwards.
+    private final TrashPurger trashPurger;
+    // The first screenful of the unfiltered list, shown on a cold start before the database is open.
+    private final HikeListSnapshot listSnapshot;
+    // The list most recently passed to saveListSnapshot and not yet written. Only the latest one is written.
+    private final AtomicReference<List<HikeSummary>> pendingSnapshot = new AtomicReference<>();
+    // The import or export the user started, which outlives the screen that started it.
+    private final FileTransfer fileTransfer;
+
+    private HikeRepository(Context context) {
+        hikeDAO = new HikeDAO(context);
+        hikeSearchDAO = new HikeSearchDAO(context);
+        hikeStatsDAO = new HikeStatsDAO(context);
+        hikeImporter = new HikeImporter(context);
+        hikeExporter = new HikeExporter(context);
+        contentResolver = context.getContentResolver();
+        executors = AppExecutors.getInstance();
+        databaseHelper = DatabaseHelper.getInstance(context);
+        invalidationTracker = databaseHelper.getInvalidationTracker();
+        queryMetrics = databaseHelper.getQueryMetrics();
+        observationRepository = ObservationRepository.getInstance(context);
+        hikeCache = new EntityCache<>(HIKE_CACHE_SIZE, Hike::new);
+        deleteQueue = new DeleteQueue(this::writeDeletes);
+        trashPurger = new TrashPurger(executors, this::purgeTrashedHikes, databaseHelper::incrementalVacuum);
+        listSnapshot = new HikeListSnapshot(new File(context.getNoBackupFilesDir(), HikeListSnapshot.FILE_NAME));
+        fileTransfer = new FileTransfer(this);
+    }
+
+    /**
+     * Returns the process-wide HikeRepository.
+     * @param context Any context; the application context is retained.
+     * @return The shared repository.
+     */
+    public static HikeRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (HikeRepository.class) {
+                if (instance == null) {
+                    instance = new HikeRepository(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Starts opening the database on the I/O executor, running any pending upgrade, so that it is ready by the time
+     * the first query needs it. Called as early as possible at startup; a query submitted meanwhile waits for the
+     * open rather than starting a second one. Does nothing if the database is already open. Once the first screen
+     * has loaded, the hikes whose time in the trash is up are purged in the background.
+     */
+    public void openDatabase() {
+        executors.submit(() -> databaseHelper.getWritableDatabase(), null);
+        trashPurger.schedule();
+    }
+
+    /**
+     * Reads the hikes saved by {@link #saveListSnapshot}. Runs on the calling thread, which may be the main thread,
+     * and does not touch the database, so it can be called before the database has opened.
+     * @return The first hikes of the unfiltered list as of the last save, or null if there is no usable snapshot.
+     */
+    public List<HikeSummary> readListSnapshot() {
+        return listSnapshot.read();
+    }
+
+    /**
+     * Saves the first hikes of the unfiltered list for the next cold start, on the I/O executor. When several lists
+     * are saved in quick succession only the latest is written, and an unchanged list is not written again.
+     * @param hikes The unfiltered hike list, in display order.
+     */
+    public void saveListSnapshot(List<HikeSummary> hikes) {
+        pendingSnapshot.set(new ArrayList<>(hikes.subList(0, Math.min(hikes.size(), HikeListSnapshot.MAX_ROWS))));
+        executors.submit(() -> {
+            // Taken under the snapshot's lock, so an older list can never be written after a newer one.
+            synchronized (listSnapshot) {
+                List<HikeSummary> latest = pendingSnapshot.getAndSet(null);
+                return latest == null || listSnapshot.write(latest);
+            }
+        }, null);
+    }
+
+    /**
+     * Loads a single hike by its ID. Served from memory when the hike was loaded or saved recently.
+     * @param hikeId The ID of the hike.
+     * @param callback Receives the hike, or null if it was not found. The caller may modify it.
+     * @return A task that can be used to cancel the load.
+     */
+    public RepositoryTask getHikeById(long hikeId, RepositoryCallback<Hike> callback) {
+        return executors.submit(() -> loadHike(hikeId), callback);
+    }
+
+    /**
+     * Reads a hike from the cache, or from the database on a miss.
+     * @param hikeId The ID of the hike.
+     * @return The hike, or null if it was not found.
+     */
+    private Hike loadHike(long hikeId) {
+        Hike cached = hikeCache.get(hikeId);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = hikeCache.getGeneration();
+        Hike hike = hikeDAO.getHikeById(hikeId);
+        if (hike != null) {
+            hikeCache.putIfUnchanged(hikeId, hike, generation);
+        }
+        return hike;
+    }
+
+    /**
+     * Creates a query for a single hike that runs again whenever the hikes table changes.
+     * @param hikeId The ID of the hike.
+     * @return The query; the observer receives the hike, or null if it was not found.
+     */
+    public LiveQuery<Hike> observeHike(long hikeId) {
+        return new LiveQuery<>(invalidationTracker, executors, () -> loadHike(hikeId), DatabaseHelper.TABLE_HIKES);
+    }
+
+    /**
+     * Returns the tracker that reports which tables have changed, so screens showing hikes can refresh only when
+     * something they show was written.
+     * @return The shared tracker.
+     */
+    public InvalidationTracker getInvalidationTracker() {
+        return invalidationTracker;
+    }
+
+    /**
+     * @return The latencies and slow calls recorded by the DAOs, for the query metrics screen.
+     */
+    public QueryMetrics getQueryMetrics() {
+        return queryMetrics;
+    }
+
+    /**
+     * Writes the query metrics to a file as JSON.
+     * @param uri The document to write, as returned by the system file picker. Replaced if it has content.
+     * @param callback Receives true if the file was written.
+     * @return A task that can be used to cancel the export if it has not started yet.
+     */
+    public RepositoryTask exportQueryMetrics(Uri uri, RepositoryCallback<Boolean> callback) {
+        return executors.submit(() -> {
+            try (OutputStream out = contentResolver.openOutputStream(uri, "wt")) {
+                if (out == null) {
+                    return false;
+                }
+                out.write(queryMetrics.toJson().toString(2).getBytes(StandardCharsets.UTF_8));
+                return true;
+            } catch (IOException | JSONException e) {
+                Log.w(TAG, "Could not export query metrics to " + uri, e);
+                return false;
+            }
+        }, callback);
+    }
+
+    /**
+     * @return The cache of full hikes, for its hit, miss and eviction counts.
+     */
+    public EntityCache<Hike> getHikeCache() {
+        return hikeCache;
+    }
+
+
+    /**
+     * Loads one keyset page of hike summaries matching a filter.
+     * @param filter The filter criteria.
+     * @param after The last hike of the previous page, or null for the first page.
+     * @param pageSize The maximum number of hikes to load.
+     * @param callback Receives the page on the main thread.
+     * @return A task that can be used to cancel the load.
+     */
+    public RepositoryTask getHikesPage(HikeFilter filter, HikeSummary after, int pageSize, RepositoryCallback<List<HikeSummary>> callback) {
+        return executors.submit(() -> hikeDAO.getHikesPage(filter, after, pageSize), callback);
+    }
+
+    /**
+     * Loads the hike summaries matching a filter that come just before a hike, to restore a page dropped from the top
+     * of a list.
+     * @param filter The filter criteria.
+     * @param before The first hike of the page below the one wanted.
+     * @param pageSize The maximum number of hikes to load.
+     * @param callback Receives the hikes, in display order, on the main thread.
+     * @return A task that can be used to cancel the load.
+     */
+    public RepositoryTask getHikesPageBefore(HikeFilter filter, HikeSummary before, int pageSize,
+                                             RepositoryCallback<List<HikeSummary>> callback) {
+        return executors.submit(() -> hikeDAO.getHikesPageBefore(filter, before, pageSize), callback);
+    }
+
+    /**
+     * Runs a ranked full-text search over hikes and their observations.
+     * @param query The text typed by the user; each word is matched as a prefix.
+     * @param limit The maximum number of results.
+     * @param callback Receives the results, most relevant first, on the main thread.
+     * @return A task that can be used to cancel the search; cancelling also aborts the running query.
+     */
+    public RepositoryTask searchHikes(String query, int limit, RepositoryCallback<List<HikeSearchResult>> callback) {
+        return executors.submitCancellable(signal -> hikeSearchDAO.searchHikes(query, limit, signal), callback);
+    }
+
+    /**
+     * Checks which of a few hikes match a search, using the index alone.
+     * @param query The text typed by the user.
+     * @param hikeIds The IDs of the hikes to check.
+     * @param callback Receives the IDs of the hikes that match on the main thread.
+     * @return A task that can be used to cancel the check; cancelling also aborts the running query.
+     */
+    public RepositoryTask filterSearchMatches(String query, List<Long> hikeIds, RepositoryCallback<Set<Long>> callback) {
+        return executors.submitCancellable(signal -> hikeSearchDAO.filterMatches(query, hikeIds, signal), callback);
+    }
+
+    /**
+     * Creates a query for the hike statistics that runs again whenever a hike or observation is written. Each run
+     * reads a few rows of running totals rather than the hikes themselves.
+     * @return The query; the observer receives the statistics.
+     */
+    public LiveQuery<HikeStats> observeStats() {
+        return new LiveQuery<>(invalidationTracker, executors, hikeStatsDAO::getStats, DatabaseHelper.TABLE_HIKES,
+                DatabaseHelper.TABLE_OBSERVATIONS, DatabaseHelper.TABLE_HIKE_STATS);
+    }
+
+    /**
+     * Recomputes the hike statistics from every hike and observation, as described in {@link HikeStatsDAO#rebuildStats}.
+     * @param callback Receives the number of non-empty buckets. May be null.
+     * @return A task that can be used to cancel the rebuild if it has not started yet.
+     */
+    public RepositoryTask rebuildStats(RepositoryCallback<Integer> callback) {
+        return submitWrite(hikeStatsDAO::rebuildStats, callback);
+    }
+
+    /**
+     * Imports hikes and observations from a file, as described in {@link HikeImporter}.
+     * @param uri The file to import.
+     * @param format The file's format.
+     * @param listener Receives progress on the main thread, may be null.
+     * @param callback Receives a summary of the import, or null if the file could not be read.
+     * @return A task that can be used to cancel the import; batches committed before cancelling remain.
+     */
+    public RepositoryTask importHikes(Uri uri, TransferFormat format, HikeImporter.ProgressListener listener,
+                                      RepositoryCallback<ImportResult> callback) {
+        HikeImporter.ProgressListener mainThreadListener = listener == null ? null : (rows, rowsPerSecond) ->
+                executors.mainThread().post(() -> listener.onImportProgress(rows, rowsPerSecond));
+        return executors.submitCancellable(signal -> {
+            try {
+                InputStream in = contentResolver.openInputStream(uri);
+                if (in == null) {
+                    return null;
+                }
+                return hikeImporter.importFrom(in, format, mainThreadListener, signal);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not import " + uri, e);
+                return null;
+            }
+        }, callback);
+    }
+
+    /**
+     * Exports every hike and observation to a file, as described in {@link HikeExporter}.
+     * @param uri The document to write, as returned by the system file picker. Replaced if it has content.
+     * @param format The format to write.
+     * @param listener Receives progress on the main thread, may be null.
+     * @param callback Receives a summary of the export, or null if the file could not be written.
+     * @return A task that can be used to cancel the export; a cancelled or failed export deletes the document.
+     */
+    public RepositoryTask exportHikes(Uri uri, TransferFormat format, HikeExporter.ProgressListener listener,
+                                      RepositoryCallback<ExportResult> callback) {
+        HikeExporter.ProgressListener mainThreadListener = listener == null ? null : (records, totalRecords) ->
+                executors.mainThread().post(() -> listener.onExportProgress(records, totalRecords));
+        return executors.submitCancellable(signal -> {
+            boolean finished = false;
+            try (ParcelFileDescriptor descriptor = contentResolver.openFileDescriptor(uri, "wt");
+                 FileOutputStream out = new FileOutputStream(descriptor.getFileDescriptor())) {
+                ExportResult result = hikeExporter.exportTo(out.getChannel(), format, mainThreadListener, signal);
+                finished = true;
+                return result;
+            } catch (IOException e) {
+                Log.w(TAG, "Could not export to " + uri, e);
+                return null;
+            } finally {
+                if (!finished) {
+                    deleteDocument(uri);
+                }
+            }
+        }, callback);
+    }
+
+    /**
+     * @return The process-wide import or export started by the user, which screens attach to as they are recreated.
+     */
+    public FileTransfer getFileTransfer() {
+        return fileTransfer;
+    }
+
+    /**
+     * Deletes a partly written export.
+     * @param uri The document.
+     */
+    private void deleteDocument(Uri uri) {
+        try {
+            DocumentsContract.deleteDocument(contentResolver, uri);
+        } catch (FileNotFoundException | RuntimeException e) {
+            Log.w(TAG, "Could not delete " + uri, e);
+        }
+    }
+
+    /**
+     * Adds a new hike.
+     * @param hike The hike to add.
+     * @param callback Receives the new row ID, or -1 if the insert failed. May be null.
+     * @return A task that can be used to cancel the insert if it has not started yet.
+     */
+    public RepositoryTask addHike(Hike hike, RepositoryCallback<Long> callback) {
+        return submitWrite(() -> {
+            long id = hikeDAO.addHike(hike);
+            if (id != -1) {
+                Hike added = new Hike(hike);
+                added.setId(id);
+                hikeCache.put(id, added);
+            }
+            return id;
+        }, callback);
+    }
+
+    /**
+     * Updates an existing hike.
+     * @param hike The hike with updated values.
+     * @param callback Receives the number of rows affected. May be null.
+     * @return A task that can be used to cancel the update if it has not started yet.
+     */
+    public RepositoryTask updateHike(Hike hike, RepositoryCallback<Integer> callback) {
+        return submitWrite(() -> {
+            int rows = hikeDAO.updateHike(hike);
+            if (rows > 0) {
+                hikeCache.put(hike.getId(), hike);
+            } else {
+                hikeCache.remove(hike.getId());
+            }
+            return rows;
+        }, callback);
+    }
+
+    /**
+     * Creates a query for the hikes in the trash that runs again whenever the hikes table changes.
+     * @return The query; the observer receives the trashed hikes, most recently trashed first.
+     */
+    public LiveQuery<List<HikeSummary>> observeTrash() {
+        return new LiveQuery<>(invalidationTracker, executors, hikeDAO::getTrashedHikes, DatabaseHelper.TABLE_HIKES);
+    }
+
+    /**
+     * Takes hikes out of the trash.
+     * @param hikeIds The IDs of the hikes to restore.
+     * @param callback Receives the number of hikes restored. May be null.
+     * @return A task that can be used to cancel the restore if it has not started yet.
+     */
+    public RepositoryTask restoreHikes(List<Long> hikeIds, RepositoryCallback<Integer> callback) {
+        List<Long> ids = new ArrayList<>(hikeIds);
+        return submitWrite(() -> hikeDAO.restoreHikes(ids), callback);
+    }
+
+    /**
+     * Deletes every hike in the trash for good, together with its observations, in the background. The hikes go in
+     * small batches, followed by the space they took up in the file, as described in {@link TrashPurger}; the trash
+     * screen sees them go as the batches commit.
+     */
+    public void emptyTrash() {
+        trashPurger.purge(Long.MAX_VALUE);
+    }
+
+    /**
+     * Deletes one batch of the hikes moved to the trash before a cutoff, for the {@link TrashPurger}. Runs on the
+     * calling thread, which must be the I/O executor, under the write lock like any other write.
+     * @param trashedBefore The cutoff, in milliseconds since the epoch.
+     * @param limit The most hikes to delete.
+     * @return The number of hikes deleted.
+     * @throws Exception If the delete failed.
+     */
+    private int purgeTrashedHikes(long trashedBefore, int limit) throws Exception {
+        synchronized (writeLock) {
+            return invalidationTracker.runBatch(() -> {
+                List<Long> purged = hikeDAO.purgeTrashedHikes(trashedBefore, limit);
+                for (long hikeId : purged) {
+                    hikeCache.remove(hikeId);
+                    observationRepository.invalidateHike(hikeId);
+                }
+                return purged.size();
+            });
+        }
+    }
+
+    /**
+     * @return The queue that deletes hikes and observations after an undo window.
+     */
+    public DeleteQueue getDeleteQueue() {
+        return deleteQueue;
+    }
+
+    /**
+     * Writes a group of deletes from the {@link DeleteQueue} in one transaction. Hikes are moved to the trash, where
+     * they can still be restored; observations are deleted for good.
+     * @param hikeIds The hikes to move to the trash.
+     * @param observationIds The observations to delete.
+     * @param callback Receives true once the rows are deleted, or the failure if they could not be.
+     */
+    private void writeDeletes(List<Long> hikeIds, List<Long> observationIds, RepositoryCallback<Boolean> callback) {
+        submitWrite(() -> {
+            long now = System.currentTimeMillis();
+            // Lock order: this repository's write lock, then the observation repository's, then the connection.
+            boolean deleted = observationRepository.runLocked(() -> databaseHelper.runInTransaction(() -> {
+                hikeDAO.trashHikes(hikeIds, now);
+                observationRepository.deleteObservationsNow(observationIds);
+                return true;
+            }));
+            for (long hikeId : hikeIds) {
+                hikeCache.remove(hikeId);
+                observationRepository.invalidateHike(hikeId);
+            }
+            return deleted;
+        }, callback);
+    }
+
+    /**
+     * Moves every hike to the trash, from where it can be restored until it is purged.
+     * @param callback Receives the number of hikes moved. May be null.
+     * @return A task that can be used to cancel the move if it has not started yet.
+     */
+    public RepositoryTask trashAllHikes(RepositoryCallback<Integer> callback) {
+        return submitWrite(() -> {
+            int trashed = hikeDAO.trashAllHikes(System.currentTimeMillis());
+            hikeCache.clear();
+            return trashed;
+        }, callback);
+    }
+
+    /**
+     * Runs a write and the cache update that follows it on the I/O executor. Writes are serialized so the cache sees
+     * them in database order, and change notifications wait until the cache is up to date, so a screen that reloads
+     * on the notification never reads the old row from the cache.
+     * @param write The write, including its cache update.
+     * @param callback Receives the write's result. May be null.
+     * @param <T> The result type.
+     * @return A task that can be used to cancel the write if it has not started yet.
+     */
+    private <T> RepositoryTask submitWrite(Callable<T> write, RepositoryCallback<T> callback) {
+        return executors.submit(() -> {
+            synchronized (writeLock) {
+                return invalidationTracker.runBatch(write);
+            }
+        }, callback);
+    }
+}
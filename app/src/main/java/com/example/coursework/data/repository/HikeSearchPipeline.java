@@ -0,0 +1,193 @@
+package com.example.coursework.data.repository;
+
+import android.os.Handler;
+
+import com.example.coursework.data.models.HikeSearchResult;
+import com.example.coursework.data.sqlite.DatabaseHelper;
+import com.example.coursework.data.sqlite.HikeSearchDAO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Turns keystrokes from the search box into as few full-text queries as possible.
+ * <ul>
+ *     <li>Input is debounced, so a query only runs once the user pauses typing.</li>
+ *     <li>A newer query cancels the one in flight, including the SQLite statement it is running.</li>
+ *     <li>If the new query can only narrow the previous, complete result set (for example "snow" becoming
+ *     "snowdon"), the previous results are filtered in memory instead of querying again. Results whose name,
+ *     location and snippet do not show the new words are checked against the index by ID.</li>
+ *     <li>Only the results for the latest query are ever delivered.</li>
+ * </ul>
+ * All methods must be called on the main thread.
+ */
+public class HikeSearchPipeline {
+
+    /**
+     * Receives the results for the latest query.
+     */
+    public interface Listener {
+        void onSearchResults(List<HikeSearchResult> results);
+    }
+
+    // Tables the results are read from. The search index is kept in step with both by triggers, so a write to
+    // either one may change the results.
+    public static final String[] TABLES = {DatabaseHelper.TABLE_HIKES, DatabaseHelper.TABLE_OBSERVATIONS};
+
+    // Delay after the last keystroke before a query runs.
+    private static final long DEBOUNCE_MILLIS = 250;
+
+    private final HikeRepository hikeRepository;
+    private final int limit;
+    private final Listener listener;
+    private final Handler handler;
+    private final Runnable runQuery = this::runQuery;
+
+    // The words of the query most recently typed.
+    private List<String> pendingWords = new ArrayList<>();
+    // The words and results of the last query that completed.
+    private List<String> lastWords;
+    private List<HikeSearchResult> lastResults;
+    private RepositoryTask runningTask;
+
+    /**
+     * Constructor for HikeSearchPipeline.
+     * @param hikeRepository The repository used to run searches.
+     * @param limit The maximum number of results per search.
+     * @param listener The listener receiving results.
+     */
+    public HikeSearchPipeline(HikeRepository hikeRepository, int limit, Listener listener) {
+        this.hikeRepository = hikeRepository;
+        this.limit = limit;
+        this.listener = listener;
+        this.handler = AppExecutors.getInstance().mainThread();
+    }
+
+    /**
+     * Submits the current text of the search box. The query runs after the debounce delay unless more text arrives.
+     * @param query The text typed by the user.
+     */
+    public void setQuery(String query) {
+        pendingWords = HikeSearchDAO.tokenize(query);
+        handler.removeCallbacks(runQuery);
+        handler.postDelayed(runQuery, DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * Runs the current query again immediately, discarding any cached results. Used after the data has changed.
+     */
+    public void refresh() {
+        lastWords = null;
+        lastResults = null;
+        handler.removeCallbacks(runQuery);
+        runQuery();
+    }
+
+    /**
+     * Cancels the pending and running queries and forgets the previous results.
+     * No results are delivered until the next call to setQuery.
+     */
+    public void cancel() {
+        handler.removeCallbacks(runQuery);
+        cancelRunningTask();
+        lastWords = null;
+        lastResults = null;
+    }
+
+    private void runQuery() {
+        List<String> words = pendingWords;
+        if (lastWords != null && lastWords.equals(words) && runningTask == null) {
+            return; // Same words as the results already shown, e.g. only punctuation was typed.
+        }
+        cancelRunningTask();
+
+        String query = String.join(" ", words);
+        if (canRefine(words)) {
+            List<HikeSearchResult> candidates = lastResults;
+            List<Long> unsure = new ArrayList<>();
+            for (HikeSearchResult result : candidates) {
+                if (!result.matches(words)) {
+                    unsure.add(result.getHike().getId());
+                }
+            }
+            if (unsure.isEmpty()) {
+                deliverRefined(words, candidates, Collections.emptySet());
+                return;
+            }
+            // The rest may match in text the results do not hold; the index settles them without ranking or loading
+            // anything.
+            runningTask = hikeRepository.filterSearchMatches(query, unsure, RepositoryCallback.of(matching -> {
+                runningTask = null;
+                deliverRefined(words, candidates, matching);
+            }, error -> {
+                runningTask = null;
+                lastWords = null;
+                lastResults = null;
+            }));
+            return;
+        }
+
+        runningTask = hikeRepository.searchHikes(query, limit, RepositoryCallback.of(results -> {
+            runningTask = null;
+            lastWords = words;
+            lastResults = results;
+            listener.onSearchResults(results);
+        }, error -> {
+            // Keep the results shown, but do not refine them: they no longer answer the words typed.
+            runningTask = null;
+            lastWords = null;
+            lastResults = null;
+        }));
+    }
+
+    /**
+     * Delivers the previous results that still match the new words.
+     * @param words The new words.
+     * @param candidates The previous results.
+     * @param matching The IDs of results the index found to match, beyond those whose own words match.
+     */
+    private void deliverRefined(List<String> words, List<HikeSearchResult> candidates, Set<Long> matching) {
+        List<HikeSearchResult> refined = new ArrayList<>();
+        for (HikeSearchResult result : candidates) {
+            if (matching.contains(result.getHike().getId()) || result.matches(words)) {
+                refined.add(result);
+            }
+        }
+        // The refined set is a complete answer, so it can be refined again by the next keystroke.
+        lastWords = words;
+        lastResults = refined;
+        listener.onSearchResults(refined);
+    }
+
+    /**
+     * The previous results can be refined in memory only if they were not truncated by the limit and every word of
+     * the previous query is a prefix of some word in the new one; then nothing outside them can match.
+     */
+    private boolean canRefine(List<String> words) {
+        if (lastWords == null || lastResults == null || lastResults.size() >= limit || words.isEmpty()) {
+            return false;
+        }
+        for (String previous : lastWords) {
+            boolean covered = false;
+            for (String word : words) {
+                if (word.startsWith(previous)) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void cancelRunningTask() {
+        if (runningTask != null) {
+            runningTask.cancel();
+            runningTask = null;
+        }
+    }
+}
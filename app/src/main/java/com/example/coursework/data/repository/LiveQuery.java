@@ -0,0 +1,122 @@
+package com.example.coursework.data.repository;
+
+import com.example.coursework.data.sqlite.InvalidationTracker;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * A query whose result is delivered again whenever one of the tables it reads is written.
+ * <p>
+ * The query only runs while the query is started, typically between a screen's onStart and onStop. A change that
+ * arrives while it is stopped marks the result as stale, and the query runs once when it is started again; if nothing
+ * it reads has changed, starting it again costs nothing. All methods must be called on the main thread.
+ * @param <T> The result type.
+ */
+public final class LiveQuery<T> implements InvalidationTracker.Observer {
+
+    /**
+     * Receives the query's results.
+     * @param <T> The result type.
+     */
+    public interface Observer<T> {
+        /**
+         * Called on the main thread each time the query produces a result.
+         * @param value The result.
+         */
+        void onChanged(T value);
+    }
+
+    private final InvalidationTracker tracker;
+    private final AppExecutors executors;
+    private final Callable<T> query;
+    private final String[] tables;
+
+    private Observer<T> observer;
+    private boolean started;
+    // True when the last delivered result may be out of date, including before the first run.
+    private boolean stale = true;
+    private RepositoryTask runningTask;
+
+    /**
+     * Constructor for LiveQuery.
+     * @param tracker Reports writes to the tables.
+     * @param executors Runs the query.
+     * @param query The query, run on the I/O executor.
+     * @param tables The tables the query reads.
+     */
+    LiveQuery(InvalidationTracker tracker, AppExecutors executors, Callable<T> query, String... tables) {
+        this.tracker = tracker;
+        this.executors = executors;
+        this.query = query;
+        this.tables = tables;
+    }
+
+    /**
+     * Sets the observer and starts watching the tables. The query first runs when {@link #start()} is called.
+     * @param observer Receives each result.
+     */
+    public void observe(Observer<T> observer) {
+        this.observer = observer;
+        tracker.addObserver(this, tables);
+    }
+
+    /**
+     * Delivers results from now on, running the query if the last result is stale.
+     */
+    public void start() {
+        started = true;
+        if (stale) {
+            run();
+        }
+    }
+
+    /**
+     * Stops delivering results. Changes are still noted so the query can catch up when started again.
+     */
+    public void stop() {
+        started = false;
+        cancelRunningTask();
+    }
+
+    /**
+     * Stops watching the tables for good and drops the observer.
+     */
+    public void close() {
+        stop();
+        tracker.removeObserver(this);
+        observer = null;
+    }
+
+    @Override
+    public void onTablesChanged(Set<String> changedTables) {
+        stale = true;
+        if (started) {
+            run();
+        }
+    }
+
+    private void run() {
+        cancelRunningTask();
+        stale = false;
+        runningTask = executors.submit(query, RepositoryCallback.of(value -> {
+            runningTask = null;
+            if (observer != null) {
+                observer.onChanged(value);
+            }
+        }, error -> {
+            runningTask = null;
+            // Try again on the next change or start rather than keep a result that never arrived.
+            stale = true;
+        }));
+    }
+
+    private void cancelRunningTask() {
+        if (runningTask != null) {
+            runningTask.cancel();
+            runningTask = null;
+            // The cancelled run never delivered, so the next start has to run the query again.
+            stale = true;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.coursework.data.repository;
+
+import com.example.coursework.data.models.Observation;
+import com.example.coursework.data.sqlite.DatabaseHelper;
+import com.example.coursework.data.sqlite.InvalidationTracker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads a hike's observations one keyset page at a time, in time order.
+ * <p>
+ * Like {@link HikePager}, the pager holds a window of at most {@link #MAX_HELD} observations around the rows on
+ * screen: it fetches the next page when the user scrolls close to the end of the window, drops observations from the
+ * top once the window is full, and reads them back by keyset when the user scrolls up to them again. Like
+ * {@link LiveQuery}, it only loads while started, and a write to the hike's observations reloads the window: as many
+ * observations as are held, read again in one query from where the window starts, so the list keeps its scroll
+ * position. Writes to other hikes' observations are ignored. A write made while it is stopped is caught up once when
+ * it starts again. All methods must be called on the main thread.
+ */
+public final class ObservationPager implements InvalidationTracker.Observer {
+
+    /**
+     * Receives the observations each time a page or a reload arrives.
+     */
+    public interface Listener {
+        /**
+         * @param observations The observations held, ordered by time.
+         */
+        void onObservationsChanged(List<Observation> observations);
+    }
+
+    // Number of observations fetched per query.
+    public static final int PAGE_SIZE = 30;
+    // Start fetching the next or previous page when the user is this many rows from the end of the window.
+    public static final int PREFETCH_DISTANCE = 10;
+    // Most observations held at once: several screenfuls either side of the rows on screen.
+    public static final int MAX_HELD = 5 * PAGE_SIZE;
+
+    private final ObservationRepository observationRepository;
+    private final InvalidationTracker tracker;
+    private final long hikeId;
+
+    private Listener listener;
+    private final List<Observation> observations = new ArrayList<>();
+    // The last observation dropped from the top of the window, or null while the window starts at the first one.
+    private Observation droppedAbove;
+    private boolean started;
+    // True when the held observations may be out of date, including before the first load.
+    private boolean stale = true;
+    private boolean endReached;
+    private RepositoryTask pendingTask;
+
+    /**
+     * Constructor for ObservationPager.
+     * @param observationRepository The repository to load pages from.
+     * @param tracker Reports writes to the hike's observations.
+     * @param hikeId The ID of the hike whose observations are paged.
+     */
+    ObservationPager(ObservationRepository observationRepository, InvalidationTracker tracker, long hikeId) {
+        this.observationRepository = observationRepository;
+        this.tracker = tracker;
+        this.hikeId = hikeId;
+    }
+
+    /**
+     * Sets the listener and starts watching the hike's observations. The first page loads when {@link #start()} is
+     * called.
+     * @param listener Receives the observations.
+     */
+    public void observe(Listener listener) {
+        this.listener = listener;
+        tracker.addObserver(this, DatabaseHelper.TABLE_OBSERVATIONS, hikeId);
+    }
+
+    /**
+     * Delivers pages from now on, reloading the window if it is stale.
+     */
+    public void start() {
+        started = true;
+        if (stale) {
+            reload();
+        }
+    }
+
+    /**
+     * Stops loading. Changes are still noted so the pager can catch up when started again.
+     */
+    public void stop() {
+        started = false;
+        if (pendingTask != null) {
+            pendingTask.cancel();
+            pendingTask = null;
+            // The cancelled load may have been a reload, which has to run again.
+            stale = true;
+        }
+    }
+
+    /**
+     * Stops watching the hike's observations for good and drops the listener.
+     */
+    public void close() {
+        stop();
+        tracker.removeObserver(this);
+        listener = null;
+    }
+
+    /**
+     * Called when the visible rows change. Fetches the next page once the user is within {@link #PREFETCH_DISTANCE}
+     * rows of the end of the window, or reads back the observations dropped above it once the user is that close to
+     * its top.
+     * @param firstPosition The adapter position of the first visible row.
+     * @param lastPosition The adapter position of the last visible row.
+     */
+    public void onItemsVisible(int firstPosition, int lastPosition) {
+        if (droppedAbove != null && firstPosition < PREFETCH_DISTANCE) {
+            loadPreviousPage();
+        } else if (lastPosition >= observations.size() - PREFETCH_DISTANCE) {
+            loadNextPage();
+        }
+    }
+
+    @Override
+    public void onTablesChanged(Set<String> changedTables) {
+        stale = true;
+        if (started) {
+            reload();
+        }
+    }
+
+    /**
+     * Reads the window again from where it starts, replacing whatever is being fetched.
+     */
+    private void reload() {
+        if (pendingTask != null) {
+            pendingTask.cancel();
+        }
+        stale = false;
+        int count = Math.max(PAGE_SIZE, observations.size());
+        pendingTask = observationRepository.getObservationsPage(hikeId, droppedAbove, count,
+                RepositoryCallback.of(reloaded -> {
+                    pendingTask = null;
+                    if (reloaded.isEmpty() && droppedAbove != null) {
+                        // Every observation from the window down is gone; start again from the top.
+                        observations.clear();
+                        droppedAbove = null;
+                        reload();
+                        return;
+                    }
+                    observations.clear();
+                    observations.addAll(reloaded);
+                    endReached = reloaded.size() < count;
+                    notifyListener();
+                }, error -> {
+                    pendingTask = null;
+                    stale = true;
+                }));
+    }
+
+    private void loadNextPage() {
+        if (!started || stale || pendingTask != null || endReached) {
+            return;
+        }
+        Observation after = observations.isEmpty() ? droppedAbove : observations.get(observations.size() - 1);
+        pendingTask = observationRepository.getObservationsPage(hikeId, after, PAGE_SIZE,
+                RepositoryCallback.of(this::onPageLoaded, error -> pendingTask = null));
+    }
+
+    private void onPageLoaded(List<Observation> page) {
+        pendingTask = null;
+        observations.addAll(page);
+        endReached = page.size() < PAGE_SIZE;
+        int excess = observations.size() - MAX_HELD;
+        if (excess > 0) {
+            // Far above the rows on screen by now; remembered by the last one only, to read them again later.
+            droppedAbove = observations.get(excess - 1);
+            observations.subList(0, excess).clear();
+        }
+        notifyListener();
+    }
+
+    /**
+     * Reads back the page just above the window. One observation more than a page is asked for, so that the one
+     * above the restored page is known as well, or it is known that the window now starts at the first observation.
+     */
+    private void loadPreviousPage() {
+        if (!started || stale || pendingTask != null || observations.isEmpty()) {
+            return;
+        }
+        pendingTask = observationRepository.getObservationsPageBefore(hikeId, observations.get(0), PAGE_SIZE + 1,
+                RepositoryCallback.of(this::onPreviousPageLoaded, error -> pendingTask = null));
+    }
+
+    private void onPreviousPageLoaded(List<Observation> page) {
+        pendingTask = null;
+        if (page.size() > PAGE_SIZE) {
+            droppedAbove = page.get(0);
+            page = page.subList(1, page.size());
+        } else {
+            droppedAbove = null;
+        }
+        observations.addAll(0, page);
+        int excess = observations.size() - MAX_HELD;
+        if (excess > 0) {
+            // Far below the rows on screen now; fetched again as the next page when the user scrolls back down.
+            observations.subList(observations.size() - excess, observations.size()).clear();
+            endReached = false;
+        }
+        notifyListener();
+    }
+
+    private void notifyListener() {
+        // A copy of the window, which is never more than MAX_HELD observations.
+        if (listener != null) {
+            listener.onObservationsChanged(Collections.unmodifiableList(new ArrayList<>(observations)));
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.coursework.data.repository;
+
+import android.content.Context;
+
+import com.example.coursework.data.models.Observation;
+import com.example.coursework.data.sqlite.DatabaseHelper;
+import com.example.coursework.data.sqlite.InvalidationTracker;
+import com.example.coursework.data.sqlite.ObservationDAO;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.UnaryOperator;
+
+/**
+ * Repository for observations.
+ * Wraps {@link ObservationDAO} so that every database call runs on the I/O executor and results are delivered on the main thread.
+ */
+public class ObservationRepository {
+
+    // Number of hikes whose first page of observations is cached.
+    private static final int OBSERVATION_LIST_CACHE_SIZE = 32;
+    // Number of single observations cached for the edit screen.
+    private static final int OBSERVATION_CACHE_SIZE = 64;
+
+    private static final UnaryOperator<Observation> COPY_OBSERVATION = Observation::new;
+
+    private static volatile ObservationRepository instance;
+
+    private final ObservationDAO observationDAO;
+    private final AppExecutors executors;
+    private final InvalidationTracker invalidationTracker;
+    // The first page of each hike's observations, keyed by hike ID, in time order.
+    private final EntityCache<List<Observation>> observationListCache;
+    // Single observations, keyed by observation ID.
+    private final EntityCache<Observation> observationCache;
+    // Held across each write and the cache update that follows it. See submitWrite.
+    private final Object writeLock = new Object();
+
+    private ObservationRepository(Context context) {
+        observationDAO = new ObservationDAO(context);
+        executors = AppExecutors.getInstance();
+        invalidationTracker = DatabaseHelper.getInstance(context).getInvalidationTracker();
+        observationListCache = new EntityCache<>(OBSERVATION_LIST_CACHE_SIZE,
+                observations -> EntityCache.copyList(observations, COPY_OBSERVATION));
+        observationCache = new EntityCache<>(OBSERVATION_CACHE_SIZE, COPY_OBSERVATION);
+    }
+
+    /**
+     * Returns the process-wide ObservationRepository.
+     * @param context Any context; the application context is retained.
+     * @return The shared repository.
+     */
+    public static ObservationRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ObservationRepository.class) {
+                if (instance == null) {
+                    instance = new ObservationRepository(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Loads one page of a hike's observations, ordered by time. A hike's first page is served from memory when it
+     * was loaded recently and has not changed since.
+     * @param hikeId The ID of the hike.
+     * @param after The last observation of the previous page, or null for the first page.
+     * @param pageSize The maximum number of observations to load.
+     * @param callback Receives the observations on the main thread.
+     * @return A task that can be used to cancel the load.
+     */
+    public RepositoryTask getObservationsPage(long hikeId, Observation after, int pageSize,
+                                              RepositoryCallback<List<Observation>> callback) {
+        return executors.submit(() -> loadObservationsPage(hikeId, after, pageSize), callback);
+    }
+
+    /**
+     * Loads the observations of a hike just before a given one, ordered by time.
+     * @param hikeId The ID of the hike.
+     * @param before The first observation of the page below the one wanted.
+     * @param pageSize The maximum number of observations to load.
+     * @param callback Receives the observations on the main thread.
+     * @return A task that can be used to cancel the load.
+     */
+    public RepositoryTask getObservationsPageBefore(long hikeId, Observation before, int pageSize,
+                                                    RepositoryCallback<List<Observation>> callback) {
+        return executors.submit(() -> observationDAO.getObservationsPageBefore(hikeId, before, pageSize), callback);
+    }
+
+    /**
+     * Creates a pager over a hike's observations that reloads the observations it holds whenever the hike's
+     * observations are written.
+     * @param hikeId The ID of the hike.
+     * @return The pager; the observer receives the observations held, ordered by time.
+     */
+    public ObservationPager pageObservationsForHike(long hikeId) {
+        return new ObservationPager(this, invalidationTracker, hikeId);
+    }
+
+    /**
+     * Reads a page of a hike's observations, from the cache for a first page of the usual size.
+     * @param hikeId The ID of the hike.
+     * @param after The last observation of the previous page, or null for the first page.
+     * @param pageSize The maximum number of observations to read.
+     * @return The observations, ordered by time.
+     */
+    private List<Observation> loadObservationsPage(long hikeId, Observation after, int pageSize) {
+        boolean cacheable = after == null && pageSize == ObservationPager.PAGE_SIZE;
+        if (!cacheable) {
+            return observationDAO.getObservationsPage(hikeId, after, pageSize);
+        }
+        List<Observation> cached = observationListCache.get(hikeId);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = observationListCache.getGeneration();
+        List<Observation> observations = observationDAO.getObservationsPage(hikeId, null, pageSize);
+        observationListCache.putIfUnchanged(hikeId, observations, generation);
+        return observations;
+    }
+
+    /**
+     * Loads a single observation by its ID. Served from memory when possible.
+     * @param observationId The ID of the observation.
+     * @param callback Receives the observation, or null if it was not found.
+     * @return A task that can be used to cancel the load.
+     */
+    public RepositoryTask getObservationById(long observationId, RepositoryCallback<Observation> callback) {
+        return executors.submit(() -> {
+            Observation cached = observationCache.get(observationId);
+            if (cached != null) {
+                return cached;
+            }
+            long generation = observationCache.getGeneration();
+            Observation observation = observationDAO.getObservationById(observationId);
+            if (observation != null) {
+                observationCache.putIfUnchanged(observationId, observation, generation);
+            }
+            return observation;
+        }, callback);
+    }
+
+    /**
+     * Adds a new observation.
+     * @param observation The observation to add.
+     * @param callback Receives the new row ID, or -1 if the insert failed. May be null.
+     * @return A task that can be used to cancel the insert if it has not started yet.
+     */
+    public RepositoryTask addObservation(Observation observation, RepositoryCallback<Long> callback) {
+        return submitWrite(() -> {
+            long id = observationDAO.addObservation(observation);
+            if (id != -1) {
+                Observation added = new Observation(observation);
+                added.setId(id);
+                observationCache.put(id, added);
+                observationListCache.remove(observation.getHikeId());
+            }
+            return id;
+        }, callback);
+    }
+
+    /**
+     * Updates an existing observation.
+     * @param observation The observation with updated values.
+     * @param callback Receives the number of rows affected. May be null.
+     * @return A task that can be used to cancel the update if it has not started yet.
+     */
+    public RepositoryTask updateObservation(Observation observation, RepositoryCallback<Integer> callback) {
+        return submitWrite(() -> {
+            int rows = observationDAO.updateObservation(observation);
+            if (rows > 0) {
+                observationCache.put(observation.getId(), observation);
+            } else {
+                observationCache.remove(observation.getId());
+            }
+            // The new time may move the observation within its hike's list.
+            removeListsContaining(observation.getId());
+            observationListCache.remove(observation.getHikeId());
+            return rows;
+        }, callback);
+    }
+
+    /**
+     * Deletes an observation by its ID.
+     * @param observationId The ID of the observation to delete.
+     * @param callback Invoked once the observation is deleted. May be null.
+     * @return A task that can be used to cancel the delete if it has not started yet.
+     */
+    public RepositoryTask deleteObservation(long observationId, RepositoryCallback<Void> callback) {
+        return submitWrite(() -> {
+            observationDAO.deleteObservation(observationId);
+            observationCache.remove(observationId);
+            removeListsContaining(observationId);
+            return null;
+        }, callback);
+    }
+
+    /**
+     * Deletes several observations and drops them from the caches, on the calling thread. Used by the
+     * {@link DeleteQueue}, which calls it on the I/O executor inside the transaction it commits. The caller must hold
+     * the write lock, taken with {@link #runLocked} before the transaction is opened; see there.
+     * @param observationIds The IDs of the observations to delete.
+     * @return The number of observations deleted.
+     */
+    int deleteObservationsNow(List<Long> observationIds) {
+        int deleted = observationDAO.deleteObservations(observationIds);
+        Set<Long> ids = new HashSet<>(observationIds);
+        observationCache.removeIf(observation -> ids.contains(observation.getId()));
+        observationListCache.removeIf(observations -> {
+            for (Observation observation : observations) {
+                if (ids.contains(observation.getId())) {
+                    return true;
+                }
+            }
+            return false;
+        });
+        return deleted;
+    }
+
+    /**
+     * Runs work on the calling thread under the write lock. A write from another repository that touches
+     * observations takes the lock through here before it opens its transaction: a write of this repository holds
+     * the lock while it waits for the database connection, so taking the lock while holding an open transaction
+     * would leave each waiting on the other.
+     * @param work The work.
+     * @param <T> The result type.
+     * @return The work's result.
+     * @throws Exception If the work failed.
+     */
+    <T> T runLocked(Callable<T> work) throws Exception {
+        synchronized (writeLock) {
+            return work.call();
+        }
+    }
+
+    /**
+     * Runs a write and the cache update that follows it on the I/O executor. Writes are serialized so the caches see
+     * them in database order, and change notifications wait until the caches are up to date.
+     * @param write The write, including its cache update.
+     * @param callback Receives the write's result. May be null.
+     * @param <T> The result type.
+     * @return A task that can be used to cancel the write if it has not started yet.
+     */
+    private <T> RepositoryTask submitWrite(Callable<T> write, RepositoryCallback<T> callback) {
+        return executors.submit(() -> {
+            synchronized (writeLock) {
+                return invalidationTracker.runBatch(write);
+            }
+        }, callback);
+    }
+
+    /**
+     * @return The cache of first observation pages, for its hit, miss and eviction counts.
+     */
+    public EntityCache<List<Observation>> getObservationListCache() {
+        return observationListCache;
+    }
+
+    /**
+     * @return The cache of single observations, for its hit, miss and eviction counts.
+     */
+    public EntityCache<Observation> getObservationCache() {
+        return observationCache;
+    }
+
+    /**
+     * Drops everything cached for a hike's observations. Called after the hike is deleted for good.
+     * @param hikeId The ID of the hike.
+     */
+    void invalidateHike(long hikeId) {
+        observationListCache.remove(hikeId);
+        observationCache.removeIf(observation -> observation.getHikeId() == hikeId);
+    }
+
+    /**
+     * Drops the cached lists that hold an observation.
+     * @param observationId The ID of the observation.
+     */
+    private void removeListsContaining(long observationId) {
+        observationListCache.removeIf(observations -> {
+            for (Observation observation : observations) {
+                if (observation.getId() == observationId) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+}
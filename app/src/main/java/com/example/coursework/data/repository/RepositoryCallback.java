@@ -0,0 +1,41 @@
+package com.example.coursework.data.repository;
+
+import java.util.function.Consumer;
+
+/**
+ * Callback used by the repositories to deliver results on the main thread.
+ * @param <T> The type of the result.
+ */
+public interface RepositoryCallback<T> {
+    void onResult(T result);
+
+    /**
+     * Called on the main thread instead of {@link #onResult} when the work threw. The failure has already been
+     * logged, so by default nothing more happens; a caller that waits on the result, with a button disabled or a
+     * dialog open, overrides this to recover.
+     * @param error What the work threw.
+     */
+    default void onError(Exception error) {
+    }
+
+    /**
+     * Creates a callback with a failure path from two lambdas.
+     * @param onResult Receives the result.
+     * @param onError Receives the failure instead.
+     * @param <T> The type of the result.
+     * @return The callback.
+     */
+    static <T> RepositoryCallback<T> of(RepositoryCallback<T> onResult, Consumer<Exception> onError) {
+        return new RepositoryCallback<T>() {
+            @Override
+            public void onResult(T result) {
+                onResult.onResult(result);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                onError.accept(error);
+            }
+        };
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.coursework.data.repository;
+
+import android.os.CancellationSignal;
+
+import java.util.concurrent.Future;
+
+/**
+ * Handle to a piece of work submitted to a repository.
+ * Cancelling the task stops it from starting if it has not run yet and guarantees its callback is never delivered.
+ * Queries that were given the task's cancellation signal are also aborted inside SQLite.
+ */
+public class RepositoryTask {
+
+    private volatile boolean cancelled;
+    private volatile Future<?> future;
+    private final CancellationSignal cancellationSignal = new CancellationSignal();
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    CancellationSignal getCancellationSignal() {
+        return cancellationSignal;
+    }
+
+    /**
+     * Cancels the task. Safe to call more than once and from the main thread.
+     */
+    public void cancel() {
+        cancelled = true;
+        cancellationSignal.cancel();
+        Future<?> f = future;
+        if (f != null) {
+            f.cancel(false);
+        }
+    }
+
+    /**
+     * @return True if the task has been cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
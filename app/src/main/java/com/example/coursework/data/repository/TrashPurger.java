@@ -0,0 +1,157 @@
+package com.example.coursework.data.repository;
+
+import android.util.Log;
+
+import com.example.coursework.data.sqlite.DatabaseHelper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes hikes for good once they have been in the trash for {@link #RETENTION_MILLIS}, then shrinks the database
+ * file by the pages they took up.
+ * <p>
+ * The work runs as a series of short steps on the I/O executor with a pause after each, so a purge never holds the
+ * database for long however large the trash is, and the screens' queries and writes run in between. Each purge step
+ * deletes at most {@link #BATCH_SIZE} hikes, with their observations, in one transaction. Once no expired hikes are
+ * left, each vacuum step hands at most {@link #VACUUM_PAGES_PER_STEP} free pages back to the file system through
+ * {@link DatabaseHelper#incrementalVacuum}, until none are left; that also reclaims the pages freed by other deletes.
+ * All methods must be called on the main thread.
+ */
+final class TrashPurger {
+
+    private static final String TAG = "TrashPurger";
+
+    /**
+     * Deletes a batch of expired hikes. Called on the I/O executor.
+     */
+    interface Purge {
+        /**
+         * @param trashedBefore Hikes moved to the trash before this time, in milliseconds since the epoch, are deleted.
+         * @param limit The most hikes to delete.
+         * @return The number of hikes deleted.
+         * @throws Exception If the delete failed.
+         */
+        int purge(long trashedBefore, int limit) throws Exception;
+    }
+
+    /**
+     * Frees pages at the end of the database file. Called on the I/O executor.
+     */
+    interface Vacuum {
+        /**
+         * @param maxPages The most pages to free.
+         * @return The number of free pages left.
+         */
+        long vacuum(int maxPages);
+    }
+
+    // How long a hike stays in the trash before it is deleted for good.
+    static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(HikeRepository.TRASH_RETENTION_DAYS);
+    // Hikes deleted per transaction.
+    static final int BATCH_SIZE = 50;
+    // Pages freed per vacuum step; 1 MB at the default page size of 4 KB.
+    static final int VACUUM_PAGES_PER_STEP = 256;
+    // Pause after each step, leaving the database to the screens.
+    static final long STEP_PAUSE_MILLIS = 250;
+    // Wait before a purge scheduled at startup begins, so it does not compete with the first screen's queries.
+    static final long START_DELAY_MILLIS = 5000;
+
+    private final AppExecutors executors;
+    private final Purge purge;
+    private final Vacuum vacuum;
+    private final Runnable start = () -> purge(System.currentTimeMillis() - RETENTION_MILLIS);
+    private final Runnable step = this::step;
+
+    // True from the first step of a run until its last one has finished.
+    private boolean running;
+    // True while expired hikes may be left; the run vacuums once this is false.
+    private boolean purging;
+    // Hikes trashed before this time are deleted by the current run.
+    private long trashedBefore;
+    // Totals of the current run, for the log.
+    private int purgedHikes;
+    private long freePages;
+
+    /**
+     * Constructor for TrashPurger.
+     * @param executors Runs the steps in the background.
+     * @param purge Deletes each batch of hikes.
+     * @param vacuum Frees pages.
+     */
+    TrashPurger(AppExecutors executors, Purge purge, Vacuum vacuum) {
+        this.executors = executors;
+        this.purge = purge;
+        this.vacuum = vacuum;
+    }
+
+    /**
+     * Purges the hikes whose time in the trash is up, after {@link #START_DELAY_MILLIS}. Called once per process, at
+     * startup.
+     */
+    void schedule() {
+        executors.mainThread().removeCallbacks(start);
+        executors.mainThread().postDelayed(start, START_DELAY_MILLIS);
+    }
+
+    /**
+     * Purges the hikes moved to the trash before a cutoff, then vacuums. If a run is already going, it takes on the
+     * new cutoff, going back to purging if it had moved on to the vacuum.
+     * @param trashedBefore The cutoff, in milliseconds since the epoch; Long.MAX_VALUE empties the trash.
+     */
+    void purge(long trashedBefore) {
+        this.trashedBefore = running ? Math.max(this.trashedBefore, trashedBefore) : trashedBefore;
+        purging = true;
+        if (!running) {
+            running = true;
+            purgedHikes = 0;
+            freePages = -1;
+            executors.mainThread().removeCallbacks(start);
+            step();
+        }
+    }
+
+    private void step() {
+        if (purging) {
+            long cutoff = trashedBefore;
+            executors.submit(() -> {
+                try {
+                    return purge.purge(cutoff, BATCH_SIZE);
+                } catch (Exception e) {
+                    Log.w(TAG, "Could not purge the trash", e);
+                    return -1;
+                }
+            }, deleted -> {
+                if (deleted < 0) {
+                    finish();
+                    return;
+                }
+                purgedHikes += deleted;
+                // A cutoff raised while the batch ran means there may be more hikes to delete.
+                purging = deleted == BATCH_SIZE || cutoff != trashedBefore;
+                executors.mainThread().postDelayed(step, STEP_PAUSE_MILLIS);
+            });
+        } else {
+            executors.submit(() -> {
+                try {
+                    return vacuum.vacuum(VACUUM_PAGES_PER_STEP);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Could not vacuum", e);
+                    return -1L;
+                }
+            }, pagesLeft -> {
+                freePages = pagesLeft;
+                if (pagesLeft <= 0 && !purging) {
+                    finish();
+                } else {
+                    executors.mainThread().postDelayed(step, STEP_PAUSE_MILLIS);
+                }
+            });
+        }
+    }
+
+    private void finish() {
+        running = false;
+        purging = false;
+        Log.i(TAG, "Purged " + purgedHikes + " hikes; " + Math.max(0, freePages) + " free pages left");
+    }
+}
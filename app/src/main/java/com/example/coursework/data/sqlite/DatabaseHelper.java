@@ -1,27 +1,50 @@
 package com.example.coursework.data.sqlite;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * Manages the creation and versioning of the application's SQLite database.
  * This class defines the database schema and handles creation and upgrades.
+ * <p>
+ * There is a single instance per process, obtained through {@link #getInstance(Context)}. The database is opened in
+ * write-ahead logging mode, so the framework keeps one primary connection for writes and a small pool of read-only
+ * connections; queries on other threads can run while a write transaction is in progress.
+ * The database is never closed while the process is alive.
  */
 public class DatabaseHelper extends SQLiteOpenHelper {
 
+    private static final String TAG = "DatabaseHelper";
+
+    private static volatile DatabaseHelper instance;
+
     // Database Info
-    private static final String DATABASE_NAME = "mHike.db";
-    private static final int DATABASE_VERSION = 1;
+    static final String DATABASE_NAME = "mHike.db";
+    public static final int DATABASE_VERSION = 8;
 
     // Table Names
     public static final String TABLE_HIKES = "hikes";
     public static final String TABLE_OBSERVATIONS = "observations";
+    // Full-text index over hikes and their observations. Each row's docid is the id of the hike it indexes.
+    public static final String TABLE_HIKE_SEARCH = "hike_search";
+    // Running totals of hikes and observations per bucket of each statistics dimension, kept up to date by triggers.
+    public static final String TABLE_HIKE_STATS = "hike_stats";
 
     // Hikes Table Columns
     public static final String KEY_HIKE_ID = "id";
     public static final String KEY_HIKE_NAME = "name";
     public static final String KEY_HIKE_LOCATION = "location";
+    // Stored as an epoch day (days since 1970-01-01).
     public static final String KEY_HIKE_DATE = "date";
     public static final String KEY_HIKE_PARKING = "parking_available";
     public static final String KEY_HIKE_LENGTH = "length";
@@ -30,6 +53,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     // Creative fields
     public static final String KEY_HIKE_WEATHER = "weather";
     public static final String KEY_HIKE_RECOMMENDED_GEAR = "recommended_gear";
+    // Kept up to date by triggers on the observations table, so the hike list can show them without reading it.
+    public static final String KEY_HIKE_OBSERVATION_COUNT = "observation_count";
+    public static final String KEY_HIKE_LATEST_OBSERVATION = "latest_observation";
+    // When the hike was moved to the trash, in milliseconds since the epoch; null for a hike that is not in the trash.
+    // A trashed hike keeps its row and observations, but is left out of every list, search and statistic.
+    public static final String KEY_HIKE_DELETED_AT = "deleted_at";
 
 
     // Observations Table Columns
@@ -39,39 +68,428 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String KEY_OBSERVATION_TIME = "time";
     public static final String KEY_OBSERVATION_COMMENTS = "comments";
 
+    // Hike Search Columns (name, location, description, weather and recommended_gear mirror the hikes table)
+    public static final String KEY_SEARCH_DOCID = "docid";
+    public static final String KEY_SEARCH_OBSERVATIONS = "observations";
+
+    // Hike Stats Columns
+    public static final String KEY_STATS_DIMENSION = "dimension";
+    public static final String KEY_STATS_BUCKET = "bucket";
+    public static final String KEY_STATS_HIKE_COUNT = "hike_count";
+    public static final String KEY_STATS_TOTAL_LENGTH = "total_length";
+    public static final String KEY_STATS_OBSERVATION_COUNT = "observation_count";
+
+    // Statistics dimensions. The totals dimension has a single bucket, the empty string.
+    public static final String STATS_TOTAL = "total";
+    public static final String STATS_MONTH = "month";
+    public static final String STATS_DIFFICULTY = "difficulty";
+    public static final String STATS_PARKING = "parking";
+
     // SQL statement to create the 'hikes' table.
     private static final String CREATE_TABLE_HIKES = "CREATE TABLE " + TABLE_HIKES +
             "(" +
             KEY_HIKE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
             KEY_HIKE_NAME + " TEXT NOT NULL," +
             KEY_HIKE_LOCATION + " TEXT NOT NULL," +
-            KEY_HIKE_DATE + " TEXT NOT NULL," +
+            KEY_HIKE_DATE + " INTEGER NOT NULL," +
             KEY_HIKE_PARKING + " TEXT NOT NULL," +
             KEY_HIKE_LENGTH + " REAL NOT NULL," +
             KEY_HIKE_DIFFICULTY + " TEXT NOT NULL," +
             KEY_HIKE_DESCRIPTION + " TEXT," +
             KEY_HIKE_WEATHER + " TEXT," +
-            KEY_HIKE_RECOMMENDED_GEAR + " TEXT" +
+            KEY_HIKE_RECOMMENDED_GEAR + " TEXT," +
+            KEY_HIKE_OBSERVATION_COUNT + " INTEGER NOT NULL DEFAULT 0," +
+            KEY_HIKE_LATEST_OBSERVATION + " TEXT," +
+            KEY_HIKE_DELETED_AT + " INTEGER" +
             ")";
 
-    // SQL statement to create the 'observations' table.
+    // Selection for the hikes that are not in the trash.
+    public static final String HIKE_NOT_TRASHED = KEY_HIKE_DELETED_AT + " IS NULL";
+
+    // Index on the hike date, used by date range filters and by the date-ordered hike list.
+    static final String CREATE_INDEX_HIKES_DATE = "CREATE INDEX hikes_date ON " + TABLE_HIKES + "(" + KEY_HIKE_DATE + ")";
+
+    // Index for difficulty filters, optionally narrowed by length. With statistics, the planner can also skip-scan it
+    // for length filters on their own, as there are only a few difficulty levels.
+    static final String CREATE_INDEX_HIKES_DIFFICULTY_LENGTH = "CREATE INDEX IF NOT EXISTS hikes_difficulty_length ON " +
+            TABLE_HIKES + "(" + KEY_HIKE_DIFFICULTY + ", " + KEY_HIKE_LENGTH + ")";
+
+    // Partial index over the trashed hikes only, in the order they were trashed, for the trash screen and the purge.
+    // Hikes outside the trash have no entry, so it costs nothing to keep up as hikes are added and edited.
+    static final String CREATE_INDEX_HIKES_DELETED_AT = "CREATE INDEX IF NOT EXISTS hikes_deleted_at ON " + TABLE_HIKES +
+            "(" + KEY_HIKE_DELETED_AT + ") WHERE " + KEY_HIKE_DELETED_AT + " IS NOT NULL";
+
+    // SQL statement to create the 'observations' table. Deleting a hike deletes its observations.
     private static final String CREATE_TABLE_OBSERVATIONS = "CREATE TABLE " + TABLE_OBSERVATIONS +
             "(" +
             KEY_OBSERVATION_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
-            KEY_OBSERVATION_HIKE_ID_FK + " INTEGER," +
+            KEY_OBSERVATION_HIKE_ID_FK + " INTEGER NOT NULL," +
             KEY_OBSERVATION_TEXT + " TEXT NOT NULL," +
             KEY_OBSERVATION_TIME + " TEXT NOT NULL," +
             KEY_OBSERVATION_COMMENTS + " TEXT," +
-            "FOREIGN KEY(" + KEY_OBSERVATION_HIKE_ID_FK + ") REFERENCES " + TABLE_HIKES + "(" + KEY_HIKE_ID + ")" +
+            "FOREIGN KEY(" + KEY_OBSERVATION_HIKE_ID_FK + ") REFERENCES " + TABLE_HIKES + "(" + KEY_HIKE_ID + ") ON DELETE CASCADE" +
             ")";
 
+    // Index for loading a hike's observations in time order.
+    static final String CREATE_INDEX_OBSERVATIONS_HIKE_TIME = "CREATE INDEX IF NOT EXISTS observations_hike_time ON " +
+            TABLE_OBSERVATIONS + "(" + KEY_OBSERVATION_HIKE_ID_FK + ", " + KEY_OBSERVATION_TIME + ")";
+
+    // Tables whose planner statistics are kept current.
+    private static final String[] ANALYZED_TABLES = {TABLE_HIKES, TABLE_OBSERVATIONS};
+    // Statistics are refreshed once a table's row count has grown or shrunk by this factor since it was analyzed.
+    private static final long STATISTICS_DRIFT = 2;
+    // Rows ANALYZE examines per index when refreshing statistics, so a refresh stays fast on large tables.
+    private static final int ANALYSIS_LIMIT = 1000;
+
+    // SQL statement to create the full-text search table. FTS4 is used because the platform SQLite does not ship FTS5.
+    private static final String CREATE_TABLE_HIKE_SEARCH = "CREATE VIRTUAL TABLE " + TABLE_HIKE_SEARCH +
+            " USING fts4(" +
+            KEY_HIKE_NAME + "," +
+            KEY_HIKE_LOCATION + "," +
+            KEY_HIKE_DESCRIPTION + "," +
+            KEY_HIKE_WEATHER + "," +
+            KEY_HIKE_RECOMMENDED_GEAR + "," +
+            KEY_SEARCH_OBSERVATIONS + "," +
+            "tokenize=unicode61" +
+            ")";
+
+    // Text indexed for a single observation: its text followed by its comments.
+    static final String OBSERVATION_SEARCH_TEXT = KEY_OBSERVATION_TEXT + " || ' ' || ifnull(" + KEY_OBSERVATION_COMMENTS + ", '')";
+
+    // Rebuilds the indexed observation text of the hike whose docid is being updated.
+    private static final String SEARCH_OBSERVATIONS_FOR_DOCID = "(SELECT group_concat(" + OBSERVATION_SEARCH_TEXT + ", ' ') FROM " +
+            TABLE_OBSERVATIONS + " WHERE " + KEY_OBSERVATION_HIKE_ID_FK + " = " + TABLE_HIKE_SEARCH + "." + KEY_SEARCH_DOCID + ")";
+
+    // Name of the trigger that copies edited hike text into the search table.
+    static final String HIKE_UPDATE_SEARCH_TRIGGER = "hike_search_hike_update";
+
+    // Only the indexed columns are watched, so the observation summary triggers can update a hike without rewriting
+    // its search document.
+    static final String CREATE_HIKE_UPDATE_SEARCH_TRIGGER = "CREATE TRIGGER " + HIKE_UPDATE_SEARCH_TRIGGER +
+            " AFTER UPDATE OF " + KEY_HIKE_NAME + ", " + KEY_HIKE_LOCATION + ", " + KEY_HIKE_DESCRIPTION + ", " +
+            KEY_HIKE_WEATHER + ", " + KEY_HIKE_RECOMMENDED_GEAR + " ON " + TABLE_HIKES + " BEGIN " +
+            "UPDATE " + TABLE_HIKE_SEARCH + " SET " + KEY_HIKE_NAME + " = new." + KEY_HIKE_NAME + ", " +
+            KEY_HIKE_LOCATION + " = new." + KEY_HIKE_LOCATION + ", " + KEY_HIKE_DESCRIPTION + " = new." + KEY_HIKE_DESCRIPTION + ", " +
+            KEY_HIKE_WEATHER + " = new." + KEY_HIKE_WEATHER + ", " + KEY_HIKE_RECOMMENDED_GEAR + " = new." + KEY_HIKE_RECOMMENDED_GEAR + " " +
+            "WHERE " + KEY_SEARCH_DOCID + " = old." + KEY_HIKE_ID + "; END";
+
+    // Triggers that keep the search table in sync with the hikes table.
+    static final String[] CREATE_HIKE_SEARCH_TRIGGERS = {
+            "CREATE TRIGGER hike_search_hike_insert AFTER INSERT ON " + TABLE_HIKES + " BEGIN " +
+                    "INSERT INTO " + TABLE_HIKE_SEARCH + "(" + KEY_SEARCH_DOCID + ", " + KEY_HIKE_NAME + ", " + KEY_HIKE_LOCATION + ", " +
+                    KEY_HIKE_DESCRIPTION + ", " + KEY_HIKE_WEATHER + ", " + KEY_HIKE_RECOMMENDED_GEAR + ", " + KEY_SEARCH_OBSERVATIONS + ") " +
+                    "VALUES (new." + KEY_HIKE_ID + ", new." + KEY_HIKE_NAME + ", new." + KEY_HIKE_LOCATION + ", new." + KEY_HIKE_DESCRIPTION + ", " +
+                    "new." + KEY_HIKE_WEATHER + ", new." + KEY_HIKE_RECOMMENDED_GEAR + ", ''); END",
+            CREATE_HIKE_UPDATE_SEARCH_TRIGGER,
+            "CREATE TRIGGER hike_search_hike_delete AFTER DELETE ON " + TABLE_HIKES + " BEGIN " +
+                    "DELETE FROM " + TABLE_HIKE_SEARCH + " WHERE " + KEY_SEARCH_DOCID + " = old." + KEY_HIKE_ID + "; END"
+    };
+
+    // Rebuilds the indexed observation text of one hike, given its ID.
+    static final String REFRESH_SEARCH_OBSERVATIONS = "UPDATE " + TABLE_HIKE_SEARCH + " SET " + KEY_SEARCH_OBSERVATIONS +
+            " = ifnull(" + SEARCH_OBSERVATIONS_FOR_DOCID + ", '') WHERE " + KEY_SEARCH_DOCID + " = ?";
+
+    // Name of the trigger that indexes new observations; bulk imports drop it and refresh the index once per batch.
+    static final String OBSERVATION_INSERT_SEARCH_TRIGGER = "hike_search_observation_insert";
+
+    // New observations are appended to the hike's indexed text rather than rebuilding it.
+    static final String CREATE_OBSERVATION_INSERT_SEARCH_TRIGGER = "CREATE TRIGGER " + OBSERVATION_INSERT_SEARCH_TRIGGER +
+            " AFTER INSERT ON " + TABLE_OBSERVATIONS + " BEGIN " +
+            "UPDATE " + TABLE_HIKE_SEARCH + " SET " + KEY_SEARCH_OBSERVATIONS + " = " + KEY_SEARCH_OBSERVATIONS +
+            " || ' ' || new." + KEY_OBSERVATION_TEXT + " || ' ' || ifnull(new." + KEY_OBSERVATION_COMMENTS + ", '') " +
+            "WHERE " + KEY_SEARCH_DOCID + " = new." + KEY_OBSERVATION_HIKE_ID_FK + "; END";
+
+    // Triggers that keep the search table in sync with the observations table.
+    static final String[] CREATE_OBSERVATION_SEARCH_TRIGGERS = {
+            CREATE_OBSERVATION_INSERT_SEARCH_TRIGGER,
+            "CREATE TRIGGER hike_search_observation_update AFTER UPDATE ON " + TABLE_OBSERVATIONS + " BEGIN " +
+                    "UPDATE " + TABLE_HIKE_SEARCH + " SET " + KEY_SEARCH_OBSERVATIONS + " = ifnull(" + SEARCH_OBSERVATIONS_FOR_DOCID + ", '') " +
+                    "WHERE " + KEY_SEARCH_DOCID + " IN (old." + KEY_OBSERVATION_HIKE_ID_FK + ", new." + KEY_OBSERVATION_HIKE_ID_FK + "); END",
+            "CREATE TRIGGER hike_search_observation_delete AFTER DELETE ON " + TABLE_OBSERVATIONS + " BEGIN " +
+                    "UPDATE " + TABLE_HIKE_SEARCH + " SET " + KEY_SEARCH_OBSERVATIONS + " = ifnull(" + SEARCH_OBSERVATIONS_FOR_DOCID + ", '') " +
+                    "WHERE " + KEY_SEARCH_DOCID + " = old." + KEY_OBSERVATION_HIKE_ID_FK + "; END"
+    };
+
+    // Fills in the observation count and latest observation of every hike, for a database that had none.
+    static final String POPULATE_HIKE_OBSERVATION_SUMMARY = "UPDATE " + TABLE_HIKES + " SET " + KEY_HIKE_OBSERVATION_COUNT +
+            " = (SELECT count(*) FROM " + TABLE_OBSERVATIONS + " WHERE " + KEY_OBSERVATION_HIKE_ID_FK + " = " + TABLE_HIKES + "." +
+            KEY_HIKE_ID + "), " + KEY_HIKE_LATEST_OBSERVATION + " = " + latestObservationOf(TABLE_HIKES + "." + KEY_HIKE_ID);
+
+    // Triggers that keep each hike's observation count and latest observation in step with the observations table.
+    // The latest observation is looked up again on every change, which costs one index probe. During a cascade the
+    // hike is already gone, so the delete trigger updates nothing.
+    static final String[] CREATE_HIKE_OBSERVATION_SUMMARY_TRIGGERS = {
+            "CREATE TRIGGER hike_summary_observation_insert AFTER INSERT ON " + TABLE_OBSERVATIONS + " BEGIN " +
+                    "UPDATE " + TABLE_HIKES + " SET " + KEY_HIKE_OBSERVATION_COUNT + " = " + KEY_HIKE_OBSERVATION_COUNT + " + 1, " +
+                    KEY_HIKE_LATEST_OBSERVATION + " = " + latestObservationOf("new." + KEY_OBSERVATION_HIKE_ID_FK) +
+                    " WHERE " + KEY_HIKE_ID + " = new." + KEY_OBSERVATION_HIKE_ID_FK + "; END",
+            "CREATE TRIGGER hike_summary_observation_update AFTER UPDATE OF " + KEY_OBSERVATION_HIKE_ID_FK + ", " +
+                    KEY_OBSERVATION_TEXT + ", " + KEY_OBSERVATION_TIME + " ON " + TABLE_OBSERVATIONS + " BEGIN " +
+                    "UPDATE " + TABLE_HIKES + " SET " + KEY_HIKE_OBSERVATION_COUNT + " = " + KEY_HIKE_OBSERVATION_COUNT +
+                    " + (" + KEY_HIKE_ID + " = new." + KEY_OBSERVATION_HIKE_ID_FK + ") - (" + KEY_HIKE_ID + " = old." +
+                    KEY_OBSERVATION_HIKE_ID_FK + "), " + KEY_HIKE_LATEST_OBSERVATION + " = " +
+                    latestObservationOf(TABLE_HIKES + "." + KEY_HIKE_ID) + " WHERE " + KEY_HIKE_ID + " IN (old." +
+                    KEY_OBSERVATION_HIKE_ID_FK + ", new." + KEY_OBSERVATION_HIKE_ID_FK + "); END",
+            "CREATE TRIGGER hike_summary_observation_delete AFTER DELETE ON " + TABLE_OBSERVATIONS + " BEGIN " +
+                    "UPDATE " + TABLE_HIKES + " SET " + KEY_HIKE_OBSERVATION_COUNT + " = " + KEY_HIKE_OBSERVATION_COUNT + " - 1, " +
+                    KEY_HIKE_LATEST_OBSERVATION + " = " + latestObservationOf("old." + KEY_OBSERVATION_HIKE_ID_FK) +
+                    " WHERE " + KEY_HIKE_ID + " = old." + KEY_OBSERVATION_HIKE_ID_FK + "; END"
+    };
+
+    // SQL statement to create the statistics table. There are only a few rows per dimension, so reading it is cheap
+    // however many hikes there are.
+    static final String CREATE_TABLE_HIKE_STATS = "CREATE TABLE IF NOT EXISTS " + TABLE_HIKE_STATS +
+            "(" +
+            KEY_STATS_DIMENSION + " TEXT NOT NULL," +
+            KEY_STATS_BUCKET + " TEXT NOT NULL," +
+            KEY_STATS_HIKE_COUNT + " INTEGER NOT NULL," +
+            KEY_STATS_TOTAL_LENGTH + " REAL NOT NULL," +
+            KEY_STATS_OBSERVATION_COUNT + " INTEGER NOT NULL," +
+            "PRIMARY KEY(" + KEY_STATS_DIMENSION + ", " + KEY_STATS_BUCKET + ")" +
+            ") WITHOUT ROWID";
+
+    // Each statistics dimension and the bucket a hike falls into, as an expression over the hike's row. STATS_ROW
+    // stands for the row's name, such as new or old in a trigger. Months are bucketed as yyyy-MM.
+    static final String STATS_ROW = "{row}";
+    static final String[][] STATS_DIMENSIONS = {
+            {STATS_TOTAL, "''"},
+            {STATS_MONTH, "strftime('%Y-%m', " + STATS_ROW + "." + KEY_HIKE_DATE + " * 86400, 'unixepoch')"},
+            {STATS_DIFFICULTY, STATS_ROW + "." + KEY_HIKE_DIFFICULTY},
+            {STATS_PARKING, STATS_ROW + "." + KEY_HIKE_PARKING}
+    };
+
+    // Number of observations of the hike row named by STATS_ROW.
+    static final String STATS_OBSERVATIONS_OF_ROW = "(SELECT count(*) FROM " + TABLE_OBSERVATIONS + " WHERE " +
+            KEY_OBSERVATION_HIKE_ID_FK + " = " + STATS_ROW + "." + KEY_HIKE_ID + ")";
+
+    // Condition on the hike row h that leaves trashed hikes out of the statistics.
+    private static final String STATS_HIKE_NOT_TRASHED = "h." + HIKE_NOT_TRASHED;
+
+    // Names of the statistics triggers, so an upgrade can replace them.
+    static final String[] HIKE_STATS_TRIGGERS = {
+            "hike_stats_hike_insert", "hike_stats_hike_update", "hike_stats_hike_delete",
+            "hike_stats_observation_insert", "hike_stats_observation_update", "hike_stats_observation_delete"
+    };
+
+    // Triggers that keep the statistics table in step with the hikes and observations tables. A deleted hike's
+    // observations are subtracted before it is deleted: its observations are then deleted by the cascade, after
+    // the hike is gone, and the observation triggers find no hike to update. Trashed hikes are not counted; they
+    // enter and leave the totals through the trash triggers.
+    static final String[] CREATE_HIKE_STATS_TRIGGERS = {
+            "CREATE TRIGGER hike_stats_hike_insert AFTER INSERT ON " + TABLE_HIKES + " BEGIN " +
+                    addHikeToStats("new", "1", "0") + "END",
+            "CREATE TRIGGER hike_stats_hike_update AFTER UPDATE OF " + KEY_HIKE_DATE + ", " + KEY_HIKE_PARKING + ", " +
+                    KEY_HIKE_LENGTH + ", " + KEY_HIKE_DIFFICULTY + " ON " + TABLE_HIKES + " WHEN old." + HIKE_NOT_TRASHED +
+                    " AND new." + HIKE_NOT_TRASHED + " BEGIN " +
+                    addHikeToStats("old", "-1", "-" + STATS_OBSERVATIONS_OF_ROW) +
+                    addHikeToStats("new", "1", STATS_OBSERVATIONS_OF_ROW) + "END",
+            "CREATE TRIGGER hike_stats_hike_delete BEFORE DELETE ON " + TABLE_HIKES + " WHEN old." + HIKE_NOT_TRASHED + " BEGIN " +
+                    addHikeToStats("old", "-1", "-" + STATS_OBSERVATIONS_OF_ROW) + "END",
+            "CREATE TRIGGER hike_stats_observation_insert AFTER INSERT ON " + TABLE_OBSERVATIONS + " BEGIN " +
+                    addObservationToStats("new", "1", STATS_HIKE_NOT_TRASHED) + "END",
+            "CREATE TRIGGER hike_stats_observation_update AFTER UPDATE OF " + KEY_OBSERVATION_HIKE_ID_FK + " ON " +
+                    TABLE_OBSERVATIONS + " BEGIN " +
+                    addObservationToStats("old", "-1", STATS_HIKE_NOT_TRASHED) + addObservationToStats("new", "1", STATS_HIKE_NOT_TRASHED) + "END",
+            "CREATE TRIGGER hike_stats_observation_delete AFTER DELETE ON " + TABLE_OBSERVATIONS + " BEGIN " +
+                    addObservationToStats("old", "-1", STATS_HIKE_NOT_TRASHED) + "END"
+    };
+
+    // Indexed text of a restored hike's observations.
+    private static final String SEARCH_OBSERVATIONS_OF_NEW = "ifnull((SELECT group_concat(" + OBSERVATION_SEARCH_TEXT +
+            ", ' ') FROM " + TABLE_OBSERVATIONS + " WHERE " + KEY_OBSERVATION_HIKE_ID_FK + " = new." + KEY_HIKE_ID + "), '')";
+
+    // Triggers that take a hike out of the statistics and the search index when it is moved to the trash, and put it
+    // back when it is restored. Dropping the search document, rather than filtering the results, keeps trashed hikes
+    // out of the ranking as well; the document is rebuilt from the row and its observations on restore.
+    static final String[] CREATE_HIKE_TRASH_TRIGGERS = {
+            "CREATE TRIGGER hike_trash AFTER UPDATE OF " + KEY_HIKE_DELETED_AT + " ON " + TABLE_HIKES +
+                    " WHEN old." + HIKE_NOT_TRASHED + " AND new." + KEY_HIKE_DELETED_AT + " IS NOT NULL BEGIN " +
+                    addHikeToStats("old", "-1", "-" + STATS_OBSERVATIONS_OF_ROW) +
+                    "DELETE FROM " + TABLE_HIKE_SEARCH + " WHERE " + KEY_SEARCH_DOCID + " = old." + KEY_HIKE_ID + "; END",
+            "CREATE TRIGGER hike_restore AFTER UPDATE OF " + KEY_HIKE_DELETED_AT + " ON " + TABLE_HIKES +
+                    " WHEN old." + KEY_HIKE_DELETED_AT + " IS NOT NULL AND new." + HIKE_NOT_TRASHED + " BEGIN " +
+                    addHikeToStats("new", "1", STATS_OBSERVATIONS_OF_ROW) +
+                    "INSERT INTO " + TABLE_HIKE_SEARCH + "(" + KEY_SEARCH_DOCID + ", " + KEY_HIKE_NAME + ", " + KEY_HIKE_LOCATION + ", " +
+                    KEY_HIKE_DESCRIPTION + ", " + KEY_HIKE_WEATHER + ", " + KEY_HIKE_RECOMMENDED_GEAR + ", " + KEY_SEARCH_OBSERVATIONS + ") " +
+                    "VALUES (new." + KEY_HIKE_ID + ", new." + KEY_HIKE_NAME + ", new." + KEY_HIKE_LOCATION + ", new." + KEY_HIKE_DESCRIPTION + ", " +
+                    "new." + KEY_HIKE_WEATHER + ", new." + KEY_HIKE_RECOMMENDED_GEAR + ", " + SEARCH_OBSERVATIONS_OF_NEW + "); END"
+    };
+
+    // Upgrade steps, in version order. The last step's version must equal DATABASE_VERSION.
+    static final Migration[] MIGRATIONS = {
+            new SearchIndexMigration(),
+            new EpochDayDateMigration(),
+            new IndexMigration(),
+            new ForeignKeyMigration(),
+            new StatsMigration(),
+            new ObservationSummaryMigration(),
+            new TrashMigration()
+    };
+
+    // PRAGMA auto_vacuum value of incremental mode: pages freed by deletes stay in the file, on the free list, until
+    // PRAGMA incremental_vacuum moves them to the end of the file and truncates it.
+    static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+    // Receives progress while an upgrade copies data.
+    private volatile MigrationRunner.ProgressListener migrationListener;
+    // Compiled statements for the DAOs' fixed-shape writes, keyed by SQL. Like the database, they are never closed.
+    private final Map<String, SQLiteStatement> statements = new HashMap<>();
+    // Tells screens which tables the DAOs have written.
+    private final InvalidationTracker invalidationTracker = new InvalidationTracker();
+    // Latencies and slow calls of the DAO operations.
+    private final QueryMetrics queryMetrics = new QueryMetrics();
+
     /**
      * Constructor for the DatabaseHelper.
      *
      * @param context The application context.
      */
-    public DatabaseHelper(Context context) {
+    private DatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * Returns the process-wide DatabaseHelper.
+     *
+     * @param context Any context; the application context is retained.
+     * @return The shared helper.
+     */
+    public static DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            synchronized (DatabaseHelper.class) {
+                if (instance == null) {
+                    instance = new DatabaseHelper(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Closes the process-wide helper and forgets it, so that the next {@link #getInstance} opens the database again
+     * with empty connection pools and statement caches. The app never calls this; the JVM benchmarks use it to start
+     * each round from a cold database.
+     */
+    static void resetInstance() {
+        synchronized (DatabaseHelper.class) {
+            if (instance != null) {
+                synchronized (instance.statements) {
+                    for (SQLiteStatement statement : instance.statements.values()) {
+                        statement.close();
+                    }
+                    instance.statements.clear();
+                }
+                instance.close();
+                instance = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the tracker that reports writes made through the DAOs.
+     *
+     * @return The shared tracker.
+     */
+    public InvalidationTracker getInvalidationTracker() {
+        return invalidationTracker;
+    }
+
+    /**
+     * Runs work in a single transaction. DAO calls made by the work join it, so their writes commit together and
+     * their change notifications are published once, after the commit. If the work throws, nothing it wrote is kept.
+     *
+     * @param work The work, run on the calling thread, which must not be the main thread.
+     * @param <T> The result type.
+     * @return The work's result.
+     * @throws Exception If the work fails.
+     */
+    public <T> T runInTransaction(Callable<T> work) throws Exception {
+        SQLiteDatabase db = getWritableDatabase();
+        invalidationTracker.beginTransaction(db);
+        try {
+            T result = work.call();
+            db.setTransactionSuccessful();
+            return result;
+        } finally {
+            invalidationTracker.endTransaction(db);
+        }
+    }
+
+    /**
+     * Returns the registry the DAOs record their latencies in.
+     *
+     * @return The shared metrics.
+     */
+    public QueryMetrics getQueryMetrics() {
+        return queryMetrics;
+    }
+
+    /**
+     * Sets a listener that receives progress while the database is upgraded. The listener is called on the thread
+     * that first opens the database, so it must be set before then to see the upgrade.
+     *
+     * @param listener The listener, or null.
+     */
+    public void setMigrationListener(MigrationRunner.ProgressListener listener) {
+        migrationListener = listener;
+    }
+
+    /**
+     * Called when the database connection is being configured, before the version is checked.
+     * Pending upgrades are applied here rather than in {@link #onUpgrade}, because SQLiteOpenHelper wraps onUpgrade in
+     * a single transaction; here every migration step and every batch of copied rows commits on its own.
+     *
+     * @param db The database.
+     */
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        // Each pooled connection keeps its own cache of prepared statements; make it large enough to hold every
+        // query shape the DAOs use, so none of them is parsed again after its first run on a connection.
+        db.setMaxSqlCacheSize(SQLiteDatabase.MAX_SQL_CACHE_SIZE);
+
+        int version = db.getVersion();
+        if (version > 0 && version < DATABASE_VERSION) {
+            new MigrationRunner(MIGRATIONS, migrationListener).migrate(db);
+        }
+
+        // Enforce foreign keys, so deleting a hike also deletes its observations. This must come after the upgrade:
+        // older steps drop and rebuild the hikes table, which would otherwise cascade into the observations.
+        db.setForeignKeyConstraintsEnabled(true);
+    }
+
+    /**
+     * Returns the compiled statement for a fixed SQL string, compiling it on first use.
+     * A statement holds its bound arguments, so callers must synchronize on it while binding and executing.
+     * This opens the database, so it must not be called on the main thread.
+     *
+     * @param sql The SQL, with positional ? arguments.
+     * @return The shared compiled statement.
+     */
+    SQLiteStatement getStatement(String sql) {
+        synchronized (statements) {
+            SQLiteStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = getWritableDatabase().compileStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+    }
+
+    /**
+     * Binds a string that may be null to a statement.
+     *
+     * @param statement The statement.
+     * @param index The 1-based argument index.
+     * @param value The value, or null.
+     */
+    static void bindStringOrNull(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
     }
 
     /**
@@ -83,11 +501,120 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public void onCreate(SQLiteDatabase db) {
         db.execSQL(CREATE_TABLE_HIKES);
         db.execSQL(CREATE_TABLE_OBSERVATIONS);
+        db.execSQL(CREATE_INDEX_HIKES_DATE);
+        db.execSQL(CREATE_INDEX_HIKES_DIFFICULTY_LENGTH);
+        db.execSQL(CREATE_INDEX_OBSERVATIONS_HIKE_TIME);
+        db.execSQL(CREATE_INDEX_HIKES_DELETED_AT);
+        createSearchIndex(db);
+        createStatsTable(db);
+        for (String trigger : CREATE_HIKE_OBSERVATION_SUMMARY_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+        for (String trigger : CREATE_HIKE_TRASH_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+    }
+
+    /**
+     * Called when the database has been opened.
+     * Switches the database to incremental auto-vacuum if it is not in that mode yet, and refreshes the planner
+     * statistics of any table that has changed size substantially since it was last analyzed.
+     *
+     * @param db The database.
+     */
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        enableIncrementalVacuum(db);
+        refreshStatistics(db);
+    }
+
+    /**
+     * Puts the database in incremental auto-vacuum mode, so that {@link #incrementalVacuum} can shrink the file.
+     * <p>
+     * The mode can only be chosen before the first table is created, and the framework has already switched a new
+     * database to write-ahead logging by then, which fixes it; so both new and upgraded databases are converted here,
+     * with a one-time VACUUM that rebuilds the file. That is instant for a new database and takes a few seconds for a
+     * large one, once. If it fails, for example for lack of space for the copy, it is tried again on the next open.
+     *
+     * @param db The database, outside any transaction.
+     */
+    static void enableIncrementalVacuum(SQLiteDatabase db) {
+        if (Migration.count(db, "PRAGMA auto_vacuum", null) == AUTO_VACUUM_INCREMENTAL) {
+            return;
+        }
+        long start = SystemClock.elapsedRealtime();
+        try {
+            db.execSQL("PRAGMA auto_vacuum = " + AUTO_VACUUM_INCREMENTAL);
+            db.execSQL("VACUUM");
+            Log.i(TAG, "Enabled incremental vacuum in " + (SystemClock.elapsedRealtime() - start) + " ms");
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Could not enable incremental vacuum", e);
+        }
+    }
+
+    /**
+     * Returns free pages at the end of the file to the file system, at most the given number per call, so the file
+     * shrinks after deletes without a full VACUUM. Each call is one short write, and the caller paces the calls.
+     * This opens the database, so it must not be called on the main thread.
+     *
+     * @param maxPages The most pages to free.
+     * @return The number of free pages left afterwards.
+     */
+    public long incrementalVacuum(int maxPages) {
+        long start = QueryMetrics.start();
+        SQLiteDatabase db = getWritableDatabase();
+        long before = Migration.count(db, "PRAGMA freelist_count", null);
+        String sql = "PRAGMA incremental_vacuum(" + maxPages + ")";
+        // The pragma frees one page per step and returns an empty row for each, so its cursor has to be read to the
+        // end; counting the rows does that.
+        Cursor cursor = db.rawQuery(sql, null);
+        cursor.getCount();
+        cursor.close();
+        long after = Migration.count(db, "PRAGMA freelist_count", null);
+        queryMetrics.record("DatabaseHelper.incrementalVacuum", start, Math.max(0, before - after), 0, sql, null);
+        return after;
+    }
+
+    /**
+     * Runs ANALYZE on each table whose row count has drifted from the one recorded with its statistics.
+     * Without statistics the planner cannot tell that hikes(difficulty, length) is worth skip-scanning, so length
+     * filters would fall back to a full scan.
+     *
+     * @param db The database.
+     */
+    static void refreshStatistics(SQLiteDatabase db) {
+        boolean hasStatistics = Migration.tableExists(db, "sqlite_stat1");
+        boolean limitSet = false;
+        for (String table : ANALYZED_TABLES) {
+            long rows = Migration.count(db, "SELECT count(*) FROM " + table, null);
+            long analyzedRows = -1;
+            if (hasStatistics) {
+                Cursor cursor = db.rawQuery("SELECT stat FROM sqlite_stat1 WHERE tbl = ? LIMIT 1", new String[]{table});
+                if (cursor.moveToFirst() && !cursor.isNull(0)) {
+                    // The first number of the stat column is the number of rows in the table.
+                    analyzedRows = Long.parseLong(cursor.getString(0).split(" ")[0]);
+                }
+                cursor.close();
+            }
+
+            boolean stale = analyzedRows < 0
+                    ? rows > 0
+                    : rows > analyzedRows * STATISTICS_DRIFT || rows * STATISTICS_DRIFT < analyzedRows;
+            if (stale) {
+                if (!limitSet) {
+                    // PRAGMA analysis_limit returns a row, so it cannot go through execSQL.
+                    Migration.count(db, "PRAGMA analysis_limit = " + ANALYSIS_LIMIT, null);
+                    limitSet = true;
+                }
+                db.execSQL("ANALYZE " + table);
+            }
+        }
     }
 
     /**
      * Called when the database needs to be upgraded.
-     * This method will drop the existing tables and recreate them.
+     * Upgrades normally finish in {@link #onConfigure}; this only runs steps that are still pending, inside the
+     * helper's upgrade transaction.
      *
      * @param db         The database.
      * @param oldVersion The old database version.
@@ -95,11 +622,99 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      */
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        if (oldVersion != newVersion) {
-            // Simplest upgrade policy is to drop the old tables and create new ones.
-            db.execSQL("DROP TABLE IF EXISTS " + TABLE_HIKES);
-            db.execSQL("DROP TABLE IF EXISTS " + TABLE_OBSERVATIONS);
-            onCreate(db);
+        new MigrationRunner(MIGRATIONS, migrationListener).migrate(db);
+    }
+
+    /**
+     * Creates the full-text search table and the triggers that keep it in sync.
+     *
+     * @param db The database.
+     */
+    static void createSearchIndex(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_HIKE_SEARCH);
+        for (String trigger : CREATE_HIKE_SEARCH_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+        for (String trigger : CREATE_OBSERVATION_SEARCH_TRIGGERS) {
+            db.execSQL(trigger);
         }
     }
+
+    /**
+     * Creates the statistics table and the triggers that keep it up to date. The table starts out empty, which is
+     * only correct for an empty database; see {@link HikeStatsDAO#rebuildStats}.
+     *
+     * @param db The database.
+     */
+    static void createStatsTable(SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_HIKE_STATS);
+        for (String trigger : CREATE_HIKE_STATS_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+    }
+
+    /**
+     * Builds the trigger statements that add a hike to the bucket it falls into in every statistics dimension,
+     * creating buckets as needed. Passing negative counts takes the hike away again.
+     *
+     * @param row The trigger's name for the hike row, new or old.
+     * @param hikes The number of hikes to add, as SQL.
+     * @param observations The number of observations to add, as SQL that may refer to the row as {row}.
+     * @return The statements, each terminated by a semicolon.
+     */
+    static String addHikeToStats(String row, String hikes, String observations) {
+        StringBuilder sql = new StringBuilder();
+        for (String[] dimension : STATS_DIMENSIONS) {
+            sql.append("INSERT INTO ").append(TABLE_HIKE_STATS).append("(").append(KEY_STATS_DIMENSION).append(", ")
+                    .append(KEY_STATS_BUCKET).append(", ").append(KEY_STATS_HIKE_COUNT).append(", ")
+                    .append(KEY_STATS_TOTAL_LENGTH).append(", ").append(KEY_STATS_OBSERVATION_COUNT).append(") VALUES ('")
+                    .append(dimension[0]).append("', ").append(dimension[1]).append(", ").append(hikes).append(", ")
+                    .append(hikes).append(" * ").append(STATS_ROW).append(".").append(KEY_HIKE_LENGTH).append(", ")
+                    .append(observations).append(") ON CONFLICT(").append(KEY_STATS_DIMENSION).append(", ")
+                    .append(KEY_STATS_BUCKET).append(") DO UPDATE SET ")
+                    .append(KEY_STATS_HIKE_COUNT).append(" = ").append(KEY_STATS_HIKE_COUNT).append(" + excluded.").append(KEY_STATS_HIKE_COUNT).append(", ")
+                    .append(KEY_STATS_TOTAL_LENGTH).append(" = ").append(KEY_STATS_TOTAL_LENGTH).append(" + excluded.").append(KEY_STATS_TOTAL_LENGTH).append(", ")
+                    .append(KEY_STATS_OBSERVATION_COUNT).append(" = ").append(KEY_STATS_OBSERVATION_COUNT).append(" + excluded.").append(KEY_STATS_OBSERVATION_COUNT)
+                    .append("; ");
+        }
+        return sql.toString().replace(STATS_ROW, row);
+    }
+
+    /**
+     * Builds the trigger statements that add observations to the buckets of their hike. They do nothing if the hike
+     * no longer exists or does not meet the condition.
+     *
+     * @param row The trigger's name for the observation row, new or old.
+     * @param observations The number of observations to add, as SQL.
+     * @param hikeCondition A further condition on the hike, as SQL over its row h, or null to count every hike.
+     * @return The statements, each terminated by a semicolon.
+     */
+    static String addObservationToStats(String row, String observations, String hikeCondition) {
+        StringBuilder sql = new StringBuilder();
+        for (String[] dimension : STATS_DIMENSIONS) {
+            sql.append("UPDATE ").append(TABLE_HIKE_STATS).append(" SET ").append(KEY_STATS_OBSERVATION_COUNT).append(" = ")
+                    .append(KEY_STATS_OBSERVATION_COUNT).append(" + ").append(observations).append(" WHERE ")
+                    .append(KEY_STATS_DIMENSION).append(" = '").append(dimension[0]).append("' AND ")
+                    .append(KEY_STATS_BUCKET).append(" = (SELECT ").append(dimension[1].replace(STATS_ROW, "h"))
+                    .append(" FROM ").append(TABLE_HIKES).append(" h WHERE h.").append(KEY_HIKE_ID).append(" = ")
+                    .append(row).append(".").append(KEY_OBSERVATION_HIKE_ID_FK);
+            if (hikeCondition != null) {
+                sql.append(" AND ").append(hikeCondition);
+            }
+            sql.append("); ");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Builds a subquery for the text of a hike's most recent observation. It reads the observations_hike_time index
+     * backwards, since the index already orders each hike's observations by time and then by ID.
+     *
+     * @param hikeId The hike's ID, as SQL.
+     * @return The subquery, in parentheses.
+     */
+    private static String latestObservationOf(String hikeId) {
+        return "(SELECT " + KEY_OBSERVATION_TEXT + " FROM " + TABLE_OBSERVATIONS + " WHERE " + KEY_OBSERVATION_HIKE_ID_FK +
+                " = " + hikeId + " ORDER BY " + KEY_OBSERVATION_TIME + " DESC, " + KEY_OBSERVATION_ID + " DESC LIMIT 1)";
+    }
 }
@@ -0,0 +1,137 @@
+package com.example.coursework.data.sqlite;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.example.coursework.data.models.HikeDates;
+
+/**
+ * Version 3: stores hike dates as indexed epoch days instead of d/M/yyyy text.
+ * <p>
+ * SQLite cannot change a column's type in place, so the rows are copied in batches into a new table, converting each
+ * date on the way, and the new table then replaces the old one. Hike IDs and the AUTOINCREMENT counter are preserved,
+ * so observations and the search index still point at the right hikes.
+ * <p>
+ * Every date came from the date picker, so all of them are expected to parse. One that does not cannot be given a
+ * real date; it is stored as day 0 (1/1/1970), logged, and its original text is kept in {@link #TABLE_UNPARSED_DATES}
+ * under the hike's ID so that it can still be recovered.
+ */
+class EpochDayDateMigration extends Migration {
+
+    private static final String TAG = "EpochDayDateMigration";
+
+    // The original text of each date that could not be converted, by hike ID. A side table rather than a column, so
+    // that the hikes table has the same shape whether it was created or upgraded.
+    static final String TABLE_UNPARSED_DATES = "hike_unparsed_dates";
+    private static final String CREATE_TABLE_UNPARSED_DATES = "CREATE TABLE IF NOT EXISTS " + TABLE_UNPARSED_DATES +
+            "(hike_id INTEGER PRIMARY KEY, date_text TEXT)";
+
+    // The 'hikes' table as of version 3, built alongside the old table while its dates are converted.
+    // Kept separate from the current schema so that later changes to the table do not alter this step.
+    private static final String TABLE_HIKES_V3 = "hikes_v3";
+    private static final String CREATE_TABLE_HIKES_V3 = "CREATE TABLE IF NOT EXISTS " + TABLE_HIKES_V3 +
+            "(" +
+            DatabaseHelper.KEY_HIKE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+            DatabaseHelper.KEY_HIKE_NAME + " TEXT NOT NULL," +
+            DatabaseHelper.KEY_HIKE_LOCATION + " TEXT NOT NULL," +
+            DatabaseHelper.KEY_HIKE_DATE + " INTEGER NOT NULL," +
+            DatabaseHelper.KEY_HIKE_PARKING + " TEXT NOT NULL," +
+            DatabaseHelper.KEY_HIKE_LENGTH + " REAL NOT NULL," +
+            DatabaseHelper.KEY_HIKE_DIFFICULTY + " TEXT NOT NULL," +
+            DatabaseHelper.KEY_HIKE_DESCRIPTION + " TEXT," +
+            DatabaseHelper.KEY_HIKE_WEATHER + " TEXT," +
+            DatabaseHelper.KEY_HIKE_RECOMMENDED_GEAR + " TEXT" +
+            ")";
+
+    // Columns in the order they are read from the old table and bound into the new one.
+    private static final String[] COLUMNS = {
+            DatabaseHelper.KEY_HIKE_ID, DatabaseHelper.KEY_HIKE_NAME, DatabaseHelper.KEY_HIKE_LOCATION, DatabaseHelper.KEY_HIKE_DATE,
+            DatabaseHelper.KEY_HIKE_PARKING, DatabaseHelper.KEY_HIKE_LENGTH, DatabaseHelper.KEY_HIKE_DIFFICULTY,
+            DatabaseHelper.KEY_HIKE_DESCRIPTION, DatabaseHelper.KEY_HIKE_WEATHER, DatabaseHelper.KEY_HIKE_RECOMMENDED_GEAR
+    };
+    private static final int DATE_COLUMN = 3;
+
+    EpochDayDateMigration() {
+        super(3);
+    }
+
+    @Override
+    void prepare(SQLiteDatabase db, MigrationRunner.ProgressListener listener) {
+        db.execSQL(CREATE_TABLE_HIKES_V3);
+        db.execSQL(CREATE_TABLE_UNPARSED_DATES);
+
+        copyInBatches(db, DatabaseHelper.TABLE_HIKES, new BatchCopy() {
+            @Override
+            public long lastCopiedId(SQLiteDatabase db) {
+                return count(db, "SELECT max(" + DatabaseHelper.KEY_HIKE_ID + ") FROM " + TABLE_HIKES_V3, null);
+            }
+
+            @Override
+            public int copyAfter(SQLiteDatabase db, long afterId, int limit) {
+                SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE_HIKES_V3 + "(" + String.join(", ", COLUMNS) + ") " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+                // Part of the batch's transaction, so a resumed copy never loses or repeats one.
+                SQLiteStatement keepUnparsed = db.compileStatement("INSERT OR REPLACE INTO " + TABLE_UNPARSED_DATES +
+                        "(hike_id, date_text) VALUES (?, ?)");
+                Cursor cursor = db.query(DatabaseHelper.TABLE_HIKES, COLUMNS, DatabaseHelper.KEY_HIKE_ID + " > ?",
+                        new String[]{String.valueOf(afterId)}, null, null, DatabaseHelper.KEY_HIKE_ID, String.valueOf(limit));
+                int copied = 0;
+                while (cursor.moveToNext()) {
+                    insert.clearBindings();
+                    for (int i = 0; i < COLUMNS.length; i++) {
+                        if (i == DATE_COLUMN) {
+                            String text = cursor.getString(i);
+                            Long epochDay = HikeDates.parse(text);
+                            if (epochDay == null) {
+                                long hikeId = cursor.getLong(0);
+                                Log.w(TAG, "Hike " + hikeId + " has an unreadable date \"" + text + "\"; stored as 1/1/1970, " +
+                                        "original kept in " + TABLE_UNPARSED_DATES);
+                                keepUnparsed.bindLong(1, hikeId);
+                                DatabaseHelper.bindStringOrNull(keepUnparsed, 2, text);
+                                keepUnparsed.executeInsert();
+                                keepUnparsed.clearBindings();
+                            }
+                            insert.bindLong(i + 1, epochDay != null ? epochDay : 0);
+                            continue;
+                        }
+                        switch (cursor.getType(i)) {
+                            case Cursor.FIELD_TYPE_INTEGER:
+                                insert.bindLong(i + 1, cursor.getLong(i));
+                                break;
+                            case Cursor.FIELD_TYPE_FLOAT:
+                                insert.bindDouble(i + 1, cursor.getDouble(i));
+                                break;
+                            case Cursor.FIELD_TYPE_NULL:
+                                break;
+                            default:
+                                insert.bindString(i + 1, cursor.getString(i));
+                                break;
+                        }
+                    }
+                    insert.executeInsert();
+                    copied++;
+                }
+                cursor.close();
+                insert.close();
+                keepUnparsed.close();
+                return copied;
+            }
+        }, listener);
+    }
+
+    @Override
+    void finish(SQLiteDatabase db) {
+        long sequence = count(db, "SELECT seq FROM sqlite_sequence WHERE name = ?", new String[]{DatabaseHelper.TABLE_HIKES});
+
+        // Dropping the old table also drops its search triggers, which are recreated on the new one.
+        db.execSQL("DROP TABLE " + DatabaseHelper.TABLE_HIKES);
+        db.execSQL("ALTER TABLE " + TABLE_HIKES_V3 + " RENAME TO " + DatabaseHelper.TABLE_HIKES);
+        db.execSQL("UPDATE sqlite_sequence SET seq = max(seq, ?) WHERE name = ?", new Object[]{sequence, DatabaseHelper.TABLE_HIKES});
+        db.execSQL(DatabaseHelper.CREATE_INDEX_HIKES_DATE);
+        for (String trigger : DatabaseHelper.CREATE_HIKE_SEARCH_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+    }
+}
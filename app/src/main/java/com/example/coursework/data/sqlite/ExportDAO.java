@@ -0,0 +1,135 @@
+package com.example.coursework.data.sqlite;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.CancellationSignal;
+
+import com.example.coursework.data.models.Hike;
+import com.example.coursework.data.models.HikeRecord;
+import com.example.coursework.data.models.Observation;
+
+import java.io.IOException;
+
+/**
+ * Data Access Object (DAO) that streams every hike outside the trash, joined with its observations, for export.
+ * <p>
+ * The join is read one page of hikes at a time, keyed on the hike ID. A single cursor over the whole join would not
+ * stay cheap: each time a cursor moves past its window, the query is run again and stepped from the first row up to
+ * the new position, so reading a very large result through one cursor takes quadratic time.
+ */
+public class ExportDAO {
+
+    // Hikes per page. Small enough that a page, with its observations, usually fits in one cursor window.
+    private static final int HIKES_PER_PAGE = 100;
+
+    // Observation columns of the join, named like the columns of an export file.
+    private static final String KEY_EXPORT_OBSERVATION = "observation";
+    private static final String KEY_EXPORT_OBSERVATION_TIME = "observation_time";
+    private static final String KEY_EXPORT_OBSERVATION_COMMENTS = "observation_comments";
+
+    // One page of the join: the next hikes after a given ID, each followed by its observations in time order.
+    // Hikes without observations appear once, with null observation columns. Hikes in the trash are not exported.
+    private static final String SELECT_EXPORT_PAGE = "SELECT h.*, o." + DatabaseHelper.KEY_OBSERVATION_TEXT + " AS " +
+            KEY_EXPORT_OBSERVATION + ", o." + DatabaseHelper.KEY_OBSERVATION_TIME + " AS " + KEY_EXPORT_OBSERVATION_TIME +
+            ", o." + DatabaseHelper.KEY_OBSERVATION_COMMENTS + " AS " + KEY_EXPORT_OBSERVATION_COMMENTS +
+            " FROM " + DatabaseHelper.TABLE_HIKES + " h LEFT JOIN " + DatabaseHelper.TABLE_OBSERVATIONS + " o ON o." +
+            DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK + " = h." + DatabaseHelper.KEY_HIKE_ID +
+            " WHERE h." + DatabaseHelper.KEY_HIKE_ID + " IN (SELECT " + DatabaseHelper.KEY_HIKE_ID + " FROM " +
+            DatabaseHelper.TABLE_HIKES + " WHERE " + DatabaseHelper.KEY_HIKE_ID + " > ? AND " + DatabaseHelper.HIKE_NOT_TRASHED + " ORDER BY " +
+            DatabaseHelper.KEY_HIKE_ID + " LIMIT " + HIKES_PER_PAGE + ")" +
+            " ORDER BY h." + DatabaseHelper.KEY_HIKE_ID + ", o." + DatabaseHelper.KEY_OBSERVATION_TIME + ", o." +
+            DatabaseHelper.KEY_OBSERVATION_ID;
+
+    // Number of rows the join produces: one per observation of an exported hike, plus one per hike without any.
+    private static final String COUNT_EXPORT_ROWS = "SELECT count(*) FROM " + DatabaseHelper.TABLE_HIKES + " h LEFT JOIN " +
+            DatabaseHelper.TABLE_OBSERVATIONS + " o ON o." + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK + " = h." +
+            DatabaseHelper.KEY_HIKE_ID + " WHERE h." + DatabaseHelper.HIKE_NOT_TRASHED;
+
+    /**
+     * Receives the records of an export, in hike ID order; the records of one hike are consecutive and share the
+     * same {@link Hike} instance.
+     */
+    public interface RecordSink {
+        /**
+         * Called for each record.
+         * @param record The record. Its hike key is the hike's ID.
+         * @throws IOException If the record could not be written.
+         */
+        void accept(HikeRecord record) throws IOException;
+    }
+
+    private final DatabaseHelper dbHelper;
+
+    /**
+     * Constructor for ExportDAO.
+     * The DAO borrows connections from the shared {@link DatabaseHelper} and never closes the database itself.
+     * @param context The application context.
+     */
+    public ExportDAO(Context context) {
+        dbHelper = DatabaseHelper.getInstance(context);
+    }
+
+    /**
+     * Returns the shared database. The first call opens it, so this must not be called on the main thread.
+     * @return The writable database.
+     */
+    private SQLiteDatabase database() {
+        return dbHelper.getWritableDatabase();
+    }
+
+    /**
+     * Counts the records {@link #streamRecords} will produce.
+     * @return The number of records.
+     */
+    public long countRecords() {
+        return Migration.count(database(), COUNT_EXPORT_ROWS, null);
+    }
+
+    /**
+     * Streams every hike and observation to a sink. Only one page of rows is held in memory at a time. Writes that
+     * happen while the export runs may or may not be included.
+     * @param sink Receives the records.
+     * @param signal Cancels the export, may be null.
+     * @throws IOException If the sink fails.
+     * @throws android.os.OperationCanceledException If the export was cancelled.
+     */
+    public void streamRecords(RecordSink sink, CancellationSignal signal) throws IOException {
+        long lastHikeId = 0;
+        while (true) {
+            Cursor cursor = database().rawQuery(SELECT_EXPORT_PAGE, new String[]{String.valueOf(lastHikeId)}, signal);
+            try {
+                if (!cursor.moveToFirst()) {
+                    return;
+                }
+                // Resolve the columns once per page rather than once per row.
+                HikeColumns hikeColumns = new HikeColumns(cursor);
+                int observationIndex = cursor.getColumnIndexOrThrow(KEY_EXPORT_OBSERVATION);
+                int timeIndex = cursor.getColumnIndexOrThrow(KEY_EXPORT_OBSERVATION_TIME);
+                int commentsIndex = cursor.getColumnIndexOrThrow(KEY_EXPORT_OBSERVATION_COMMENTS);
+
+                Hike hike = null;
+                String hikeKey = null;
+                do {
+                    long hikeId = hikeColumns.readId(cursor);
+                    if (hike == null || hike.getId() != hikeId) {
+                        hike = hikeColumns.readHike(cursor);
+                        hikeKey = String.valueOf(hikeId);
+                    }
+                    Observation observation = null;
+                    if (!cursor.isNull(observationIndex)) {
+                        observation = new Observation(hikeId, cursor.getString(observationIndex), cursor.getString(timeIndex),
+                                cursor.getString(commentsIndex));
+                    }
+                    sink.accept(new HikeRecord(hikeKey, hike, observation));
+                    lastHikeId = hikeId;
+                } while (cursor.moveToNext());
+            } finally {
+                cursor.close();
+            }
+            if (signal != null) {
+                signal.throwIfCanceled();
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.coursework.data.sqlite;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * Version 5: makes deleting a hike delete its observations, and removes the observations already orphaned by earlier
+ * deletes.
+ * <p>
+ * SQLite cannot add an ON DELETE action to an existing foreign key, so the observations that still belong to a hike
+ * are copied in batches into a new table declaring the cascade, and the new table then replaces the old one.
+ * Orphans, including observations without a hike ID, are simply not copied. Observation IDs and the AUTOINCREMENT
+ * counter are preserved.
+ */
+class ForeignKeyMigration extends Migration {
+
+    // The 'observations' table as of version 5, built alongside the old table while the observations are copied.
+    // Kept separate from the current schema so that later changes to the table do not alter this step.
+    private static final String TABLE_OBSERVATIONS_V5 = "observations_v5";
+    private static final String CREATE_TABLE_OBSERVATIONS_V5 = "CREATE TABLE IF NOT EXISTS " + TABLE_OBSERVATIONS_V5 +
+            "(" +
+            DatabaseHelper.KEY_OBSERVATION_ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+            DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK + " INTEGER NOT NULL," +
+            DatabaseHelper.KEY_OBSERVATION_TEXT + " TEXT NOT NULL," +
+            DatabaseHelper.KEY_OBSERVATION_TIME + " TEXT NOT NULL," +
+            DatabaseHelper.KEY_OBSERVATION_COMMENTS + " TEXT," +
+            "FOREIGN KEY(" + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK + ") REFERENCES " + DatabaseHelper.TABLE_HIKES +
+            "(" + DatabaseHelper.KEY_HIKE_ID + ") ON DELETE CASCADE" +
+            ")";
+
+    private static final String COLUMNS = DatabaseHelper.KEY_OBSERVATION_ID + ", " + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK +
+            ", " + DatabaseHelper.KEY_OBSERVATION_TEXT + ", " + DatabaseHelper.KEY_OBSERVATION_TIME + ", " +
+            DatabaseHelper.KEY_OBSERVATION_COMMENTS;
+
+    // Copies the next batch of observations whose hike still exists, in ID order.
+    private static final String COPY_BATCH = "INSERT INTO " + TABLE_OBSERVATIONS_V5 + "(" + COLUMNS + ") SELECT " + COLUMNS +
+            " FROM " + DatabaseHelper.TABLE_OBSERVATIONS + " WHERE " + DatabaseHelper.KEY_OBSERVATION_ID + " > ? AND " +
+            DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK + " IN (SELECT " + DatabaseHelper.KEY_HIKE_ID + " FROM " +
+            DatabaseHelper.TABLE_HIKES + ") ORDER BY " + DatabaseHelper.KEY_OBSERVATION_ID + " LIMIT ?";
+
+    ForeignKeyMigration() {
+        super(5);
+    }
+
+    @Override
+    void prepare(SQLiteDatabase db, MigrationRunner.ProgressListener listener) {
+        db.execSQL(CREATE_TABLE_OBSERVATIONS_V5);
+
+        copyInBatches(db, DatabaseHelper.TABLE_OBSERVATIONS, new BatchCopy() {
+            @Override
+            public long lastCopiedId(SQLiteDatabase db) {
+                return count(db, "SELECT max(" + DatabaseHelper.KEY_OBSERVATION_ID + ") FROM " + TABLE_OBSERVATIONS_V5, null);
+            }
+
+            @Override
+            public int copyAfter(SQLiteDatabase db, long afterId, int limit) {
+                SQLiteStatement copy = db.compileStatement(COPY_BATCH);
+                try {
+                    copy.bindLong(1, afterId);
+                    copy.bindLong(2, limit);
+                    return copy.executeUpdateDelete();
+                } finally {
+                    copy.close();
+                }
+            }
+        }, listener);
+    }
+
+    @Override
+    void finish(SQLiteDatabase db) {
+        long sequence = count(db, "SELECT seq FROM sqlite_sequence WHERE name = ?", new String[]{DatabaseHelper.TABLE_OBSERVATIONS});
+
+        // Dropping the old table also drops its index and search triggers, which are recreated on the new one.
+        db.execSQL("DROP TABLE " + DatabaseHelper.TABLE_OBSERVATIONS);
+        db.execSQL("ALTER TABLE " + TABLE_OBSERVATIONS_V5 + " RENAME TO " + DatabaseHelper.TABLE_OBSERVATIONS);
+        db.execSQL("UPDATE sqlite_sequence SET seq = max(seq, ?) WHERE name = ?", new Object[]{sequence, DatabaseHelper.TABLE_OBSERVATIONS});
+        db.execSQL(DatabaseHelper.CREATE_INDEX_OBSERVATIONS_HIKE_TIME);
+        for (String trigger : DatabaseHelper.CREATE_OBSERVATION_SEARCH_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.coursework.data.sqlite;
+
+import android.database.Cursor;
+
+import com.example.coursework.data.models.Hike;
+import com.example.coursework.data.models.HikeSummary;
+
+/**
+ * Positions of the hike columns in a cursor. Looking a column up by name walks the cursor's column names, so the
+ * positions are resolved once per cursor and every row is then read by index.
+ */
+final class HikeColumns {
+
+    // Columns read into a HikeSummary; list and search queries select only these.
+    static final String[] SUMMARY = {DatabaseHelper.KEY_HIKE_ID, DatabaseHelper.KEY_HIKE_NAME,
+            DatabaseHelper.KEY_HIKE_LOCATION, DatabaseHelper.KEY_HIKE_DATE, DatabaseHelper.KEY_HIKE_PARKING,
+            DatabaseHelper.KEY_HIKE_LENGTH, DatabaseHelper.KEY_HIKE_DIFFICULTY, DatabaseHelper.KEY_HIKE_OBSERVATION_COUNT,
+            DatabaseHelper.KEY_HIKE_LATEST_OBSERVATION};
+
+    private final int id;
+    private final int name;
+    private final int location;
+    private final int date;
+    private final int parking;
+    private final int length;
+    private final int difficulty;
+    private final int observationCount;
+    private final int latestObservation;
+    // The text columns only a full Hike needs; -1 if the cursor does not have them.
+    private final int description;
+    private final int weather;
+    private final int recommendedGear;
+
+    /**
+     * Resolves the hike columns of a cursor.
+     * @param cursor The cursor; it must have at least the summary columns.
+     */
+    HikeColumns(Cursor cursor) {
+        id = cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_ID);
+        name = cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_NAME);
+        location = cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_LOCATION);
+        date = cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_DATE);
+        parking = cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_PARKING);
+        length = cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_LENGTH);
+        difficulty = cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_DIFFICULTY);
+        observationCount = cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_OBSERVATION_COUNT);
+        latestObservation = cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_LATEST_OBSERVATION);
+        description = cursor.getColumnIndex(DatabaseHelper.KEY_HIKE_DESCRIPTION);
+        weather = cursor.getColumnIndex(DatabaseHelper.KEY_HIKE_WEATHER);
+        recommendedGear = cursor.getColumnIndex(DatabaseHelper.KEY_HIKE_RECOMMENDED_GEAR);
+    }
+
+    /**
+     * Reads the hike ID of the current row.
+     * @param cursor The cursor these positions were resolved for.
+     * @return The hike ID.
+     */
+    long readId(Cursor cursor) {
+        return cursor.getLong(id);
+    }
+
+    /**
+     * Reads the current row as a summary.
+     * @param cursor The cursor these positions were resolved for.
+     * @return The summary.
+     */
+    HikeSummary readSummary(Cursor cursor) {
+        return new HikeSummary(cursor.getLong(id), cursor.getString(name), cursor.getString(location), cursor.getLong(date),
+                cursor.getString(parking), cursor.getDouble(length), cursor.getString(difficulty), cursor.getInt(observationCount),
+                cursor.getString(latestObservation));
+    }
+
+    /**
+     * Reads the current row as a full hike.
+     * @param cursor The cursor these positions were resolved for; it must have every hike column.
+     * @return The hike.
+     */
+    Hike readHike(Cursor cursor) {
+        if (description < 0 || weather < 0 || recommendedGear < 0) {
+            throw new IllegalStateException("The cursor has only the summary columns of the hikes table");
+        }
+        Hike hike = new Hike(cursor.getString(name), cursor.getString(location), cursor.getLong(date), cursor.getString(parking),
+                cursor.getDouble(length), cursor.getString(difficulty), cursor.getString(description), cursor.getString(weather),
+                cursor.getString(recommendedGear));
+        hike.setId(cursor.getLong(id));
+        return hike;
+    }
+}
@@ -1,11 +1,16 @@
 package com.example.coursework.data.sqlite;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
 import com.example.coursework.data.models.Hike;
+import com.example.coursework.data.models.HikeFilter;
+import com.example.coursework.data.models.HikeSummary;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -14,29 +19,56 @@ import java.util.List;
  */
 public class HikeDAO {
 
-    private SQLiteDatabase database;
-    private DatabaseHelper dbHelper;
+    private static final String TAG = "HikeDAO";
+
+    // Fixed-shape statements. Writes are compiled once and reused; the lookup text is constant, so each connection
+    // finds it already prepared in its statement cache.
+    static final String INSERT_HIKE = "INSERT INTO " + DatabaseHelper.TABLE_HIKES + "(" +
+            DatabaseHelper.KEY_HIKE_NAME + ", " + DatabaseHelper.KEY_HIKE_LOCATION + ", " + DatabaseHelper.KEY_HIKE_DATE + ", " +
+            DatabaseHelper.KEY_HIKE_PARKING + ", " + DatabaseHelper.KEY_HIKE_LENGTH + ", " + DatabaseHelper.KEY_HIKE_DIFFICULTY + ", " +
+            DatabaseHelper.KEY_HIKE_DESCRIPTION + ", " + DatabaseHelper.KEY_HIKE_WEATHER + ", " + DatabaseHelper.KEY_HIKE_RECOMMENDED_GEAR +
+            ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    static final String UPDATE_HIKE = "UPDATE " + DatabaseHelper.TABLE_HIKES + " SET " +
+            DatabaseHelper.KEY_HIKE_NAME + " = ?, " + DatabaseHelper.KEY_HIKE_LOCATION + " = ?, " + DatabaseHelper.KEY_HIKE_DATE + " = ?, " +
+            DatabaseHelper.KEY_HIKE_PARKING + " = ?, " + DatabaseHelper.KEY_HIKE_LENGTH + " = ?, " + DatabaseHelper.KEY_HIKE_DIFFICULTY + " = ?, " +
+            DatabaseHelper.KEY_HIKE_DESCRIPTION + " = ?, " + DatabaseHelper.KEY_HIKE_WEATHER + " = ?, " +
+            DatabaseHelper.KEY_HIKE_RECOMMENDED_GEAR + " = ? WHERE " + DatabaseHelper.KEY_HIKE_ID + " = ?";
+    // Most arguments bound to one multi-row statement; older SQLite builds allow at most 999 per statement.
+    private static final int MAX_ID_ARGS = 999;
+    static final String SELECT_HIKE_BY_ID = "SELECT * FROM " + DatabaseHelper.TABLE_HIKES + " WHERE " + DatabaseHelper.KEY_HIKE_ID + " = ?";
+    private static final String SELECT_ALL_HIKES = "SELECT * FROM " + DatabaseHelper.TABLE_HIKES;
+    private static final String SELECT_LIVE_HIKES = SELECT_ALL_HIKES + " WHERE " + DatabaseHelper.HIKE_NOT_TRASHED;
+    private static final String SELECT_SUMMARIES = "SELECT " + String.join(", ", HikeColumns.SUMMARY) + " FROM " +
+            DatabaseHelper.TABLE_HIKES;
+    // The trash, most recently trashed first, read in order from the partial index on deleted_at.
+    static final String SELECT_TRASHED_HIKES = SELECT_SUMMARIES + " WHERE " + DatabaseHelper.KEY_HIKE_DELETED_AT +
+            " IS NOT NULL ORDER BY " + DatabaseHelper.KEY_HIKE_DELETED_AT + " DESC, " + DatabaseHelper.KEY_HIKE_ID + " DESC";
+    private static final String TRASH_ALL_HIKES = "UPDATE " + DatabaseHelper.TABLE_HIKES + " SET " +
+            DatabaseHelper.KEY_HIKE_DELETED_AT + " = ? WHERE " + DatabaseHelper.HIKE_NOT_TRASHED;
+    // The hikes trashed longest ago, up to a limit, also read from the partial index.
+    static final String SELECT_EXPIRED_HIKE_IDS = "SELECT " + DatabaseHelper.KEY_HIKE_ID + " FROM " + DatabaseHelper.TABLE_HIKES +
+            " WHERE " + DatabaseHelper.KEY_HIKE_DELETED_AT + " < ? ORDER BY " + DatabaseHelper.KEY_HIKE_DELETED_AT + " LIMIT ?";
+
+    private final DatabaseHelper dbHelper;
+    // Every method records its latency, row count and SQL here.
+    private final QueryMetrics metrics;
 
     /**
      * Constructor for HikeDAO.
+     * The DAO borrows connections from the shared {@link DatabaseHelper} and never closes the database itself.
      * @param context The application context.
      */
     public HikeDAO(Context context) {
-        dbHelper = new DatabaseHelper(context);
-    }
-
-    /**
-     * Opens the database for writing.
-     */
-    public void open() {
-        database = dbHelper.getWritableDatabase();
+        dbHelper = DatabaseHelper.getInstance(context);
+        metrics = dbHelper.getQueryMetrics();
     }
 
     /**
-     * Closes the database connection.
+     * Returns the shared database. The first call opens it, so this must not be called on the main thread.
+     * @return The writable database.
      */
-    public void close() {
-        dbHelper.close();
+    private SQLiteDatabase database() {
+        return dbHelper.getWritableDatabase();
     }
 
     /**
@@ -45,65 +77,58 @@ public class HikeDAO {
      * @return The ID of the newly inserted hike, or -1 if an error occurred.
      */
     public long addHike(Hike hike) {
-        ContentValues values = new ContentValues();
-        values.put(DatabaseHelper.KEY_HIKE_NAME, hike.getName());
-        values.put(DatabaseHelper.KEY_HIKE_LOCATION, hike.getLocation());
-        values.put(DatabaseHelper.KEY_HIKE_DATE, hike.getDate());
-        values.put(DatabaseHelper.KEY_HIKE_PARKING, hike.getParkingAvailable());
-        values.put(DatabaseHelper.KEY_HIKE_LENGTH, hike.getLength());
-        values.put(DatabaseHelper.KEY_HIKE_DIFFICULTY, hike.getDifficulty());
-        values.put(DatabaseHelper.KEY_HIKE_DESCRIPTION, hike.getDescription());
-        values.put(DatabaseHelper.KEY_HIKE_WEATHER, hike.getWeather());
-        values.put(DatabaseHelper.KEY_HIKE_RECOMMENDED_GEAR, hike.getRecommendedGear());
-
-        return database.insert(DatabaseHelper.TABLE_HIKES, null, values);
+        long start = QueryMetrics.start();
+        long id = -1;
+        SQLiteStatement statement = dbHelper.getStatement(INSERT_HIKE);
+        synchronized (statement) {
+            try {
+                bindHike(statement, hike);
+                id = statement.executeInsert();
+                dbHelper.getInvalidationTracker().markChanged(DatabaseHelper.TABLE_HIKES);
+            } catch (SQLException e) {
+                // Same result as SQLiteDatabase.insert, which logs a failed insert and reports it as -1.
+                Log.e(TAG, "Could not insert a hike", e);
+            } finally {
+                statement.clearBindings();
+            }
+        }
+        metrics.record("HikeDAO.addHike", start, id == -1 ? 0 : 1, 0, INSERT_HIKE, null);
+        return id;
     }
 
     /**
-     * Retrieves all hikes from the database.
+     * Retrieves all hikes from the database, except those in the trash.
      * @return A list of all Hike objects.
      */
     public List<Hike> getAllHikes() {
-        List<Hike> hikes = new ArrayList<>();
-        Cursor cursor = database.query(DatabaseHelper.TABLE_HIKES, null, null, null, null, null, null);
-
-        if (cursor != null) {
-            cursor.moveToFirst();
-            while (!cursor.isAfterLast()) {
-                Hike hike = cursorToHike(cursor);
-                hikes.add(hike);
-                cursor.moveToNext();
-            }
-            cursor.close();
-        }
+        long start = QueryMetrics.start();
+        List<Hike> hikes = cursorToHikes(database().rawQuery(SELECT_LIVE_HIKES, null));
+        metrics.record("HikeDAO.getAllHikes", start, hikes.size(), sizeOfHikes(hikes), SELECT_LIVE_HIKES, null);
         return hikes;
     }
 
     /**
-     * Retrieves a single hike by its ID.
+     * Retrieves a single hike by its ID, whether or not it is in the trash.
      * @param hikeId The ID of the hike to retrieve.
      * @return The Hike object if found, otherwise null.
      */
     public Hike getHikeById(long hikeId) {
-        Cursor cursor = database.query(DatabaseHelper.TABLE_HIKES,
-                null, // all columns
-                DatabaseHelper.KEY_HIKE_ID + " = ?", // selection
-                new String[]{String.valueOf(hikeId)}, // selection args
-                null, // groupBy
-                null, // having
-                null); // orderBy
+        long start = QueryMetrics.start();
+        String[] selectionArgs = new String[]{String.valueOf(hikeId)};
+        Cursor cursor = database().rawQuery(SELECT_HIKE_BY_ID, selectionArgs);
+        Hike hike = null; // Hike not found
 
         if (cursor != null && cursor.moveToFirst()) {
-            Hike hike = cursorToHike(cursor);
-            cursor.close();
-            return hike;
+            hike = cursorToHike(cursor);
         }
 
         if(cursor != null){
             cursor.close();
         }
 
-        return null; // Hike not found
+        metrics.record("HikeDAO.getHikeById", start, hike == null ? 0 : 1, hike == null ? 0 : sizeOf(hike),
+                SELECT_HIKE_BY_ID, selectionArgs);
+        return hike;
     }
 
     /**
@@ -112,70 +137,366 @@ public class HikeDAO {
      * @return The number of rows affected.
      */
     public int updateHike(Hike hike) {
-        ContentValues values = new ContentValues();
-        values.put(DatabaseHelper.KEY_HIKE_NAME, hike.getName());
-        values.put(DatabaseHelper.KEY_HIKE_LOCATION, hike.getLocation());
-        values.put(DatabaseHelper.KEY_HIKE_DATE, hike.getDate());
-        values.put(DatabaseHelper.KEY_HIKE_PARKING, hike.getParkingAvailable());
-        values.put(DatabaseHelper.KEY_HIKE_LENGTH, hike.getLength());
-        values.put(DatabaseHelper.KEY_HIKE_DIFFICULTY, hike.getDifficulty());
-        values.put(DatabaseHelper.KEY_HIKE_DESCRIPTION, hike.getDescription());
-        values.put(DatabaseHelper.KEY_HIKE_WEATHER, hike.getWeather());
-        values.put(DatabaseHelper.KEY_HIKE_RECOMMENDED_GEAR, hike.getRecommendedGear());
+        long start = QueryMetrics.start();
+        int rows;
+        SQLiteStatement statement = dbHelper.getStatement(UPDATE_HIKE);
+        synchronized (statement) {
+            try {
+                bindHike(statement, hike);
+                statement.bindLong(10, hike.getId());
+                rows = statement.executeUpdateDelete();
+                if (rows > 0) {
+                    dbHelper.getInvalidationTracker().markChanged(DatabaseHelper.TABLE_HIKES);
+                }
+            } finally {
+                statement.clearBindings();
+            }
+        }
+        metrics.record("HikeDAO.updateHike", start, rows, 0, UPDATE_HIKE, null);
+        return rows;
+    }
 
-        return database.update(DatabaseHelper.TABLE_HIKES, values, DatabaseHelper.KEY_HIKE_ID + " = ?",
-                new String[]{String.valueOf(hike.getId())});
+    /**
+     * Moves hikes to the trash. They keep their rows and observations, but leave every list, search and statistic
+     * until they are restored or purged.
+     * @param hikeIds The IDs of the hikes to trash. Hikes already in the trash keep their original time.
+     * @param deletedAt The time to record, in milliseconds since the epoch.
+     * @return The number of hikes moved to the trash.
+     */
+    public int trashHikes(List<Long> hikeIds, long deletedAt) {
+        return updateByIds("UPDATE " + DatabaseHelper.TABLE_HIKES + " SET " + DatabaseHelper.KEY_HIKE_DELETED_AT + " = ? WHERE " +
+                DatabaseHelper.HIKE_NOT_TRASHED + " AND " + DatabaseHelper.KEY_HIKE_ID + " IN ", deletedAt, hikeIds,
+                "HikeDAO.trashHikes", DatabaseHelper.TABLE_HIKES);
     }
 
     /**
-     * Deletes a hike from the database by its ID.
-     * @param hikeId The ID of the hike to delete.
+     * Moves every hike that is not in the trash yet to the trash.
+     * @param deletedAt The time to record, in milliseconds since the epoch.
+     * @return The number of hikes moved to the trash.
      */
-    public void deleteHike(long hikeId) {
-        database.delete(DatabaseHelper.TABLE_HIKES, DatabaseHelper.KEY_HIKE_ID + " = " + hikeId, null);
+    public int trashAllHikes(long deletedAt) {
+        long start = QueryMetrics.start();
+        int rows;
+        SQLiteStatement statement = dbHelper.getStatement(TRASH_ALL_HIKES);
+        synchronized (statement) {
+            try {
+                statement.bindLong(1, deletedAt);
+                rows = statement.executeUpdateDelete();
+                if (rows > 0) {
+                    dbHelper.getInvalidationTracker().markChanged(DatabaseHelper.TABLE_HIKES);
+                }
+            } finally {
+                statement.clearBindings();
+            }
+        }
+        metrics.record("HikeDAO.trashAllHikes", start, rows, 0, TRASH_ALL_HIKES, null);
+        return rows;
     }
 
     /**
-     * Deletes all hikes from the database.
+     * Takes hikes out of the trash, back into the lists, search and statistics.
+     * @param hikeIds The IDs of the hikes to restore.
+     * @return The number of hikes restored.
      */
-    public void deleteAllHikes() {
-        database.delete(DatabaseHelper.TABLE_HIKES, null, null);
+    public int restoreHikes(List<Long> hikeIds) {
+        return updateByIds("UPDATE " + DatabaseHelper.TABLE_HIKES + " SET " + DatabaseHelper.KEY_HIKE_DELETED_AT + " = NULL WHERE " +
+                DatabaseHelper.KEY_HIKE_DELETED_AT + " IS NOT NULL AND " + DatabaseHelper.KEY_HIKE_ID + " IN ", null, hikeIds,
+                "HikeDAO.restoreHikes", DatabaseHelper.TABLE_HIKES);
+    }
+
+    /**
+     * Retrieves the hikes in the trash.
+     * @return Their summaries, most recently trashed first.
+     */
+    public List<HikeSummary> getTrashedHikes() {
+        long start = QueryMetrics.start();
+        List<HikeSummary> summaries = cursorToSummaries(database().rawQuery(SELECT_TRASHED_HIKES, null));
+        long bytes = 0;
+        for (HikeSummary summary : summaries) {
+            bytes += sizeOf(summary);
+        }
+        metrics.record("HikeDAO.getTrashedHikes", start, summaries.size(), bytes, SELECT_TRASHED_HIKES, null);
+        return summaries;
+    }
+
+    /**
+     * Deletes for good a bounded batch of the hikes that were moved to the trash before a cutoff, together with their
+     * observations, in one transaction. The hikes trashed longest ago go first.
+     * @param trashedBefore The cutoff, in milliseconds since the epoch.
+     * @param limit The most hikes to delete.
+     * @return The IDs of the deleted hikes; fewer than limit means no expired hikes are left.
+     */
+    public List<Long> purgeTrashedHikes(long trashedBefore, int limit) {
+        long start = QueryMetrics.start();
+        String[] selectionArgs = {String.valueOf(trashedBefore), String.valueOf(limit)};
+        SQLiteDatabase db = database();
+        List<Long> hikeIds = new ArrayList<>();
+        InvalidationTracker tracker = dbHelper.getInvalidationTracker();
+        tracker.beginTransaction(db);
+        try {
+            Cursor cursor = db.rawQuery(SELECT_EXPIRED_HIKE_IDS, selectionArgs);
+            try {
+                while (cursor.moveToNext()) {
+                    hikeIds.add(cursor.getLong(0));
+                }
+            } finally {
+                cursor.close();
+            }
+            deleteHikes(hikeIds);
+            db.setTransactionSuccessful();
+        } finally {
+            tracker.endTransaction(db);
+        }
+        metrics.record("HikeDAO.purgeTrashedHikes", start, hikeIds.size(), 0, SELECT_EXPIRED_HIKE_IDS, selectionArgs);
+        return hikeIds;
+    }
+
+    /**
+     * Deletes several hikes for good, together with their observations, in one transaction. The hikes are removed
+     * with a single IN (...) statement per 999 IDs rather than one statement per hike.
+     * @param hikeIds The IDs of the hikes to delete.
+     * @return The number of hikes deleted.
+     */
+    public int deleteHikes(List<Long> hikeIds) {
+        return updateByIds("DELETE FROM " + DatabaseHelper.TABLE_HIKES + " WHERE " + DatabaseHelper.KEY_HIKE_ID + " IN ", null,
+                hikeIds, "HikeDAO.deleteHikes", DatabaseHelper.TABLE_HIKES, DatabaseHelper.TABLE_OBSERVATIONS);
+    }
+
+    /**
+     * Runs an UPDATE or DELETE that ends in an IN (...) list of hike IDs, once per chunk of IDs, in one transaction.
+     * @param sqlPrefix The statement up to its IN list.
+     * @param leadingArg Bound as the statement's first argument, before the IDs; null if it has none.
+     * @param hikeIds The IDs of the hikes.
+     * @param operation The name the call is recorded under in the metrics.
+     * @param changedTables The tables to report as changed if any row was.
+     * @return The number of rows changed.
+     */
+    private int updateByIds(String sqlPrefix, Long leadingArg, List<Long> hikeIds, String operation, String... changedTables) {
+        if (hikeIds.isEmpty()) {
+            return 0;
+        }
+        long start = QueryMetrics.start();
+        int chunkSize = leadingArg == null ? MAX_ID_ARGS : MAX_ID_ARGS - 1;
+        String firstSql = null;
+        SQLiteDatabase db = database();
+        InvalidationTracker tracker = dbHelper.getInvalidationTracker();
+        int changed = 0;
+        tracker.beginTransaction(db);
+        try {
+            for (int from = 0; from < hikeIds.size(); from += chunkSize) {
+                List<Long> chunk = hikeIds.subList(from, Math.min(hikeIds.size(), from + chunkSize));
+                StringBuilder sql = new StringBuilder(sqlPrefix).append('(');
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append(i == 0 ? "?" : ",?");
+                }
+                String chunkSql = sql.append(')').toString();
+                if (firstSql == null) {
+                    firstSql = chunkSql;
+                }
+                SQLiteStatement statement = db.compileStatement(chunkSql);
+                try {
+                    int index = 1;
+                    if (leadingArg != null) {
+                        statement.bindLong(index++, leadingArg);
+                    }
+                    for (long hikeId : chunk) {
+                        statement.bindLong(index++, hikeId);
+                    }
+                    changed += statement.executeUpdateDelete();
+                } finally {
+                    statement.close();
+                }
+            }
+            if (changed > 0) {
+                tracker.markChanged(changedTables);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            tracker.endTransaction(db);
+        }
+        metrics.record(operation, start, changed, 0, firstSql, null);
+        return changed;
     }
 
     /**
      * Filters hikes based on specified criteria.
      * @param name The name of the hike (can be partial).
      * @param location The location of the hike (can be partial).
-     * @param date The date of the hike.
+     * @param dateFrom The earliest date of the hike, as an epoch day.
+     * @param dateTo The latest date of the hike, as an epoch day.
      * @param difficulty The difficulty of the hike.
      * @param minLength The minimum length of the hike.
      * @param maxLength The maximum length of the hike.
      * @return A list of hikes that match the filter criteria.
      */
-    public List<Hike> filterHikes(String name, String location, String date, String difficulty, Double minLength, Double maxLength) {
-        List<Hike> hikes = new ArrayList<>();
+    public List<Hike> filterHikes(String name, String location, Long dateFrom, Long dateTo, String difficulty, Double minLength, Double maxLength) {
+        return filterHikes(new HikeFilter(name, location, dateFrom, dateTo, difficulty, minLength, maxLength));
+    }
+
+    /**
+     * Filters hikes based on the criteria held by a HikeFilter.
+     * @param filter The filter criteria.
+     * @return A list of hikes that match the filter criteria.
+     */
+    public List<Hike> filterHikes(HikeFilter filter) {
+        long start = QueryMetrics.start();
         StringBuilder selection = new StringBuilder();
         List<String> selectionArgsList = new ArrayList<>();
+        appendFilterSelection(filter, selection, selectionArgsList);
+
+        String sql = withSelection(SELECT_ALL_HIKES, selection);
+        String[] selectionArgs = selectionArgsList.toArray(new String[0]);
+        List<Hike> hikes = cursorToHikes(database().rawQuery(sql, selectionArgs));
+        metrics.record("HikeDAO.filterHikes", start, hikes.size(), sizeOfHikes(hikes), sql, selectionArgs);
+        return hikes;
+    }
+
+    /**
+     * Retrieves one page of hike summaries matching a filter, most recent first, with ties broken by descending ID.
+     * Pages are addressed by keyset: the date and ID of the last hike on the previous page. The query seeks directly
+     * to that position in the date index instead of skipping rows with OFFSET, so every page costs the same regardless
+     * of how deep it is.
+     * @param filter The filter criteria.
+     * @param after The last hike of the previous page, or null for the first page.
+     * @param pageSize The maximum number of hikes to return.
+     * @return The hikes on the requested page; fewer than pageSize means there are no more pages.
+     */
+    public List<HikeSummary> getHikesPage(HikeFilter filter, HikeSummary after, int pageSize) {
+        return queryHikesPage("HikeDAO.getHikesPage", filter, after, false, pageSize);
+    }
+
+    /**
+     * Retrieves the hike summaries matching a filter that come just before a hike in the order of
+     * {@link #getHikesPage}, so that a page dropped from the top of a list can be read again. The keyset is walked
+     * the other way along the same date index.
+     * @param filter The filter criteria.
+     * @param before The first hike of the page below the one wanted.
+     * @param pageSize The maximum number of hikes to return.
+     * @return The hikes just before the given one, in display order; fewer than pageSize means they are the first.
+     */
+    public List<HikeSummary> getHikesPageBefore(HikeFilter filter, HikeSummary before, int pageSize) {
+        List<HikeSummary> summaries = queryHikesPage("HikeDAO.getHikesPageBefore", filter, before, true, pageSize);
+        Collections.reverse(summaries);
+        return summaries;
+    }
+
+    /**
+     * Reads one keyset page of hike summaries matching a filter.
+     * @param operation The name the query is recorded under.
+     * @param filter The filter criteria.
+     * @param key The hike to start from, not included, or null to start at the first hike.
+     * @param backwards True to read the hikes before the key, nearest first, rather than those after it.
+     * @param pageSize The maximum number of hikes to return.
+     * @return The hikes read, in the order walked.
+     */
+    private List<HikeSummary> queryHikesPage(String operation, HikeFilter filter, HikeSummary key, boolean backwards,
+                                             int pageSize) {
+        long start = QueryMetrics.start();
+        List<String> selectionArgsList = new ArrayList<>();
+        String sql = pageQuery(filter, key, backwards, pageSize, selectionArgsList);
+        String[] selectionArgs = selectionArgsList.toArray(new String[0]);
+        List<HikeSummary> summaries = cursorToSummaries(database().rawQuery(sql, selectionArgs));
+        long bytes = 0;
+        for (HikeSummary summary : summaries) {
+            bytes += sizeOf(summary);
+        }
+        metrics.record(operation, start, summaries.size(), bytes, sql, selectionArgs);
+        return summaries;
+    }
+
+    /**
+     * Builds the query for one keyset page of hike summaries matching a filter.
+     * @param filter The filter criteria.
+     * @param key The hike to start from, not included, or null to start at the first hike.
+     * @param backwards True to read the hikes before the key, nearest first, rather than those after it.
+     * @param pageSize The maximum number of hikes to return.
+     * @param selectionArgsList The list of selection arguments to append to.
+     * @return The query.
+     */
+    static String pageQuery(HikeFilter filter, HikeSummary key, boolean backwards, int pageSize,
+                            List<String> selectionArgsList) {
+        StringBuilder selection = new StringBuilder();
+        appendFilterSelection(filter, selection, selectionArgsList);
 
-        if (name != null && !name.isEmpty()) {
-            selection.append(DatabaseHelper.KEY_HIKE_NAME + " LIKE ?");
-            selectionArgsList.add("%" + name + "%");
+        if (key != null) {
+            if (selection.length() > 0) {
+                selection.append(" AND ");
+            }
+            // A row-value comparison, unlike the equivalent OR expression, is usable as a range on the date index.
+            selection.append("(" + DatabaseHelper.KEY_HIKE_DATE + ", " + DatabaseHelper.KEY_HIKE_ID + ") " +
+                    (backwards ? ">" : "<") + " (?, ?)");
+            selectionArgsList.add(String.valueOf(key.getDate()));
+            selectionArgsList.add(String.valueOf(key.getId()));
         }
 
-        if (location != null && !location.isEmpty()) {
+        String order = backwards ? " ASC" : " DESC";
+        return withSelection(SELECT_SUMMARIES, selection) + " ORDER BY " + DatabaseHelper.KEY_HIKE_DATE + order + ", " +
+                DatabaseHelper.KEY_HIKE_ID + order + " LIMIT " + pageSize;
+    }
+
+    /**
+     * Appends a WHERE clause to a query, unless the selection is empty.
+     * @param select The query without a WHERE clause.
+     * @param selection The selection, may be empty.
+     * @return The query.
+     */
+    private static String withSelection(String select, StringBuilder selection) {
+        return selection.length() == 0 ? select : select + " WHERE " + selection;
+    }
+
+    /**
+     * Appends the WHERE clause for a filter to a selection, along with its arguments. Hikes in the trash never match.
+     * @param filter The filter criteria, or null for no filtering.
+     * @param selection The selection to append to.
+     * @param selectionArgsList The list of selection arguments to append to.
+     */
+    static void appendFilterSelection(HikeFilter filter, StringBuilder selection, List<String> selectionArgsList) {
+        if (selection.length() > 0) {
+            selection.append(" AND ");
+        }
+        selection.append(DatabaseHelper.HIKE_NOT_TRASHED);
+        if (filter == null) {
+            return;
+        }
+        String name = filter.getName();
+        String location = filter.getLocation();
+        Long dateFrom = filter.getDateFrom();
+        Long dateTo = filter.getDateTo();
+        String difficulty = filter.getDifficulty();
+        Double minLength = filter.getMinLength();
+        Double maxLength = filter.getMaxLength();
+
+        // Name and location are looked up in the full-text index, since a LIKE '%...%' pattern can only be answered
+        // by scanning every hike. Each word typed matches the start of a word in that column.
+        String nameMatch = HikeSearchDAO.toColumnMatchQuery(DatabaseHelper.KEY_HIKE_NAME, name);
+        String locationMatch = HikeSearchDAO.toColumnMatchQuery(DatabaseHelper.KEY_HIKE_LOCATION, location);
+        if (nameMatch != null || locationMatch != null) {
             if (selection.length() > 0) {
                 selection.append(" AND ");
             }
-            selection.append(DatabaseHelper.KEY_HIKE_LOCATION + " LIKE ?");
-            selectionArgsList.add("%" + location + "%");
+            selection.append(DatabaseHelper.KEY_HIKE_ID + " IN (SELECT " + DatabaseHelper.KEY_SEARCH_DOCID + " FROM "
+                    + DatabaseHelper.TABLE_HIKE_SEARCH + " WHERE " + DatabaseHelper.TABLE_HIKE_SEARCH + " MATCH ?)");
+            if (nameMatch != null && locationMatch != null) {
+                selectionArgsList.add(nameMatch + " " + locationMatch);
+            } else {
+                selectionArgsList.add(nameMatch != null ? nameMatch : locationMatch);
+            }
         }
 
-        if (date != null && !date.isEmpty()) {
+        if (dateFrom != null) {
             if (selection.length() > 0) {
                 selection.append(" AND ");
             }
-            selection.append(DatabaseHelper.KEY_HIKE_DATE + " = ?");
-            selectionArgsList.add(date);
+            selection.append(DatabaseHelper.KEY_HIKE_DATE + " >= ?");
+            selectionArgsList.add(String.valueOf(dateFrom));
+        }
+
+        if (dateTo != null) {
+            if (selection.length() > 0) {
+                selection.append(" AND ");
+            }
+            selection.append(DatabaseHelper.KEY_HIKE_DATE + " <= ?");
+            selectionArgsList.add(String.valueOf(dateTo));
         }
 
         if (difficulty != null && !difficulty.isEmpty() && !difficulty.equalsIgnoreCase("Any difficulty")) {
@@ -201,16 +522,36 @@ public class HikeDAO {
             selection.append(DatabaseHelper.KEY_HIKE_LENGTH + " <= ?");
             selectionArgsList.add(String.valueOf(maxLength));
         }
+    }
 
-        String[] selectionArgs = selectionArgsList.toArray(new String[0]);
-        Cursor cursor = database.query(DatabaseHelper.TABLE_HIKES, null, selection.toString(), selectionArgs, null, null, null);
+    /**
+     * Binds a hike's fields to the first nine arguments of INSERT_HIKE or UPDATE_HIKE.
+     * @param statement The statement to bind.
+     * @param hike The hike.
+     */
+    static void bindHike(SQLiteStatement statement, Hike hike) {
+        DatabaseHelper.bindStringOrNull(statement, 1, hike.getName());
+        DatabaseHelper.bindStringOrNull(statement, 2, hike.getLocation());
+        statement.bindLong(3, hike.getDate());
+        DatabaseHelper.bindStringOrNull(statement, 4, hike.getParkingAvailable());
+        statement.bindDouble(5, hike.getLength());
+        DatabaseHelper.bindStringOrNull(statement, 6, hike.getDifficulty());
+        DatabaseHelper.bindStringOrNull(statement, 7, hike.getDescription());
+        DatabaseHelper.bindStringOrNull(statement, 8, hike.getWeather());
+        DatabaseHelper.bindStringOrNull(statement, 9, hike.getRecommendedGear());
+    }
 
+    /**
+     * Reads every row of a cursor into a list of hikes and closes the cursor.
+     * @param cursor The cursor to read, may be null.
+     * @return The list of hikes.
+     */
+    private List<Hike> cursorToHikes(Cursor cursor) {
+        List<Hike> hikes = new ArrayList<>();
         if (cursor != null) {
-            cursor.moveToFirst();
-            while (!cursor.isAfterLast()) {
-                Hike hike = cursorToHike(cursor);
-                hikes.add(hike);
-                cursor.moveToNext();
+            HikeColumns columns = new HikeColumns(cursor);
+            while (cursor.moveToNext()) {
+                hikes.add(columns.readHike(cursor));
             }
             cursor.close();
         }
@@ -218,22 +559,54 @@ public class HikeDAO {
     }
 
     /**
-     * Helper method to convert a Cursor object to a Hike object.
+     * Reads every row of a cursor into a list of hike summaries and closes the cursor.
+     * @param cursor The cursor to read, may be null.
+     * @return The list of summaries.
+     */
+    private List<HikeSummary> cursorToSummaries(Cursor cursor) {
+        List<HikeSummary> summaries = new ArrayList<>();
+        if (cursor != null) {
+            HikeColumns columns = new HikeColumns(cursor);
+            while (cursor.moveToNext()) {
+                summaries.add(columns.readSummary(cursor));
+            }
+            cursor.close();
+        }
+        return summaries;
+    }
+
+    /**
+     * Estimates the number of bytes read for a list of hikes.
+     * @param hikes The hikes.
+     * @return The combined length of their text plus 8 bytes per number.
+     */
+    private static long sizeOfHikes(List<Hike> hikes) {
+        long bytes = 0;
+        for (Hike hike : hikes) {
+            bytes += sizeOf(hike);
+        }
+        return bytes;
+    }
+
+    private static long sizeOf(Hike hike) {
+        return 3 * 8 + QueryMetrics.sizeOf(hike.getName()) + QueryMetrics.sizeOf(hike.getLocation()) +
+                QueryMetrics.sizeOf(hike.getParkingAvailable()) + QueryMetrics.sizeOf(hike.getDifficulty()) +
+                QueryMetrics.sizeOf(hike.getDescription()) + QueryMetrics.sizeOf(hike.getWeather()) +
+                QueryMetrics.sizeOf(hike.getRecommendedGear());
+    }
+
+    private static long sizeOf(HikeSummary summary) {
+        return 4 * 8 + QueryMetrics.sizeOf(summary.getName()) + QueryMetrics.sizeOf(summary.getLocation()) +
+                QueryMetrics.sizeOf(summary.getParkingAvailable()) + QueryMetrics.sizeOf(summary.getDifficulty()) +
+                QueryMetrics.sizeOf(summary.getLatestObservation());
+    }
+
+    /**
+     * Helper method to convert the current row of a Cursor to a Hike object.
      * @param cursor The Cursor to convert.
      * @return A Hike object.
      */
-    private Hike cursorToHike(Cursor cursor) {
-        Hike hike = new Hike();
-        hike.setId(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_ID)));
-        hike.setName(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_NAME)));
-        hike.setLocation(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_LOCATION)));
-        hike.setDate(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_DATE)));
-        hike.setParkingAvailable(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_PARKING)));
-        hike.setLength(cursor.getDouble(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_LENGTH)));
-        hike.setDifficulty(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_DIFFICULTY)));
-        hike.setDescription(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_DESCRIPTION)));
-        hike.setWeather(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_WEATHER)));
-        hike.setRecommendedGear(cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.KEY_HIKE_RECOMMENDED_GEAR)));
-        return hike;
+    static Hike cursorToHike(Cursor cursor) {
+        return new HikeColumns(cursor).readHike(cursor);
     }
 }
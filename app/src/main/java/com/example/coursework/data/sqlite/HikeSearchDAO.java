@@ -0,0 +1,274 @@
+package com.example.coursework.data.sqlite;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.CancellationSignal;
+
+import com.example.coursework.data.models.HikeSearchResult;
+import com.example.coursework.data.models.HikeSummary;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Data Access Object (DAO) for the 'hike_search' full-text index.
+ * Searches hikes by name, location, description, weather, recommended gear and the text of their observations.
+ * Every search term is matched as a prefix, and results are ranked with BM25.
+ */
+public class HikeSearchDAO {
+
+    // Markers placed around matched terms in snippets.
+    public static final String SNIPPET_START = "\u0001";
+    public static final String SNIPPET_END = "\u0002";
+
+    // Ranking weight of each indexed column, in the order the columns are declared in the search table.
+    private static final double[] COLUMN_WEIGHTS = {4.0, 2.0, 1.0, 0.5, 0.5, 1.0};
+    // Standard BM25 tuning parameters.
+    private static final double BM25_K1 = 1.2;
+    private static final double BM25_B = 0.75;
+
+    // First pass: score every match using only the index, without touching the hikes table.
+    private static final String RANK_QUERY = "SELECT " + DatabaseHelper.KEY_SEARCH_DOCID + ", matchinfo(" +
+            DatabaseHelper.TABLE_HIKE_SEARCH + ", 'pcnalx') FROM " + DatabaseHelper.TABLE_HIKE_SEARCH +
+            " WHERE " + DatabaseHelper.TABLE_HIKE_SEARCH + " MATCH ?";
+
+    private final DatabaseHelper dbHelper;
+
+    /**
+     * Constructor for HikeSearchDAO.
+     * @param context The application context.
+     */
+    public HikeSearchDAO(Context context) {
+        dbHelper = DatabaseHelper.getInstance(context);
+    }
+
+    /**
+     * Returns the shared database. The first call opens it, so this must not be called on the main thread.
+     * @return The writable database.
+     */
+    private SQLiteDatabase database() {
+        return dbHelper.getWritableDatabase();
+    }
+
+    /**
+     * Searches hikes for the given text.
+     * Only the best matches are loaded in full: every match is ranked from the index alone, and then the hike rows
+     * and snippets are fetched for the top results. The indexed text itself is never read, since the observations of
+     * a hike can run to many pages.
+     * @param query The text typed by the user.
+     * @param limit The maximum number of results to return.
+     * @param signal Signal used to abort the search, or null.
+     * @return The matching hikes, most relevant first.
+     */
+    public List<HikeSearchResult> searchHikes(String query, int limit, CancellationSignal signal) {
+        String match = toMatchQuery(query);
+        if (match == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        // Keep the best `limit` matches in a min-heap keyed by score.
+        PriorityQueue<double[]> best = new PriorityQueue<>(limit + 1, (a, b) -> Double.compare(a[1], b[1]));
+        Cursor rankCursor = database().rawQuery(RANK_QUERY, new String[]{match}, signal);
+        try {
+            while (rankCursor.moveToNext()) {
+                double score = bm25(rankCursor.getBlob(1));
+                if (best.size() < limit) {
+                    best.add(new double[]{rankCursor.getLong(0), score});
+                } else if (score > best.peek()[1]) {
+                    best.poll();
+                    best.add(new double[]{rankCursor.getLong(0), score});
+                }
+            }
+        } finally {
+            rankCursor.close();
+        }
+        if (best.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Second pass: load the hikes and snippets for the top matches only.
+        Map<Long, Double> scores = new HashMap<>();
+        StringBuilder ids = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        args.add(SNIPPET_START);
+        args.add(SNIPPET_END);
+        args.add(match);
+        for (double[] entry : best) {
+            long id = (long) entry[0];
+            scores.put(id, entry[1]);
+            ids.append(ids.length() == 0 ? "?" : ",?");
+            args.add(String.valueOf(id));
+        }
+        StringBuilder columns = new StringBuilder();
+        for (String column : HikeColumns.SUMMARY) {
+            columns.append("h.").append(column).append(", ");
+        }
+        String sql = "SELECT " + columns + "snippet(" + DatabaseHelper.TABLE_HIKE_SEARCH + ", ?, ?, '...', -1, 12) AS snippet" +
+                " FROM " + DatabaseHelper.TABLE_HIKE_SEARCH + " JOIN " + DatabaseHelper.TABLE_HIKES + " h ON h." +
+                DatabaseHelper.KEY_HIKE_ID + " = " + DatabaseHelper.TABLE_HIKE_SEARCH + "." + DatabaseHelper.KEY_SEARCH_DOCID +
+                " WHERE " + DatabaseHelper.TABLE_HIKE_SEARCH + " MATCH ? AND " + DatabaseHelper.TABLE_HIKE_SEARCH + "." +
+                DatabaseHelper.KEY_SEARCH_DOCID + " IN (" + ids + ")";
+
+        List<HikeSearchResult> results = new ArrayList<>();
+        Cursor cursor = database().rawQuery(sql, args.toArray(new String[0]), signal);
+        try {
+            HikeColumns hikeColumns = new HikeColumns(cursor);
+            int snippetIndex = cursor.getColumnIndexOrThrow("snippet");
+            while (cursor.moveToNext()) {
+                HikeSummary hike = hikeColumns.readSummary(cursor);
+                String snippet = cursor.getString(snippetIndex);
+                // Only the text already in hand is kept for refining the results as the query grows.
+                List<String> words = tokenize(hike.getName() + " " + hike.getLocation() + " " + snippet);
+                results.add(new HikeSearchResult(hike, snippet, scores.get(hike.getId()), words));
+            }
+        } finally {
+            cursor.close();
+        }
+        Collections.sort(results, (a, b) -> Double.compare(b.getScore(), a.getScore()));
+        return results;
+    }
+
+    /**
+     * Checks which of a few hikes match a search, using the index alone. Used to settle results whose name, location
+     * and snippet do not show whether they still match a longer query.
+     * @param query The text typed by the user.
+     * @param hikeIds The IDs of the hikes to check.
+     * @param signal Signal used to abort the check, or null.
+     * @return The IDs of the hikes that match.
+     */
+    public Set<Long> filterMatches(String query, List<Long> hikeIds, CancellationSignal signal) {
+        Set<Long> matching = new HashSet<>();
+        String match = toMatchQuery(query);
+        if (match == null || hikeIds.isEmpty()) {
+            return matching;
+        }
+        StringBuilder ids = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        args.add(match);
+        for (long id : hikeIds) {
+            ids.append(ids.length() == 0 ? "?" : ",?");
+            args.add(String.valueOf(id));
+        }
+        String sql = "SELECT " + DatabaseHelper.KEY_SEARCH_DOCID + " FROM " + DatabaseHelper.TABLE_HIKE_SEARCH +
+                " WHERE " + DatabaseHelper.TABLE_HIKE_SEARCH + " MATCH ? AND " + DatabaseHelper.KEY_SEARCH_DOCID +
+                " IN (" + ids + ")";
+        Cursor cursor = database().rawQuery(sql, args.toArray(new String[0]), signal);
+        try {
+            while (cursor.moveToNext()) {
+                matching.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return matching;
+    }
+
+    /**
+     * Converts user input into an FTS query that matches every word as a prefix.
+     * Punctuation is dropped and words are lower-cased, so the input can never be read as query syntax.
+     * @param query The text typed by the user.
+     * @return The MATCH expression, or null if the input has no searchable words.
+     */
+    public static String toMatchQuery(String query) {
+        StringBuilder match = new StringBuilder();
+        for (String word : tokenize(query)) {
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append(word).append('*');
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    /**
+     * Converts user input into an FTS query that matches every word as a prefix within a single column.
+     * @param column The search table column to match in.
+     * @param text The text typed by the user.
+     * @return The MATCH expression, or null if the input has no searchable words.
+     */
+    public static String toColumnMatchQuery(String column, String text) {
+        StringBuilder match = new StringBuilder();
+        for (String word : tokenize(text)) {
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append(column).append(':').append(word).append('*');
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    /**
+     * Splits text into words the same way the unicode61 tokenizer does: letters and digits form words, everything
+     * else separates them, and words are lower-cased with diacritics removed.
+     * @param text The text to split, may be null.
+     * @return The words in order of appearance.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{Mn}+", "")
+                .toLowerCase(Locale.ROOT);
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= folded.length(); i++) {
+            char c = i < folded.length() ? folded.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Computes the BM25 score of a row from its FTS4 matchinfo('pcnalx') blob.
+     * @param matchInfo The raw matchinfo blob.
+     * @return The weighted BM25 score.
+     */
+    private static double bm25(byte[] matchInfo) {
+        IntBuffer info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phraseCount = info.get(0);
+        int columnCount = info.get(1);
+        double rowCount = info.get(2);
+        int averageLengthOffset = 3;
+        int lengthOffset = averageLengthOffset + columnCount;
+        int hitsOffset = lengthOffset + columnCount;
+
+        double score = 0;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount; column++) {
+                int hits = hitsOffset + 3 * (phrase * columnCount + column);
+                double termFrequency = info.get(hits);
+                if (termFrequency == 0) {
+                    continue;
+                }
+                double documentFrequency = info.get(hits + 2);
+                double idf = Math.log((rowCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                // Very common terms would otherwise get a negative weight.
+                idf = Math.max(idf, 1e-6);
+                double averageLength = Math.max(1, info.get(averageLengthOffset + column));
+                double length = info.get(lengthOffset + column);
+                double weight = column < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[column] : 1.0;
+                score += weight * idf * (termFrequency * (BM25_K1 + 1))
+                        / (termFrequency + BM25_K1 * (1 - BM25_B + BM25_B * length / averageLength));
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.coursework.data.sqlite;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.coursework.data.models.HikeStats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object (DAO) for the 'hike_stats' table.
+ * <p>
+ * The table holds running totals per bucket of each statistics dimension, which triggers adjust on every write to
+ * the hikes and observations tables. Reading the statistics therefore costs one row per bucket, however many hikes
+ * there are. {@link #rebuildStats()} recomputes the totals from the hikes and observations themselves.
+ */
+public class HikeStatsDAO {
+
+    // Every non-empty bucket, grouped by dimension. The primary key keeps the rows in this order already.
+    private static final String SELECT_STATS = "SELECT " + DatabaseHelper.KEY_STATS_DIMENSION + ", " +
+            DatabaseHelper.KEY_STATS_BUCKET + ", " + DatabaseHelper.KEY_STATS_HIKE_COUNT + ", " +
+            DatabaseHelper.KEY_STATS_TOTAL_LENGTH + ", " + DatabaseHelper.KEY_STATS_OBSERVATION_COUNT + " FROM " +
+            DatabaseHelper.TABLE_HIKE_STATS + " WHERE " + DatabaseHelper.KEY_STATS_HIKE_COUNT + " > 0 ORDER BY " +
+            DatabaseHelper.KEY_STATS_DIMENSION + ", " + DatabaseHelper.KEY_STATS_BUCKET;
+
+    // Number of observations per hike, joined to the hikes when the statistics are rebuilt.
+    private static final String OBSERVATIONS_PER_HIKE = "SELECT " + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK +
+            ", count(*) AS n FROM " + DatabaseHelper.TABLE_OBSERVATIONS + " GROUP BY " + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK;
+
+    private final DatabaseHelper dbHelper;
+
+    /**
+     * Constructor for HikeStatsDAO.
+     * The DAO borrows connections from the shared {@link DatabaseHelper} and never closes the database itself.
+     * @param context The application context.
+     */
+    public HikeStatsDAO(Context context) {
+        dbHelper = DatabaseHelper.getInstance(context);
+    }
+
+    /**
+     * Returns the shared database. The first call opens it, so this must not be called on the main thread.
+     * @return The writable database.
+     */
+    private SQLiteDatabase database() {
+        return dbHelper.getWritableDatabase();
+    }
+
+    /**
+     * Loads the statistics.
+     * @return The totals over every hike and the buckets of each dimension.
+     */
+    public HikeStats getStats() {
+        HikeStats.Bucket total = new HikeStats.Bucket("", 0, 0, 0);
+        List<HikeStats.Bucket> byMonth = new ArrayList<>();
+        List<HikeStats.Bucket> byDifficulty = new ArrayList<>();
+        List<HikeStats.Bucket> byParking = new ArrayList<>();
+
+        Cursor cursor = database().rawQuery(SELECT_STATS, null);
+        try {
+            while (cursor.moveToNext()) {
+                HikeStats.Bucket bucket = new HikeStats.Bucket(cursor.getString(1), cursor.getLong(2), cursor.getDouble(3),
+                        cursor.getLong(4));
+                switch (cursor.getString(0)) {
+                    case DatabaseHelper.STATS_TOTAL:
+                        total = bucket;
+                        break;
+                    case DatabaseHelper.STATS_MONTH:
+                        byMonth.add(bucket);
+                        break;
+                    case DatabaseHelper.STATS_DIFFICULTY:
+                        byDifficulty.add(bucket);
+                        break;
+                    case DatabaseHelper.STATS_PARKING:
+                        byParking.add(bucket);
+                        break;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return new HikeStats(total, byMonth, byDifficulty, byParking);
+    }
+
+    /**
+     * Recomputes every bucket from the hikes and observations, in one transaction. The triggers keep the totals
+     * exact, so this is only needed to repair them, for example after the triggers were missing; it also clears
+     * buckets left empty by deletes and the rounding a long series of length changes adds to the total lengths.
+     * @return The number of non-empty buckets.
+     */
+    public int rebuildStats() {
+        SQLiteDatabase db = database();
+        InvalidationTracker tracker = dbHelper.getInvalidationTracker();
+        int buckets;
+        tracker.beginTransaction(db);
+        try {
+            buckets = rebuild(db);
+            tracker.markChanged(DatabaseHelper.TABLE_HIKE_STATS);
+            db.setTransactionSuccessful();
+        } finally {
+            tracker.endTransaction(db);
+        }
+        return buckets;
+    }
+
+    /**
+     * Replaces the contents of the statistics table with totals computed from the hikes outside the trash and their
+     * observations. Must be called inside a transaction.
+     * @param db The database.
+     * @return The number of buckets written.
+     */
+    static int rebuild(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + DatabaseHelper.TABLE_HIKE_STATS);
+        for (String[] dimension : DatabaseHelper.STATS_DIMENSIONS) {
+            db.execSQL("INSERT INTO " + DatabaseHelper.TABLE_HIKE_STATS + "(" + DatabaseHelper.KEY_STATS_DIMENSION + ", " +
+                    DatabaseHelper.KEY_STATS_BUCKET + ", " + DatabaseHelper.KEY_STATS_HIKE_COUNT + ", " +
+                    DatabaseHelper.KEY_STATS_TOTAL_LENGTH + ", " + DatabaseHelper.KEY_STATS_OBSERVATION_COUNT + ") " +
+                    "SELECT '" + dimension[0] + "', " + dimension[1].replace(DatabaseHelper.STATS_ROW, "h") + ", count(*), " +
+                    "total(h." + DatabaseHelper.KEY_HIKE_LENGTH + "), total(o.n) FROM " + DatabaseHelper.TABLE_HIKES + " h " +
+                    "LEFT JOIN (" + OBSERVATIONS_PER_HIKE + ") o ON o." + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK +
+                    " = h." + DatabaseHelper.KEY_HIKE_ID + " WHERE h." + DatabaseHelper.HIKE_NOT_TRASHED + " GROUP BY 2");
+        }
+        return (int) Migration.count(db, "SELECT count(*) FROM " + DatabaseHelper.TABLE_HIKE_STATS, null);
+    }
+}
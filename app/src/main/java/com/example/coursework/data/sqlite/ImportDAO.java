@@ -0,0 +1,116 @@
+package com.example.coursework.data.sqlite;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.example.coursework.data.models.HikeRecord;
+import com.example.coursework.data.models.Observation;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Data Access Object (DAO) for bulk imports into the 'hikes' and 'observations' tables.
+ * <p>
+ * Each call to {@link #writeBatch} writes many records in one transaction through statements compiled once for the
+ * batch. The trigger that appends every new observation to the search index is dropped for the length of the batch,
+ * and the indexed text of each hike the batch touched is rebuilt once before it commits; appending a large number of
+ * observations one by one would rewrite the same growing search document over and over.
+ */
+public class ImportDAO {
+
+    private final DatabaseHelper dbHelper;
+
+    /**
+     * Constructor for ImportDAO.
+     * The DAO borrows connections from the shared {@link DatabaseHelper} and never closes the database itself.
+     * @param context The application context.
+     */
+    public ImportDAO(Context context) {
+        dbHelper = DatabaseHelper.getInstance(context);
+    }
+
+    /**
+     * Returns the shared database. The first call opens it, so this must not be called on the main thread.
+     * @return The writable database.
+     */
+    private SQLiteDatabase database() {
+        return dbHelper.getWritableDatabase();
+    }
+
+    /**
+     * Writes a batch of records in a single transaction. A record whose hike key has not been seen before creates a
+     * new hike; its observation, if any, is added to the hike its key maps to.
+     * <p>
+     * The batch uses its own compiled statements rather than the DAOs' shared ones: those are locked while in use, and
+     * waiting for one while holding the write transaction could deadlock with a thread that holds it and is waiting
+     * for the database.
+     * @param records The records, in file order.
+     * @param hikeIds Maps the hike keys seen so far to the IDs of the hikes created for them. New hikes are added.
+     */
+    public void writeBatch(List<HikeRecord> records, Map<String, Long> hikeIds) {
+        SQLiteDatabase db = database();
+        Set<Long> touchedHikes = new LinkedHashSet<>();
+        InvalidationTracker tracker = dbHelper.getInvalidationTracker();
+        tracker.beginTransaction(db);
+        try {
+            // Dropping the trigger is part of the transaction, so other connections never see it missing.
+            db.execSQL("DROP TRIGGER IF EXISTS " + DatabaseHelper.OBSERVATION_INSERT_SEARCH_TRIGGER);
+
+            SQLiteStatement insertHike = db.compileStatement(HikeDAO.INSERT_HIKE);
+            SQLiteStatement insertObservation = db.compileStatement(ObservationDAO.INSERT_OBSERVATION);
+            try {
+                for (HikeRecord record : records) {
+                    Long hikeId = hikeIds.get(record.getHikeKey());
+                    if (hikeId == null) {
+                        HikeDAO.bindHike(insertHike, record.getHike());
+                        hikeId = insertHike.executeInsert();
+                        insertHike.clearBindings();
+                        hikeIds.put(record.getHikeKey(), hikeId);
+                        tracker.markChanged(DatabaseHelper.TABLE_HIKES);
+                    }
+
+                    Observation observation = record.getObservation();
+                    if (observation != null) {
+                        insertObservation.bindLong(1, hikeId);
+                        DatabaseHelper.bindStringOrNull(insertObservation, 2, observation.getObservation());
+                        DatabaseHelper.bindStringOrNull(insertObservation, 3, observation.getTime());
+                        DatabaseHelper.bindStringOrNull(insertObservation, 4, observation.getComments());
+                        insertObservation.executeInsert();
+                        insertObservation.clearBindings();
+                        touchedHikes.add(hikeId);
+                    }
+                }
+            } finally {
+                insertHike.close();
+                insertObservation.close();
+            }
+
+            SQLiteStatement refresh = db.compileStatement(DatabaseHelper.REFRESH_SEARCH_OBSERVATIONS);
+            try {
+                for (long hikeId : touchedHikes) {
+                    refresh.bindLong(1, hikeId);
+                    refresh.executeUpdateDelete();
+                    tracker.markChanged(DatabaseHelper.TABLE_OBSERVATIONS, hikeId);
+                }
+            } finally {
+                refresh.close();
+            }
+
+            db.execSQL(DatabaseHelper.CREATE_OBSERVATION_INSERT_SEARCH_TRIGGER);
+            db.setTransactionSuccessful();
+        } finally {
+            tracker.endTransaction(db);
+        }
+    }
+
+    /**
+     * Refreshes the planner statistics of tables that an import has grown substantially.
+     */
+    public void refreshStatistics() {
+        DatabaseHelper.refreshStatistics(database());
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.coursework.data.sqlite;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Version 4: adds the secondary indexes for loading observations and filtering hikes, and gathers the planner
+ * statistics that let SQLite choose between them.
+ */
+class IndexMigration extends Migration {
+
+    IndexMigration() {
+        super(4);
+    }
+
+    @Override
+    void finish(SQLiteDatabase db) {
+        db.execSQL(DatabaseHelper.CREATE_INDEX_OBSERVATIONS_HIKE_TIME);
+        db.execSQL(DatabaseHelper.CREATE_INDEX_HIKES_DIFFICULTY_LENGTH);
+        db.execSQL("ANALYZE");
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.coursework.data.sqlite;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteTransactionListener;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Tracks which tables have been written to and tells interested observers, on the main thread.
+ * <p>
+ * The DAOs report every table they write. A write made inside a transaction started with
+ * {@link #beginTransaction} is held back until {@link #endTransaction} has committed it, and dropped if it rolls back,
+ * so observers hear about a transaction once, after its changes are visible. Writes made inside {@link #runBatch} are
+ * likewise held back until the batch ends; a batch may run several transactions, and each one's writes are kept or
+ * dropped according to whether it committed. Notifications that arrive before the main
+ * thread gets to them are merged, so a burst of writes costs each observer one call.
+ * <p>
+ * A DAO that knows which hike its write belongs to reports the hike's ID as the write's key. An observer that only
+ * shows one hike's rows of a table can watch that key alone, and is not told about writes to other hikes' rows; a
+ * write reported without a key could belong to any hike, so it is told about those.
+ */
+public final class InvalidationTracker {
+
+    /**
+     * Receives the names of tables that changed.
+     */
+    public interface Observer {
+        /**
+         * Called on the main thread after a write to at least one of the observed tables.
+         * @param tables Every table changed since the previous call, including ones the observer does not watch.
+         */
+        void onTablesChanged(Set<String> tables);
+    }
+
+    // Writes the current thread is holding back, while it is in a batch or a transaction started with the listener.
+    private final ThreadLocal<PendingWrites> pendingWrites = new ThreadLocal<>();
+    // Registered observers and the tables each one watches. Only touched on the main thread.
+    private final Map<Observer, Set<String>> observers = new LinkedHashMap<>();
+    // The key each observer registered with a key watches. Only touched on the main thread.
+    private final Map<Observer, Long> observerKeys = new HashMap<>();
+    // Tables changed since the last dispatch, each with the keys written, or null if a write had no key; guarded by
+    // this.
+    private Map<String, Set<Long>> changedTables = new HashMap<>();
+    private boolean dispatchPosted;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable dispatch = this::dispatch;
+
+    private final SQLiteTransactionListener listener = new SQLiteTransactionListener() {
+        @Override
+        public void onBegin() {
+            PendingWrites pending = pending();
+            if (pending.transaction == null) {
+                pending.transaction = new PendingTransaction();
+            }
+            pending.transaction.depth++;
+        }
+
+        @Override
+        public void onCommit() {
+            // Called before SQLite runs the COMMIT, when another connection would still read the old rows; the
+            // transaction is ended in endTransaction once the commit has returned.
+        }
+
+        @Override
+        public void onRollback() {
+            PendingWrites pending = pendingWrites.get();
+            if (pending != null && pending.transaction != null) {
+                pending.transaction.failed = true;
+            }
+        }
+    };
+
+    /**
+     * Starts notifying an observer about writes to some tables. Must be called on the main thread.
+     * @param observer The observer.
+     * @param tables The tables to watch.
+     */
+    public void addObserver(Observer observer, String... tables) {
+        observers.put(observer, new HashSet<>(Arrays.asList(tables)));
+        observerKeys.remove(observer);
+    }
+
+    /**
+     * Starts notifying an observer about writes to one hike's rows of a table, and writes to the table whose hike is
+     * not known. Must be called on the main thread.
+     * @param observer The observer.
+     * @param table The table to watch.
+     * @param key The ID of the hike whose rows are watched.
+     */
+    public void addObserver(Observer observer, String table, long key) {
+        observers.put(observer, new HashSet<>(Collections.singleton(table)));
+        observerKeys.put(observer, key);
+    }
+
+    /**
+     * Stops notifying an observer. Must be called on the main thread.
+     * @param observer The observer.
+     */
+    public void removeObserver(Observer observer) {
+        observers.remove(observer);
+        observerKeys.remove(observer);
+    }
+
+    /**
+     * Runs work that writes through the DAOs and holds its notifications back until the work returns, so that
+     * observers only hear about the writes once the caller has finished reacting to them, for example by updating a
+     * cache the observers read from.
+     * @param work The work.
+     * @param <T> The result type.
+     * @return The work's result.
+     * @throws Exception If the work fails. Writes it made before failing are still reported if they committed: those
+     *                   made outside a transaction, and those of its transactions that committed. The writes of a
+     *                   transaction that rolled back are dropped.
+     */
+    public <T> T runBatch(Callable<T> work) throws Exception {
+        pending().batchDepth++;
+        try {
+            return work.call();
+        } finally {
+            batchEnded();
+        }
+    }
+
+    /**
+     * Begins a transaction whose writes are reported together once it has committed. Must be paired with
+     * {@link #endTransaction} rather than {@link SQLiteDatabase#endTransaction}.
+     * @param db The database.
+     */
+    void beginTransaction(SQLiteDatabase db) {
+        db.beginTransactionWithListener(listener);
+    }
+
+    /**
+     * Ends a transaction begun with {@link #beginTransaction}. The writes are published after SQLite has committed
+     * them, so an observer that reads them at once, from any connection, sees them. They are dropped if the
+     * transaction rolled back or the commit failed.
+     * @param db The database.
+     */
+    void endTransaction(SQLiteDatabase db) {
+        boolean committed = false;
+        try {
+            db.endTransaction();
+            committed = true;
+        } finally {
+            transactionEnded(!committed);
+        }
+    }
+
+    /**
+     * Records writes to tables. Called by the DAOs after each write.
+     * @param tables The tables written.
+     */
+    void markChanged(String... tables) {
+        Map<String, Set<Long>> changes = new HashMap<>();
+        for (String table : tables) {
+            addChange(changes, table, null);
+        }
+        record(changes);
+    }
+
+    /**
+     * Records a write to one hike's rows of a table. Called by the DAOs after each write whose hike they know.
+     * @param table The table written.
+     * @param key The ID of the hike the rows belong to.
+     */
+    void markChanged(String table, long key) {
+        Map<String, Set<Long>> changes = new HashMap<>();
+        addChange(changes, table, key);
+        record(changes);
+    }
+
+    private void record(Map<String, Set<Long>> changes) {
+        PendingWrites pending = pendingWrites.get();
+        if (pending == null) {
+            publish(changes);
+        } else if (pending.transaction != null) {
+            addChanges(pending.transaction.tables, changes);
+        } else {
+            // Written outside a transaction, so already committed.
+            addChanges(pending.committed, changes);
+        }
+    }
+
+    /**
+     * Adds a write to a set of changes.
+     * @param changes The tables changed, each with the keys written, or null if a write had no key.
+     * @param table The table written.
+     * @param key The key written, or null if not known.
+     */
+    private static void addChange(Map<String, Set<Long>> changes, String table, Long key) {
+        if (key == null) {
+            changes.put(table, null);
+        } else if (!changes.containsKey(table)) {
+            changes.put(table, new HashSet<>(Collections.singleton(key)));
+        } else if (changes.get(table) != null) {
+            changes.get(table).add(key);
+        }
+    }
+
+    private static void addChanges(Map<String, Set<Long>> changes, Map<String, Set<Long>> added) {
+        for (Map.Entry<String, Set<Long>> entry : added.entrySet()) {
+            if (entry.getValue() == null) {
+                addChange(changes, entry.getKey(), null);
+            } else {
+                for (long key : entry.getValue()) {
+                    addChange(changes, entry.getKey(), key);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The current thread's held back writes, created if it has none.
+     */
+    private PendingWrites pending() {
+        PendingWrites pending = pendingWrites.get();
+        if (pending == null) {
+            pending = new PendingWrites();
+            pendingWrites.set(pending);
+        }
+        return pending;
+    }
+
+    private void transactionEnded(boolean rolledBack) {
+        PendingWrites pending = pendingWrites.get();
+        if (pending == null || pending.transaction == null) {
+            return;
+        }
+        PendingTransaction transaction = pending.transaction;
+        // A nested transaction that fails makes the whole transaction roll back.
+        transaction.failed |= rolledBack;
+        if (--transaction.depth > 0) {
+            return;
+        }
+        pending.transaction = null;
+        if (!transaction.failed) {
+            addChanges(pending.committed, transaction.tables);
+        }
+        if (pending.batchDepth == 0) {
+            pendingWrites.remove();
+            publish(pending.committed);
+        }
+    }
+
+    private void batchEnded() {
+        PendingWrites pending = pendingWrites.get();
+        if (pending == null || --pending.batchDepth > 0 || pending.transaction != null) {
+            return;
+        }
+        pendingWrites.remove();
+        publish(pending.committed);
+    }
+
+    private synchronized void publish(Map<String, Set<Long>> tables) {
+        addChanges(changedTables, tables);
+        if (!dispatchPosted && !changedTables.isEmpty()) {
+            dispatchPosted = true;
+            mainHandler.post(dispatch);
+        }
+    }
+
+    private void dispatch() {
+        Map<String, Set<Long>> changes;
+        synchronized (this) {
+            changes = changedTables;
+            changedTables = new HashMap<>();
+            dispatchPosted = false;
+        }
+        Set<String> tables = Collections.unmodifiableSet(changes.keySet());
+        // Copy, so observers can add or remove observers while being notified.
+        for (Map.Entry<Observer, Set<String>> entry : new LinkedHashMap<>(observers).entrySet()) {
+            Observer observer = entry.getKey();
+            if (observers.containsKey(observer) && !Collections.disjoint(entry.getValue(), tables)
+                    && watchesKeyWritten(observer, entry.getValue(), changes)) {
+                observer.onTablesChanged(tables);
+            }
+        }
+    }
+
+    /**
+     * @param observer An observer.
+     * @param watched The tables it watches.
+     * @param changes The tables changed, each with the keys written, or null if a write had no key.
+     * @return False if the observer watches one key, and every write to its tables was to other keys.
+     */
+    private boolean watchesKeyWritten(Observer observer, Set<String> watched, Map<String, Set<Long>> changes) {
+        Long key = observerKeys.get(observer);
+        if (key == null) {
+            return true;
+        }
+        for (String table : watched) {
+            if (changes.containsKey(table) && (changes.get(table) == null || changes.get(table).contains(key))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The writes one thread is holding back until its batch or transaction ends.
+     */
+    private static final class PendingWrites {
+        // Writes that have committed, each table with the keys written, or null if a write had no key.
+        final Map<String, Set<Long>> committed = new HashMap<>();
+        // Number of open runBatch calls.
+        int batchDepth;
+        // The open transaction, or null.
+        PendingTransaction transaction;
+    }
+
+    /**
+     * The tables written by one thread's open transaction.
+     */
+    private static final class PendingTransaction {
+        // Each table with the keys written, or null if a write had no key.
+        final Map<String, Set<Long>> tables = new HashMap<>();
+        int depth;
+        boolean failed;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.coursework.data.sqlite;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * One step of the schema migration, taking the database from the previous version to {@link #getVersion()}.
+ * <p>
+ * A step runs in two phases. {@link #prepare} does the bulk of the work, such as copying a large table, in batches
+ * that each commit on their own; it must be able to pick up where an interrupted run left off. {@link #finish} then
+ * runs in a single transaction together with the version bump, so a step is either fully applied or not at all.
+ */
+public abstract class Migration {
+
+    // Number of rows copied per transaction by copyInBatches.
+    static final int BATCH_SIZE = 2000;
+
+    private final int version;
+
+    /**
+     * Constructor for Migration.
+     * @param version The schema version this step upgrades to.
+     */
+    Migration(int version) {
+        this.version = version;
+    }
+
+    /**
+     * Returns the schema version this step upgrades to.
+     * @return The target version.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Does the resumable part of the step. Each batch of work commits in its own transaction.
+     * @param db The database, outside any transaction.
+     * @param listener Receives progress, may be null.
+     */
+    void prepare(SQLiteDatabase db, MigrationRunner.ProgressListener listener) {
+    }
+
+    /**
+     * Completes the step. Runs inside the transaction that also records the new version.
+     * @param db The database.
+     */
+    abstract void finish(SQLiteDatabase db);
+
+    /**
+     * Copies one batch of rows, in ascending ID order, from a source table.
+     */
+    interface BatchCopy {
+        /**
+         * Returns the ID of the last source row already copied, read from the copy's destination.
+         * @param db The database.
+         * @return The last copied ID, or 0 if nothing has been copied yet.
+         */
+        long lastCopiedId(SQLiteDatabase db);
+
+        /**
+         * Copies the next batch of rows.
+         * @param db The database, inside the batch's transaction.
+         * @param afterId Only rows with a greater ID are copied.
+         * @param limit The maximum number of rows to copy.
+         * @return The number of rows copied; 0 when there are none left.
+         */
+        int copyAfter(SQLiteDatabase db, long afterId, int limit);
+    }
+
+    /**
+     * Runs a batched copy to completion, one transaction per batch. The destination itself records how far the copy
+     * got, so a copy that was interrupted continues from its last committed batch.
+     * @param db The database, outside any transaction.
+     * @param sourceTable The table being copied, used to count rows for progress.
+     * @param copy The copy to run.
+     * @param listener Receives progress after every batch, may be null.
+     */
+    void copyInBatches(SQLiteDatabase db, String sourceTable, BatchCopy copy, MigrationRunner.ProgressListener listener) {
+        long total = count(db, "SELECT count(*) FROM " + sourceTable, null);
+        long afterId = copy.lastCopiedId(db);
+        long done = count(db, "SELECT count(*) FROM " + sourceTable + " WHERE rowid <= ?", new String[]{String.valueOf(afterId)});
+
+        while (true) {
+            int copied;
+            db.beginTransaction();
+            try {
+                copied = copy.copyAfter(db, afterId, BATCH_SIZE);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            if (copied == 0) {
+                break;
+            }
+            afterId = copy.lastCopiedId(db);
+            done += copied;
+            if (listener != null) {
+                listener.onMigrationProgress(version, done, total);
+            }
+        }
+    }
+
+    /**
+     * Runs a query returning a single number.
+     * @param db The database.
+     * @param sql The query.
+     * @param args The query arguments, may be null.
+     * @return The number, or 0 if the query returned no row or NULL.
+     */
+    static long count(SQLiteDatabase db, String sql, String[] args) {
+        Cursor cursor = db.rawQuery(sql, args);
+        long result = cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        cursor.close();
+        return result;
+    }
+
+    /**
+     * Checks whether a table exists.
+     * @param db The database.
+     * @param table The table name.
+     * @return True if the table exists.
+     */
+    static boolean tableExists(SQLiteDatabase db, String table) {
+        return count(db, "SELECT count(*) FROM sqlite_master WHERE type = 'table' AND name = ?", new String[]{table}) > 0;
+    }
+}
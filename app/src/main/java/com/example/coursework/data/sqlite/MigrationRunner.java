@@ -0,0 +1,75 @@
+package com.example.coursework.data.sqlite;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Applies the pending {@link Migration} steps to a database, in version order.
+ * <p>
+ * Each step's {@link Migration#finish} runs in its own transaction together with the new {@code user_version}, so the
+ * database always sits at a well-defined version. If the process dies part way through, the next run starts again at
+ * the first step that did not commit, and that step's {@link Migration#prepare} continues from its last batch.
+ */
+public final class MigrationRunner {
+
+    private static final String TAG = "MigrationRunner";
+
+    /**
+     * Receives progress while a migration step copies data. Called on the thread running the migration.
+     */
+    public interface ProgressListener {
+        /**
+         * Called after each batch of a step.
+         * @param version The version the running step upgrades to.
+         * @param done The number of rows processed so far.
+         * @param total The total number of rows the step processes.
+         */
+        void onMigrationProgress(int version, long done, long total);
+    }
+
+    private final Migration[] migrations;
+    private final ProgressListener listener;
+
+    /**
+     * Constructor for MigrationRunner.
+     * @param migrations The migration steps, in ascending version order.
+     * @param listener Receives progress, may be null.
+     */
+    MigrationRunner(Migration[] migrations, ProgressListener listener) {
+        for (int i = 1; i < migrations.length; i++) {
+            if (migrations[i].getVersion() <= migrations[i - 1].getVersion()) {
+                throw new IllegalArgumentException("Migrations must be in ascending version order");
+            }
+        }
+        this.migrations = migrations;
+        this.listener = listener;
+    }
+
+    /**
+     * Applies every step newer than the database's current version.
+     * @param db The database. Steps commit as they go, so this should be called outside any transaction.
+     * @return The version the database is at afterwards.
+     */
+    int migrate(SQLiteDatabase db) {
+        int version = db.getVersion();
+        for (Migration migration : migrations) {
+            if (migration.getVersion() <= version) {
+                continue;
+            }
+            long start = SystemClock.elapsedRealtime();
+            migration.prepare(db, listener);
+            db.beginTransaction();
+            try {
+                migration.finish(db);
+                db.setVersion(migration.getVersion());
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            version = migration.getVersion();
+            Log.i(TAG, "Migrated to version " + version + " in " + (SystemClock.elapsedRealtime() - start) + " ms");
+        }
+        return version;
+    }
+}
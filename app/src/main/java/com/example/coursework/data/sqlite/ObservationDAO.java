@@ -1,11 +1,14 @@
 package com.example.coursework.data.sqlite;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
 import com.example.coursework.data.models.Observation;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -14,29 +17,57 @@ import java.util.List;
  */
 public class ObservationDAO {
 
-    private SQLiteDatabase database;
-    private DatabaseHelper dbHelper;
+    private static final String TAG = "ObservationDAO";
+
+    // Fixed-shape statements. Writes are compiled once and reused; the lookup text is constant, so each connection
+    // finds it already prepared in its statement cache.
+    static final String INSERT_OBSERVATION = "INSERT INTO " + DatabaseHelper.TABLE_OBSERVATIONS + "(" +
+            DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK + ", " + DatabaseHelper.KEY_OBSERVATION_TEXT + ", " +
+            DatabaseHelper.KEY_OBSERVATION_TIME + ", " + DatabaseHelper.KEY_OBSERVATION_COMMENTS + ") VALUES (?, ?, ?, ?)";
+    private static final String UPDATE_OBSERVATION = "UPDATE " + DatabaseHelper.TABLE_OBSERVATIONS + " SET " +
+            DatabaseHelper.KEY_OBSERVATION_TEXT + " = ?, " + DatabaseHelper.KEY_OBSERVATION_TIME + " = ?, " +
+            DatabaseHelper.KEY_OBSERVATION_COMMENTS + " = ? WHERE " + DatabaseHelper.KEY_OBSERVATION_ID + " = ?";
+    private static final String DELETE_OBSERVATION = "DELETE FROM " + DatabaseHelper.TABLE_OBSERVATIONS + " WHERE " +
+            DatabaseHelper.KEY_OBSERVATION_ID + " = ?";
+    private static final String SELECT_OBSERVATION_BY_ID = "SELECT * FROM " + DatabaseHelper.TABLE_OBSERVATIONS + " WHERE " +
+            DatabaseHelper.KEY_OBSERVATION_ID + " = ?";
+    static final String SELECT_OBSERVATIONS_FOR_HIKE = "SELECT * FROM " + DatabaseHelper.TABLE_OBSERVATIONS +
+            " WHERE " + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK + " = ? ORDER BY " + DatabaseHelper.KEY_OBSERVATION_TIME + ", " +
+            DatabaseHelper.KEY_OBSERVATION_ID;
+    // A hike's observations after a given one, in the same order. The row-value comparison is answered as a range on
+    // the (hike_id, time) index, whose entries end with the row ID, so no page reads the rows before it.
+    static final String SELECT_OBSERVATIONS_FOR_HIKE_AFTER = "SELECT * FROM " + DatabaseHelper.TABLE_OBSERVATIONS +
+            " WHERE " + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK + " = ? AND (" + DatabaseHelper.KEY_OBSERVATION_TIME + ", " +
+            DatabaseHelper.KEY_OBSERVATION_ID + ") > (?, ?) ORDER BY " + DatabaseHelper.KEY_OBSERVATION_TIME + ", " +
+            DatabaseHelper.KEY_OBSERVATION_ID;
+    // A hike's observations before a given one, nearest first: the same index range, walked the other way.
+    static final String SELECT_OBSERVATIONS_FOR_HIKE_BEFORE = "SELECT * FROM " + DatabaseHelper.TABLE_OBSERVATIONS +
+            " WHERE " + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK + " = ? AND (" + DatabaseHelper.KEY_OBSERVATION_TIME + ", " +
+            DatabaseHelper.KEY_OBSERVATION_ID + ") < (?, ?) ORDER BY " + DatabaseHelper.KEY_OBSERVATION_TIME + " DESC, " +
+            DatabaseHelper.KEY_OBSERVATION_ID + " DESC";
+    // Most IDs bound to one multi-row delete; older SQLite builds allow at most 999 arguments per statement.
+    private static final int MAX_DELETE_ARGS = 999;
+
+    private final DatabaseHelper dbHelper;
+    // Every method records its latency, row count and SQL here.
+    private final QueryMetrics metrics;
 
     /**
      * Constructor for ObservationDAO.
+     * The DAO borrows connections from the shared {@link DatabaseHelper} and never closes the database itself.
      * @param context The application context.
      */
     public ObservationDAO(Context context) {
-        dbHelper = new DatabaseHelper(context);
+        dbHelper = DatabaseHelper.getInstance(context);
+        metrics = dbHelper.getQueryMetrics();
     }
 
     /**
-     * Opens the database for writing.
+     * Returns the shared database. The first call opens it, so this must not be called on the main thread.
+     * @return The writable database.
      */
-    public void open() {
-        database = dbHelper.getWritableDatabase();
-    }
-
-    /**
-     * Closes the database connection.
-     */
-    public void close() {
-        dbHelper.close();
+    private SQLiteDatabase database() {
+        return dbHelper.getWritableDatabase();
     }
 
     /**
@@ -45,35 +76,112 @@ public class ObservationDAO {
      * @return The ID of the newly inserted observation, or -1 if an error occurred.
      */
     public long addObservation(Observation observation) {
-        ContentValues values = new ContentValues();
-        values.put(DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK, observation.getHikeId());
-        values.put(DatabaseHelper.KEY_OBSERVATION_TEXT, observation.getObservation());
-        values.put(DatabaseHelper.KEY_OBSERVATION_TIME, observation.getTime());
-        values.put(DatabaseHelper.KEY_OBSERVATION_COMMENTS, observation.getComments());
-
-        return database.insert(DatabaseHelper.TABLE_OBSERVATIONS, null, values);
+        long start = QueryMetrics.start();
+        long id = -1;
+        SQLiteStatement statement = dbHelper.getStatement(INSERT_OBSERVATION);
+        synchronized (statement) {
+            try {
+                statement.bindLong(1, observation.getHikeId());
+                DatabaseHelper.bindStringOrNull(statement, 2, observation.getObservation());
+                DatabaseHelper.bindStringOrNull(statement, 3, observation.getTime());
+                DatabaseHelper.bindStringOrNull(statement, 4, observation.getComments());
+                id = statement.executeInsert();
+                dbHelper.getInvalidationTracker().markChanged(DatabaseHelper.TABLE_OBSERVATIONS, observation.getHikeId());
+            } catch (SQLException e) {
+                // Same result as SQLiteDatabase.insert, which logs a failed insert and reports it as -1.
+                Log.e(TAG, "Could not insert observation for hike " + observation.getHikeId(), e);
+            } finally {
+                statement.clearBindings();
+            }
+        }
+        metrics.record("ObservationDAO.addObservation", start, id == -1 ? 0 : 1, 0, INSERT_OBSERVATION, null);
+        return id;
     }
 
     /**
      * Retrieves all observations for a specific hike.
      * @param hikeId The ID of the hike.
-     * @return A list of all Observation objects for the given hike.
+     * @return A list of all Observation objects for the given hike, ordered by time.
      */
     public List<Observation> getObservationsForHike(long hikeId) {
+        long start = QueryMetrics.start();
+        long bytes = 0;
         List<Observation> observations = new ArrayList<>();
-        String selection = DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK + " = ?";
         String[] selectionArgs = new String[]{String.valueOf(hikeId)};
-        Cursor cursor = database.query(DatabaseHelper.TABLE_OBSERVATIONS, null, selection, selectionArgs, null, null, null);
+        Cursor cursor = database().rawQuery(SELECT_OBSERVATIONS_FOR_HIKE, selectionArgs);
 
         if (cursor != null) {
             cursor.moveToFirst();
             while (!cursor.isAfterLast()) {
                 Observation observation = cursorToObservation(cursor);
                 observations.add(observation);
+                bytes += sizeOf(observation);
                 cursor.moveToNext();
             }
             cursor.close();
         }
+        metrics.record("ObservationDAO.getObservationsForHike", start, observations.size(), bytes,
+                SELECT_OBSERVATIONS_FOR_HIKE, selectionArgs);
+        return observations;
+    }
+
+    /**
+     * Retrieves one page of a hike's observations, in the order of {@link #getObservationsForHike}.
+     * Pages are keyed by the last observation of the previous page rather than by offset, so each page costs the
+     * same however far into the hike it is.
+     * @param hikeId The ID of the hike.
+     * @param after The last observation of the previous page, or null for the first page.
+     * @param pageSize The maximum number of observations to return.
+     * @return The observations, ordered by time; fewer than pageSize if the end was reached.
+     */
+    public List<Observation> getObservationsPage(long hikeId, Observation after, int pageSize) {
+        long start = QueryMetrics.start();
+        long bytes = 0;
+        String sql;
+        String[] selectionArgs;
+        if (after == null) {
+            sql = SELECT_OBSERVATIONS_FOR_HIKE + " LIMIT " + pageSize;
+            selectionArgs = new String[]{String.valueOf(hikeId)};
+        } else {
+            sql = SELECT_OBSERVATIONS_FOR_HIKE_AFTER + " LIMIT " + pageSize;
+            selectionArgs = new String[]{String.valueOf(hikeId), after.getTime(), String.valueOf(after.getId())};
+        }
+        List<Observation> observations = new ArrayList<>(Math.min(pageSize, 256));
+        try (Cursor cursor = database().rawQuery(sql, selectionArgs)) {
+            while (cursor.moveToNext()) {
+                Observation observation = cursorToObservation(cursor);
+                observations.add(observation);
+                bytes += sizeOf(observation);
+            }
+        }
+        metrics.record("ObservationDAO.getObservationsPage", start, observations.size(), bytes, sql, selectionArgs);
+        return observations;
+    }
+
+    /**
+     * Retrieves the observations of a hike that come just before a given one in time order, so that a page dropped
+     * from the top of a list can be read again.
+     * @param hikeId The ID of the hike.
+     * @param before The first observation of the page below the one wanted.
+     * @param pageSize The maximum number of observations to return.
+     * @return The observations just before the given one, ordered by time; fewer than pageSize means they are the
+     *         first.
+     */
+    public List<Observation> getObservationsPageBefore(long hikeId, Observation before, int pageSize) {
+        long start = QueryMetrics.start();
+        long bytes = 0;
+        String sql = SELECT_OBSERVATIONS_FOR_HIKE_BEFORE + " LIMIT " + pageSize;
+        String[] selectionArgs = new String[]{String.valueOf(hikeId), before.getTime(), String.valueOf(before.getId())};
+        List<Observation> observations = new ArrayList<>(Math.min(pageSize, 256));
+        try (Cursor cursor = database().rawQuery(sql, selectionArgs)) {
+            while (cursor.moveToNext()) {
+                Observation observation = cursorToObservation(cursor);
+                observations.add(observation);
+                bytes += sizeOf(observation);
+            }
+        }
+        Collections.reverse(observations);
+        metrics.record("ObservationDAO.getObservationsPageBefore", start, observations.size(), bytes, sql, selectionArgs);
         return observations;
     }
 
@@ -83,19 +191,20 @@ public class ObservationDAO {
      * @return The Observation object if found, otherwise null.
      */
     public Observation getObservationById(long observationId) {
-        String selection = DatabaseHelper.KEY_OBSERVATION_ID + " = ?";
+        long start = QueryMetrics.start();
         String[] selectionArgs = new String[]{String.valueOf(observationId)};
-        Cursor cursor = database.query(DatabaseHelper.TABLE_OBSERVATIONS, null, selection, selectionArgs, null, null, null);
+        Cursor cursor = database().rawQuery(SELECT_OBSERVATION_BY_ID, selectionArgs);
+        Observation observation = null;
 
         if (cursor != null && cursor.moveToFirst()) {
-            Observation observation = cursorToObservation(cursor);
-            cursor.close();
-            return observation;
+            observation = cursorToObservation(cursor);
         }
         if (cursor != null) {
             cursor.close();
         }
-        return null;
+        metrics.record("ObservationDAO.getObservationById", start, observation == null ? 0 : 1,
+                observation == null ? 0 : sizeOf(observation), SELECT_OBSERVATION_BY_ID, selectionArgs);
+        return observation;
     }
 
     /**
@@ -104,13 +213,27 @@ public class ObservationDAO {
      * @return The number of rows affected.
      */
     public int updateObservation(Observation observation) {
-        ContentValues values = new ContentValues();
-        values.put(DatabaseHelper.KEY_OBSERVATION_TEXT, observation.getObservation());
-        values.put(DatabaseHelper.KEY_OBSERVATION_TIME, observation.getTime());
-        values.put(DatabaseHelper.KEY_OBSERVATION_COMMENTS, observation.getComments());
-
-        return database.update(DatabaseHelper.TABLE_OBSERVATIONS, values, DatabaseHelper.KEY_OBSERVATION_ID + " = ?",
-                new String[]{String.valueOf(observation.getId())});
+        long start = QueryMetrics.start();
+        int rows;
+        SQLiteStatement statement = dbHelper.getStatement(UPDATE_OBSERVATION);
+        synchronized (statement) {
+            try {
+                DatabaseHelper.bindStringOrNull(statement, 1, observation.getObservation());
+                DatabaseHelper.bindStringOrNull(statement, 2, observation.getTime());
+                DatabaseHelper.bindStringOrNull(statement, 3, observation.getComments());
+                statement.bindLong(4, observation.getId());
+                rows = statement.executeUpdateDelete();
+                if (rows > 0) {
+                    // An update never moves an observation to another hike.
+                    dbHelper.getInvalidationTracker().markChanged(DatabaseHelper.TABLE_OBSERVATIONS,
+                            observation.getHikeId());
+                }
+            } finally {
+                statement.clearBindings();
+            }
+        }
+        metrics.record("ObservationDAO.updateObservation", start, rows, 0, UPDATE_OBSERVATION, null);
+        return rows;
     }
 
     /**
@@ -118,7 +241,69 @@ public class ObservationDAO {
      * @param observationId The ID of the observation to delete.
      */
     public void deleteObservation(long observationId) {
-        database.delete(DatabaseHelper.TABLE_OBSERVATIONS, DatabaseHelper.KEY_OBSERVATION_ID + " = " + observationId, null);
+        long start = QueryMetrics.start();
+        int rows;
+        SQLiteStatement statement = dbHelper.getStatement(DELETE_OBSERVATION);
+        synchronized (statement) {
+            try {
+                statement.bindLong(1, observationId);
+                rows = statement.executeUpdateDelete();
+                if (rows > 0) {
+                    dbHelper.getInvalidationTracker().markChanged(DatabaseHelper.TABLE_OBSERVATIONS);
+                }
+            } finally {
+                statement.clearBindings();
+            }
+        }
+        metrics.record("ObservationDAO.deleteObservation", start, rows, 0, DELETE_OBSERVATION, null);
+    }
+
+    /**
+     * Deletes several observations in one transaction, with a single IN (...) statement per 999 IDs.
+     * @param observationIds The IDs of the observations to delete.
+     * @return The number of observations deleted.
+     */
+    public int deleteObservations(List<Long> observationIds) {
+        if (observationIds.isEmpty()) {
+            return 0;
+        }
+        long start = QueryMetrics.start();
+        String firstSql = null;
+        SQLiteDatabase db = database();
+        InvalidationTracker tracker = dbHelper.getInvalidationTracker();
+        int deleted = 0;
+        tracker.beginTransaction(db);
+        try {
+            for (int from = 0; from < observationIds.size(); from += MAX_DELETE_ARGS) {
+                List<Long> chunk = observationIds.subList(from, Math.min(observationIds.size(), from + MAX_DELETE_ARGS));
+                StringBuilder sql = new StringBuilder("DELETE FROM ").append(DatabaseHelper.TABLE_OBSERVATIONS)
+                        .append(" WHERE ").append(DatabaseHelper.KEY_OBSERVATION_ID).append(" IN (");
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append(i == 0 ? "?" : ",?");
+                }
+                String chunkSql = sql.append(')').toString();
+                if (firstSql == null) {
+                    firstSql = chunkSql;
+                }
+                SQLiteStatement statement = db.compileStatement(chunkSql);
+                try {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        statement.bindLong(i + 1, chunk.get(i));
+                    }
+                    deleted += statement.executeUpdateDelete();
+                } finally {
+                    statement.close();
+                }
+            }
+            if (deleted > 0) {
+                tracker.markChanged(DatabaseHelper.TABLE_OBSERVATIONS);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            tracker.endTransaction(db);
+        }
+        metrics.record("ObservationDAO.deleteObservations", start, deleted, 0, firstSql, null);
+        return deleted;
     }
 
     /**
@@ -136,10 +321,13 @@ public class ObservationDAO {
         return observation;
     }
 
-
-
-    // delete all observation
-    public void deleteAllObservations() {
-        database.delete(DatabaseHelper.TABLE_OBSERVATIONS, null, null);
+    /**
+     * Estimates the number of bytes read for an observation.
+     * @param observation The observation.
+     * @return The combined length of its text plus 8 bytes per number.
+     */
+    private static long sizeOf(Observation observation) {
+        return 2 * 8 + QueryMetrics.sizeOf(observation.getObservation()) + QueryMetrics.sizeOf(observation.getTime()) +
+                QueryMetrics.sizeOf(observation.getComments());
     }
 }
@@ -0,0 +1,32 @@
+package com.example.coursework.data.sqlite;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Version 7: gives every hike its observation count and latest observation, kept up to date by triggers, so the
+ * hike list can show them without querying the observations table per row.
+ * <p>
+ * The search trigger on hike updates is narrowed to the indexed columns first; otherwise filling in the new columns,
+ * and every later observation write, would rewrite the hike's search document.
+ */
+class ObservationSummaryMigration extends Migration {
+
+    ObservationSummaryMigration() {
+        super(7);
+    }
+
+    @Override
+    void finish(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + DatabaseHelper.TABLE_HIKES + " ADD COLUMN " + DatabaseHelper.KEY_HIKE_OBSERVATION_COUNT +
+                " INTEGER NOT NULL DEFAULT 0");
+        db.execSQL("ALTER TABLE " + DatabaseHelper.TABLE_HIKES + " ADD COLUMN " + DatabaseHelper.KEY_HIKE_LATEST_OBSERVATION + " TEXT");
+
+        db.execSQL("DROP TRIGGER IF EXISTS " + DatabaseHelper.HIKE_UPDATE_SEARCH_TRIGGER);
+        db.execSQL(DatabaseHelper.CREATE_HIKE_UPDATE_SEARCH_TRIGGER);
+
+        db.execSQL(DatabaseHelper.POPULATE_HIKE_OBSERVATION_SUMMARY);
+        for (String trigger : DatabaseHelper.CREATE_HIKE_OBSERVATION_SUMMARY_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.example.coursework.data.sqlite;
+
+import android.os.SystemClock;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records how long each DAO operation takes, how many rows it returned or changed and roughly how many bytes it read.
+ * <p>
+ * Latencies go into a fixed histogram per operation with power-of-two microsecond buckets, so recording a call costs
+ * a map lookup and a few additions whatever the traffic, and percentiles can be read from it at any time. Calls
+ * slower than the threshold are also kept, with their SQL and the types of their arguments but never the argument
+ * values, in a log holding the most recent {@link #SLOW_QUERY_LOG_SIZE}.
+ */
+public final class QueryMetrics {
+
+    // Number of histogram buckets. Bucket i counts calls under 2^i microseconds that did not fit bucket i - 1; the
+    // last bucket counts everything from 2^21 microseconds, about 2 seconds, up.
+    static final int HISTOGRAM_BUCKETS = 23;
+    // Number of slow calls kept; older ones are overwritten.
+    public static final int SLOW_QUERY_LOG_SIZE = 64;
+    // Calls taking longer than this are logged unless the threshold is changed.
+    public static final long DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS = 50;
+
+    /**
+     * The totals of one operation at the time they were read.
+     */
+    public static final class Operation {
+        private final String name;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long rows;
+        private final long bytes;
+        private final long[] histogram;
+
+        Operation(String name, long count, long totalNanos, long maxNanos, long rows, long bytes, long[] histogram) {
+            this.name = name;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.histogram = histogram;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return The mean latency in nanoseconds, or 0 if the operation never ran.
+         */
+        public long getMeanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        /**
+         * Estimates a latency percentile from the histogram. The result is the upper bound of the bucket the
+         * percentile falls in, capped at the slowest call seen, so it is at most twice the true value.
+         * @param percentile The percentile, from 0 to 100.
+         * @return The latency in nanoseconds, or 0 if the operation never ran.
+         */
+        public long getPercentileNanos(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < histogram.length - 1; i++) {
+                seen += histogram[i];
+                if (seen >= rank) {
+                    return Math.min(maxNanos, (1L << i) * 1000);
+                }
+            }
+            return maxNanos;
+        }
+    }
+
+    /**
+     * A call that took longer than the threshold.
+     */
+    public static final class SlowQuery {
+        private final long timeMillis;
+        private final String operation;
+        private final long durationNanos;
+        private final long rows;
+        private final String sql;
+        private final String bindShape;
+
+        SlowQuery(long timeMillis, String operation, long durationNanos, long rows, String sql, String bindShape) {
+            this.timeMillis = timeMillis;
+            this.operation = operation;
+            this.durationNanos = durationNanos;
+            this.rows = rows;
+            this.sql = sql;
+            this.bindShape = bindShape;
+        }
+
+        /**
+         * @return When the call finished, in milliseconds since the epoch.
+         */
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * @return The types of the bound arguments, such as "text x 2, integer", or the number of placeholders when
+         * the types were not recorded.
+         */
+        public String getBindShape() {
+            return bindShape;
+        }
+    }
+
+    /**
+     * The running totals of one operation; guarded by itself.
+     */
+    private static final class Recorder {
+        long count;
+        long totalNanos;
+        long maxNanos;
+        long rows;
+        long bytes;
+        final long[] histogram = new long[HISTOGRAM_BUCKETS];
+    }
+
+    // Totals by operation name.
+    private final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+    // The slow query log, used as a ring; guarded by itself.
+    private final SlowQuery[] slowQueries = new SlowQuery[SLOW_QUERY_LOG_SIZE];
+    private int slowQueryCount;
+    private volatile long slowQueryThresholdNanos = DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS * 1_000_000;
+
+    /**
+     * Returns the time to pass to {@link #record} when the call finishes.
+     * @return The current time in nanoseconds.
+     */
+    static long start() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * Records a finished call.
+     * @param operation The operation, such as "HikeDAO.getAllHikes".
+     * @param startNanos The value {@link #start()} returned before the call.
+     * @param rows The number of rows read or changed.
+     * @param bytes The approximate number of bytes read, 0 for writes.
+     * @param sql The statement run. For a call running several statements, the most telling one.
+     * @param args The arguments bound to the statement, or null to describe them by the placeholders in the SQL.
+     */
+    void record(String operation, long startNanos, long rows, long bytes, String sql, Object[] args) {
+        long nanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+        Recorder recorder = recorders.get(operation);
+        if (recorder == null) {
+            recorder = recorders.computeIfAbsent(operation, name -> new Recorder());
+        }
+        synchronized (recorder) {
+            recorder.count++;
+            recorder.totalNanos += nanos;
+            recorder.maxNanos = Math.max(recorder.maxNanos, nanos);
+            recorder.rows += rows;
+            recorder.bytes += bytes;
+            recorder.histogram[bucketOf(nanos)]++;
+        }
+
+        if (nanos > slowQueryThresholdNanos) {
+            SlowQuery slowQuery = new SlowQuery(System.currentTimeMillis(), operation, nanos, rows, sql, bindShape(sql, args));
+            synchronized (slowQueries) {
+                slowQueries[slowQueryCount++ % SLOW_QUERY_LOG_SIZE] = slowQuery;
+            }
+        }
+    }
+
+    /**
+     * @return The totals of every operation recorded so far, the one with the most time spent first.
+     */
+    public List<Operation> getOperations() {
+        List<Operation> operations = new ArrayList<>();
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            Recorder recorder = entry.getValue();
+            synchronized (recorder) {
+                operations.add(new Operation(entry.getKey(), recorder.count, recorder.totalNanos, recorder.maxNanos,
+                        recorder.rows, recorder.bytes, recorder.histogram.clone()));
+            }
+        }
+        Collections.sort(operations, (a, b) -> Long.compare(b.totalNanos, a.totalNanos));
+        return operations;
+    }
+
+    /**
+     * @return The logged slow calls, most recent first.
+     */
+    public List<SlowQuery> getSlowQueries() {
+        synchronized (slowQueries) {
+            int size = Math.min(slowQueryCount, SLOW_QUERY_LOG_SIZE);
+            List<SlowQuery> result = new ArrayList<>(size);
+            for (int i = 1; i <= size; i++) {
+                result.add(slowQueries[(slowQueryCount - i) % SLOW_QUERY_LOG_SIZE]);
+            }
+            return result;
+        }
+    }
+
+    public long getSlowQueryThresholdMillis() {
+        return slowQueryThresholdNanos / 1_000_000;
+    }
+
+    /**
+     * Sets how long a call must take to be logged as slow. Calls already logged are kept.
+     * @param millis The threshold in milliseconds.
+     */
+    public void setSlowQueryThresholdMillis(long millis) {
+        slowQueryThresholdNanos = millis * 1_000_000;
+    }
+
+    /**
+     * Forgets every total and the slow query log.
+     */
+    public void reset() {
+        recorders.clear();
+        synchronized (slowQueries) {
+            Arrays.fill(slowQueries, null);
+            slowQueryCount = 0;
+        }
+    }
+
+    /**
+     * Builds a JSON document with every total and the slow query log, for export.
+     * @return The document.
+     */
+    public JSONObject toJson() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("slowQueryThresholdMillis", getSlowQueryThresholdMillis());
+        JSONArray operations = new JSONArray();
+        for (Operation operation : getOperations()) {
+            JSONObject item = new JSONObject();
+            item.put("name", operation.name);
+            item.put("count", operation.count);
+            item.put("totalMicros", operation.totalNanos / 1000);
+            item.put("meanMicros", operation.getMeanNanos() / 1000);
+            item.put("p50Micros", operation.getPercentileNanos(50) / 1000);
+            item.put("p90Micros", operation.getPercentileNanos(90) / 1000);
+            item.put("p99Micros", operation.getPercentileNanos(99) / 1000);
+            item.put("maxMicros", operation.maxNanos / 1000);
+            item.put("rows", operation.rows);
+            item.put("bytes", operation.bytes);
+            item.put("histogram", new JSONArray(operation.histogram));
+            operations.put(item);
+        }
+        json.put("operations", operations);
+        JSONArray slow = new JSONArray();
+        for (SlowQuery slowQuery : getSlowQueries()) {
+            JSONObject item = new JSONObject();
+            item.put("timeMillis", slowQuery.timeMillis);
+            item.put("operation", slowQuery.operation);
+            item.put("durationMicros", slowQuery.durationNanos / 1000);
+            item.put("rows", slowQuery.rows);
+            item.put("sql", slowQuery.sql);
+            item.put("bindShape", slowQuery.bindShape);
+            slow.put(item);
+        }
+        json.put("slowQueries", slow);
+        return json;
+    }
+
+    /**
+     * Returns the approximate number of bytes a text value takes when read.
+     * @param text The value, may be null.
+     * @return The number of characters, 0 for null.
+     */
+    static int sizeOf(String text) {
+        return text == null ? 0 : text.length();
+    }
+
+    /**
+     * @param nanos A latency in nanoseconds.
+     * @return The histogram bucket it falls in.
+     */
+    private static int bucketOf(long nanos) {
+        long micros = nanos / 1000;
+        // The number of bits needed for the microseconds: 0 for under 1 us, 1 for 1 us, 2 for 2 to 3 us, and so on.
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, HISTOGRAM_BUCKETS - 1);
+    }
+
+    /**
+     * Describes the arguments of a statement by their types, merging runs of the same type.
+     * @param sql The statement.
+     * @param args The arguments, or null to count the placeholders in the statement instead.
+     * @return The description.
+     */
+    static String bindShape(String sql, Object[] args) {
+        if (args == null) {
+            int placeholders = 0;
+            for (int i = 0; i < sql.length(); i++) {
+                if (sql.charAt(i) == '?') {
+                    placeholders++;
+                }
+            }
+            return placeholders == 0 ? "none" : placeholders + " bound";
+        }
+        if (args.length == 0) {
+            return "none";
+        }
+        StringBuilder shape = new StringBuilder();
+        String runType = null;
+        int runLength = 0;
+        for (Object arg : args) {
+            String type = arg == null ? "null" : arg instanceof String ? "text"
+                    : arg instanceof Double || arg instanceof Float ? "real" : "integer";
+            if (type.equals(runType)) {
+                runLength++;
+                continue;
+            }
+            appendRun(shape, runType, runLength);
+            runType = type;
+            runLength = 1;
+        }
+        appendRun(shape, runType, runLength);
+        return shape.toString();
+    }
+
+    private static void appendRun(StringBuilder shape, String type, int length) {
+        if (type == null) {
+            return;
+        }
+        if (shape.length() > 0) {
+            shape.append(", ");
+        }
+        shape.append(type);
+        if (length > 1) {
+            shape.append(" x ").append(length);
+        }
+    }
+}
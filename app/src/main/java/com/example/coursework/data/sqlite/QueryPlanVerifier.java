@@ -0,0 +1,142 @@
+package com.example.coursework.data.sqlite;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.coursework.data.models.HikeFilter;
+import com.example.coursework.data.models.HikeSummary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks the query plans SQLite chooses for the app's filtered queries.
+ * <p>
+ * Every combination of {@link HikeFilter} criteria produces a different WHERE clause. This class builds each of those
+ * query shapes exactly as {@link HikeDAO#getHikesPage} and {@link HikeDAO#getHikesPageBefore} do, for the first page
+ * and for the pages after and before a hike, asks SQLite for its plan with EXPLAIN QUERY PLAN, and reports any shape
+ * that would read the whole table. The plans depend on the planner statistics, so the database should have been
+ * analyzed first.
+ */
+public final class QueryPlanVerifier {
+
+    // Number of independent criteria a HikeFilter can hold.
+    private static final int CRITERIA_COUNT = 7;
+    // Page size of the sample page queries; the plan does not depend on it.
+    private static final int PAGE_SIZE = 30;
+
+    private QueryPlanVerifier() {
+    }
+
+    /**
+     * Finds every hike page query shape, the observation lookups and the trash queries whose plan scans a whole table.
+     * A page query may walk the whole date index when no criterion narrows it, since it reads the index in page order
+     * and stops after one page; it fails if it has to sort the hikes it reads, which means reading every one of them.
+     * @param db The database to check.
+     * @return One description per offending query, with its plan; empty if every query uses an index.
+     */
+    public static List<String> findFullScans(SQLiteDatabase db) {
+        List<String> failures = new ArrayList<>();
+        // The key is a hike in the middle of the sample filters' date range.
+        HikeSummary key = new HikeSummary(2500, "ridge trail", "lake", 19500, "Yes", 10.0, "Easy", 0, null);
+        for (int shape = 0; shape < 1 << CRITERIA_COUNT; shape++) {
+            HikeFilter filter = sampleFilter(shape);
+            checkPageQuery(db, filter, null, false, failures);
+            checkPageQuery(db, filter, key, false, failures);
+            checkPageQuery(db, filter, key, true, failures);
+        }
+
+        checkPlan(db, ObservationDAO.SELECT_OBSERVATIONS_FOR_HIKE, new String[]{"1"}, DatabaseHelper.TABLE_OBSERVATIONS,
+                false, failures);
+        checkPlan(db, ObservationDAO.SELECT_OBSERVATIONS_FOR_HIKE_AFTER, new String[]{"1", "2024-01-01 09:00", "1"},
+                DatabaseHelper.TABLE_OBSERVATIONS, false, failures);
+        checkPlan(db, ObservationDAO.SELECT_OBSERVATIONS_FOR_HIKE_BEFORE, new String[]{"1", "2024-01-01 09:00", "1"},
+                DatabaseHelper.TABLE_OBSERVATIONS, false, failures);
+        checkPlan(db, HikeDAO.SELECT_TRASHED_HIKES, null, DatabaseHelper.TABLE_HIKES, false, failures);
+        checkPlan(db, HikeDAO.SELECT_EXPIRED_HIKE_IDS, new String[]{"1700000000000", "100"}, DatabaseHelper.TABLE_HIKES,
+                false, failures);
+        return failures;
+    }
+
+    /**
+     * Checks the plan of one hike page query.
+     * @param db The database.
+     * @param filter The filter criteria.
+     * @param key The hike the page starts from, or null for the first page.
+     * @param backwards True for the page before the key.
+     * @param failures The list to add a failure to.
+     */
+    private static void checkPageQuery(SQLiteDatabase db, HikeFilter filter, HikeSummary key, boolean backwards,
+                                       List<String> failures) {
+        List<String> selectionArgs = new ArrayList<>();
+        String sql = HikeDAO.pageQuery(filter, key, backwards, PAGE_SIZE, selectionArgs);
+        checkPlan(db, sql, selectionArgs.toArray(new String[0]), DatabaseHelper.TABLE_HIKES, true, failures);
+    }
+
+    /**
+     * Builds a filter with one sample value for each criterion whose bit is set in the shape.
+     * @param shape A bit mask of the criteria to set.
+     * @return The filter.
+     */
+    private static HikeFilter sampleFilter(int shape) {
+        HikeFilter filter = new HikeFilter();
+        if ((shape & 1) != 0) {
+            filter.setName("ridge");
+        }
+        if ((shape & 1 << 1) != 0) {
+            filter.setLocation("lake");
+        }
+        if ((shape & 1 << 2) != 0) {
+            filter.setDateFrom(19000L);
+        }
+        if ((shape & 1 << 3) != 0) {
+            filter.setDateTo(20000L);
+        }
+        if ((shape & 1 << 4) != 0) {
+            filter.setDifficulty("Easy");
+        }
+        if ((shape & 1 << 5) != 0) {
+            filter.setMinLength(5.0);
+        }
+        if ((shape & 1 << 6) != 0) {
+            filter.setMaxLength(15.0);
+        }
+        return filter;
+    }
+
+    /**
+     * Records the query as a failure if its plan scans the given table.
+     * @param db The database.
+     * @param sql The query.
+     * @param args The query arguments.
+     * @param table The table that must not be scanned.
+     * @param limited True if the query stops after a page of rows, so that walking a whole index in the query's
+     *                order is acceptable.
+     * @param failures The list to add a failure to.
+     */
+    private static void checkPlan(SQLiteDatabase db, String sql, String[] args, String table, boolean limited,
+                                  List<String> failures) {
+        StringBuilder plan = new StringBuilder();
+        boolean scans = false;
+        boolean scansIndex = false;
+        boolean sorts = false;
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        int detailIndex = cursor.getColumnIndexOrThrow("detail");
+        while (cursor.moveToNext()) {
+            String detail = cursor.getString(detailIndex);
+            plan.append("\n  ").append(detail);
+            if (detail.equals("SCAN " + table)) {
+                scans = true;
+            } else if (detail.startsWith("SCAN " + table + " ")) {
+                // Reads every index entry, unless a LIMIT stops it early.
+                scansIndex = true;
+            } else if (detail.startsWith("USE TEMP B-TREE FOR")) {
+                sorts = true;
+            }
+        }
+        cursor.close();
+        if (scans || scansIndex && (!limited || sorts)) {
+            failures.add(sql + plan);
+        }
+    }
+}
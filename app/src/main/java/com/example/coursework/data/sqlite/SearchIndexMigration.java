@@ -0,0 +1,70 @@
+package com.example.coursework.data.sqlite;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Version 2: adds the full-text search table and indexes the existing hikes and their observations.
+ * Hikes are indexed in batches by ID; the highest docid in the search table records how far indexing got.
+ */
+class SearchIndexMigration extends Migration {
+
+    // Highest hike ID in the next batch.
+    private static final String BATCH_END = "SELECT max(" + DatabaseHelper.KEY_HIKE_ID + ") FROM (SELECT " + DatabaseHelper.KEY_HIKE_ID +
+            " FROM " + DatabaseHelper.TABLE_HIKES + " WHERE " + DatabaseHelper.KEY_HIKE_ID + " > ? ORDER BY " + DatabaseHelper.KEY_HIKE_ID +
+            " LIMIT ?)";
+
+    // Indexes the hikes with IDs in (?, ?], grouping the observations of just those hikes.
+    private static final String POPULATE_HIKE_SEARCH = "INSERT INTO " + DatabaseHelper.TABLE_HIKE_SEARCH + "(" +
+            DatabaseHelper.KEY_SEARCH_DOCID + ", " + DatabaseHelper.KEY_HIKE_NAME + ", " + DatabaseHelper.KEY_HIKE_LOCATION + ", " +
+            DatabaseHelper.KEY_HIKE_DESCRIPTION + ", " + DatabaseHelper.KEY_HIKE_WEATHER + ", " + DatabaseHelper.KEY_HIKE_RECOMMENDED_GEAR + ", " +
+            DatabaseHelper.KEY_SEARCH_OBSERVATIONS + ") " +
+            "SELECT h." + DatabaseHelper.KEY_HIKE_ID + ", h." + DatabaseHelper.KEY_HIKE_NAME + ", h." + DatabaseHelper.KEY_HIKE_LOCATION + ", " +
+            "h." + DatabaseHelper.KEY_HIKE_DESCRIPTION + ", h." + DatabaseHelper.KEY_HIKE_WEATHER + ", h." + DatabaseHelper.KEY_HIKE_RECOMMENDED_GEAR + ", " +
+            "ifnull(o.text, '') " +
+            "FROM " + DatabaseHelper.TABLE_HIKES + " h LEFT JOIN (SELECT " + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK + ", " +
+            "group_concat(" + DatabaseHelper.OBSERVATION_SEARCH_TEXT + ", ' ') AS text FROM " + DatabaseHelper.TABLE_OBSERVATIONS + " " +
+            "WHERE " + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK + " > ?1 AND " + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK + " <= ?2 " +
+            "GROUP BY " + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK + ") o ON o." + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK + " = h." + DatabaseHelper.KEY_HIKE_ID + " " +
+            "WHERE h." + DatabaseHelper.KEY_HIKE_ID + " > ?1 AND h." + DatabaseHelper.KEY_HIKE_ID + " <= ?2";
+
+    SearchIndexMigration() {
+        super(2);
+    }
+
+    @Override
+    void prepare(SQLiteDatabase db, MigrationRunner.ProgressListener listener) {
+        if (!tableExists(db, DatabaseHelper.TABLE_HIKE_SEARCH)) {
+            db.beginTransaction();
+            try {
+                DatabaseHelper.createSearchIndex(db);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+
+        copyInBatches(db, DatabaseHelper.TABLE_HIKES, new BatchCopy() {
+            @Override
+            public long lastCopiedId(SQLiteDatabase db) {
+                return count(db, "SELECT max(" + DatabaseHelper.KEY_SEARCH_DOCID + ") FROM " + DatabaseHelper.TABLE_HIKE_SEARCH, null);
+            }
+
+            @Override
+            public int copyAfter(SQLiteDatabase db, long afterId, int limit) {
+                String from = String.valueOf(afterId);
+                long to = count(db, BATCH_END, new String[]{from, String.valueOf(limit)});
+                if (to == 0) {
+                    return 0;
+                }
+                db.execSQL(POPULATE_HIKE_SEARCH, new Object[]{afterId, to});
+                return (int) count(db, "SELECT count(*) FROM " + DatabaseHelper.TABLE_HIKES + " WHERE " + DatabaseHelper.KEY_HIKE_ID +
+                        " > ? AND " + DatabaseHelper.KEY_HIKE_ID + " <= ?", new String[]{from, String.valueOf(to)});
+            }
+        }, listener);
+    }
+
+    @Override
+    void finish(SQLiteDatabase db) {
+        // Everything was done in prepare; only the version bump remains.
+    }
+}
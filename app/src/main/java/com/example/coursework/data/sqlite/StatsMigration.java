@@ -0,0 +1,63 @@
+package com.example.coursework.data.sqlite;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Version 6: adds the statistics table and its triggers, and computes the statistics of the existing hikes.
+ * The totals take one grouped pass over the hikes per dimension, with the observation counts read from the
+ * observation index, which is quick enough to run in the version bump's transaction.
+ * <p>
+ * The triggers and the totals are those of version 6, which count every hike. The current ones leave out trashed
+ * hikes and so need the deleted_at column, which only exists from version 8; {@link TrashMigration} replaces them.
+ */
+class StatsMigration extends Migration {
+
+    // Number of observations per hike, joined to the hikes when the totals are computed.
+    private static final String OBSERVATIONS_PER_HIKE = "SELECT " + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK +
+            ", count(*) AS n FROM " + DatabaseHelper.TABLE_OBSERVATIONS + " GROUP BY " + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK;
+
+    // The statistics triggers as of version 6, under the names TrashMigration drops.
+    // Kept separate from the current schema so that later changes to the triggers do not alter this step.
+    private static final String[] CREATE_HIKE_STATS_TRIGGERS_V6 = {
+            "CREATE TRIGGER hike_stats_hike_insert AFTER INSERT ON " + DatabaseHelper.TABLE_HIKES + " BEGIN " +
+                    DatabaseHelper.addHikeToStats("new", "1", "0") + "END",
+            "CREATE TRIGGER hike_stats_hike_update AFTER UPDATE OF " + DatabaseHelper.KEY_HIKE_DATE + ", " +
+                    DatabaseHelper.KEY_HIKE_PARKING + ", " + DatabaseHelper.KEY_HIKE_LENGTH + ", " +
+                    DatabaseHelper.KEY_HIKE_DIFFICULTY + " ON " + DatabaseHelper.TABLE_HIKES + " BEGIN " +
+                    DatabaseHelper.addHikeToStats("old", "-1", "-" + DatabaseHelper.STATS_OBSERVATIONS_OF_ROW) +
+                    DatabaseHelper.addHikeToStats("new", "1", DatabaseHelper.STATS_OBSERVATIONS_OF_ROW) + "END",
+            "CREATE TRIGGER hike_stats_hike_delete BEFORE DELETE ON " + DatabaseHelper.TABLE_HIKES + " BEGIN " +
+                    DatabaseHelper.addHikeToStats("old", "-1", "-" + DatabaseHelper.STATS_OBSERVATIONS_OF_ROW) + "END",
+            "CREATE TRIGGER hike_stats_observation_insert AFTER INSERT ON " + DatabaseHelper.TABLE_OBSERVATIONS + " BEGIN " +
+                    DatabaseHelper.addObservationToStats("new", "1", null) + "END",
+            "CREATE TRIGGER hike_stats_observation_update AFTER UPDATE OF " + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK +
+                    " ON " + DatabaseHelper.TABLE_OBSERVATIONS + " BEGIN " +
+                    DatabaseHelper.addObservationToStats("old", "-1", null) +
+                    DatabaseHelper.addObservationToStats("new", "1", null) + "END",
+            "CREATE TRIGGER hike_stats_observation_delete AFTER DELETE ON " + DatabaseHelper.TABLE_OBSERVATIONS + " BEGIN " +
+                    DatabaseHelper.addObservationToStats("old", "-1", null) + "END"
+    };
+
+    StatsMigration() {
+        super(6);
+    }
+
+    @Override
+    void finish(SQLiteDatabase db) {
+        db.execSQL(DatabaseHelper.CREATE_TABLE_HIKE_STATS);
+        for (String trigger : CREATE_HIKE_STATS_TRIGGERS_V6) {
+            db.execSQL(trigger);
+        }
+
+        db.execSQL("DELETE FROM " + DatabaseHelper.TABLE_HIKE_STATS);
+        for (String[] dimension : DatabaseHelper.STATS_DIMENSIONS) {
+            db.execSQL("INSERT INTO " + DatabaseHelper.TABLE_HIKE_STATS + "(" + DatabaseHelper.KEY_STATS_DIMENSION + ", " +
+                    DatabaseHelper.KEY_STATS_BUCKET + ", " + DatabaseHelper.KEY_STATS_HIKE_COUNT + ", " +
+                    DatabaseHelper.KEY_STATS_TOTAL_LENGTH + ", " + DatabaseHelper.KEY_STATS_OBSERVATION_COUNT + ") " +
+                    "SELECT '" + dimension[0] + "', " + dimension[1].replace(DatabaseHelper.STATS_ROW, "h") + ", count(*), " +
+                    "total(h." + DatabaseHelper.KEY_HIKE_LENGTH + "), total(o.n) FROM " + DatabaseHelper.TABLE_HIKES + " h " +
+                    "LEFT JOIN (" + OBSERVATIONS_PER_HIKE + ") o ON o." + DatabaseHelper.KEY_OBSERVATION_HIKE_ID_FK +
+                    " = h." + DatabaseHelper.KEY_HIKE_ID + " GROUP BY 2");
+        }
+    }
+}
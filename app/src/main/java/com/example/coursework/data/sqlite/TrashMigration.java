@@ -0,0 +1,31 @@
+package com.example.coursework.data.sqlite;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Version 8: lets hikes be moved to a trash and restored from it. A trashed hike keeps its row, marked with the time
+ * it was trashed, until the purge deletes it for good.
+ * <p>
+ * The statistics triggers are replaced by ones that skip trashed hikes. No hike is in the trash yet, so the totals
+ * themselves stay as they are.
+ */
+class TrashMigration extends Migration {
+
+    TrashMigration() {
+        super(8);
+    }
+
+    @Override
+    void finish(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + DatabaseHelper.TABLE_HIKES + " ADD COLUMN " + DatabaseHelper.KEY_HIKE_DELETED_AT + " INTEGER");
+        db.execSQL(DatabaseHelper.CREATE_INDEX_HIKES_DELETED_AT);
+
+        for (String trigger : DatabaseHelper.HIKE_STATS_TRIGGERS) {
+            db.execSQL("DROP TRIGGER IF EXISTS " + trigger);
+        }
+        DatabaseHelper.createStatsTable(db);
+        for (String trigger : DatabaseHelper.CREATE_HIKE_TRASH_TRIGGERS) {
+            db.execSQL(trigger);
+        }
+    }
+}
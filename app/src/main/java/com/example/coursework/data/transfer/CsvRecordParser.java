@@ -0,0 +1,102 @@
+package com.example.coursework.data.transfer;
+
+import com.example.coursework.data.models.HikeRecord;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Parses CSV records (RFC 4180). Columns are matched by the names in the file's header row, so they may come in any
+ * order and unknown columns are ignored.
+ */
+class CsvRecordParser implements RecordParser {
+
+    // Columns that every file must have.
+    private static final String[] REQUIRED_COLUMNS = {HikeRecordColumns.NAME, HikeRecordColumns.LOCATION,
+            HikeRecordColumns.DATE, HikeRecordColumns.PARKING, HikeRecordColumns.LENGTH, HikeRecordColumns.DIFFICULTY};
+
+    // Position of each known column within a record.
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+
+    /**
+     * Constructor for CsvRecordParser.
+     * @param header The text of the header row.
+     * @throws IllegalArgumentException If the header lacks a required column.
+     */
+    CsvRecordParser(String header) {
+        List<String> names = split(header);
+        for (int i = 0; i < names.size(); i++) {
+            columnIndexes.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String column : REQUIRED_COLUMNS) {
+            if (!columnIndexes.containsKey(column)) {
+                throw new IllegalArgumentException("The CSV header has no '" + column + "' column");
+            }
+        }
+    }
+
+    @Override
+    public void parse(String record, List<HikeRecord> out) {
+        if (countQuotes(record) % 2 != 0) {
+            // The reader gave up looking for the closing quote; see RecordReader.
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        List<String> fields = split(record);
+        out.add(HikeRecordColumns.toRecord(column -> {
+            Integer index = columnIndexes.get(column);
+            return index != null && index < fields.size() ? fields.get(index) : null;
+        }));
+    }
+
+    /**
+     * Counts the quotes in some text. Escaped quotes come in pairs, so a record with an odd count has a quoted field
+     * that is still open.
+     * @param text The text.
+     * @return The number of quote characters.
+     */
+    static int countQuotes(CharSequence text) {
+        int quotes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes;
+    }
+
+    /**
+     * Splits a record into its fields, removing quotes and unescaping doubled quotes.
+     * @param record The record's text.
+     * @return The fields.
+     */
+    static List<String> split(String record) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.coursework.data.transfer;
+
+import com.example.coursework.data.models.Hike;
+import com.example.coursework.data.models.HikeRecord;
+import com.example.coursework.data.models.Observation;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes records as CSV (RFC 4180) with a header row, in the layout {@link CsvRecordParser} reads.
+ */
+class CsvRecordWriter implements RecordWriter {
+
+    private final Writer out;
+
+    /**
+     * Constructor for CsvRecordWriter. Writes the header row.
+     * @param out The output.
+     * @throws IOException If the output cannot be written.
+     */
+    CsvRecordWriter(Writer out) throws IOException {
+        this.out = out;
+        for (int i = 0; i < HikeRecordColumns.ALL.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(HikeRecordColumns.ALL[i]);
+        }
+        out.write("\r\n");
+    }
+
+    @Override
+    public boolean write(HikeRecord record) throws IOException {
+        Hike hike = record.getHike();
+        Observation observation = record.getObservation();
+        out.write(record.getHikeKey());
+        writeField(hike.getName());
+        writeField(hike.getLocation());
+        writeField(HikeRecordColumns.formatDate(hike.getDate()));
+        writeField(hike.getParkingAvailable());
+        writeField(String.valueOf(hike.getLength()));
+        writeField(hike.getDifficulty());
+        writeField(hike.getDescription());
+        writeField(hike.getWeather());
+        writeField(hike.getRecommendedGear());
+        writeField(observation != null ? observation.getObservation() : null);
+        writeField(observation != null ? observation.getTime() : null);
+        writeField(observation != null ? observation.getComments() : null);
+        out.write("\r\n");
+        return true;
+    }
+
+    @Override
+    public void finish() {
+    }
+
+    /**
+     * Writes a separator and a field, quoting the field if it contains a separator, a quote or a line break.
+     * @param value The field, or null for an empty field.
+     * @throws IOException If the output cannot be written.
+     */
+    private void writeField(String value) throws IOException {
+        out.write(',');
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.coursework.data.transfer;
+
+import com.example.coursework.data.models.Hike;
+import com.example.coursework.data.models.HikeRecord;
+import com.example.coursework.data.models.Observation;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writes hikes as GPX 1.1 waypoints.
+ * <p>
+ * A GPX waypoint needs coordinates, but hikes only have a free-text location. A hike is exported when its location
+ * is a "latitude, longitude" pair in decimal degrees; other hikes are left out. The hike's name, date, description
+ * and difficulty map onto the standard waypoint elements, and its observations are written as extension elements,
+ * which come last in a waypoint and so can be streamed as they arrive.
+ */
+class GpxRecordWriter implements RecordWriter {
+
+    // Namespace of the extension elements holding observations.
+    private static final String EXTENSIONS_NAMESPACE = "urn:mhike:gpx:1";
+
+    // A location made of a latitude and a longitude, e.g. "51.5007, -0.1246".
+    private static final Pattern COORDINATES = Pattern.compile("\\s*([-+]?\\d{1,2}(?:\\.\\d+)?)\\s*[,;\\s]\\s*([-+]?\\d{1,3}(?:\\.\\d+)?)\\s*");
+
+    private final Writer out;
+    // Key of the hike whose waypoint is open, or of the last hike left out; null before the first record.
+    private String currentHikeKey;
+    // True if the current hike has an open waypoint, false if it was left out.
+    private boolean waypointOpen;
+    // True once the open waypoint's extensions element has been started.
+    private boolean extensionsOpen;
+
+    /**
+     * Constructor for GpxRecordWriter. Writes the document header.
+     * @param out The output.
+     * @throws IOException If the output cannot be written.
+     */
+    GpxRecordWriter(Writer out) throws IOException {
+        this.out = out;
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<gpx version=\"1.1\" creator=\"M-Hike\" xmlns=\"http://www.topografix.com/GPX/1/1\" xmlns:mhike=\"" +
+                EXTENSIONS_NAMESPACE + "\">\n");
+    }
+
+    @Override
+    public boolean write(HikeRecord record) throws IOException {
+        if (!record.getHikeKey().equals(currentHikeKey)) {
+            closeWaypoint();
+            currentHikeKey = record.getHikeKey();
+            waypointOpen = openWaypoint(record.getHike());
+        }
+        if (!waypointOpen) {
+            return false;
+        }
+
+        Observation observation = record.getObservation();
+        if (observation != null) {
+            if (!extensionsOpen) {
+                out.write("  <extensions>\n");
+                extensionsOpen = true;
+            }
+            out.write("   <mhike:observation time=\"");
+            writeEscaped(observation.getTime());
+            out.write("\">");
+            writeEscaped(observation.getObservation());
+            if (observation.getComments() != null && !observation.getComments().isEmpty()) {
+                out.write("<mhike:comments>");
+                writeEscaped(observation.getComments());
+                out.write("</mhike:comments>");
+            }
+            out.write("</mhike:observation>\n");
+        }
+        return true;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        closeWaypoint();
+        out.write("</gpx>\n");
+    }
+
+    /**
+     * Opens the waypoint of a hike, if its location holds coordinates.
+     * @param hike The hike.
+     * @return True if the waypoint was opened, false if the hike cannot be placed on a map.
+     * @throws IOException If the output cannot be written.
+     */
+    private boolean openWaypoint(Hike hike) throws IOException {
+        Matcher matcher = COORDINATES.matcher(hike.getLocation());
+        if (!matcher.matches()) {
+            return false;
+        }
+        double latitude = Double.parseDouble(matcher.group(1));
+        double longitude = Double.parseDouble(matcher.group(2));
+        if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+            return false;
+        }
+
+        out.write(" <wpt lat=\"" + latitude + "\" lon=\"" + longitude + "\">\n");
+        out.write("  <time>" + HikeRecordColumns.formatDate(hike.getDate()) + "T00:00:00Z</time>\n");
+        out.write("  <name>");
+        writeEscaped(hike.getName());
+        out.write("</name>\n");
+        if (hike.getDescription() != null && !hike.getDescription().isEmpty()) {
+            out.write("  <desc>");
+            writeEscaped(hike.getDescription());
+            out.write("</desc>\n");
+        }
+        out.write("  <type>");
+        writeEscaped(hike.getDifficulty());
+        out.write("</type>\n");
+        extensionsOpen = false;
+        return true;
+    }
+
+    /**
+     * Closes the open waypoint, if any.
+     * @throws IOException If the output cannot be written.
+     */
+    private void closeWaypoint() throws IOException {
+        if (!waypointOpen) {
+            return;
+        }
+        if (extensionsOpen) {
+            out.write("  </extensions>\n");
+        }
+        out.write(" </wpt>\n");
+        waypointOpen = false;
+    }
+
+    /**
+     * Writes text with the characters that are special in XML escaped.
+     * @param text The text, may be null.
+     * @throws IOException If the output cannot be written.
+     */
+    private void writeEscaped(String text) throws IOException {
+        if (text == null) {
+            return;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    out.write("&lt;");
+                    break;
+                case '>':
+                    out.write("&gt;");
+                    break;
+                case '&':
+                    out.write("&amp;");
+                    break;
+                case '"':
+                    out.write("&quot;");
+                    break;
+                default:
+                    out.write(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.coursework.data.transfer;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.coursework.data.models.ExportResult;
+import com.example.coursework.data.models.HikeRecord;
+import com.example.coursework.data.sqlite.ExportDAO;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streams every hike and observation into a file.
+ * <p>
+ * Records come from {@link ExportDAO} one page of the hikes-observations join at a time and are encoded straight
+ * into a buffer in front of the file's channel, so memory use stays the same however much data there is.
+ */
+public class HikeExporter {
+
+    private static final String TAG = "HikeExporter";
+
+    // Size of the character and byte buffers in front of the file.
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Records written between progress reports and cancellation checks.
+    private static final int PROGRESS_INTERVAL = 10_000;
+
+    /**
+     * Receives progress while an export runs. Called on the exporting thread.
+     */
+    public interface ProgressListener {
+        /**
+         * Called periodically while records are written, and once at the end.
+         * @param records The number of records written or left out so far.
+         * @param totalRecords The number of records to export.
+         */
+        void onExportProgress(long records, long totalRecords);
+    }
+
+    private final ExportDAO exportDAO;
+
+    /**
+     * Constructor for HikeExporter.
+     * @param context The application context.
+     */
+    public HikeExporter(Context context) {
+        exportDAO = new ExportDAO(context);
+    }
+
+    /**
+     * Writes every hike and observation to a file.
+     * @param channel The file, positioned where the export should start. Left open.
+     * @param format The format to write.
+     * @param listener Receives progress, may be null.
+     * @param signal Cancels the export, may be null. A cancelled export leaves a partial file behind.
+     * @return A summary of the export.
+     * @throws IOException If the file cannot be written.
+     * @throws android.os.OperationCanceledException If the export was cancelled.
+     */
+    public ExportResult exportTo(FileChannel channel, TransferFormat format, ProgressListener listener, CancellationSignal signal)
+            throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        long total = exportDAO.countRecords();
+        Writer out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+        RecordWriter writer = createWriter(out, format);
+
+        CountingSink sink = new CountingSink(writer, listener, signal, total);
+        exportDAO.streamRecords(sink, signal);
+        writer.finish();
+        out.flush();
+        if (listener != null) {
+            listener.onExportProgress(sink.records, total);
+        }
+
+        ExportResult result = new ExportResult(sink.hikes, sink.observations, sink.skippedHikes, SystemClock.elapsedRealtime() - start);
+        Log.i(TAG, "Exported " + result.getHikes() + " hikes and " + result.getObservations() + " observations as " + format +
+                " in " + result.getElapsedMillis() + " ms");
+        return result;
+    }
+
+    /**
+     * Passes records to a writer, counting what was written and reporting progress.
+     */
+    private static class CountingSink implements ExportDAO.RecordSink {
+        private final RecordWriter writer;
+        private final ProgressListener listener;
+        private final CancellationSignal signal;
+        private final long total;
+
+        long hikes;
+        long observations;
+        long skippedHikes;
+        long records;
+        // Key of the hike the last record belonged to.
+        private String currentHikeKey;
+
+        CountingSink(RecordWriter writer, ProgressListener listener, CancellationSignal signal, long total) {
+            this.writer = writer;
+            this.listener = listener;
+            this.signal = signal;
+            this.total = total;
+        }
+
+        @Override
+        public void accept(HikeRecord record) throws IOException {
+            boolean written = writer.write(record);
+            if (!record.getHikeKey().equals(currentHikeKey)) {
+                currentHikeKey = record.getHikeKey();
+                if (written) {
+                    hikes++;
+                } else {
+                    skippedHikes++;
+                }
+            }
+            if (written && record.getObservation() != null) {
+                observations++;
+            }
+            if (++records % PROGRESS_INTERVAL == 0) {
+                if (signal != null) {
+                    signal.throwIfCanceled();
+                }
+                if (listener != null) {
+                    listener.onExportProgress(records, total);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the writer for a format.
+     * @param out The output.
+     * @param format The format.
+     * @return The writer.
+     * @throws IOException If the writer's header cannot be written.
+     */
+    private static RecordWriter createWriter(Writer out, TransferFormat format) throws IOException {
+        switch (format) {
+            case JSON_LINES:
+                return new JsonLinesRecordWriter(out);
+            case GPX:
+                return new GpxRecordWriter(out);
+            default:
+                return new CsvRecordWriter(out);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.coursework.data.transfer;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.coursework.data.models.HikeRecord;
+import com.example.coursework.data.models.ImportResult;
+import com.example.coursework.data.sqlite.ImportDAO;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streams hikes and observations from a CSV or JSON Lines file into the database.
+ * <p>
+ * The import runs as a pipeline. A reader thread splits the file into chunks of raw records and hands each chunk to
+ * a pool of parser threads. The futures of the parsed chunks go through a bounded queue, in file order, to the
+ * calling thread, which is the only writer: it gathers the parsed records into large batches and commits each batch
+ * in one transaction through {@link ImportDAO}. Because the queue is bounded, the reader waits whenever the writer
+ * falls behind, so memory use does not depend on the size of the file; only the map from the file's hike keys to the
+ * new hike IDs grows, with the number of hikes.
+ */
+public class HikeImporter {
+
+    private static final String TAG = "HikeImporter";
+
+    // Records read as one unit of work for a parser thread.
+    private static final int CHUNK_RECORDS = 1000;
+    // Records written per transaction.
+    private static final int BATCH_RECORDS = 20_000;
+    // Parser threads; one core is left for the reader and the writer.
+    private static final int PARSER_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    // Parsed or in-progress chunks allowed between the reader and the writer.
+    private static final int QUEUED_CHUNKS = 2 * PARSER_THREADS;
+
+    /**
+     * Receives progress while an import runs. Called on the importing thread after every committed batch.
+     */
+    public interface ProgressListener {
+        /**
+         * Called after each batch.
+         * @param rows The number of hikes and observations written so far.
+         * @param rowsPerSecond The average throughput so far.
+         */
+        void onImportProgress(long rows, double rowsPerSecond);
+    }
+
+    /**
+     * The parsed records of one chunk, and the number of its records that could not be parsed.
+     */
+    private static class ParsedChunk {
+        final List<HikeRecord> records;
+        final int skipped;
+
+        ParsedChunk(List<HikeRecord> records, int skipped) {
+            this.records = records;
+            this.skipped = skipped;
+        }
+    }
+
+    // Queued by the reader after the last chunk.
+    private static final Future<ParsedChunk> END_OF_FILE = CompletableFuture.completedFuture(null);
+
+    private final ImportDAO importDAO;
+
+    /**
+     * Constructor for HikeImporter.
+     * @param context The application context.
+     */
+    public HikeImporter(Context context) {
+        importDAO = new ImportDAO(context);
+    }
+
+    /**
+     * Imports every record of a file. Every hike in the file is added as a new hike, even if an identical one exists.
+     * Records that cannot be parsed are skipped and counted. If the import is cancelled or fails part way, the
+     * batches committed so far remain.
+     * @param in The file's contents, UTF-8 encoded. Closed when the import ends.
+     * @param format The file's format.
+     * @param listener Receives progress, may be null.
+     * @param signal Cancels the import between batches, may be null.
+     * @return A summary of the import.
+     * @throws IOException If the file cannot be read, its format cannot be imported, or a CSV file has no usable header.
+     * @throws android.os.OperationCanceledException If the import was cancelled.
+     */
+    public ImportResult importFrom(InputStream in, TransferFormat format, ProgressListener listener, CancellationSignal signal)
+            throws IOException {
+        long start = SystemClock.elapsedRealtime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        ExecutorService parsers = Executors.newFixedThreadPool(PARSER_THREADS);
+        BlockingQueue<Future<ParsedChunk>> chunks = new ArrayBlockingQueue<>(QUEUED_CHUNKS);
+        Thread readerThread = null;
+        try {
+            RecordReader records = new RecordReader(reader, format);
+            RecordParser parser = createParser(records, format);
+            readerThread = new Thread(() -> readChunks(records, parser, parsers, chunks), "import-reader");
+            readerThread.start();
+
+            Map<String, Long> hikeIds = new HashMap<>();
+            List<HikeRecord> batch = new ArrayList<>(BATCH_RECORDS + CHUNK_RECORDS);
+            long observations = 0;
+            long skipped = 0;
+            while (true) {
+                if (signal != null) {
+                    signal.throwIfCanceled();
+                }
+                ParsedChunk chunk = take(chunks);
+                if (chunk != null) {
+                    batch.addAll(chunk.records);
+                    skipped += chunk.skipped;
+                }
+                if (batch.size() >= BATCH_RECORDS || (chunk == null && !batch.isEmpty())) {
+                    importDAO.writeBatch(batch, hikeIds);
+                    for (HikeRecord record : batch) {
+                        if (record.getObservation() != null) {
+                            observations++;
+                        }
+                    }
+                    batch.clear();
+                    if (listener != null) {
+                        long elapsed = Math.max(1, SystemClock.elapsedRealtime() - start);
+                        long rows = hikeIds.size() + observations;
+                        listener.onImportProgress(rows, rows * 1000.0 / elapsed);
+                    }
+                }
+                if (chunk == null) {
+                    break;
+                }
+            }
+
+            importDAO.refreshStatistics();
+            ImportResult result = new ImportResult(hikeIds.size(), observations, skipped, SystemClock.elapsedRealtime() - start);
+            Log.i(TAG, "Imported " + result.getHikes() + " hikes and " + result.getObservations() + " observations in " +
+                    result.getElapsedMillis() + " ms (" + Math.round(result.getRowsPerSecond()) + " rows/s)");
+            return result;
+        } finally {
+            if (readerThread != null) {
+                readerThread.interrupt(); // Unblocks the reader if the import stopped early.
+            }
+            parsers.shutdownNow();
+            reader.close();
+        }
+    }
+
+    /**
+     * Creates the parser for a file, reading the header row of a CSV file.
+     * @param records The file's records.
+     * @param format The file's format.
+     * @return The parser.
+     * @throws IOException If the file cannot be read, its format cannot be imported, or its header is unusable.
+     */
+    private static RecordParser createParser(RecordReader records, TransferFormat format) throws IOException {
+        if (format == TransferFormat.JSON_LINES) {
+            return new JsonLinesRecordParser();
+        }
+        if (format != TransferFormat.CSV) {
+            throw new IOException(format + " files cannot be imported");
+        }
+        String header = records.read();
+        if (header == null) {
+            throw new IOException("The file is empty");
+        }
+        try {
+            return new CsvRecordParser(header);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs on the reader thread: reads the file in chunks, submits each to the parsers and queues its future, then
+     * queues {@link #END_OF_FILE}. A read failure is queued in place of the next chunk.
+     * @param records The file's records, positioned after any header.
+     * @param parser The parser for the records.
+     * @param parsers The parser threads.
+     * @param chunks The queue the writer takes chunks from.
+     */
+    private static void readChunks(RecordReader records, RecordParser parser, ExecutorService parsers,
+                                   BlockingQueue<Future<ParsedChunk>> chunks) {
+        try {
+            try {
+                List<String> chunk = new ArrayList<>(CHUNK_RECORDS);
+                String record;
+                while ((record = records.read()) != null) {
+                    if (record.trim().isEmpty()) {
+                        continue;
+                    }
+                    chunk.add(record);
+                    if (chunk.size() == CHUNK_RECORDS) {
+                        chunks.put(submit(parsers, parser, chunk));
+                        chunk = new ArrayList<>(CHUNK_RECORDS);
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    chunks.put(submit(parsers, parser, chunk));
+                }
+                chunks.put(END_OF_FILE);
+            } catch (IOException e) {
+                chunks.put(CompletableFuture.failedFuture(e));
+            }
+        } catch (InterruptedException e) {
+            // The writer stopped; nobody is waiting for more chunks.
+        }
+    }
+
+    /**
+     * Submits a chunk of raw records to the parser threads.
+     * @param parsers The parser threads.
+     * @param parser The parser for the records.
+     * @param records The raw records.
+     * @return The future of the parsed chunk.
+     */
+    private static Future<ParsedChunk> submit(ExecutorService parsers, RecordParser parser, List<String> records) {
+        return parsers.submit(() -> {
+            List<HikeRecord> parsed = new ArrayList<>(records.size());
+            int skipped = 0;
+            for (String record : records) {
+                try {
+                    parser.parse(record, parsed);
+                } catch (IllegalArgumentException e) {
+                    skipped++;
+                }
+            }
+            return new ParsedChunk(parsed, skipped);
+        });
+    }
+
+    /**
+     * Waits for the next chunk in file order.
+     * @param chunks The queue of chunk futures.
+     * @return The parsed chunk, or null at the end of the file.
+     * @throws IOException If the reader failed.
+     */
+    private static ParsedChunk take(BlockingQueue<Future<ParsedChunk>> chunks) throws IOException {
+        try {
+            Future<ParsedChunk> future = chunks.take();
+            return future == END_OF_FILE ? null : future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Could not parse the file", cause);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.coursework.data.transfer;
+
+import com.example.coursework.data.models.Hike;
+import com.example.coursework.data.models.HikeDates;
+import com.example.coursework.data.models.HikeRecord;
+import com.example.coursework.data.models.Observation;
+import com.example.coursework.data.sqlite.DatabaseHelper;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Column names of the records in import files, and the conversions shared by every format.
+ * Hike columns are named after the hikes table; observation columns carry an "observation" prefix.
+ */
+public final class HikeRecordColumns {
+
+    // Groups the records of one hike. Optional; without it, records are grouped by name, location and date.
+    public static final String HIKE_ID = "hike_id";
+    public static final String NAME = DatabaseHelper.KEY_HIKE_NAME;
+    public static final String LOCATION = DatabaseHelper.KEY_HIKE_LOCATION;
+    // ISO-8601 (yyyy-MM-dd); d/M/yyyy is also accepted.
+    public static final String DATE = DatabaseHelper.KEY_HIKE_DATE;
+    public static final String PARKING = DatabaseHelper.KEY_HIKE_PARKING;
+    public static final String LENGTH = DatabaseHelper.KEY_HIKE_LENGTH;
+    public static final String DIFFICULTY = DatabaseHelper.KEY_HIKE_DIFFICULTY;
+    public static final String DESCRIPTION = DatabaseHelper.KEY_HIKE_DESCRIPTION;
+    public static final String WEATHER = DatabaseHelper.KEY_HIKE_WEATHER;
+    public static final String RECOMMENDED_GEAR = DatabaseHelper.KEY_HIKE_RECOMMENDED_GEAR;
+    // A record without observation text carries no observation.
+    public static final String OBSERVATION = DatabaseHelper.KEY_OBSERVATION_TEXT;
+    public static final String OBSERVATION_TIME = "observation_time";
+    public static final String OBSERVATION_COMMENTS = "observation_comments";
+
+    // Every column, in the order files are written.
+    public static final String[] ALL = {HIKE_ID, NAME, LOCATION, DATE, PARKING, LENGTH, DIFFICULTY, DESCRIPTION, WEATHER,
+            RECOMMENDED_GEAR, OBSERVATION, OBSERVATION_TIME, OBSERVATION_COMMENTS};
+
+    private HikeRecordColumns() {
+    }
+
+    /**
+     * Parses a date column.
+     * @param text The column value.
+     * @return The epoch day.
+     * @throws IllegalArgumentException If the value is not a date.
+     */
+    public static long parseDate(String text) {
+        String value = required(DATE, text);
+        try {
+            return LocalDate.parse(value).toEpochDay();
+        } catch (DateTimeParseException e) {
+            Long epochDay = HikeDates.parse(value);
+            if (epochDay == null) {
+                throw new IllegalArgumentException("Invalid date: " + value);
+            }
+            return epochDay;
+        }
+    }
+
+    /**
+     * Formats an epoch day for a date column.
+     * @param epochDay The epoch day.
+     * @return The date as yyyy-MM-dd.
+     */
+    public static String formatDate(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    /**
+     * Checks that a required column has a value.
+     * @param column The column name, for the error message.
+     * @param value The column value.
+     * @return The value.
+     * @throws IllegalArgumentException If the value is missing or blank.
+     */
+    public static String required(String column, String value) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing " + column);
+        }
+        return value;
+    }
+
+    /**
+     * Gives access to the values of one record by column name.
+     */
+    interface Values {
+        /**
+         * Returns the value of a column.
+         * @param column The column name, one of the constants of this class.
+         * @return The value, or null if the record does not have the column.
+         */
+        String get(String column);
+    }
+
+    /**
+     * Builds a record from the values of its columns.
+     * @param values The column values.
+     * @return The record.
+     * @throws IllegalArgumentException If a required value is missing or malformed.
+     */
+    static HikeRecord toRecord(Values values) {
+        Hike hike = toHike(values);
+        String text = values.get(OBSERVATION);
+        Observation observation = null;
+        if (text != null && !text.isEmpty()) {
+            String time = values.get(OBSERVATION_TIME);
+            observation = new Observation(0, text, time != null ? time : "", values.get(OBSERVATION_COMMENTS));
+        }
+        return new HikeRecord(hikeKey(values.get(HIKE_ID), hike), hike, observation);
+    }
+
+    /**
+     * Builds a hike from the values of its columns.
+     * @param values The column values.
+     * @return The hike.
+     * @throws IllegalArgumentException If a required value is missing or malformed.
+     */
+    static Hike toHike(Values values) {
+        String length = required(LENGTH, values.get(LENGTH));
+        double parsedLength;
+        try {
+            parsedLength = Double.parseDouble(length.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+        return new Hike(required(NAME, values.get(NAME)), required(LOCATION, values.get(LOCATION)), parseDate(values.get(DATE)),
+                required(PARKING, values.get(PARKING)), parsedLength, required(DIFFICULTY, values.get(DIFFICULTY)),
+                values.get(DESCRIPTION), values.get(WEATHER), values.get(RECOMMENDED_GEAR));
+    }
+
+    /**
+     * Returns the key that groups the records of one hike.
+     * @param hikeId The hike_id column, may be null or empty.
+     * @param hike The parsed hike.
+     * @return The file's hike ID if present, otherwise the hike's name, location and date.
+     */
+    static String hikeKey(String hikeId, Hike hike) {
+        if (hikeId != null && !hikeId.trim().isEmpty()) {
+            return hikeId.trim();
+        }
+        // The leading NUL keeps these keys apart from IDs; it does not occur in ordinary text.
+        return '\0' + hike.getName() + '\0' + hike.getLocation() + '\0' + hike.getDate();
+    }
+}
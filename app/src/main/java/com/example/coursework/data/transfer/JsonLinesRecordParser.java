@@ -0,0 +1,62 @@
+package com.example.coursework.data.transfer;
+
+import com.example.coursework.data.models.Hike;
+import com.example.coursework.data.models.HikeRecord;
+import com.example.coursework.data.models.Observation;
+import com.example.coursework.data.sqlite.DatabaseHelper;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.List;
+
+/**
+ * Parses JSON Lines records. Each line is an object with the columns of {@link HikeRecordColumns}; instead of the
+ * observation columns, it may hold a whole hike with an "observations" array of objects named after the columns
+ * of the observations table.
+ */
+class JsonLinesRecordParser implements RecordParser {
+
+    // Key of the array holding a hike's observations.
+    static final String OBSERVATIONS = DatabaseHelper.TABLE_OBSERVATIONS;
+
+    @Override
+    public void parse(String record, List<HikeRecord> out) {
+        try {
+            JSONObject object = new JSONObject(record);
+            JSONArray observations = object.optJSONArray(OBSERVATIONS);
+            if (observations == null) {
+                out.add(HikeRecordColumns.toRecord(column -> value(object, column)));
+                return;
+            }
+
+            Hike hike = HikeRecordColumns.toHike(column -> value(object, column));
+            String hikeKey = HikeRecordColumns.hikeKey(value(object, HikeRecordColumns.HIKE_ID), hike);
+            if (observations.length() == 0) {
+                out.add(new HikeRecord(hikeKey, hike, null));
+            }
+            for (int i = 0; i < observations.length(); i++) {
+                JSONObject item = observations.getJSONObject(i);
+                String time = value(item, DatabaseHelper.KEY_OBSERVATION_TIME);
+                Observation observation = new Observation(0,
+                        HikeRecordColumns.required(HikeRecordColumns.OBSERVATION, value(item, DatabaseHelper.KEY_OBSERVATION_TEXT)),
+                        time != null ? time : "", value(item, DatabaseHelper.KEY_OBSERVATION_COMMENTS));
+                out.add(new HikeRecord(hikeKey, hike, observation));
+            }
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns a value of an object as text.
+     * @param object The object.
+     * @param key The key.
+     * @return The value, or null if it is absent or null.
+     */
+    private static String value(JSONObject object, String key) {
+        Object value = object.opt(key);
+        return value == null || value == JSONObject.NULL ? null : value.toString();
+    }
+}
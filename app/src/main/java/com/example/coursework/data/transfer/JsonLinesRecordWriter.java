@@ -0,0 +1,113 @@
+package com.example.coursework.data.transfer;
+
+import com.example.coursework.data.models.Hike;
+import com.example.coursework.data.models.HikeRecord;
+import com.example.coursework.data.models.Observation;
+import com.example.coursework.data.sqlite.DatabaseHelper;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes one JSON object per hike and line, with the hike's observations in an "observations" array, in the layout
+ * {@link JsonLinesRecordParser} reads. The object is written as its records arrive, so a hike with a great many
+ * observations is never held in memory.
+ */
+class JsonLinesRecordWriter implements RecordWriter {
+
+    private final Writer out;
+    // Key of the hike whose object is open, or null before the first record.
+    private String openHikeKey;
+    // True once the open hike's observations array has an element.
+    private boolean hasObservations;
+
+    /**
+     * Constructor for JsonLinesRecordWriter.
+     * @param out The output.
+     */
+    JsonLinesRecordWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public boolean write(HikeRecord record) throws IOException {
+        if (!record.getHikeKey().equals(openHikeKey)) {
+            closeHike();
+            openHike(record.getHikeKey(), record.getHike());
+        }
+        Observation observation = record.getObservation();
+        if (observation != null) {
+            out.write(hasObservations ? ",{" : "{");
+            writeMember(DatabaseHelper.KEY_OBSERVATION_TEXT, observation.getObservation(), false);
+            writeMember(DatabaseHelper.KEY_OBSERVATION_TIME, observation.getTime(), true);
+            writeMember(DatabaseHelper.KEY_OBSERVATION_COMMENTS, observation.getComments(), true);
+            out.write('}');
+            hasObservations = true;
+        }
+        return true;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        closeHike();
+    }
+
+    /**
+     * Writes the start of a hike's object, up to the opening of its observations array.
+     * @param hikeKey The hike's key.
+     * @param hike The hike.
+     * @throws IOException If the output cannot be written.
+     */
+    private void openHike(String hikeKey, Hike hike) throws IOException {
+        out.write('{');
+        out.write(JSONObject.quote(HikeRecordColumns.HIKE_ID));
+        out.write(':');
+        out.write(hikeKey); // Exported keys are hike IDs, which are plain numbers.
+        writeMember(HikeRecordColumns.NAME, hike.getName(), true);
+        writeMember(HikeRecordColumns.LOCATION, hike.getLocation(), true);
+        writeMember(HikeRecordColumns.DATE, HikeRecordColumns.formatDate(hike.getDate()), true);
+        writeMember(HikeRecordColumns.PARKING, hike.getParkingAvailable(), true);
+        out.write(',');
+        out.write(JSONObject.quote(HikeRecordColumns.LENGTH));
+        out.write(':');
+        out.write(String.valueOf(hike.getLength()));
+        writeMember(HikeRecordColumns.DIFFICULTY, hike.getDifficulty(), true);
+        writeMember(HikeRecordColumns.DESCRIPTION, hike.getDescription(), true);
+        writeMember(HikeRecordColumns.WEATHER, hike.getWeather(), true);
+        writeMember(HikeRecordColumns.RECOMMENDED_GEAR, hike.getRecommendedGear(), true);
+        out.write(',');
+        out.write(JSONObject.quote(JsonLinesRecordParser.OBSERVATIONS));
+        out.write(":[");
+        openHikeKey = hikeKey;
+        hasObservations = false;
+    }
+
+    /**
+     * Closes the open hike's observations array, object and line, if a hike is open.
+     * @throws IOException If the output cannot be written.
+     */
+    private void closeHike() throws IOException {
+        if (openHikeKey != null) {
+            out.write("]}\n");
+            openHikeKey = null;
+        }
+    }
+
+    /**
+     * Writes a string member of an object.
+     * @param key The member name.
+     * @param value The value, or null.
+     * @param separate True to write a comma before the member.
+     * @throws IOException If the output cannot be written.
+     */
+    private void writeMember(String key, String value, boolean separate) throws IOException {
+        if (separate) {
+            out.write(',');
+        }
+        out.write(JSONObject.quote(key));
+        out.write(':');
+        out.write(value != null ? JSONObject.quote(value) : "null");
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.coursework.data.transfer;
+
+import com.example.coursework.data.models.HikeRecord;
+
+import java.util.List;
+
+/**
+ * Turns the raw text of one record of an import file into hike records.
+ * Implementations are immutable, so one parser is shared by all the import's worker threads.
+ */
+interface RecordParser {
+
+    /**
+     * Parses one record.
+     * @param record The record's text, without its trailing line break.
+     * @param out Receives the parsed records; a single record may describe a hike with several observations.
+     * @throws IllegalArgumentException If the record is malformed.
+     */
+    void parse(String record, List<HikeRecord> out);
+}
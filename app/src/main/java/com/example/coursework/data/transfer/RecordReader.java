@@ -0,0 +1,84 @@
+package com.example.coursework.data.transfer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Reads the raw records of an import file one at a time.
+ * <p>
+ * A record is a line, except that a CSV record continues over line breaks inside quoted fields, up to
+ * {@link #MAX_RECORD_LINES} lines and {@link #MAX_RECORD_LENGTH} characters. A quote still open past either limit, or
+ * at the end of the file, is taken to be unterminated: its first line is returned on its own, for the parser to
+ * reject, and the lines read after it are read again as records of their own. One stray quote therefore costs one
+ * record rather than the rest of the file. Not thread-safe; used by the import's reader thread only.
+ */
+class RecordReader {
+
+    // Most lines and characters one quoted CSV record may span.
+    static final int MAX_RECORD_LINES = 100;
+    static final int MAX_RECORD_LENGTH = 1 << 16;
+
+    private final BufferedReader reader;
+    private final TransferFormat format;
+    // Lines read past an unterminated quote, to be read again before the rest of the file.
+    private final Deque<String> pushedBack = new ArrayDeque<>();
+
+    /**
+     * Constructor for RecordReader.
+     * @param reader The file.
+     * @param format The file's format.
+     */
+    RecordReader(BufferedReader reader, TransferFormat format) {
+        this.reader = reader;
+        this.format = format;
+    }
+
+    /**
+     * Reads the next record.
+     * @return The record, without its trailing line break, or null at the end of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    String read() throws IOException {
+        String line = nextLine();
+        if (line == null || format != TransferFormat.CSV) {
+            return stripByteOrderMark(line);
+        }
+        int quotes = CsvRecordParser.countQuotes(line);
+        if (quotes % 2 == 0) {
+            return stripByteOrderMark(line);
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add(line);
+        StringBuilder record = new StringBuilder(line);
+        // Escaped quotes come in pairs, so an odd number of quotes means a field is still open.
+        while (quotes % 2 != 0) {
+            if (lines.size() >= MAX_RECORD_LINES || record.length() > MAX_RECORD_LENGTH || (line = nextLine()) == null) {
+                for (int i = lines.size() - 1; i > 0; i--) {
+                    pushedBack.addFirst(lines.get(i));
+                }
+                return stripByteOrderMark(lines.get(0));
+            }
+            lines.add(line);
+            record.append('\n').append(line);
+            quotes += CsvRecordParser.countQuotes(line);
+        }
+        return stripByteOrderMark(record.toString());
+    }
+
+    private String nextLine() throws IOException {
+        return pushedBack.isEmpty() ? reader.readLine() : pushedBack.pollFirst();
+    }
+
+    /**
+     * Removes the byte order mark some editors put at the start of UTF-8 files.
+     * @param text The text, may be null.
+     * @return The text without a leading byte order mark.
+     */
+    private static String stripByteOrderMark(String text) {
+        return text != null && text.startsWith("\uFEFF") ? text.substring(1) : text;
+    }
+}
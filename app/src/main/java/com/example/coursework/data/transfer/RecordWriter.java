@@ -0,0 +1,26 @@
+package com.example.coursework.data.transfer;
+
+import com.example.coursework.data.models.HikeRecord;
+
+import java.io.IOException;
+
+/**
+ * Writes the records of an export in one file format.
+ * Records arrive grouped by hike, so a writer only ever needs to remember the hike it is currently writing.
+ */
+interface RecordWriter {
+
+    /**
+     * Writes one record.
+     * @param record The record; consecutive records of the same hike share its hike key.
+     * @return False if the format cannot represent the record's hike and the record was left out.
+     * @throws IOException If the output cannot be written.
+     */
+    boolean write(HikeRecord record) throws IOException;
+
+    /**
+     * Writes whatever closes the file after the last record. Does not close the output.
+     * @throws IOException If the output cannot be written.
+     */
+    void finish() throws IOException;
+}
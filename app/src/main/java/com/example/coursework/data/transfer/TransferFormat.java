@@ -0,0 +1,69 @@
+package com.example.coursework.data.transfer;
+
+import java.util.Locale;
+
+/**
+ * File formats hikes can be exported to and imported from.
+ * CSV and JSON Lines hold the records described by {@link HikeRecordColumns} and can be imported again.
+ */
+public enum TransferFormat {
+    // Comma-separated values with a header row; one record per hike or per observation.
+    CSV("text/csv", "csv"),
+    // JSON Lines: one JSON object per line, either a flat record or a hike with an "observations" array.
+    JSON_LINES("application/x-ndjson", "jsonl"),
+    // GPX 1.1 waypoints, one per hike whose location holds coordinates. Export only.
+    GPX("application/gpx+xml", "gpx");
+
+    private final String mimeType;
+    private final String extension;
+
+    TransferFormat(String mimeType, String extension) {
+        this.mimeType = mimeType;
+        this.extension = extension;
+    }
+
+    /**
+     * @return The MIME type of files in this format.
+     */
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * @return The file name extension, without the dot.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Guesses the format of a file from its name, falling back to its MIME type, and to CSV if neither helps.
+     * @param fileName The file name, may be null.
+     * @param mimeType The MIME type, may be null.
+     * @return The format.
+     */
+    public static TransferFormat forFile(String fileName, String mimeType) {
+        if (fileName != null) {
+            String name = fileName.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json")) {
+                return JSON_LINES;
+            }
+            if (name.endsWith(".gpx")) {
+                return GPX;
+            }
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+        }
+        if (mimeType != null) {
+            String type = mimeType.toLowerCase(Locale.ROOT);
+            if (type.contains("json")) {
+                return JSON_LINES;
+            }
+            if (type.contains("gpx")) {
+                return GPX;
+            }
+        }
+        return CSV;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.coursework.data.repository;
+
+import android.os.Looper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Checks that {@link DeleteQueue} hides rows at once, writes them in groups once their undo windows end, and writes
+ * nothing that was undone.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DeleteQueueTest {
+
+    // Each group the queue wrote: its hike IDs, then its observation IDs.
+    private final List<List<Long>> writtenHikes = new ArrayList<>();
+    private final List<List<Long>> writtenObservations = new ArrayList<>();
+    private DeleteQueue queue;
+
+    @Before
+    public void setUp() {
+        queue = new DeleteQueue((hikeIds, observationIds, callback) -> {
+            writtenHikes.add(hikeIds);
+            writtenObservations.add(observationIds);
+            callback.onResult(true);
+        });
+    }
+
+    private static void advance(long millis) {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(millis));
+    }
+
+    @Test
+    public void deletesCloseTogetherShareOneWrite() {
+        queue.deleteHikes(Collections.singletonList(1L));
+        advance(300);
+        queue.deleteObservation(7);
+        assertTrue(queue.isHikePending(1));
+        assertTrue(queue.isObservationPending(7));
+
+        advance(DeleteQueue.UNDO_WINDOW_MILLIS - 300);
+        assertTrue("Nothing is written before the group window ends", writtenHikes.isEmpty());
+
+        advance(DeleteQueue.GROUP_COMMIT_MILLIS);
+        assertEquals(1, writtenHikes.size());
+        assertEquals(Collections.singletonList(1L), writtenHikes.get(0));
+        assertEquals(Collections.singletonList(7L), writtenObservations.get(0));
+        assertFalse(queue.isHikePending(1));
+        assertFalse(queue.isObservationPending(7));
+    }
+
+    @Test
+    public void undoneDeletesAreNeverWritten() {
+        DeleteQueue.PendingDelete first = queue.deleteHikes(Arrays.asList(1L, 2L));
+        queue.deleteHikes(Collections.singletonList(3L));
+        assertTrue(first.undo());
+        assertFalse(queue.isHikePending(1));
+
+        advance(DeleteQueue.UNDO_WINDOW_MILLIS + DeleteQueue.GROUP_COMMIT_MILLIS);
+        assertEquals(Collections.singletonList(Collections.singletonList(3L)), writtenHikes);
+        assertFalse("A written delete cannot be undone", first.undo());
+    }
+
+    @Test
+    public void failedWriteShowsTheRowsAgain() {
+        List<Integer> notifications = new ArrayList<>();
+        DeleteQueue failing = new DeleteQueue((hikeIds, observationIds, callback) ->
+                callback.onError(new IllegalStateException("disk I/O error")));
+        failing.addListener(() -> notifications.add(notifications.size()));
+        failing.deleteHikes(Collections.singletonList(1L));
+        failing.flush();
+
+        assertFalse(failing.isHikePending(1));
+        assertEquals("Queued, then shown again", 2, notifications.size());
+    }
+
+    @Test
+    public void flushWritesEverythingAtOnce() {
+        DeleteQueue.PendingDelete delete = queue.deleteObservation(5);
+        queue.deleteObservation(6);
+        queue.flush();
+
+        assertEquals(Collections.singletonList(Arrays.asList(5L, 6L)), writtenObservations);
+        assertFalse(delete.undo());
+        advance(DeleteQueue.UNDO_WINDOW_MILLIS + DeleteQueue.GROUP_COMMIT_MILLIS);
+        assertEquals(1, writtenObservations.size());
+    }
+}
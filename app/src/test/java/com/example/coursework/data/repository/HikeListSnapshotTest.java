@@ -0,0 +1,81 @@
+package com.example.coursework.data.repository;
+
+import com.example.coursework.data.models.HikeSummary;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link HikeListSnapshot} reads back what it wrote and discards files it cannot trust.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class HikeListSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<HikeSummary> hikes(int count) {
+        List<HikeSummary> hikes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            hikes.add(new HikeSummary(i + 1, "Hike " + i, "Location \u00e9 " + i, 19000 + i, "Yes", 2.5 * i,
+                    "Easy", i, i % 2 == 0 ? null : "Saw a heron"));
+        }
+        return hikes;
+    }
+
+    @Test
+    public void keepsTheFirstScreenful() throws IOException {
+        File file = folder.newFile();
+        assertTrue(new HikeListSnapshot(file).write(hikes(HikeListSnapshot.MAX_ROWS + 5)));
+
+        List<HikeSummary> read = new HikeListSnapshot(file).read();
+        assertNotNull(read);
+        assertEquals(HikeListSnapshot.MAX_ROWS, read.size());
+        HikeSummary hike = read.get(3);
+        assertEquals(4, hike.getId());
+        assertEquals("Location \u00e9 3", hike.getLocation());
+        assertEquals(19003, hike.getDate());
+        assertEquals(7.5, hike.getLength(), 0);
+        assertEquals(3, hike.getObservationCount());
+        assertEquals("Saw a heron", hike.getLatestObservation());
+        assertNull(read.get(2).getLatestObservation());
+    }
+
+    @Test
+    public void discardsACorruptFile() throws IOException {
+        File file = folder.newFile();
+        new HikeListSnapshot(file).write(hikes(5));
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.seek(40);
+            int value = output.read();
+            output.seek(40);
+            output.write(value ^ 0xFF);
+        }
+
+        assertNull(new HikeListSnapshot(file).read());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void discardsAFileFromAnotherDatabaseVersion() throws IOException {
+        File file = folder.newFile();
+        new HikeListSnapshot(file, 1).write(hikes(5));
+
+        assertNull(new HikeListSnapshot(file, 2).read());
+        assertFalse(file.exists());
+        assertNull(new HikeListSnapshot(folder.newFile()).read());
+    }
+}
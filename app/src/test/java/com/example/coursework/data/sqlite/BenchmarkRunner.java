@@ -0,0 +1,230 @@
+package com.example.coursework.data.sqlite;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Times benchmark bodies and keeps their results.
+ * <p>
+ * Each benchmark runs in several rounds. A round starts from a cold database, runs the warmup iterations unmeasured,
+ * then records the time per operation of each measured iteration. The samples of every round are pooled and reduced
+ * to percentiles. The rounds share one JVM, so they sample the database starting cold, not the JIT or the garbage
+ * collector starting cold; run the suite again to see how much a fresh JVM moves the numbers. Results are written as JSON with one benchmark per line, sorted by name and scale, so that a
+ * results file and the checked-in baseline can be compared with a plain diff.
+ */
+final class BenchmarkRunner {
+
+    /**
+     * Puts the database into the state a round starts from.
+     */
+    interface Round {
+        void start() throws IOException;
+    }
+
+    /**
+     * The code being measured.
+     */
+    interface Body {
+        /**
+         * Runs one iteration.
+         * @param iteration The iteration number, counting warmup iterations, so that writes can use fresh data.
+         */
+        void run(int iteration) throws Exception;
+    }
+
+    /**
+     * The timings of one benchmark at one scale, in microseconds per operation.
+     */
+    static final class Result {
+        final String name;
+        final int rows;
+        final int samples;
+        final double p50;
+        final double p90;
+        final double p99;
+        final double mean;
+
+        Result(String name, int rows, int samples, double p50, double p90, double p99, double mean) {
+            this.name = name;
+            this.rows = rows;
+            this.samples = samples;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.mean = mean;
+        }
+
+        /**
+         * @return The key a result is matched to its baseline by, such as "getAllHikes@10000".
+         */
+        String key() {
+            return name + "@" + rows;
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("name", name);
+            json.put("rows", rows);
+            json.put("samples", samples);
+            json.put("p50_us", round(p50));
+            json.put("p90_us", round(p90));
+            json.put("p99_us", round(p99));
+            json.put("mean_us", round(mean));
+            return json;
+        }
+
+        static Result fromJson(JSONObject json) throws JSONException {
+            return new Result(json.getString("name"), json.getInt("rows"), json.getInt("samples"), json.getDouble("p50_us"),
+                    json.getDouble("p90_us"), json.getDouble("p99_us"), json.getDouble("mean_us"));
+        }
+    }
+
+    private final int rounds;
+    private final int warmupIterations;
+    private final int measuredIterations;
+    // Results by key, in key order.
+    private final Map<String, Result> results = new TreeMap<>();
+
+    /**
+     * Constructor for BenchmarkRunner.
+     * @param rounds The number of rounds per benchmark.
+     * @param warmupIterations The unmeasured iterations at the start of each round.
+     * @param measuredIterations The measured iterations of each round.
+     */
+    BenchmarkRunner(int rounds, int warmupIterations, int measuredIterations) {
+        this.rounds = rounds;
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+    }
+
+    /**
+     * Runs a benchmark and records its result.
+     * @param name The benchmark name.
+     * @param rows The number of hikes in the database the benchmark runs against.
+     * @param operations The number of operations one iteration performs; the times are divided by it.
+     * @param round Prepares each round.
+     * @param body The code to measure.
+     * @return The result.
+     */
+    Result run(String name, int rows, int operations, Round round, Body body) throws Exception {
+        double[] samples = new double[rounds * measuredIterations];
+        int sample = 0;
+        for (int r = 0; r < rounds; r++) {
+            round.start();
+            for (int i = 0; i < warmupIterations; i++) {
+                body.run(i);
+            }
+            for (int i = 0; i < measuredIterations; i++) {
+                long start = System.nanoTime();
+                body.run(warmupIterations + i);
+                samples[sample++] = (System.nanoTime() - start) / 1000.0 / operations;
+            }
+        }
+
+        Arrays.sort(samples);
+        double sum = 0;
+        for (double value : samples) {
+            sum += value;
+        }
+        Result result = new Result(name, rows, samples.length, percentile(samples, 50), percentile(samples, 90),
+                percentile(samples, 99), sum / samples.length);
+        results.put(result.key(), result);
+        System.out.println(String.format("%-40s p50 %10.1f us  p90 %10.1f us  p99 %10.1f us", result.key(),
+                result.p50, result.p90, result.p99));
+        return result;
+    }
+
+    /**
+     * Writes the results recorded so far.
+     * @param file The file to write; its parent directories are created.
+     */
+    void write(File file) throws IOException, JSONException {
+        List<Result> list = new ArrayList<>(results.values());
+        StringBuilder json = new StringBuilder("{\"benchmarks\": [\n");
+        for (int i = 0; i < list.size(); i++) {
+            json.append("  ").append(list.get(i).toJson()).append(i + 1 < list.size() ? ",\n" : "\n");
+        }
+        json.append("]}\n");
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        Files.write(file.toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Compares the results with a baseline. A benchmark regresses when its median is slower than the baseline's by
+     * more than the tolerance; benchmarks missing from the baseline are not compared.
+     * @param baseline The baseline file, as written by {@link #write(File)}. A missing file has no benchmarks.
+     * @param tolerance The allowed slowdown, as a fraction of the baseline median.
+     * @return A line per regression, empty if there is none.
+     */
+    List<String> compare(File baseline, double tolerance) throws IOException, JSONException {
+        List<String> regressions = new ArrayList<>();
+        Map<String, Result> expected = read(baseline);
+        for (Result result : results.values()) {
+            Result before = expected.get(result.key());
+            if (before != null && result.p50 > before.p50 * (1 + tolerance)) {
+                regressions.add(String.format("%s: p50 %.1f us, baseline %.1f us (%+.0f%%)", result.key(), result.p50,
+                        before.p50, (result.p50 / before.p50 - 1) * 100));
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Lists the benchmarks that have no result in a baseline, which {@link #compare} cannot check.
+     * @param baseline The baseline file, as written by {@link #write(File)}. A missing file has no benchmarks.
+     * @return The keys of the benchmarks missing from the baseline.
+     */
+    List<String> missingFrom(File baseline) throws IOException, JSONException {
+        List<String> missing = new ArrayList<>();
+        Map<String, Result> expected = read(baseline);
+        for (String key : results.keySet()) {
+            if (!expected.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+        return missing;
+    }
+
+    private static Map<String, Result> read(File file) throws IOException, JSONException {
+        Map<String, Result> results = new HashMap<>();
+        if (!file.exists()) {
+            return results;
+        }
+        JSONArray benchmarks = new JSONObject(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8))
+                .getJSONArray("benchmarks");
+        for (int i = 0; i < benchmarks.length(); i++) {
+            Result result = Result.fromJson(benchmarks.getJSONObject(i));
+            results.put(result.key(), result);
+        }
+        return results;
+    }
+
+    /**
+     * @param sorted The samples, in ascending order.
+     * @param percentile The percentile, from 0 to 100.
+     * @return The sample at the percentile, by the nearest-rank method.
+     */
+    private static double percentile(double[] sorted, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
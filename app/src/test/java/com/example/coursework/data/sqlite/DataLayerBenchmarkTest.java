@@ -0,0 +1,185 @@
+package com.example.coursework.data.sqlite;
+
+import android.content.Context;
+
+import com.example.coursework.data.models.Hike;
+import com.example.coursework.data.models.HikeFilter;
+import com.example.coursework.data.models.HikeRecord;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Benchmarks the DAOs against generated databases of 10k, 100k and, on request, 1M hikes, on the development machine.
+ * Robolectric runs the real SQLite library in native mode, so the numbers reflect the queries and indexes rather
+ * than an emulation of them, though not the speed of a phone.
+ * <p>
+ * Skipped unless run with {@code ./gradlew :app:testDebugUnitTest -Pbenchmark}; the build passes the settings below
+ * as system properties. Each scale is generated once and copied into place before every round, with the shared
+ * {@link DatabaseHelper} closed, so every round starts from the same cold database. The results are written to
+ * {@code benchmark.results} and compared with {@code benchmark.baseline}. Record the baseline on the machine that
+ * runs the comparison with {@code -Pbenchmark.updateBaseline}; with {@code -Pbenchmark.failOnRegression}, a
+ * benchmark missing from the baseline fails the run rather than passing unchecked.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class DataLayerBenchmarkTest {
+
+    // Seed of the generated databases. Changing it invalidates the baseline.
+    private static final long SEED = 42;
+    // Slowdown of a median over its baseline that counts as a regression.
+    private static final double TOLERANCE = 0.25;
+    // Lookups, inserts or imported records per iteration of the benchmarks that repeat a small operation.
+    private static final int BATCH = 100;
+    private static final int IMPORT_BATCH = 1000;
+    // Results asked for per search, as on the main screen.
+    private static final int SEARCH_LIMIT = 100;
+
+    private Context context;
+    private BenchmarkRunner runner;
+    // DAOs over the database of the current round, recreated whenever a round starts.
+    private HikeDAO hikeDAO;
+    private ObservationDAO observationDAO;
+    private ImportDAO importDAO;
+    private HikeSearchDAO hikeSearchDAO;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("Run with -Pbenchmark", Boolean.getBoolean("benchmark"));
+        context = RuntimeEnvironment.getApplication();
+        runner = new BenchmarkRunner(Integer.getInteger("benchmark.rounds", 3), Integer.getInteger("benchmark.warmup", 5),
+                Integer.getInteger("benchmark.iterations", 20));
+    }
+
+    @Test
+    public void dataLayer() throws Exception {
+        for (String scale : System.getProperty("benchmark.scales", "10000,100000").split(",")) {
+            benchmark(Integer.parseInt(scale.trim()));
+        }
+
+        File results = new File(System.getProperty("benchmark.results", "build/benchmarks/results.json"));
+        File baseline = new File(System.getProperty("benchmark.baseline", "benchmarks/baseline.json"));
+        runner.write(results);
+        if (Boolean.getBoolean("benchmark.updateBaseline")) {
+            runner.write(baseline);
+            return;
+        }
+        List<String> regressions = runner.compare(baseline, TOLERANCE);
+        for (String regression : regressions) {
+            System.out.println("Regression: " + regression);
+        }
+        List<String> missing = runner.missingFrom(baseline);
+        for (String key : missing) {
+            System.out.println("No baseline: " + key);
+        }
+        if (Boolean.getBoolean("benchmark.failOnRegression")) {
+            assertTrue("Record a baseline with -Pbenchmark.updateBaseline: " + String.join(", ", missing),
+                    missing.isEmpty());
+            assertTrue(String.join("\n", regressions), regressions.isEmpty());
+        }
+    }
+
+    /**
+     * Generates a database of the given number of hikes and runs every benchmark against it.
+     * Reads come first, so that they see the database as generated; each write benchmark starts from a fresh copy
+     * anyway.
+     * @param rows The number of hikes.
+     */
+    private void benchmark(int rows) throws Exception {
+        File database = context.getDatabasePath(DatabaseHelper.DATABASE_NAME);
+        File template = new File(context.getCacheDir(), "benchmark-" + rows + ".db");
+        DatabaseHelper.resetInstance();
+        deleteDatabase(database);
+        new SyntheticHikes(SEED).populate(context, rows);
+        // Closing the helper checkpoints the write-ahead log into the database file.
+        DatabaseHelper.resetInstance();
+        Files.copy(database.toPath(), template.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        BenchmarkRunner.Round round = () -> {
+            DatabaseHelper.resetInstance();
+            deleteDatabase(database);
+            Files.copy(template.toPath(), database.toPath());
+            hikeDAO = new HikeDAO(context);
+            observationDAO = new ObservationDAO(context);
+            importDAO = new ImportDAO(context);
+            hikeSearchDAO = new HikeSearchDAO(context);
+        };
+        SyntheticHikes data = new SyntheticHikes(SEED + rows);
+        HikeFilter moderate = new HikeFilter(null, null, null, null, "Moderate", null, null);
+        long lastMonth = SyntheticHikes.FIRST_DATE + SyntheticHikes.DATE_RANGE_DAYS - 30;
+
+        runner.run("getAllHikes", rows, 1, round, i -> assertEquals(rows, hikeDAO.getAllHikes().size()));
+        runner.run("filterHikes.difficultyLength", rows, 1, round,
+                i -> hikeDAO.filterHikes(null, null, null, null, "Difficult", 20.0, null));
+        runner.run("filterHikes.dateRange", rows, 1, round,
+                i -> hikeDAO.filterHikes(null, null, lastMonth, null, null, null, null));
+        runner.run("filterHikes.name", rows, 1, round,
+                i -> hikeDAO.filterHikes("summit", null, null, null, null, null, null));
+        runner.run("getHikesPage.first", rows, 1, round, i -> hikeDAO.getHikesPage(new HikeFilter(), null, 50));
+        runner.run("getHikesPage.filtered", rows, 1, round, i -> hikeDAO.getHikesPage(moderate, null, 50));
+        // A word common to many hikes, and three prefixes as typed part way through a search.
+        runner.run("searchHikes.word", rows, 1, round, i -> hikeSearchDAO.searchHikes("summit", SEARCH_LIMIT, null));
+        runner.run("searchHikes.prefixes", rows, 1, round,
+                i -> hikeSearchDAO.searchHikes("wat lake dis", SEARCH_LIMIT, null));
+        runner.run("getObservationsForHike", rows, BATCH, round, i -> {
+            for (int j = 0; j < BATCH; j++) {
+                observationDAO.getObservationsForHike(1 + data.nextInt(rows));
+            }
+        });
+        runner.run("getObservationsPage.first", rows, BATCH, round, i -> {
+            for (int j = 0; j < BATCH; j++) {
+                observationDAO.getObservationsPage(1 + data.nextInt(rows), null, 30);
+            }
+        });
+
+        runner.run("addHike", rows, BATCH, round, i -> {
+            for (int j = 0; j < BATCH; j++) {
+                hikeDAO.addHike(data.nextHike());
+            }
+        });
+        runner.run("addObservation", rows, BATCH, round, i -> {
+            for (int j = 0; j < BATCH; j++) {
+                observationDAO.addObservation(data.nextObservation(1 + data.nextInt(rows)));
+            }
+        });
+        runner.run("importBatch", rows, IMPORT_BATCH, round, i -> {
+            List<HikeRecord> records = new ArrayList<>(IMPORT_BATCH);
+            for (int j = 0; j < IMPORT_BATCH; j++) {
+                Hike hike = data.nextHike();
+                records.add(new HikeRecord(String.valueOf(j / 2), hike, data.nextObservation(0)));
+            }
+            importDAO.writeBatch(records, new HashMap<>());
+        });
+
+        DatabaseHelper.resetInstance();
+        deleteDatabase(database);
+        template.delete();
+    }
+
+    private static void deleteDatabase(File database) throws IOException {
+        Files.deleteIfExists(database.toPath());
+        Files.deleteIfExists(new File(database.getPath() + "-wal").toPath());
+        Files.deleteIfExists(new File(database.getPath() + "-shm").toPath());
+        File parent = database.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.coursework.data.sqlite;
+
+import android.content.Context;
+
+import com.example.coursework.data.models.HikeSummary;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that walking the hike list back by keyset, as the pager does to restore a page it dropped, reads the same
+ * hikes in the same order as walking it forwards, including across hikes that share a date.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class HikePagingTest {
+
+    private static final int HIKE_COUNT = 230;
+    private static final int PAGE_SIZE = 30;
+
+    private Context context;
+    private HikeDAO hikeDAO;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        hikeDAO = new HikeDAO(context);
+        SyntheticHikes hikes = new SyntheticHikes(11);
+        for (int i = 0; i < HIKE_COUNT; i++) {
+            hikeDAO.addHike(hikes.nextHike());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        DatabaseHelper.resetInstance();
+        context.deleteDatabase(DatabaseHelper.DATABASE_NAME);
+    }
+
+    @Test
+    public void pagesBeforeAHikeMatchTheForwardOrder() {
+        List<Long> forward = new ArrayList<>();
+        List<HikeSummary> page = hikeDAO.getHikesPage(null, null, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            for (HikeSummary hike : page) {
+                forward.add(hike.getId());
+            }
+            page = hikeDAO.getHikesPage(null, page.get(page.size() - 1), PAGE_SIZE);
+        }
+        assertEquals(HIKE_COUNT, forward.size());
+
+        List<HikeSummary> last = hikeDAO.getHikesPage(null, null, HIKE_COUNT);
+        List<Long> backward = new ArrayList<>();
+        HikeSummary before = last.get(last.size() - 1);
+        backward.add(before.getId());
+        while (true) {
+            page = hikeDAO.getHikesPageBefore(null, before, PAGE_SIZE);
+            for (int i = page.size() - 1; i >= 0; i--) {
+                backward.add(0, page.get(i).getId());
+            }
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            before = page.get(0);
+        }
+        assertEquals(forward, backward);
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.coursework.data.sqlite;
+
+import android.content.Context;
+
+import com.example.coursework.data.models.Hike;
+import com.example.coursework.data.models.HikeSearchResult;
+import com.example.coursework.data.models.Observation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the full-text search on a small known corpus: that results are ranked by the weighted BM25 score, with a
+ * match in the name above one in the description and one in the recommended gear last, that every word matches as a
+ * prefix, that snippets mark the matched words, and that query syntax typed by the user is searched as plain words.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class HikeSearchTest {
+
+    // Hikes without the word "heron", so that it is rare enough in the corpus to be worth a positive score.
+    private static final int FILLER_HIKES = 20;
+    private static final int LIMIT = 50;
+
+    private Context context;
+    private HikeDAO hikeDAO;
+    private ObservationDAO observationDAO;
+    private HikeSearchDAO hikeSearchDAO;
+
+    // "heron" in the name, the description, the recommended gear, and in an observation of each of the last two.
+    private long inName;
+    private long inDescription;
+    private long inGear;
+    private long inObservation;
+    private long nearLake;
+    // "lake" without "heron".
+    private long lakeOnly;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        hikeDAO = new HikeDAO(context);
+        observationDAO = new ObservationDAO(context);
+        hikeSearchDAO = new HikeSearchDAO(context);
+
+        inName = addHike("Heron Point", "Exmoor", "A walk along the coast", "Boots", "Saw a deer by the path");
+        inDescription = addHike("Coast path", "Exmoor", "A walk to see a heron nest", "Boots", "Saw a deer by the path");
+        inGear = addHike("Moor loop", "Exmoor", "A walk along the moor", "Heron guide", "Saw a deer by the path");
+        inObservation = addHike("River trail", "Exmoor", "A walk along the river", "Boots", "Saw a heron by the weir");
+        nearLake = addHike("Lake round", "Orkney", "A walk around the lake", "Boots", "Saw a heron near the lake");
+        lakeOnly = addHike("Filler 0", "Dartmoor", "A walk along the valley", "Boots", "Saw a deer by the lake");
+        for (int i = 1; i < FILLER_HIKES; i++) {
+            addHike("Filler " + i, "Dartmoor", "A walk along the valley", "Boots", "Saw a deer by the path");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        DatabaseHelper.resetInstance();
+        context.deleteDatabase(DatabaseHelper.DATABASE_NAME);
+    }
+
+    @Test
+    public void resultsAreRankedByWeightedScore() {
+        List<HikeSearchResult> results = hikeSearchDAO.searchHikes("heron", LIMIT, null);
+
+        List<Long> ids = ids(results);
+        assertEquals(5, ids.size());
+        assertEquals(inName, (long) ids.get(0));
+        assertEquals(inDescription, (long) ids.get(1));
+        assertEquals(new HashSet<>(Arrays.asList(inObservation, nearLake)), new HashSet<>(ids.subList(2, 4)));
+        assertEquals(inGear, (long) ids.get(4));
+        for (int i = 1; i < results.size(); i++) {
+            assertTrue(results.get(i - 1).getScore() >= results.get(i).getScore());
+        }
+        assertTrue(results.get(results.size() - 1).getScore() > 0);
+    }
+
+    @Test
+    public void resultsAreLimitedToTheBestMatches() {
+        assertEquals(Arrays.asList(inName, inDescription), ids(hikeSearchDAO.searchHikes("heron", 2, null)));
+    }
+
+    @Test
+    public void everyWordMatchesAsAPrefix() {
+        assertEquals(ids(hikeSearchDAO.searchHikes("heron", LIMIT, null)),
+                ids(hikeSearchDAO.searchHikes("her", LIMIT, null)));
+        // Every word has to match, each as a prefix.
+        assertEquals(Arrays.asList(inName), ids(hikeSearchDAO.searchHikes("po her", LIMIT, null)));
+        assertEquals(Arrays.asList(nearLake), ids(hikeSearchDAO.searchHikes("Lak HER", LIMIT, null)));
+        assertTrue(hikeSearchDAO.searchHikes("herons", LIMIT, null).isEmpty());
+    }
+
+    @Test
+    public void snippetsMarkTheMatchedWords() {
+        for (HikeSearchResult result : hikeSearchDAO.searchHikes("her", LIMIT, null)) {
+            long id = result.getHike().getId();
+            String marked = HikeSearchDAO.SNIPPET_START + (id == inName || id == inGear ? "Heron" : "heron")
+                    + HikeSearchDAO.SNIPPET_END;
+            assertTrue(result.getSnippet(), result.getSnippet().contains(marked));
+        }
+    }
+
+    @Test
+    public void querySyntaxIsSearchedAsPlainWords() {
+        List<Long> heron = ids(hikeSearchDAO.searchHikes("heron", LIMIT, null));
+        String[] decorated = {"\"heron", "heron\"", "heron*", "-heron", "(heron", "heron)", "heron:", "^heron"};
+        for (String query : decorated) {
+            assertEquals(query, heron, ids(hikeSearchDAO.searchHikes(query, LIMIT, null)));
+        }
+        // OR and NEAR are words to find, not operators: only the hike with both "heron" and "lake", and a word
+        // starting with "or" or "near", matches, rather than every hike with either word.
+        assertEquals(Arrays.asList(nearLake), ids(hikeSearchDAO.searchHikes("heron OR lake", LIMIT, null)));
+        assertEquals(Arrays.asList(nearLake), ids(hikeSearchDAO.searchHikes("heron NEAR lake", LIMIT, null)));
+        assertFalse(ids(hikeSearchDAO.searchHikes("lake", LIMIT, null)).isEmpty());
+        assertTrue(ids(hikeSearchDAO.searchHikes("lake -heron", LIMIT, null)).contains(nearLake));
+        assertFalse(ids(hikeSearchDAO.searchHikes("lake -heron", LIMIT, null)).contains(lakeOnly));
+        for (String query : new String[]{"\"", "*", "-", "OR", "NEAR/2", "AND (", "\"\" * -", ""}) {
+            hikeSearchDAO.searchHikes(query, LIMIT, null);
+        }
+        assertTrue(hikeSearchDAO.searchHikes("\"* - ()", LIMIT, null).isEmpty());
+    }
+
+    @Test
+    public void matchQueriesAreBuiltFromFoldedWords() {
+        assertEquals("heron* or* lake*", HikeSearchDAO.toMatchQuery("H\u00e9ron \"OR\" -lake*"));
+        assertEquals("near* 2*", HikeSearchDAO.toMatchQuery("NEAR/2"));
+        assertNull(HikeSearchDAO.toMatchQuery("\"* - ()"));
+    }
+
+    private long addHike(String name, String location, String description, String gear, String observation) {
+        long hikeId = hikeDAO.addHike(new Hike(name, location, 19000, "Yes", 5.0, "Easy", description, "Sunny", gear));
+        observationDAO.addObservation(new Observation(hikeId, observation, "09:30", null));
+        return hikeId;
+    }
+
+    private static List<Long> ids(List<HikeSearchResult> results) {
+        List<Long> ids = new ArrayList<>();
+        for (HikeSearchResult result : results) {
+            ids.add(result.getHike().getId());
+        }
+        return ids;
+    }
+}
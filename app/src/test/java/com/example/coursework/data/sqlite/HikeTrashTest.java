@@ -0,0 +1,133 @@
+package com.example.coursework.data.sqlite;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.coursework.data.models.HikeStats;
+import com.example.coursework.data.models.HikeSummary;
+import com.example.coursework.data.models.Observation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a hike in the trash is left out of the list, the statistics and the search index until it is restored,
+ * that the purge only deletes hikes trashed before its cutoff, and that the freed pages are handed back to the file
+ * system.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class HikeTrashTest {
+
+    private static final int HIKE_COUNT = 200;
+
+    private Context context;
+    private HikeDAO hikeDAO;
+    private HikeStatsDAO hikeStatsDAO;
+    private HikeSearchDAO hikeSearchDAO;
+    private final List<Long> hikeIds = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        hikeDAO = new HikeDAO(context);
+        hikeStatsDAO = new HikeStatsDAO(context);
+        hikeSearchDAO = new HikeSearchDAO(context);
+        ObservationDAO observationDAO = new ObservationDAO(context);
+        SyntheticHikes hikes = new SyntheticHikes(7);
+        for (int i = 0; i < HIKE_COUNT; i++) {
+            long hikeId = hikeDAO.addHike(hikes.nextHike());
+            observationDAO.addObservation(new Observation(hikeId, "Saw a heron", "09:30", null));
+            hikeIds.add(hikeId);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        DatabaseHelper.resetInstance();
+        context.deleteDatabase(DatabaseHelper.DATABASE_NAME);
+    }
+
+    @Test
+    public void trashedHikesAreHiddenUntilRestored() {
+        long hikeId = hikeIds.get(0);
+        assertEquals(1, hikeDAO.trashHikes(Collections.singletonList(hikeId), 1000));
+
+        assertFalse(pageIds().contains(hikeId));
+        HikeStats.Bucket total = hikeStatsDAO.getStats().getTotal();
+        assertEquals(HIKE_COUNT - 1, total.getHikeCount());
+        assertEquals(HIKE_COUNT - 1, total.getObservationCount());
+        assertEquals(HIKE_COUNT - 1, hikeSearchDAO.searchHikes("heron", HIKE_COUNT, null).size());
+        assertEquals(hikeId, hikeDAO.getTrashedHikes().get(0).getId());
+
+        // The running totals match a rebuild from the live hikes.
+        hikeStatsDAO.rebuildStats();
+        assertEquals(HIKE_COUNT - 1, hikeStatsDAO.getStats().getTotal().getHikeCount());
+
+        assertEquals(1, hikeDAO.restoreHikes(Collections.singletonList(hikeId)));
+        assertTrue(pageIds().contains(hikeId));
+        assertEquals(HIKE_COUNT, hikeStatsDAO.getStats().getTotal().getHikeCount());
+        assertEquals(HIKE_COUNT, hikeSearchDAO.searchHikes("heron", HIKE_COUNT, null).size());
+        assertTrue(hikeDAO.getTrashedHikes().isEmpty());
+    }
+
+    @Test
+    public void purgeDeletesOnlyExpiredHikesInBatches() {
+        hikeDAO.trashHikes(Arrays.asList(hikeIds.get(0), hikeIds.get(1), hikeIds.get(2)), 1000);
+        hikeDAO.trashHikes(Collections.singletonList(hikeIds.get(3)), 5000);
+
+        assertEquals(Collections.singletonList(hikeIds.get(0)), hikeDAO.purgeTrashedHikes(2000, 1));
+        assertEquals(Arrays.asList(hikeIds.get(1), hikeIds.get(2)), hikeDAO.purgeTrashedHikes(2000, 10));
+        assertTrue(hikeDAO.purgeTrashedHikes(2000, 10).isEmpty());
+
+        assertNull(hikeDAO.getHikeById(hikeIds.get(1)));
+        assertEquals(1, hikeDAO.getTrashedHikes().size());
+        assertEquals(HIKE_COUNT - 3, count("SELECT count(*) FROM " + DatabaseHelper.TABLE_OBSERVATIONS));
+        assertEquals(HIKE_COUNT - 4, hikeStatsDAO.getStats().getTotal().getHikeCount());
+    }
+
+    @Test
+    public void vacuumHandsFreePagesBack() {
+        DatabaseHelper helper = DatabaseHelper.getInstance(context);
+        assertEquals(DatabaseHelper.AUTO_VACUUM_INCREMENTAL, count("PRAGMA auto_vacuum"));
+
+        hikeDAO.trashAllHikes(1000);
+        assertEquals(HIKE_COUNT, hikeDAO.purgeTrashedHikes(2000, HIKE_COUNT).size());
+        long freePages = count("PRAGMA freelist_count");
+        assertTrue("Deleting every hike frees pages", freePages > 1);
+
+        assertEquals(freePages - 1, helper.incrementalVacuum(1));
+        assertEquals(0, helper.incrementalVacuum((int) freePages));
+    }
+
+    private List<Long> pageIds() {
+        List<Long> ids = new ArrayList<>();
+        for (HikeSummary hike : hikeDAO.getHikesPage(null, null, HIKE_COUNT)) {
+            ids.add(hike.getId());
+        }
+        return ids;
+    }
+
+    private long count(String sql) {
+        SQLiteDatabase db = DatabaseHelper.getInstance(context).getReadableDatabase();
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.coursework.data.sqlite;
+
+import android.content.Context;
+
+import com.example.coursework.data.models.Observation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.SQLiteMode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that walking a hike's observations back by keyset, as the observation pager does to restore a page it
+ * dropped, reads the same observations in the same order as walking them forwards, including across observations
+ * that share a time, and never strays into another hike's observations.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+@SQLiteMode(SQLiteMode.Mode.NATIVE)
+public class ObservationPagingTest {
+
+    private static final int OBSERVATION_COUNT = 230;
+    private static final int PAGE_SIZE = 30;
+
+    private Context context;
+    private ObservationDAO observationDAO;
+    private long hikeId;
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.getApplication();
+        HikeDAO hikeDAO = new HikeDAO(context);
+        observationDAO = new ObservationDAO(context);
+        SyntheticHikes data = new SyntheticHikes(13);
+        hikeId = hikeDAO.addHike(data.nextHike());
+        long otherHikeId = hikeDAO.addHike(data.nextHike());
+        for (int i = 0; i < OBSERVATION_COUNT; i++) {
+            observationDAO.addObservation(data.nextObservation(hikeId));
+            observationDAO.addObservation(data.nextObservation(otherHikeId));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        DatabaseHelper.resetInstance();
+        context.deleteDatabase(DatabaseHelper.DATABASE_NAME);
+    }
+
+    @Test
+    public void pagesBeforeAnObservationMatchTheForwardOrder() {
+        List<Long> forward = new ArrayList<>();
+        List<Observation> page = observationDAO.getObservationsPage(hikeId, null, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            for (Observation observation : page) {
+                forward.add(observation.getId());
+            }
+            page = observationDAO.getObservationsPage(hikeId, page.get(page.size() - 1), PAGE_SIZE);
+        }
+        assertEquals(OBSERVATION_COUNT, forward.size());
+
+        List<Observation> all = observationDAO.getObservationsForHike(hikeId);
+        List<Long> backward = new ArrayList<>();
+        Observation before = all.get(all.size() - 1);
+        backward.add(before.getId());
+        while (true) {
+            page = observationDAO.getObservationsPageBefore(hikeId, before, PAGE_SIZE);
+            for (int i = page.size() - 1; i >= 0; i--) {
+                assertEquals(hikeId, page.get(i).getHikeId());
+                backward.add(0, page.get(i).getId());
+            }
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            before = page.get(0);
+        }
+        assertEquals(forward, backward);
+    }
+}
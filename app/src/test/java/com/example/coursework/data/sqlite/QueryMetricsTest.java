@@ -0,0 +1,62 @@
+package com.example.coursework.data.sqlite;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the histogram percentiles, the slow query ring and the bind shapes of {@link QueryMetrics}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class QueryMetricsTest {
+
+    @Test
+    public void percentilesComeFromTheHistogram() {
+        QueryMetrics metrics = new QueryMetrics();
+        long now = QueryMetrics.start();
+        // A call started 3 ms ago falls in the bucket ending at 4.096 ms.
+        metrics.record("HikeDAO.getAllHikes", now - 3_000_000, 10, 1000, "SELECT * FROM hikes", null);
+
+        QueryMetrics.Operation operation = metrics.getOperations().get(0);
+        assertEquals("HikeDAO.getAllHikes", operation.getName());
+        assertEquals(1, operation.getCount());
+        assertEquals(10, operation.getRows());
+        assertEquals(1000, operation.getBytes());
+        long p50 = operation.getPercentileNanos(50);
+        assertTrue(p50 >= 3_000_000 && p50 <= operation.getMaxNanos());
+    }
+
+    @Test
+    public void slowQueryLogKeepsTheMostRecentCalls() {
+        QueryMetrics metrics = new QueryMetrics();
+        metrics.setSlowQueryThresholdMillis(1);
+        long now = QueryMetrics.start();
+        for (int i = 0; i < QueryMetrics.SLOW_QUERY_LOG_SIZE + 10; i++) {
+            metrics.record("call" + i, now - 2_000_000, 0, 0, "SELECT ?", new Object[]{"x"});
+        }
+        metrics.record("fast", QueryMetrics.start(), 0, 0, "SELECT 1", null);
+
+        List<QueryMetrics.SlowQuery> slowQueries = metrics.getSlowQueries();
+        assertEquals(QueryMetrics.SLOW_QUERY_LOG_SIZE, slowQueries.size());
+        assertEquals("call" + (QueryMetrics.SLOW_QUERY_LOG_SIZE + 9), slowQueries.get(0).getOperation());
+        assertEquals("text", slowQueries.get(0).getBindShape());
+
+        metrics.reset();
+        assertTrue(metrics.getSlowQueries().isEmpty());
+        assertTrue(metrics.getOperations().isEmpty());
+    }
+
+    @Test
+    public void bindShapeMergesRunsOfTheSameType() {
+        assertEquals("text x 2, integer, null, real", QueryMetrics.bindShape("",
+                new Object[]{"a", "b", 1L, null, 2.0}));
+        assertEquals("3 bound", QueryMetrics.bindShape("VALUES (?, ?, ?)", null));
+        assertEquals("none", QueryMetrics.bindShape("SELECT 1", null));
+    }
+}
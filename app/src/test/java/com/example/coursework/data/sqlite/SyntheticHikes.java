@@ -0,0 +1,123 @@
+package com.example.coursework.data.sqlite;
+
+import android.content.Context;
+
+import com.example.coursework.data.models.Hike;
+import com.example.coursework.data.models.HikeRecord;
+import com.example.coursework.data.models.Observation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates hikes and observations that look like real data: names and locations drawn from a small vocabulary,
+ * dates spread over ten years, a skewed mix of difficulties and zero to four observations per hike.
+ * <p>
+ * The output depends only on the seed and on the order of the calls, so the same seed always produces the same
+ * database and benchmark runs stay comparable.
+ */
+final class SyntheticHikes {
+
+    // First day of the generated date range, 2015-01-01, as an epoch day.
+    static final long FIRST_DATE = 16436;
+    // Number of days dates are spread over.
+    static final int DATE_RANGE_DAYS = 3650;
+    // Most observations a generated hike can have.
+    static final int MAX_OBSERVATIONS_PER_HIKE = 4;
+
+    private static final String[] DIFFICULTIES = {"Easy", "Easy", "Easy", "Moderate", "Moderate", "Difficult"};
+    private static final String[] WORDS = {"ridge", "forest", "lake", "summit", "valley", "waterfall", "meadow", "coast",
+            "canyon", "glacier", "moor", "cliff", "river", "pine", "heath", "crag"};
+    private static final String[] PLACES = {"Snowdonia", "Lake District", "Peak District", "Cairngorms", "Dartmoor",
+            "Brecon Beacons", "Yorkshire Dales", "Exmoor", "Northumberland", "Pembrokeshire"};
+    private static final String[] WEATHER = {"Sunny", "Cloudy", "Rain", "Windy", "Snow"};
+    // Records written per import transaction while populating.
+    private static final int POPULATE_BATCH_SIZE = 5000;
+
+    private final Random random;
+
+    /**
+     * Constructor for SyntheticHikes.
+     * @param seed The seed; equal seeds generate equal data.
+     */
+    SyntheticHikes(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Generates the next hike.
+     * @return The hike, without an ID.
+     */
+    Hike nextHike() {
+        String word = WORDS[random.nextInt(WORDS.length)];
+        String place = PLACES[random.nextInt(PLACES.length)];
+        return new Hike(capitalize(word) + " " + WORDS[random.nextInt(WORDS.length)] + " walk", place,
+                FIRST_DATE + random.nextInt(DATE_RANGE_DAYS), random.nextBoolean() ? "Yes" : "No",
+                1 + random.nextInt(300) / 10.0, DIFFICULTIES[random.nextInt(DIFFICULTIES.length)],
+                "A walk along the " + word + " near " + place, WEATHER[random.nextInt(WEATHER.length)], "Boots");
+    }
+
+    /**
+     * Generates the next observation.
+     * @param hikeId The hike the observation belongs to.
+     * @return The observation, without an ID.
+     */
+    Observation nextObservation(long hikeId) {
+        String time = String.format("%02d:%02d", 6 + random.nextInt(14), random.nextInt(60));
+        return new Observation(hikeId, "Saw a " + WORDS[random.nextInt(WORDS.length)], time,
+                random.nextInt(3) == 0 ? null : "Near the " + WORDS[random.nextInt(WORDS.length)]);
+    }
+
+    /**
+     * Fills the database with generated hikes and their observations through the bulk import path, then refreshes
+     * the planner statistics as an import would.
+     * @param context The application context.
+     * @param hikeCount The number of hikes to generate.
+     * @return The number of observations generated.
+     */
+    long populate(Context context, int hikeCount) {
+        ImportDAO importDAO = new ImportDAO(context);
+        Map<String, Long> hikeIds = new HashMap<>();
+        List<HikeRecord> batch = new ArrayList<>(POPULATE_BATCH_SIZE + MAX_OBSERVATIONS_PER_HIKE);
+        long observations = 0;
+        for (int i = 0; i < hikeCount; i++) {
+            String key = String.valueOf(i);
+            Hike hike = nextHike();
+            int observationCount = random.nextInt(MAX_OBSERVATIONS_PER_HIKE + 1);
+            if (observationCount == 0) {
+                batch.add(new HikeRecord(key, hike, null));
+            }
+            for (int j = 0; j < observationCount; j++) {
+                // The import fills in the hike ID from the record's key.
+                batch.add(new HikeRecord(key, hike, nextObservation(0)));
+            }
+            observations += observationCount;
+            if (batch.size() >= POPULATE_BATCH_SIZE) {
+                importDAO.writeBatch(batch, hikeIds);
+                batch.clear();
+                // Keys are never repeated, so earlier ones are no longer needed.
+                hikeIds.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            importDAO.writeBatch(batch, hikeIds);
+        }
+        importDAO.refreshStatistics();
+        return observations;
+    }
+
+    /**
+     * @param bound The exclusive upper bound.
+     * @return The next pseudo-random int from 0 (inclusive) to bound (exclusive).
+     */
+    int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
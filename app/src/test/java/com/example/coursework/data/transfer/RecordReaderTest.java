@@ -0,0 +1,69 @@
+package com.example.coursework.data.transfer;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link RecordReader} joins quoted CSV fields across lines, and that an unterminated quote costs only
+ * its own record.
+ */
+public class RecordReaderTest {
+
+    private static List<String> readAll(String text) throws IOException {
+        RecordReader reader = new RecordReader(new BufferedReader(new StringReader(text)), TransferFormat.CSV);
+        List<String> records = new ArrayList<>();
+        String record;
+        while ((record = reader.read()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    @Test
+    public void quotedFieldsContinueOverLineBreaks() throws IOException {
+        List<String> records = readAll("\uFEFFname,description\nRidge,\"Steep\nthen \"\"flat\"\"\"\nLake,Easy\n");
+
+        assertEquals(3, records.size());
+        assertEquals("name,description", records.get(0));
+        assertEquals("Ridge,\"Steep\nthen \"\"flat\"\"\"", records.get(1));
+        assertEquals("Lake,Easy", records.get(2));
+    }
+
+    @Test
+    public void unterminatedQuoteCostsOneRecord() throws IOException {
+        StringBuilder text = new StringBuilder("Ridge,\"Steep\n");
+        for (int i = 0; i < RecordReader.MAX_RECORD_LINES + 10; i++) {
+            text.append("Hike ").append(i).append(",Easy\n");
+        }
+        List<String> records = readAll(text.toString());
+
+        assertEquals(RecordReader.MAX_RECORD_LINES + 11, records.size());
+        assertEquals("Ridge,\"Steep", records.get(0));
+        assertEquals("Hike 0,Easy", records.get(1));
+        assertEquals("Hike " + (RecordReader.MAX_RECORD_LINES + 9) + ",Easy", records.get(records.size() - 1));
+    }
+
+    @Test
+    public void quoteLeftOpenAtTheEndIsReadAlone() throws IOException {
+        List<String> records = readAll("Ridge,Easy\nLake,\"Flat\nCoast,Windy\n");
+
+        assertEquals(3, records.size());
+        assertEquals("Lake,\"Flat", records.get(1));
+        assertEquals("Coast,Windy", records.get(2));
+
+        CsvRecordParser parser = new CsvRecordParser("name,location,date,parking_available,length,difficulty");
+        try {
+            parser.parse(records.get(1), new ArrayList<>());
+            fail("A record with an open quote is malformed");
+        } catch (IllegalArgumentException expected) {
+            // Counted as skipped by the importer.
+        }
+    }
+}
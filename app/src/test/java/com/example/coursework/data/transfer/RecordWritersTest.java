@@ -0,0 +1,204 @@
+package com.example.coursework.data.transfer;
+
+import com.example.coursework.data.models.Hike;
+import com.example.coursework.data.models.HikeRecord;
+import com.example.coursework.data.models.Observation;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that what each export writer writes reads back as the same hikes and observations: CSV and JSON Lines
+ * through their import parsers, GPX through an XML parser. Runs under Robolectric for a working org.json.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class RecordWritersTest {
+
+    // Text with every character that needs quoting or escaping in one of the formats.
+    private static final String AWKWARD = "Ridge, \"the steep one\"\nthen <flat> & \\easy\\";
+    private static final long DATE = 19000;
+
+    private static final Hike FULL = new Hike(AWKWARD, "Snowdon, Wales", DATE, "Yes", 12.5, "Hard", AWKWARD,
+            "Windy, wet", "Boots, \"map\"");
+    // A hike with only the required fields.
+    private static final Hike BARE = new Hike("Lake", "Keswick", DATE + 1, "No", 3.0, "Easy", null, null, null);
+
+    private static final Observation AWKWARD_OBSERVATION = new Observation(0, AWKWARD, "09:30", AWKWARD);
+    private static final Observation BARE_OBSERVATION = new Observation(0, "Deer", "10:00", null);
+
+    // The full hike with two observations, then the bare hike with none.
+    private static final List<HikeRecord> RECORDS = Arrays.asList(
+            new HikeRecord("1", FULL, AWKWARD_OBSERVATION),
+            new HikeRecord("1", FULL, BARE_OBSERVATION),
+            new HikeRecord("2", BARE, null));
+
+    @Test
+    public void csvReadsBackTheSameRecords() throws IOException {
+        StringWriter out = new StringWriter();
+        RecordWriter writer = new CsvRecordWriter(out);
+        for (HikeRecord record : RECORDS) {
+            assertTrue(writer.write(record));
+        }
+        writer.finish();
+
+        List<String> lines = read(out.toString(), TransferFormat.CSV);
+        assertEquals(RECORDS.size() + 1, lines.size());
+        CsvRecordParser parser = new CsvRecordParser(lines.get(0));
+        List<HikeRecord> parsed = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            parser.parse(line, parsed);
+        }
+
+        assertEquals(RECORDS.size(), parsed.size());
+        assertRecord(RECORDS.get(0), parsed.get(0));
+        assertRecord(RECORDS.get(1), parsed.get(1));
+        // CSV cannot tell a missing value from an empty one, so null fields read back as empty.
+        assertEquals("", parsed.get(1).getObservation().getComments());
+        HikeRecord bare = parsed.get(2);
+        assertEquals("2", bare.getHikeKey());
+        assertHike(BARE, bare.getHike(), true);
+        assertEquals("", bare.getHike().getDescription());
+        assertEquals("", bare.getHike().getWeather());
+        assertEquals("", bare.getHike().getRecommendedGear());
+        assertNull(bare.getObservation());
+    }
+
+    @Test
+    public void jsonLinesReadsBackTheSameRecords() throws IOException {
+        StringWriter out = new StringWriter();
+        RecordWriter writer = new JsonLinesRecordWriter(out);
+        for (HikeRecord record : RECORDS) {
+            assertTrue(writer.write(record));
+        }
+        writer.finish();
+
+        // One line per hike, however many observations it has.
+        List<String> lines = read(out.toString(), TransferFormat.JSON_LINES);
+        assertEquals(2, lines.size());
+        JsonLinesRecordParser parser = new JsonLinesRecordParser();
+        List<HikeRecord> parsed = new ArrayList<>();
+        for (String line : lines) {
+            parser.parse(line, parsed);
+        }
+
+        assertEquals(RECORDS.size(), parsed.size());
+        assertRecord(RECORDS.get(0), parsed.get(0));
+        assertRecord(RECORDS.get(1), parsed.get(1));
+        assertNull(parsed.get(1).getObservation().getComments());
+        HikeRecord bare = parsed.get(2);
+        assertEquals("2", bare.getHikeKey());
+        assertHike(BARE, bare.getHike(), false);
+        assertNull(bare.getObservation());
+    }
+
+    @Test
+    public void gpxEscapesTextAndLeavesOutHikesWithoutCoordinates() throws Exception {
+        Hike placed = new Hike(FULL);
+        placed.setLocation(" 51.5007, -0.1246 ");
+        Hike bare = new Hike(BARE);
+        bare.setLocation("54.6;-3.1");
+        Hike offTheMap = new Hike(BARE);
+        offTheMap.setLocation("95, 10");
+
+        StringWriter out = new StringWriter();
+        RecordWriter writer = new GpxRecordWriter(out);
+        assertTrue(writer.write(new HikeRecord("1", placed, AWKWARD_OBSERVATION)));
+        assertTrue(writer.write(new HikeRecord("1", placed, BARE_OBSERVATION)));
+        assertFalse(writer.write(new HikeRecord("2", FULL, AWKWARD_OBSERVATION)));
+        assertFalse(writer.write(new HikeRecord("2", FULL, BARE_OBSERVATION)));
+        assertTrue(writer.write(new HikeRecord("3", bare, null)));
+        assertFalse(writer.write(new HikeRecord("4", offTheMap, null)));
+        writer.finish();
+
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        Document document = factory.newDocumentBuilder().parse(
+                new ByteArrayInputStream(out.toString().getBytes(StandardCharsets.UTF_8)));
+        NodeList waypoints = document.getElementsByTagName("wpt");
+        assertEquals(2, waypoints.getLength());
+
+        Element first = (Element) waypoints.item(0);
+        assertEquals(51.5007, Double.parseDouble(first.getAttribute("lat")), 0);
+        assertEquals(-0.1246, Double.parseDouble(first.getAttribute("lon")), 0);
+        assertEquals(AWKWARD, text(first, "name"));
+        assertEquals(AWKWARD, text(first, "desc"));
+        assertEquals("Hard", text(first, "type"));
+        NodeList observations = first.getElementsByTagNameNS("urn:mhike:gpx:1", "observation");
+        assertEquals(2, observations.getLength());
+        Element awkward = (Element) observations.item(0);
+        assertEquals("09:30", awkward.getAttribute("time"));
+        assertEquals(AWKWARD, awkward.getFirstChild().getNodeValue());
+        assertEquals(AWKWARD, awkward.getElementsByTagNameNS("urn:mhike:gpx:1", "comments").item(0).getTextContent());
+        Element deer = (Element) observations.item(1);
+        assertEquals("Deer", deer.getTextContent());
+        assertEquals(0, deer.getElementsByTagNameNS("urn:mhike:gpx:1", "comments").getLength());
+
+        Element second = (Element) waypoints.item(1);
+        assertEquals(54.6, Double.parseDouble(second.getAttribute("lat")), 0);
+        assertEquals(-3.1, Double.parseDouble(second.getAttribute("lon")), 0);
+        assertEquals("Lake", text(second, "name"));
+        assertEquals(0, second.getElementsByTagName("desc").getLength());
+        assertEquals(0, second.getElementsByTagName("extensions").getLength());
+    }
+
+    private static List<String> read(String text, TransferFormat format) throws IOException {
+        RecordReader reader = new RecordReader(new BufferedReader(new StringReader(text)), format);
+        List<String> records = new ArrayList<>();
+        String record;
+        while ((record = reader.read()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static void assertRecord(HikeRecord expected, HikeRecord actual) {
+        assertEquals(expected.getHikeKey(), actual.getHikeKey());
+        assertHike(expected.getHike(), actual.getHike(), false);
+        assertEquals(expected.getObservation().getObservation(), actual.getObservation().getObservation());
+        assertEquals(expected.getObservation().getTime(), actual.getObservation().getTime());
+        if (expected.getObservation().getComments() != null) {
+            assertEquals(expected.getObservation().getComments(), actual.getObservation().getComments());
+        }
+    }
+
+    /**
+     * @param requiredOnly True to compare only the required fields, for formats that read null fields back as empty.
+     */
+    private static void assertHike(Hike expected, Hike actual, boolean requiredOnly) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getLocation(), actual.getLocation());
+        assertEquals(expected.getDate(), actual.getDate());
+        assertEquals(expected.getParkingAvailable(), actual.getParkingAvailable());
+        assertEquals(expected.getLength(), actual.getLength(), 0);
+        assertEquals(expected.getDifficulty(), actual.getDifficulty());
+        if (!requiredOnly) {
+            assertEquals(expected.getDescription(), actual.getDescription());
+            assertEquals(expected.getWeather(), actual.getWeather());
+            assertEquals(expected.getRecommendedGear(), actual.getRecommendedGear());
+        }
+    }
+
+    private static String text(Element parent, String tag) {
+        return parent.getElementsByTagName(tag).item(0).getTextContent();
+    }
+}